@@ -0,0 +1,107 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.coupon.codec.PackedCartCodec;
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.PackedCart;
+import com.example.demo.coupon.util.CartFingerprint;
+import com.example.demo.coupon.validator.CartValidator;
+import com.example.demo.coupon.validator.ValidationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-side cost of an applicable-coupons call before any coupon is evaluated: JSON with
+ * Jackson and Bean Validation versus the compact binary encoding decoded into a PackedCart.
+ * The "fingerprint" variants add normalization and the memo key, i.e. everything a memo hit needs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CartDecodingBenchmark {
+    
+    /** Number of lines in the cart */
+    @Param({"10", "100", "1000"})
+    public int cartSize;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CartValidator cartValidator = new CartValidator();
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    
+    private byte[] json;
+    private byte[] packed;
+    
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        List<CartItemRequest> items = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            long productId = 1 + random.nextInt(200_000);
+            items.add(CartItemRequest.builder()
+                .productId(productId)
+                .productName("Product " + productId)
+                .quantity(1 + random.nextInt(5))
+                .unitPrice(BigDecimal.valueOf(100 + random.nextInt(10_000), 2))
+                .build());
+        }
+        CartRequest cartRequest = CartRequest.builder()
+            .cartItems(items)
+            .userId(12345L)
+            .build();
+        
+        json = objectMapper.writeValueAsBytes(cartRequest);
+        packed = PackedCartCodec.encode(cartRequest, 2);
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+    
+    @Benchmark
+    public void jsonDecodeAndValidate(Blackhole blackhole) throws IOException {
+        CartRequest cartRequest = objectMapper.readValue(json, CartRequest.class);
+        Set<ConstraintViolation<CartRequest>> violations = validator.validate(cartRequest);
+        ValidationResult result = cartValidator.checkCartItems(cartRequest.getCartItems());
+        blackhole.consume(violations);
+        blackhole.consume(result);
+    }
+    
+    @Benchmark
+    public ValidationResult packedDecodeAndValidate() {
+        PackedCart cart = PackedCartCodec.decode(packed);
+        return cartValidator.checkPackedCart(cart);
+    }
+    
+    @Benchmark
+    public String jsonFingerprint() throws IOException {
+        CartRequest cartRequest = objectMapper.readValue(json, CartRequest.class);
+        validator.validate(cartRequest);
+        cartValidator.validateCartItems(cartRequest.getCartItems());
+        return CartFingerprint.of(CartFingerprint.normalize(cartRequest.getCartItems()));
+    }
+    
+    @Benchmark
+    public String packedFingerprint() {
+        PackedCart cart = PackedCartCodec.decode(packed);
+        cartValidator.validatePackedCart(cart);
+        cart.normalize();
+        return CartFingerprint.of(cart);
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.model.BxGyCoupon;
+import com.example.demo.coupon.model.CartWiseCoupon;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.model.ProductWiseCoupon;
+import com.example.demo.coupon.model.enums.BxGyDiscountType;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import com.example.demo.coupon.service.strategy.BxGyStrategy;
+import com.example.demo.coupon.service.strategy.CartWiseStrategy;
+import com.example.demo.coupon.service.strategy.ProductWiseStrategy;
+import com.example.demo.coupon.util.DiscountCalculator;
+import com.example.demo.coupon.validator.CartValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-path benchmarks for the coupon strategies, DiscountCalculator and cart totals.
+ * Run with the gc profiler (the default jmh.args) to see allocation rate per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CouponStrategyBenchmark {
+    
+    /** Number of lines in the cart */
+    @Param({"5", "50", "500"})
+    public int cartSize;
+    
+    /** Number of products in each coupon's product set(s) */
+    @Param({"10", "100", "1000"})
+    public int productSetSize;
+    
+    /**
+     * Fraction of the product set that also appears in the cart, between 0 and 1. A cart cannot supply
+     * more than cartSize products, so the overlap is capped there: with cartSize=5 and productSetSize=100
+     * every ratio above 0.05 puts the whole cart in the product set.
+     */
+    @Param({"0.1", "0.5", "1.0"})
+    public double overlapRatio;
+    
+    private final CartWiseStrategy cartWiseStrategy = new CartWiseStrategy();
+    private final ProductWiseStrategy productWiseStrategy = new ProductWiseStrategy();
+    private final BxGyStrategy bxGyStrategy = new BxGyStrategy();
+    private final CartValidator cartValidator = new CartValidator();
+    
+    private List<CartItemRequest> cartItems;
+    private BigDecimal cartTotal;
+    private CartWiseCoupon cartWiseCoupon;
+    private ProductWiseCoupon productWiseCoupon;
+    private BxGyCoupon bxGyCoupon;
+    
+    @Setup
+    public void setUp() {
+        if (overlapRatio < 0 || overlapRatio > 1) {
+            throw new IllegalArgumentException("overlapRatio must be between 0 and 1, was " + overlapRatio);
+        }
+        Random random = new Random(42);
+        
+        cartItems = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            cartItems.add(CartItemRequest.builder()
+                .productId((long) i)
+                .productName("Product " + i)
+                .quantity(1 + random.nextInt(5))
+                .unitPrice(BigDecimal.valueOf(100 + random.nextInt(10_000), 2))
+                .build());
+        }
+        cartTotal = cartValidator.calculateCartTotal(cartItems);
+        
+        Set<Long> productSet = productSet(random);
+        List<Long> products = new ArrayList<>(productSet);
+        
+        cartWiseCoupon = new CartWiseCoupon();
+        base(cartWiseCoupon, CouponType.CART_WISE, DiscountType.PERCENTAGE, 1L);
+        cartWiseCoupon.setMinCartAmount(BigDecimal.TEN);
+        cartWiseCoupon.setMaxDiscountAmount(BigDecimal.valueOf(500));
+        
+        productWiseCoupon = new ProductWiseCoupon();
+        base(productWiseCoupon, CouponType.PRODUCT_WISE, DiscountType.PERCENTAGE, 2L);
+        productWiseCoupon.setApplicableProductIds(productSet);
+        productWiseCoupon.setMinQuantity(1);
+        
+        // Buy from the first half, get from the second half, with a small overlap between the two
+        int half = products.size() / 2;
+        bxGyCoupon = new BxGyCoupon();
+        base(bxGyCoupon, CouponType.BXGY, DiscountType.PERCENTAGE, 3L);
+        bxGyCoupon.setBuyProductIds(new HashSet<>(products.subList(0, Math.max(1, half + half / 10))));
+        bxGyCoupon.setGetProductIds(new HashSet<>(products.subList(half, products.size())));
+        bxGyCoupon.setBuyQuantity(2);
+        bxGyCoupon.setGetQuantity(1);
+        bxGyCoupon.setRepetitionLimit(3);
+        bxGyCoupon.setBxGyDiscountType(BxGyDiscountType.FREE);
+    }
+    
+    @Benchmark
+    public boolean cartWiseIsApplicable() {
+        return cartWiseStrategy.isApplicable(cartWiseCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object cartWiseCalculateDiscount() {
+        return cartWiseStrategy.calculateDiscount(cartWiseCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object cartWiseApplicabilityInfo() {
+        return cartWiseStrategy.getApplicabilityInfo(cartWiseCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object cartWiseApplicableDiscount() {
+        return cartWiseStrategy.applicableDiscount(cartWiseCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object cartWiseApplyCoupon() {
+        return cartWiseStrategy.applyCoupon(cartWiseCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public boolean productWiseIsApplicable() {
+        return productWiseStrategy.isApplicable(productWiseCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object productWiseCalculateDiscount() {
+        return productWiseStrategy.calculateDiscount(productWiseCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object productWiseApplicabilityInfo() {
+        return productWiseStrategy.getApplicabilityInfo(productWiseCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object productWiseApplicableDiscount() {
+        return productWiseStrategy.applicableDiscount(productWiseCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object productWiseApplyCoupon() {
+        return productWiseStrategy.applyCoupon(productWiseCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public boolean bxGyIsApplicable() {
+        return bxGyStrategy.isApplicable(bxGyCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object bxGyCalculateDiscount() {
+        return bxGyStrategy.calculateDiscount(bxGyCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object bxGyApplicabilityInfo() {
+        return bxGyStrategy.getApplicabilityInfo(bxGyCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object bxGyApplicableDiscount() {
+        return bxGyStrategy.applicableDiscount(bxGyCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object bxGyApplyCoupon() {
+        return bxGyStrategy.applyCoupon(bxGyCoupon, cartItems, cartTotal);
+    }
+    
+    @Benchmark
+    public Object calculateCartTotal() {
+        return cartValidator.calculateCartTotal(cartItems);
+    }
+    
+    /**
+     * Product set of productSetSize IDs, of which overlapRatio are taken from the cart, at most the whole cart
+     */
+    private Set<Long> productSet(Random random) {
+        int fromCart = Math.min(cartSize, (int) Math.round(productSetSize * overlapRatio));
+        List<Long> cartProductIds = new ArrayList<>();
+        for (CartItemRequest item : cartItems) {
+            cartProductIds.add(item.getProductId());
+        }
+        Collections.shuffle(cartProductIds, random);
+        
+        Set<Long> productIds = new LinkedHashSet<>(cartProductIds.subList(0, fromCart));
+        long nextOutsideId = 1_000_000L;
+        while (productIds.size() < productSetSize) {
+            productIds.add(nextOutsideId++);
+        }
+        return productIds;
+    }
+    
+    private static void base(Coupon coupon, CouponType type,
+                             DiscountType discountType, Long id) {
+        coupon.setId(id);
+        coupon.setCode("BENCH" + id);
+        coupon.setName("Benchmark coupon " + id);
+        coupon.setType(type);
+        coupon.setDiscountType(discountType);
+        coupon.setDiscountValue(BigDecimal.valueOf(15));
+        coupon.setIsActive(true);
+        coupon.setStartDate(LocalDateTime.now().minusDays(1));
+        coupon.setEndDate(LocalDateTime.now().plusDays(1));
+        coupon.setCurrentUsage(0);
+    }
+    
+    /**
+     * DiscountCalculator primitives; independent of the cart parameters
+     */
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @State(Scope.Benchmark)
+    public static class DiscountCalculatorBenchmark {
+        
+        private final BigDecimal amount = new BigDecimal("1234.56");
+        private final BigDecimal percentage = new BigDecimal("12.50");
+        private final BigDecimal fixed = new BigDecimal("50.00");
+        private final BigDecimal cap = new BigDecimal("100.00");
+        
+        @Benchmark
+        public Object percentageDiscount() {
+            return DiscountCalculator.calculatePercentageDiscount(amount, percentage);
+        }
+        
+        @Benchmark
+        public Object fixedDiscount() {
+            return DiscountCalculator.calculateFixedDiscount(amount, fixed);
+        }
+        
+        @Benchmark
+        public Object discountCap() {
+            return DiscountCalculator.applyDiscountCap(DiscountCalculator.calculatePercentageDiscount(amount, percentage), cap);
+        }
+        
+        @Benchmark
+        public Object ensureNonNegativeAndRound() {
+            return DiscountCalculator.round(DiscountCalculator.ensureNonNegative(amount, fixed));
+        }
+    }
+}
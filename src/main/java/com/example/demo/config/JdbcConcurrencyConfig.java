@@ -0,0 +1,65 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * With virtual threads there is no request thread pool to limit concurrency, so JDBC access is
+ * bounded explicitly by wrapping the DataSource in a semaphore sized to the connection pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class JdbcConcurrencyConfig {
+    
+    @Bean
+    public static BeanPostProcessor jdbcConcurrencyLimiter(
+            @Value("${coupon.jdbc.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+            @Value("${coupon.jdbc.acquire-timeout:PT30S}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) {
+                    return bean;
+                }
+                log.info("Limiting JDBC concurrency of '{}' to {} connections", beanName, maxConcurrency);
+                return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeout);
+            }
+        };
+    }
+    
+    @Bean
+    public MeterBinder jdbcPermitMetrics(DataSource dataSource) {
+        return registry -> {
+            // Other wrappers (statement counting) may sit in front of the limiter
+            ConcurrencyLimitedDataSource limited = unwrapLimited(dataSource);
+            if (limited != null) {
+                Gauge.builder("coupon.jdbc.permits.available", limited, ConcurrencyLimitedDataSource::getAvailablePermits)
+                    .description("JDBC permits not currently in use")
+                    .register(registry);
+                Gauge.builder("coupon.jdbc.permits.waiting", limited, ConcurrencyLimitedDataSource::getQueueLength)
+                    .description("Threads waiting for a JDBC permit")
+                    .register(registry);
+            }
+        };
+    }
+    
+    private static ConcurrencyLimitedDataSource unwrapLimited(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ConcurrencyLimitedDataSource.class)
+                ? dataSource.unwrap(ConcurrencyLimitedDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the background jobs (rollups, sweeps, purges, archival). A one-off run such as the dataset
+ * generator sets {@code coupon.scheduling.enabled=false}, so none of them run during it and no
+ * scheduler thread keeps the JVM alive once it is done.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "coupon.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
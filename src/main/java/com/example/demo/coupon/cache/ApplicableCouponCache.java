@@ -0,0 +1,65 @@
+package com.example.demo.coupon.cache;
+
+import com.example.demo.coupon.dto.CouponView;
+import com.example.demo.coupon.service.CartEvaluation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded memo of cart evaluations keyed by catalog version and cart fingerprint.
+ * Entries also expire after a short TTL because coupon validity depends on the clock.
+ * Compact evaluations are kept apart from full ones since they lack breakdowns and messages.
+ */
+@Component
+@RequiredArgsConstructor
+public class ApplicableCouponCache {
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${coupon.applicable-cache.max-entries:10000}")
+    private long maxEntries;
+    
+    @Value("${coupon.applicable-cache.ttl:PT60S}")
+    private Duration ttl;
+    
+    private Cache<String, CartEvaluation> cache;
+    
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "coupon.applicable");
+    }
+    
+    public CartEvaluation getIfPresent(long catalogVersion, String cartFingerprint) {
+        return getIfPresent(catalogVersion, cartFingerprint, CouponView.FULL);
+    }
+    
+    public CartEvaluation getIfPresent(long catalogVersion, String cartFingerprint, CouponView view) {
+        return cache.getIfPresent(key(catalogVersion, cartFingerprint, view));
+    }
+    
+    public void put(long catalogVersion, String cartFingerprint, CartEvaluation evaluation) {
+        put(catalogVersion, cartFingerprint, CouponView.FULL, evaluation);
+    }
+    
+    public void put(long catalogVersion, String cartFingerprint, CouponView view, CartEvaluation evaluation) {
+        cache.put(key(catalogVersion, cartFingerprint, view), evaluation);
+    }
+    
+    public static String key(long catalogVersion, String cartFingerprint, CouponView view) {
+        return view == CouponView.FULL ? catalogVersion + ":" + cartFingerprint
+            : catalogVersion + ":" + cartFingerprint + ":" + view;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.demo.coupon.cache;
+
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.example.demo.coupon.model.BxGyCoupon;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.model.ProductWiseCoupon;
+import com.example.demo.coupon.repository.CouponRepository;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Versioned, read-only snapshot of the coupons that can currently be offered to carts.
+ * The version is bumped whenever a coupon definition changes or a coupon runs out of
+ * global usage, and the snapshot is reloaded lazily on the next read.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CouponCatalog {
+    
+    private final CouponRepository couponRepository;
+    private final PlatformTransactionManager transactionManager;
+    
+    @Value("${coupon.catalog.refresh-interval:PT5M}")
+    private Duration refreshInterval;
+    
+    private final AtomicLong version = new AtomicLong();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    
+    /**
+     * Get the current snapshot, reloading it if the catalog has changed
+     */
+    public Snapshot current() {
+        Snapshot current = currentIfFresh();
+        return current != null ? current : reload();
+    }
+    
+    /**
+     * Get the current snapshot if it can be served without reloading, otherwise null.
+     * Lets non-blocking callers skip offloading the common case to a worker thread.
+     */
+    public Snapshot currentIfFresh() {
+        Snapshot current = snapshot;
+        if (current != null && current.getVersion() == version.get() && !current.isStale(refreshInterval)) {
+            return current;
+        }
+        return null;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCouponChanged(CouponChangedEvent event) {
+        if (event.affectsCatalog()) {
+            version.incrementAndGet();
+        }
+    }
+    
+    private Snapshot reload() {
+        // A lock rather than synchronized: the load blocks on JDBC, which would pin a virtual thread's carrier
+        reloadLock.lock();
+        try {
+            return reloadLocked();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+    
+    private Snapshot reloadLocked() {
+        Snapshot current = snapshot;
+        long targetVersion = version.get();
+        if (current != null && current.getVersion() == targetVersion && !current.isStale(refreshInterval)) {
+            return current;
+        }
+        
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        List<Coupon> coupons = template.execute(status -> {
+            List<Coupon> loaded = couponRepository.findActiveCoupons(LocalDateTime.now());
+            // Initialize product sets so the detached entities can be evaluated outside a session
+            for (Coupon coupon : loaded) {
+                if (coupon instanceof ProductWiseCoupon productWiseCoupon) {
+                    Hibernate.initialize(productWiseCoupon.getApplicableProductIds());
+                } else if (coupon instanceof BxGyCoupon bxGyCoupon) {
+                    Hibernate.initialize(bxGyCoupon.getBuyProductIds());
+                    Hibernate.initialize(bxGyCoupon.getGetProductIds());
+                }
+            }
+            return loaded;
+        });
+        
+        // Tag with the version read before loading so changes made meanwhile trigger another reload
+        Snapshot loaded = new Snapshot(targetVersion, List.copyOf(coupons), Instant.now());
+        snapshot = loaded;
+        log.info("Coupon catalog snapshot v{} loaded with {} coupons", targetVersion, coupons.size());
+        return loaded;
+    }
+    
+    @Getter
+    public static class Snapshot {
+        private final long version;
+        private final List<Coupon> coupons;
+        private final Instant loadedAt;
+        
+        // Inverted index: product ID -> positions of coupons whose product sets contain it
+        @Getter(AccessLevel.NONE)
+        private final Map<Long, BitSet> couponsByProduct = new HashMap<>();
+        @Getter(AccessLevel.NONE)
+        private final BitSet cartWiseCoupons = new BitSet();
+        @Getter(AccessLevel.NONE)
+        private final Map<Long, Coupon> couponsById = new HashMap<>();
+        
+        Snapshot(long version, List<Coupon> coupons, Instant loadedAt) {
+            this.version = version;
+            this.coupons = coupons;
+            this.loadedAt = loadedAt;
+            for (int i = 0; i < coupons.size(); i++) {
+                Coupon coupon = coupons.get(i);
+                couponsById.put(coupon.getId(), coupon);
+                if (coupon instanceof ProductWiseCoupon productWiseCoupon) {
+                    index(productWiseCoupon.getApplicableProductIds(), i);
+                } else if (coupon instanceof BxGyCoupon bxGyCoupon) {
+                    index(bxGyCoupon.getBuyProductIds(), i);
+                    index(bxGyCoupon.getGetProductIds(), i);
+                } else {
+                    cartWiseCoupons.set(i);
+                }
+            }
+        }
+        
+        /**
+         * Positions of coupons that can possibly apply to a cart with the given products:
+         * every cart-wise coupon plus coupons whose product sets touch the cart.
+         */
+        public BitSet candidatesFor(Collection<Long> productIds) {
+            BitSet candidates = (BitSet) cartWiseCoupons.clone();
+            candidates.or(touching(productIds));
+            return candidates;
+        }
+        
+        /**
+         * Positions of product-wise and BxGy coupons whose product sets contain any of the products
+         */
+        public BitSet touching(Collection<Long> productIds) {
+            BitSet touched = new BitSet();
+            for (Long productId : productIds) {
+                BitSet positions = couponsByProduct.get(productId);
+                if (positions != null) {
+                    touched.or(positions);
+                }
+            }
+            return touched;
+        }
+        
+        /**
+         * The snapshot's copy of a coupon, or null if it was not active when the snapshot was loaded
+         */
+        public Coupon find(Long couponId) {
+            return couponsById.get(couponId);
+        }
+        
+        public BitSet cartWise() {
+            return (BitSet) cartWiseCoupons.clone();
+        }
+        
+        /**
+         * Check dates and global usage; the snapshot also holds coupons that start later
+         */
+        public static boolean isRedeemable(Coupon coupon, LocalDateTime now) {
+            return !now.isBefore(coupon.getStartDate())
+                && !now.isAfter(coupon.getEndDate())
+                && (coupon.getMaxUsage() == null || coupon.getCurrentUsage() < coupon.getMaxUsage());
+        }
+        
+        boolean isStale(Duration maxAge) {
+            return loadedAt.plus(maxAge).isBefore(Instant.now());
+        }
+        
+        private void index(Set<Long> productIds, int position) {
+            if (productIds == null) {
+                return;
+            }
+            for (Long productId : productIds) {
+                couponsByProduct.computeIfAbsent(productId, id -> new BitSet()).set(position);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.coupon.cache;
+
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.example.demo.coupon.repository.CouponRepository;
+import com.example.demo.coupon.util.BloomFilter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory code -> coupon ID index used by apply-by-code.
+ * A Bloom filter sits in front of the map so that unknown codes (typically
+ * guessed by bots) are rejected without touching the map or the database.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CouponCodeIndex {
+    
+    private final CouponRepository couponRepository;
+    
+    @Value("${coupon.code-index.expected-codes:100000}")
+    private int expectedCodes;
+    
+    @Value("${coupon.code-index.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    private final Map<String, Long> codeToId = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+    private volatile int bloomCapacity;
+    private volatile boolean loaded;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<CouponRepository.CouponCodeView> codes = couponRepository.findAllCodes();
+        codeToId.clear();
+        for (CouponRepository.CouponCodeView view : codes) {
+            codeToId.put(normalize(view.getCode()), view.getId());
+        }
+        rebuildBloomFilter();
+        loaded = true;
+        log.info("Coupon code index loaded with {} codes", codeToId.size());
+    }
+    
+    /**
+     * Resolve a coupon code to its ID without hitting the database once the index is loaded
+     */
+    public Optional<Long> resolve(String code) {
+        if (code == null || code.isBlank()) {
+            return Optional.empty();
+        }
+        String key = normalize(code);
+        
+        if (!loaded) {
+            return couponRepository.findIdByNormalizedCode(key);
+        }
+        
+        // Definitely unknown - reject without consulting the map
+        if (!bloomFilter.mightContain(key)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(codeToId.get(key));
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCouponChanged(CouponChangedEvent event) {
+        if (event.getPreviousCode() != null && !event.getPreviousCode().equals(event.getCode())) {
+            codeToId.remove(normalize(event.getPreviousCode()), event.getCouponId());
+        }
+        if (event.getChangeType() == CouponChangedEvent.ChangeType.DELETED) {
+            return;
+        }
+        if (event.getCode() != null) {
+            register(event.getCouponId(), event.getCode());
+        }
+    }
+    
+    private synchronized void register(Long couponId, String code) {
+        String key = normalize(code);
+        codeToId.put(key, couponId);
+        if (codeToId.size() > bloomCapacity) {
+            rebuildBloomFilter();
+        } else {
+            bloomFilter.put(key);
+        }
+    }
+    
+    /**
+     * Bloom filters cannot forget entries, so removed codes stay as harmless
+     * false positives until the filter is rebuilt on growth.
+     */
+    private synchronized void rebuildBloomFilter() {
+        int capacity = Math.max(expectedCodes, codeToId.size() * 2);
+        BloomFilter filter = new BloomFilter(capacity, falsePositiveRate);
+        codeToId.keySet().forEach(filter::put);
+        bloomFilter = filter;
+        bloomCapacity = capacity;
+    }
+    
+    /**
+     * The form codes are matched in: surrounding whitespace and case are ignored
+     */
+    public static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demo.coupon.cache;
+
+import com.example.demo.coupon.dto.CouponResponse;
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of serialized coupon JSON for the read endpoints.
+ * Every change takes the next number of a global change sequence, recorded as the
+ * coupon's version. A cached coupon is served only while its version is unchanged, and
+ * a cached listing page only while none of the coupons on it changed after the page
+ * was read, so a response built from data read before a concurrent update is never
+ * served after that update commits. Redemptions therefore invalidate only the pages
+ * showing the redeemed coupon; changes that can move coupons between pages
+ * (create, update, delete) invalidate every page.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CouponResponseCache {
+    
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${coupon.response-cache.max-entries:10000}")
+    private long maxEntries;
+    
+    private Cache<Long, CachedJson> couponCache;
+    private Cache<String, CachedJson> listingCache;
+    private final AtomicLong changeSequence = new AtomicLong();
+    private final Map<Long, Long> couponVersions = new ConcurrentHashMap<>();
+    private final AtomicLong listingVersion = new AtomicLong();
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private Counter bytesSaved;
+    
+    @PostConstruct
+    void init() {
+        couponCache = Caffeine.newBuilder().maximumSize(maxEntries).build();
+        listingCache = Caffeine.newBuilder().maximumSize(maxEntries).build();
+        
+        meterRegistry.more().counter("coupon.response.cache.requests", Tags.of("result", "hit"), hits);
+        meterRegistry.more().counter("coupon.response.cache.requests", Tags.of("result", "miss"), misses);
+        bytesSaved = Counter.builder("coupon.response.cache.bytes.saved")
+            .description("Serialized bytes served from cache instead of re-serializing")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("coupon.response.cache.hit.ratio", this, CouponResponseCache::hitRatio)
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Get serialized JSON for a single coupon, loading and serializing it on a miss
+     */
+    public CachedJson getCoupon(Long couponId, Supplier<CouponResponse> loader) {
+        long version = couponVersions.getOrDefault(couponId, 0L);
+        CachedJson cached = couponCache.getIfPresent(couponId);
+        if (cached != null && cached.getVersion() == version) {
+            return hit(cached);
+        }
+        
+        misses.incrementAndGet();
+        CachedJson json = serialize(loader.get(), version, version, null);
+        couponCache.put(couponId, json);
+        return json;
+    }
+    
+    /**
+     * Get serialized JSON for a page of the coupon listing
+     */
+    public CachedJson getCouponPage(Boolean isActive, CouponType type, int page, int size,
+                                    Supplier<Page<CouponResponse>> loader) {
+        long version = listingVersion.get();
+        long sequence = changeSequence.get();
+        String key = isActive + "|" + type + "|" + page + "|" + size;
+        CachedJson cached = listingCache.getIfPresent(key);
+        if (cached != null && cached.getVersion() == version && unchangedSince(cached)) {
+            return hit(cached);
+        }
+        
+        misses.incrementAndGet();
+        Page<CouponResponse> coupons = loader.get();
+        long[] couponIds = coupons.getContent().stream().mapToLong(CouponResponse::getId).toArray();
+        CachedJson json = serialize(coupons, version, sequence, couponIds);
+        listingCache.put(key, json);
+        return json;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCouponChanged(CouponChangedEvent event) {
+        couponVersions.merge(event.getCouponId(), changeSequence.incrementAndGet(), Math::max);
+        if (movesListingEntries(event.getChangeType())) {
+            listingVersion.incrementAndGet();
+        }
+        couponCache.invalidate(event.getCouponId());
+    }
+    
+    /**
+     * Usage changes leave a coupon's listing filters (active flag, type) and position untouched
+     */
+    private static boolean movesListingEntries(CouponChangedEvent.ChangeType changeType) {
+        return changeType != CouponChangedEvent.ChangeType.REDEEMED
+            && changeType != CouponChangedEvent.ChangeType.EXHAUSTED;
+    }
+    
+    private boolean unchangedSince(CachedJson page) {
+        for (long couponId : page.getCouponIds()) {
+            if (couponVersions.getOrDefault(couponId, 0L) > page.getSequence()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private CachedJson hit(CachedJson cached) {
+        hits.incrementAndGet();
+        bytesSaved.increment(cached.getBody().length);
+        return cached;
+    }
+    
+    private CachedJson serialize(Object value, long version, long sequence, long[] couponIds) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(value);
+            String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+            return new CachedJson(version, body, etag, sequence, couponIds);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize coupon response", e);
+        }
+    }
+    
+    private double hitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    public static class CachedJson {
+        private final long version;
+        private final byte[] body;
+        private final String etag; // strong ETag over the serialized bytes
+        private final long sequence; // change sequence when the data was read
+        private final long[] couponIds; // coupons on a listing page; null for a single coupon
+    }
+}
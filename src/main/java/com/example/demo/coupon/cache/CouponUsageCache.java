@@ -0,0 +1,107 @@
+package com.example.demo.coupon.cache;
+
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.repository.CouponUsageJdbcRepository;
+import com.example.demo.coupon.util.SingleFlight;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recorded uses of coupons, global and per user, for checks that must not go to the database on every
+ * request. A coupon's usage is loaded on first use and kept current from the REDEEMED/EXHAUSTED events
+ * of this node; it is reloaded every refresh interval to pick up uses recorded by other nodes. The
+ * counts may trail the database briefly, so whatever acts on them must re-check in the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class CouponUsageCache {
+    
+    private final CouponUsageJdbcRepository couponUsageJdbcRepository;
+    
+    @Value("${coupon.reservation.usage-refresh:PT1M}")
+    private Duration refreshInterval;
+    
+    private final Map<Long, RecordedUsage> usageByCoupon = new ConcurrentHashMap<>();
+    private final SingleFlight<Long, RecordedUsage> loads = new SingleFlight<>();
+    
+    /**
+     * The coupon's recorded usage, loading it if it is missing or due for a refresh; null if the coupon
+     * no longer exists. Per-user counts are kept only for coupons with a per-user limit.
+     */
+    public RecordedUsage get(Coupon coupon) {
+        RecordedUsage usage = usageByCoupon.get(coupon.getId());
+        if (usage != null && !usage.isStale(refreshInterval)) {
+            return usage;
+        }
+        return loads.execute(coupon.getId(), () -> load(coupon));
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCouponChanged(CouponChangedEvent event) {
+        switch (event.getChangeType()) {
+            case REDEEMED, EXHAUSTED -> {
+                RecordedUsage usage = usageByCoupon.get(event.getCouponId());
+                if (usage != null) {
+                    event.getRedeemedBy().forEach(usage::add);
+                }
+            }
+            // Limits may have changed; the next check loads the usage again
+            default -> usageByCoupon.remove(event.getCouponId());
+        }
+    }
+    
+    private RecordedUsage load(Coupon coupon) {
+        Integer uses = couponUsageJdbcRepository.findRecordedUsage(coupon.getId());
+        if (uses == null) {
+            usageByCoupon.remove(coupon.getId());
+            return null;
+        }
+        Map<Long, Long> usesByUser = coupon.getMaxUsagePerUser() != null
+            ? new ConcurrentHashMap<>(couponUsageJdbcRepository.findUsageByUser(coupon.getId())) : null;
+        RecordedUsage usage = new RecordedUsage(uses, usesByUser, LocalDateTime.now());
+        usageByCoupon.put(coupon.getId(), usage);
+        return usage;
+    }
+    
+    public static class RecordedUsage {
+        private int uses;
+        private final Map<Long, Long> usesByUser; // null when the coupon had no per-user limit when loaded
+        private final LocalDateTime loadedAt;
+        
+        RecordedUsage(int uses, Map<Long, Long> usesByUser, LocalDateTime loadedAt) {
+            this.uses = uses;
+            this.usesByUser = usesByUser;
+            this.loadedAt = loadedAt;
+        }
+        
+        public synchronized int getUses() {
+            return uses;
+        }
+        
+        /**
+         * The user's recorded uses, or null if per-user counts are not kept for the coupon
+         */
+        public Long getUsesBy(Long userId) {
+            return usesByUser != null ? usesByUser.getOrDefault(userId, 0L) : null;
+        }
+        
+        synchronized void add(Long userId) {
+            uses++;
+            if (userId != null && usesByUser != null) {
+                usesByUser.merge(userId, 1L, Long::sum);
+            }
+        }
+        
+        boolean isStale(Duration refreshInterval) {
+            return loadedAt.plus(refreshInterval).isBefore(LocalDateTime.now());
+        }
+    }
+}
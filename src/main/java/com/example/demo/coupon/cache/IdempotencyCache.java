@@ -0,0 +1,208 @@
+package com.example.demo.coupon.cache;
+
+import com.example.demo.coupon.dto.CartResponse;
+import com.example.demo.coupon.exception.InvalidIdempotencyKeyException;
+import com.example.demo.coupon.model.IdempotencyRecord;
+import com.example.demo.coupon.repository.IdempotencyRecordRepository;
+import com.example.demo.coupon.util.SingleFlight;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Responses of redemptions made with an idempotency key, kept for a TTL in a bounded in-memory
+ * cache backed by the idempotency_keys table. The record is inserted in the redemption's own
+ * transaction, so when retries race on different nodes only one redemption commits and the
+ * others replay its response.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IdempotencyCache {
+    
+    private static final int MAX_KEY_LENGTH = 255;
+    
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${coupon.idempotency.max-entries:100000}")
+    private long maxEntries;
+    
+    @Value("${coupon.idempotency.ttl:PT24H}")
+    private Duration ttl;
+    
+    private final SingleFlight<String, StoredResponse> flights = new SingleFlight<>();
+    private Cache<String, StoredResponse> cache;
+    private TransactionTemplate transactionTemplate;
+    private Counter replays;
+    
+    @PostConstruct
+    void init() {
+        // Entries expire with their record, however late they were loaded into this node's cache
+        cache = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfter(new Expiry<String, StoredResponse>() {
+                @Override
+                public long expireAfterCreate(String key, StoredResponse stored, long currentTime) {
+                    return Math.max(0, Duration.between(LocalDateTime.now(), stored.expiresAt).toNanos());
+                }
+                
+                @Override
+                public long expireAfterUpdate(String key, StoredResponse stored, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, stored, currentTime);
+                }
+                
+                @Override
+                public long expireAfterRead(String key, StoredResponse stored, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "coupon.idempotency");
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        replays = Counter.builder("coupon.idempotency.replays")
+            .description("Redemption retries answered with a stored response")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Run the redemption in a transaction, or replay the stored response of an earlier request with
+     * the same key. Without a key the redemption just runs. Failed redemptions are not stored.
+     */
+    public CartResponse execute(String idempotencyKey, String requestFingerprint, Supplier<CartResponse> redemption) {
+        if (idempotencyKey == null) {
+            return transactionTemplate.execute(status -> redemption.get());
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(
+                String.format("Idempotency key must be 1 to %d characters", MAX_KEY_LENGTH));
+        }
+        
+        StoredResponse stored = lookup(idempotencyKey);
+        if (stored == null) {
+            // Retries arriving together on this node share one redemption; only the caller that ran it gets it first-hand
+            boolean[] ran = {false};
+            stored = flights.execute(idempotencyKey, () -> {
+                ran[0] = true;
+                StoredResponse existing = lookup(idempotencyKey);
+                return existing != null ? existing : redeemAndStore(idempotencyKey, requestFingerprint, redemption);
+            });
+            if (ran[0] && stored.fresh && stored.requestFingerprint.equals(requestFingerprint)) {
+                return stored.response;
+            }
+        }
+        
+        if (!stored.requestFingerprint.equals(requestFingerprint)) {
+            throw new InvalidIdempotencyKeyException("Idempotency key was already used for a different request");
+        }
+        replays.increment();
+        log.info("Replaying stored response for idempotency key {}", idempotencyKey);
+        return stored.response;
+    }
+    
+    @Scheduled(fixedDelayString = "${coupon.idempotency.purge-interval:PT10M}")
+    public void purgeExpired() {
+        int purged = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency key(s)", purged);
+        }
+    }
+    
+    private StoredResponse redeemAndStore(String idempotencyKey, String requestFingerprint,
+                                          Supplier<CartResponse> redemption) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(ttl);
+        try {
+            StoredResponse stored = transactionTemplate.execute(status -> {
+                CartResponse response = redemption.get();
+                idempotencyRecordRepository.deleteExpiredKey(idempotencyKey, now);
+                // A plain insert: a key committed by another node since the lookup fails it and rolls this one back
+                idempotencyRecordRepository.saveAndFlush(IdempotencyRecord.builder()
+                    .idempotencyKey(idempotencyKey)
+                    .requestFingerprint(requestFingerprint)
+                    .responseBody(serialize(response))
+                    .createdAt(now)
+                    .expiresAt(expiresAt)
+                    .build());
+                return new StoredResponse(requestFingerprint, response, expiresAt, true);
+            });
+            cache.put(idempotencyKey, new StoredResponse(requestFingerprint, stored.response, expiresAt, false));
+            return stored;
+        } catch (DataIntegrityViolationException e) {
+            // Another node committed a redemption with this key first; this one was rolled back
+            StoredResponse winner = lookup(idempotencyKey);
+            if (winner == null) {
+                throw e;
+            }
+            return winner;
+        }
+    }
+    
+    private StoredResponse lookup(String idempotencyKey) {
+        StoredResponse stored = cache.getIfPresent(idempotencyKey);
+        if (stored != null) {
+            return stored;
+        }
+        IdempotencyRecord record = idempotencyRecordRepository.findById(idempotencyKey)
+            .filter(found -> found.getExpiresAt().isAfter(LocalDateTime.now()))
+            .orElse(null);
+        if (record == null) {
+            return null;
+        }
+        stored = new StoredResponse(record.getRequestFingerprint(), deserialize(record.getResponseBody()),
+            record.getExpiresAt(), false);
+        cache.put(idempotencyKey, stored);
+        return stored;
+    }
+    
+    private String serialize(CartResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize redemption response", e);
+        }
+    }
+    
+    private CartResponse deserialize(String body) {
+        try {
+            return objectMapper.readValue(body, CartResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored redemption response", e);
+        }
+    }
+    
+    private static class StoredResponse {
+        private final String requestFingerprint;
+        private final CartResponse response;
+        private final LocalDateTime expiresAt;
+        private final boolean fresh; // produced by this call rather than replayed
+        
+        StoredResponse(String requestFingerprint, CartResponse response, LocalDateTime expiresAt, boolean fresh) {
+            this.requestFingerprint = requestFingerprint;
+            this.response = response;
+            this.expiresAt = expiresAt;
+            this.fresh = fresh;
+        }
+    }
+}
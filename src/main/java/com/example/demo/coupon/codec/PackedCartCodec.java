@@ -0,0 +1,152 @@
+package com.example.demo.coupon.codec;
+
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.PackedCart;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * Compact binary cart encoding for service-to-service calls ({@value #MEDIA_TYPE_VALUE}).
+ * All integers are unsigned LEB128 varints:
+ * <pre>
+ * byte    version (1)
+ * byte    flags (bit 0: user ID present)
+ * varint  user ID, if present
+ * varint  price scale (decimal places of the minor unit, 0-9)
+ * varint  line count
+ * per line: varint product ID, varint quantity, varint unit price in minor units
+ * </pre>
+ */
+public final class PackedCartCodec {
+    
+    public static final String MEDIA_TYPE_VALUE = "application/x-coupon-cart";
+    
+    private static final int VERSION = 1;
+    private static final int FLAG_USER_ID = 1;
+    private static final int MAX_PRICE_SCALE = 9;
+    private static final int MIN_LINE_BYTES = 3;
+    
+    private PackedCartCodec() {
+    }
+    
+    /**
+     * Decode a cart, rejecting malformed input with IllegalArgumentException
+     */
+    public static PackedCart decode(byte[] bytes) {
+        Reader reader = new Reader(bytes);
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported cart encoding version " + version);
+        }
+        int flags = reader.readByte();
+        Long userId = (flags & FLAG_USER_ID) != 0 ? reader.readVarLong() : null;
+        int priceScale = reader.readVarInt();
+        if (priceScale > MAX_PRICE_SCALE) {
+            throw new IllegalArgumentException("Price scale " + priceScale + " exceeds " + MAX_PRICE_SCALE);
+        }
+        int lines = reader.readVarInt();
+        if (lines > reader.remaining() / MIN_LINE_BYTES) {
+            throw new IllegalArgumentException("Line count " + lines + " exceeds the encoded data");
+        }
+        
+        long[] productIds = new long[lines];
+        int[] quantities = new int[lines];
+        long[] unitPrices = new long[lines];
+        for (int i = 0; i < lines; i++) {
+            productIds[i] = reader.readVarLong();
+            quantities[i] = reader.readVarInt();
+            unitPrices[i] = reader.readVarLong();
+        }
+        if (reader.remaining() != 0) {
+            throw new IllegalArgumentException(reader.remaining() + " trailing byte(s) after the last line");
+        }
+        return new PackedCart(userId, priceScale, productIds, quantities, unitPrices);
+    }
+    
+    public static byte[] encode(PackedCart cart) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + cart.size() * 8);
+        out.write(VERSION);
+        out.write(cart.getUserId() != null ? FLAG_USER_ID : 0);
+        if (cart.getUserId() != null) {
+            writeVarLong(out, cart.getUserId());
+        }
+        writeVarLong(out, cart.getPriceScale());
+        writeVarLong(out, cart.size());
+        for (int i = 0; i < cart.size(); i++) {
+            writeVarLong(out, cart.productId(i));
+            writeVarLong(out, cart.quantity(i));
+            writeVarLong(out, cart.unitPrice(i));
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * Encode a JSON-shaped cart; prices with more decimal places than the scale are rejected
+     */
+    public static byte[] encode(CartRequest cartRequest, int priceScale) {
+        List<CartItemRequest> items = cartRequest.getCartItems();
+        long[] productIds = new long[items.size()];
+        int[] quantities = new int[items.size()];
+        long[] unitPrices = new long[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            CartItemRequest item = items.get(i);
+            productIds[i] = item.getProductId();
+            quantities[i] = item.getQuantity();
+            unitPrices[i] = item.getUnitPrice().movePointRight(priceScale).longValueExact();
+        }
+        return encode(new PackedCart(cartRequest.getUserId(), priceScale, productIds, quantities, unitPrices));
+    }
+    
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative values cannot be encoded: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+        
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+        
+        int remaining() {
+            return bytes.length - position;
+        }
+        
+        int readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("Unexpected end of cart encoding");
+            }
+            return bytes[position++] & 0xFF;
+        }
+        
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 63; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Varint too long at byte " + position);
+        }
+        
+        int readVarInt() {
+            long value = readVarLong();
+            if (value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Value " + value + " out of range at byte " + position);
+            }
+            return (int) value;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.coupon.codec;
+
+import com.example.demo.coupon.dto.PackedCart;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes {@link PackedCart} bodies in the {@value PackedCartCodec#MEDIA_TYPE_VALUE} encoding.
+ * Picked up by Spring Boot as an additional message converter.
+ */
+@Component
+public class PackedCartHttpMessageConverter extends AbstractHttpMessageConverter<PackedCart> {
+    
+    public PackedCartHttpMessageConverter() {
+        super(MediaType.parseMediaType(PackedCartCodec.MEDIA_TYPE_VALUE));
+    }
+    
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return PackedCart.class == clazz;
+    }
+    
+    @Override
+    protected PackedCart readInternal(Class<? extends PackedCart> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        try {
+            return PackedCartCodec.decode(inputMessage.getBody().readAllBytes());
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("Malformed cart: " + e.getMessage(), e, inputMessage);
+        }
+    }
+    
+    @Override
+    protected void writeInternal(PackedCart cart, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(PackedCartCodec.encode(cart));
+    }
+}
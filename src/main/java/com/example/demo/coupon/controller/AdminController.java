@@ -0,0 +1,56 @@
+package com.example.demo.coupon.controller;
+
+import com.example.demo.coupon.dto.HeavyHittersResponse;
+import com.example.demo.coupon.dto.UsageRollupResponse;
+import com.example.demo.coupon.metrics.HeavyHitters;
+import com.example.demo.coupon.service.UsageRollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Tag(name = "Administration", description = "Operational insight into coupon traffic")
+public class AdminController {
+    
+    private final HeavyHitters heavyHitters;
+    private final UsageRollupService usageRollupService;
+    
+    @Operation(summary = "Get the coupons and products that dominate evaluation and redemption traffic")
+    @GetMapping("/heavy-hitters")
+    public ResponseEntity<HeavyHittersResponse> getHeavyHitters(
+            @Parameter(description = "Entries per category") @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(heavyHitters.snapshot(Math.max(1, limit)));
+    }
+    
+    @Operation(summary = "Reset heavy-hitter tracking")
+    @DeleteMapping("/heavy-hitters")
+    public ResponseEntity<Void> resetHeavyHitters() {
+        heavyHitters.reset();
+        return ResponseEntity.noContent().build();
+    }
+    
+    @Operation(summary = "Get redemptions, discount cost and distinct users per coupon per day",
+            description = "Answered from the daily rollups; usage newer than rolledUpThroughId is not included yet")
+    @GetMapping("/usage/daily")
+    public ResponseEntity<UsageRollupResponse> getDailyUsage(
+            @Parameter(description = "First day, inclusive") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Restrict to one coupon") @RequestParam(required = false) Long couponId) {
+        return ResponseEntity.ok(usageRollupService.query(couponId, from, to));
+    }
+    
+    @Operation(summary = "Roll up usage recorded since the last run without waiting for the schedule")
+    @PostMapping("/usage/daily/refresh")
+    public ResponseEntity<Void> refreshDailyUsage() {
+        usageRollupService.rollUp();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,30 +1,59 @@
 package com.example.demo.coupon.controller;
 
+import com.example.demo.coupon.cache.CouponResponseCache;
+import com.example.demo.coupon.codec.PackedCartCodec;
 import com.example.demo.coupon.dto.*;
 import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.service.ApplicableCouponStream;
+import com.example.demo.coupon.service.BatchEvaluationService;
+import com.example.demo.coupon.service.BatchEvaluationStream;
+import com.example.demo.coupon.service.BatchRedemptionService;
 import com.example.demo.coupon.service.CouponApplicationService;
+import com.example.demo.coupon.service.CouponReservationService;
 import com.example.demo.coupon.service.CouponService;
+import com.example.demo.coupon.service.EvaluationSessionService;
+import com.example.demo.coupon.util.NdjsonWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
 
 @CrossOrigin(origins = "*")
 @RestController
 @RequestMapping("/api/coupons")
+@Slf4j
 @RequiredArgsConstructor
 @Tag(name = "Coupon Management", description = "API for managing and applying discount coupons")
 public class CouponController {
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    
     private final CouponService couponService;
     private final CouponApplicationService couponApplicationService;
+    private final CouponResponseCache couponResponseCache;
+    private final EvaluationSessionService evaluationSessionService;
+    private final BatchEvaluationService batchEvaluationService;
+    private final BatchRedemptionService batchRedemptionService;
+    private final CouponReservationService couponReservationService;
+    private final ObjectMapper objectMapper;
     
     @Operation(summary = "Create a new coupon")
     @PostMapping
@@ -34,23 +63,29 @@ public class CouponController {
     }
     
     @Operation(summary = "Get all coupons with pagination and filtering")
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = Page.class)))
     @GetMapping
-    public ResponseEntity<Page<CouponResponse>> getAllCoupons(
+    public ResponseEntity<byte[]> getAllCoupons(
             @Parameter(description = "Filter by active status") @RequestParam(required = false) Boolean isActive,
             @Parameter(description = "Filter by coupon type") @RequestParam(required = false) CouponType type,
             @Parameter(description = "Page number (0-indexed)") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<CouponResponse> coupons = couponService.getAllCoupons(isActive, type, pageable);
-        return ResponseEntity.ok(coupons);
+        CouponResponseCache.CachedJson json = couponResponseCache.getCouponPage(isActive, type, page, size,
+            () -> couponService.getAllCoupons(isActive, type, pageable));
+        return cachedJsonResponse(json, webRequest);
     }
     
     @Operation(summary = "Get coupon by ID")
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = CouponResponse.class)))
     @GetMapping("/{id}")
-    public ResponseEntity<CouponResponse> getCouponById(
-            @Parameter(description = "Coupon ID") @PathVariable Long id) {
-        CouponResponse response = couponService.getCouponById(id);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<byte[]> getCouponById(
+            @Parameter(description = "Coupon ID") @PathVariable Long id,
+            WebRequest webRequest) {
+        CouponResponseCache.CachedJson json = couponResponseCache.getCoupon(id,
+            () -> couponService.getCouponById(id));
+        return cachedJsonResponse(json, webRequest);
     }
     
     @Operation(summary = "Update coupon by ID")
@@ -73,18 +108,188 @@ public class CouponController {
     @Operation(summary = "Get all applicable coupons for a cart")
     @PostMapping("/applicable-coupons")
     public ResponseEntity<ApplicableCouponsResponse> getApplicableCoupons(
+            @Valid @RequestBody CartRequest cartRequest,
+            @Parameter(description = "Include a per-coupon evaluation trace") @RequestParam(defaultValue = "false") boolean explain,
+            @Parameter(description = "COMPACT returns only coupon id, code and discount") @RequestParam(defaultValue = "FULL") CouponView view) {
+        ApplicableCouponsResponse response = couponApplicationService.getApplicableCoupons(cartRequest, explain, view);
+        return ResponseEntity.ok(response);
+    }
+    
+    @Operation(summary = "Get all applicable coupons for a cart in the compact binary encoding",
+        description = "For service-to-service calls; the request body format is described in PackedCartCodec")
+    @PostMapping(value = "/applicable-coupons", consumes = PackedCartCodec.MEDIA_TYPE_VALUE)
+    public ResponseEntity<ApplicableCouponsResponse> getApplicableCouponsForPackedCart(@RequestBody PackedCart cart) {
+        ApplicableCouponsResponse response = couponApplicationService.getApplicableCoupons(cart);
+        return ResponseEntity.ok(response);
+    }
+    
+    @Operation(summary = "Stream applicable coupons for a cart as NDJSON",
+        description = "One ApplicableCouponResponse per line as soon as it is evaluated, "
+            + "followed by an ApplicableCouponsSummary trailer line (type \"summary\") with cartTotal and bestDiscount, "
+            + "or by a StreamError line (type \"error\") if evaluation failed part way")
+    @PostMapping(value = "/applicable-coupons/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamApplicableCoupons(@Valid @RequestBody CartRequest cartRequest) {
+        // Validation errors surface here, before the response is committed
+        ApplicableCouponStream stream = couponApplicationService.streamApplicableCoupons(cartRequest);
+        return ndjson(writer -> {
+            boolean[] first = {true};
+            ApplicableCouponsSummary summary = stream.writeTo(coupon -> {
+                writer.write(coupon);
+                if (first[0]) {
+                    writer.flush();
+                    first[0] = false;
+                }
+            });
+            writer.write(summary);
+        });
+    }
+    
+    @Operation(summary = "Evaluate many carts against one catalog snapshot, streamed as NDJSON",
+        description = "One BatchCartResult per cart in request order, each with the applicable coupons or an error, "
+            + "followed by a BatchEvaluationSummary trailer line (type \"summary\"), "
+            + "or by a StreamError line (type \"error\") if evaluation failed part way")
+    @PostMapping(value = "/applicable-coupons/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> evaluateBatch(
+            @Valid @RequestBody BatchCartRequest batchRequest,
+            @Parameter(description = "COMPACT returns only coupon id, code and discount") @RequestParam(defaultValue = "FULL") CouponView view) {
+        // Batch size errors surface here, before the response is committed
+        BatchEvaluationStream stream = batchEvaluationService.evaluate(batchRequest, view);
+        return ndjson(writer -> {
+            BatchEvaluationSummary summary = stream.writeTo(results -> {
+                results.forEach(writer::write);
+                writer.flush();
+            });
+            writer.write(summary);
+        });
+    }
+    
+    /**
+     * NDJSON response written by {@code lines}. The status is sent with the first flush, so a later
+     * failure ends the body with a {@link StreamError} line instead of the trailer.
+     */
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<NdjsonWriter> lines) {
+        StreamingResponseBody body = out -> {
+            try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out)) {
+                try {
+                    lines.accept(writer);
+                } catch (UncheckedIOException e) {
+                    // The client is gone; there is nobody to tell
+                    throw e;
+                } catch (RuntimeException e) {
+                    log.error("Streamed response failed after it was committed", e);
+                    writer.write(StreamError.builder()
+                        .error("Internal server error")
+                        .message("The response is incomplete; retry the request")
+                        .build());
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    @Operation(summary = "Get the applicable coupon with the highest discount for a cart")
+    @ApiResponse(responseCode = "204", description = "No coupon applies to the cart")
+    @PostMapping("/applicable-coupons/best")
+    public ResponseEntity<ApplicableCouponResponse> getBestCoupon(@Valid @RequestBody CartRequest cartRequest) {
+        return couponApplicationService.getBestCoupon(cartRequest)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+    
+    @Operation(summary = "Start an evaluation session for a cart and get its applicable coupons")
+    @PostMapping("/evaluation-sessions")
+    public ResponseEntity<EvaluationSessionResponse> startEvaluationSession(
             @Valid @RequestBody CartRequest cartRequest) {
-        ApplicableCouponsResponse response = couponApplicationService.getApplicableCoupons(cartRequest);
+        EvaluationSessionResponse response = evaluationSessionService.startSession(cartRequest);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+    
+    @Operation(summary = "Send cart line changes to an evaluation session and get updated applicable coupons")
+    @PatchMapping("/evaluation-sessions/{sessionId}")
+    public ResponseEntity<EvaluationSessionResponse> updateEvaluationSession(
+            @Parameter(description = "Evaluation session ID") @PathVariable String sessionId,
+            @Valid @RequestBody CartDeltaRequest deltaRequest) {
+        EvaluationSessionResponse response = evaluationSessionService.applyChanges(sessionId, deltaRequest);
         return ResponseEntity.ok(response);
     }
     
-    @Operation(summary = "Apply a coupon to a cart")
+    @Operation(summary = "Close an evaluation session")
+    @DeleteMapping("/evaluation-sessions/{sessionId}")
+    public ResponseEntity<Void> closeEvaluationSession(
+            @Parameter(description = "Evaluation session ID") @PathVariable String sessionId) {
+        evaluationSessionService.closeSession(sessionId);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @Operation(summary = "Apply a coupon to a cart",
+        description = "Retries with the same Idempotency-Key get the first successful response back")
     @PostMapping("/apply-coupon/{couponId}")
     public ResponseEntity<CartResponse> applyCoupon(
             @Parameter(description = "Coupon ID") @PathVariable Long couponId,
+            @Parameter(description = "Key identifying the request across retries")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody CartRequest cartRequest) {
+        CartResponse response = couponApplicationService.applyCoupon(couponId, cartRequest, idempotencyKey);
+        return ResponseEntity.ok(response);
+    }
+    
+    @Operation(summary = "Apply a coupon to a cart by its code",
+        description = "Retries with the same Idempotency-Key get the first successful response back")
+    @PostMapping("/apply-coupon/code/{code}")
+    public ResponseEntity<CartResponse> applyCouponByCode(
+            @Parameter(description = "Coupon code") @PathVariable String code,
+            @Parameter(description = "Key identifying the request across retries")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody CartRequest cartRequest) {
-        CartResponse response = couponApplicationService.applyCoupon(couponId, cartRequest);
+        CartResponse response = couponApplicationService.applyCouponByCode(code, cartRequest, idempotencyKey);
         return ResponseEntity.ok(response);
     }
+    
+    @Operation(summary = "Redeem coupons for many orders in one transaction",
+        description = "Each order gets a status in request order; when a coupon runs out, earlier orders win")
+    @PostMapping("/apply-coupon/batch")
+    public ResponseEntity<BatchRedemptionResponse> applyCouponsInBatch(
+            @Valid @RequestBody BatchRedemptionRequest batchRequest) {
+        BatchRedemptionResponse response = batchRedemptionService.redeem(batchRequest);
+        return ResponseEntity.ok(response);
+    }
+    
+    @Operation(summary = "Reserve a coupon for a cart until checkout completes",
+        description = "The reservation holds one use of the coupon until it is committed, released or expires")
+    @PostMapping("/{couponId}/reservations")
+    public ResponseEntity<ReservationResponse> reserveCoupon(
+            @Parameter(description = "Coupon ID") @PathVariable Long couponId,
+            @Valid @RequestBody CartRequest cartRequest) {
+        ReservationResponse response = couponReservationService.reserve(couponId, cartRequest);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+    
+    @Operation(summary = "Commit a coupon reservation and record the redemption")
+    @PostMapping("/reservations/{reservationId}/commit")
+    public ResponseEntity<CartResponse> commitReservation(
+            @Parameter(description = "Reservation ID") @PathVariable String reservationId) {
+        CartResponse response = couponReservationService.commit(reservationId);
+        return ResponseEntity.ok(response);
+    }
+    
+    @Operation(summary = "Release a coupon reservation without redeeming it")
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(
+            @Parameter(description = "Reservation ID") @PathVariable String reservationId) {
+        couponReservationService.release(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * Serve pre-serialized JSON with a strong ETag, answering If-None-Match with 304
+     */
+    private ResponseEntity<byte[]> cachedJsonResponse(CouponResponseCache.CachedJson json, WebRequest webRequest) {
+        if (webRequest.checkNotModified(json.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(json.getEtag()).build();
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .eTag(json.getEtag())
+            .body(json.getBody());
+    }
 }
-
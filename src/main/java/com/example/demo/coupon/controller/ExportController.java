@@ -0,0 +1,90 @@
+package com.example.demo.coupon.controller;
+
+import com.example.demo.config.AsyncTimeoutConfig;
+import com.example.demo.coupon.dto.ExportFilter;
+import com.example.demo.coupon.dto.ExportFormat;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.service.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/exports")
+@RequiredArgsConstructor
+@Tag(name = "Export", description = "Streaming exports of coupons and usage history")
+public class ExportController {
+    
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    
+    private final ExportService exportService;
+    
+    // Longer than the container's default async timeout, which stays in force for other streamed responses
+    @Value("${coupon.export.timeout:PT30M}")
+    private Duration timeout;
+    
+    @Operation(summary = "Export coupons with their product ids as CSV or NDJSON",
+        description = "Streamed from a forward-only database cursor; the date range matches coupons valid on any day in it. "
+            + "A failed export ends with an error line or row; 503 when all export slots are in use")
+    @GetMapping("/coupons")
+    public ResponseEntity<StreamingResponseBody> exportCoupons(
+            @Parameter(description = "CSV or NDJSON") @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @Parameter(description = "Filter by coupon type") @RequestParam(required = false) CouponType type,
+            @Parameter(description = "First day, inclusive") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Restrict to one coupon") @RequestParam(required = false) Long couponId,
+            HttpServletRequest request) {
+        ExportFilter filter = new ExportFilter(couponId, type, from, to);
+        return export(request, "coupons", format, out -> exportService.writeCoupons(filter, format, out));
+    }
+    
+    @Operation(summary = "Export coupon usage history as CSV or NDJSON",
+        description = "Streamed from a forward-only database cursor in usage id order; archived usage is not included. "
+            + "A failed export ends with an error line or row; 503 when all export slots are in use")
+    @GetMapping("/usages")
+    public ResponseEntity<StreamingResponseBody> exportUsages(
+            @Parameter(description = "CSV or NDJSON") @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @Parameter(description = "Filter by coupon type") @RequestParam(required = false) CouponType type,
+            @Parameter(description = "First day, inclusive") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Restrict to one coupon") @RequestParam(required = false) Long couponId,
+            HttpServletRequest request) {
+        ExportFilter filter = new ExportFilter(couponId, type, from, to);
+        return export(request, "coupon-usages", format, out -> exportService.writeUsages(filter, format, out));
+    }
+    
+    /**
+     * Streamed response that holds an export slot until the body is written. Slot errors surface
+     * before the response is committed; the timeout applies to this request only.
+     */
+    private ResponseEntity<StreamingResponseBody> export(HttpServletRequest request, String name, ExportFormat format,
+                                                         StreamingResponseBody rows) {
+        exportService.acquireSlot();
+        request.setAttribute(AsyncTimeoutConfig.TIMEOUT_ATTRIBUTE, timeout);
+        StreamingResponseBody body = out -> {
+            try {
+                rows.writeTo(out);
+            } finally {
+                exportService.releaseSlot();
+            }
+        };
+        String filename = name + (format == ExportFormat.CSV ? ".csv" : ".ndjson");
+        return ResponseEntity.ok()
+            .contentType(format == ExportFormat.CSV ? TEXT_CSV : MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+            .body(body);
+    }
+}
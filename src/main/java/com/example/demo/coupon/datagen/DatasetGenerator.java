@@ -0,0 +1,459 @@
+package com.example.demo.coupon.datagen;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Writes a production-shaped synthetic dataset into the existing schema: a mix of coupon types,
+ * power-law product-set sizes and product popularity, overlapping BxGy sets and a usage history.
+ * The history is one the service could have produced: every use falls inside its coupon's validity
+ * window and respects maxUsage and maxUsagePerUser. Runs once on startup with the {@code datagen} profile; the same seed always produces the same data.
+ */
+@Component
+@Profile("datagen")
+@Slf4j
+@RequiredArgsConstructor
+public class DatasetGenerator implements CommandLineRunner {
+    
+    private static final String INSERT_COUPON = "INSERT INTO coupons (id, code, name, coupon_type, type, "
+        + "discount_type, discount_value, is_active, start_date, end_date, max_usage, current_usage, "
+        + "max_usage_per_user, created_at, updated_at, min_cart_amount, max_discount_amount, min_quantity, "
+        + "max_quantity, buy_quantity, get_quantity, repetition_limit, bxgy_discount_type) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_APPLICABLE_PRODUCT =
+        "INSERT INTO coupon_applicable_products (coupon_id, product_id) VALUES (?, ?)";
+    private static final String INSERT_BUY_PRODUCT = "INSERT INTO bxgy_buy_products (coupon_id, product_id) VALUES (?, ?)";
+    private static final String INSERT_GET_PRODUCT = "INSERT INTO bxgy_get_products (coupon_id, product_id) VALUES (?, ?)";
+    private static final String INSERT_USAGE = "INSERT INTO coupon_usages (coupon_id, user_id, cart_id, discount_amount, used_at) "
+        + "VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_CURRENT_USAGE = "UPDATE coupons SET current_usage = ? WHERE id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${coupon.datagen.seed:42}")
+    private long seed;
+    
+    @Value("${coupon.datagen.coupons:1000000}")
+    private int couponCount;
+    
+    @Value("${coupon.datagen.products:200000}")
+    private int productCount;
+    
+    @Value("${coupon.datagen.users:5000000}")
+    private int userCount;
+    
+    @Value("${coupon.datagen.usages:100000000}")
+    private long usageCount;
+    
+    @Value("${coupon.datagen.cart-wise-ratio:0.3}")
+    private double cartWiseRatio;
+    
+    @Value("${coupon.datagen.product-wise-ratio:0.5}")
+    private double productWiseRatio;
+    
+    @Value("${coupon.datagen.max-product-set-size:1000}")
+    private int maxProductSetSize;
+    
+    @Value("${coupon.datagen.product-set-exponent:1.5}")
+    private double productSetExponent;
+    
+    @Value("${coupon.datagen.product-popularity-exponent:1.1}")
+    private double productPopularityExponent;
+    
+    @Value("${coupon.datagen.coupon-popularity-exponent:1.2}")
+    private double couponPopularityExponent;
+    
+    @Value("${coupon.datagen.user-activity-exponent:0.8}")
+    private double userActivityExponent;
+    
+    @Value("${coupon.datagen.bxgy-overlap-ratio:0.3}")
+    private double bxgyOverlapRatio;
+    
+    @Value("${coupon.datagen.history-days:365}")
+    private int historyDays;
+    
+    @Value("${coupon.datagen.batch-size:5000}")
+    private int batchSize;
+    
+    @Override
+    public void run(String... args) {
+        Random random = new Random(seed);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM coupons", Long.class);
+        long firstId = maxId == null ? 1 : maxId + 1;
+        
+        log.info("Generating {} coupons and {} usages (seed {}) starting at coupon id {}",
+            couponCount, usageCount, seed, firstId);
+        
+        long started = System.nanoTime();
+        DatasetShape shape = generateCoupons(random, firstId, now);
+        long couponsDone = System.nanoTime();
+        generateUsages(random, firstId, now, shape);
+        long usagesDone = System.nanoTime();
+        updateCurrentUsage(firstId, shape);
+        
+        shape.couponSeconds = (couponsDone - started) / 1e9;
+        shape.usageSeconds = (usagesDone - couponsDone) / 1e9;
+        printSummary(shape);
+    }
+    
+    private DatasetShape generateCoupons(Random random, long firstId, LocalDateTime now) {
+        DatasetShape shape = new DatasetShape(couponCount);
+        ZipfSampler setSizes = new ZipfSampler(maxProductSetSize, productSetExponent);
+        ZipfSampler products = new ZipfSampler(productCount, productPopularityExponent);
+        // Product rows reference their coupon, so they are only written after the coupon batch
+        BatchWriter applicableProducts = new BatchWriter(INSERT_APPLICABLE_PRODUCT, false);
+        BatchWriter buyProducts = new BatchWriter(INSERT_BUY_PRODUCT, false);
+        BatchWriter getProducts = new BatchWriter(INSERT_GET_PRODUCT, false);
+        BatchWriter coupons = new BatchWriter(INSERT_COUPON, true, applicableProducts, buyProducts, getProducts);
+        
+        for (int i = 0; i < couponCount; i++) {
+            long id = firstId + i;
+            double typeRoll = random.nextDouble();
+            String type = typeRoll < cartWiseRatio ? "CART_WISE"
+                : typeRoll < cartWiseRatio + productWiseRatio ? "PRODUCT_WISE" : "BXGY";
+            
+            // Mostly live coupons, with some expired and some deactivated ones
+            boolean active = random.nextInt(20) != 0;
+            LocalDateTime startDate = now.minusDays(1 + random.nextInt(Math.max(1, historyDays)));
+            LocalDateTime endDate = random.nextInt(10) == 0 ? now.minusDays(random.nextInt(30) + 1)
+                : now.plusDays(30 + random.nextInt(365));
+            if (!endDate.isAfter(startDate)) {
+                // Expired coupons still ran for at least a day
+                endDate = startDate.plusDays(1);
+            }
+            Integer maxUsage = random.nextInt(4) == 0 ? 100 + random.nextInt(10_000) : null;
+            Integer maxUsagePerUser = random.nextInt(3) == 0 ? 1 + random.nextInt(3) : null;
+            shape.maxUsage[i] = maxUsage == null ? Integer.MAX_VALUE : maxUsage;
+            shape.maxUsagePerUser[i] = maxUsagePerUser == null ? 0 : maxUsagePerUser;
+            shape.startsSecondsAgo[i] = Duration.between(startDate, now).toSeconds();
+            shape.endsSecondsAgo[i] = Math.max(0, Duration.between(endDate, now).toSeconds());
+            
+            Object[] row = new Object[22];
+            row[0] = id;
+            row[1] = String.format("GEN%d-%d", seed, id);
+            row[2] = "Generated " + type.toLowerCase(Locale.ROOT).replace('_', '-') + " coupon " + id;
+            row[3] = type;
+            row[4] = type;
+            row[7] = active;
+            row[8] = Timestamp.valueOf(startDate);
+            row[9] = Timestamp.valueOf(endDate);
+            row[10] = maxUsage;
+            row[11] = maxUsagePerUser;
+            row[12] = Timestamp.valueOf(startDate);
+            row[13] = Timestamp.valueOf(startDate);
+            
+            switch (type) {
+                case "CART_WISE" -> {
+                    shape.cartWise++;
+                    boolean percentage = random.nextInt(3) != 0;
+                    row[5] = percentage ? "PERCENTAGE" : "FIXED_AMOUNT";
+                    row[6] = percentage ? BigDecimal.valueOf(5 + random.nextInt(26)) : BigDecimal.valueOf(5 + random.nextInt(96));
+                    row[14] = BigDecimal.valueOf(50 + random.nextInt(951));
+                    row[15] = percentage && random.nextBoolean() ? BigDecimal.valueOf(50 + random.nextInt(451)) : null;
+                }
+                case "PRODUCT_WISE" -> {
+                    shape.productWise++;
+                    boolean percentage = random.nextInt(4) != 0;
+                    row[5] = percentage ? "PERCENTAGE" : "FIXED_AMOUNT";
+                    row[6] = percentage ? BigDecimal.valueOf(5 + random.nextInt(46)) : BigDecimal.valueOf(1 + random.nextInt(50));
+                    row[16] = random.nextInt(4) == 0 ? 1 + random.nextInt(3) : null;
+                    row[17] = random.nextInt(4) == 0 ? 5 + random.nextInt(20) : null;
+                    
+                    Set<Long> productIds = drawProducts(random, products, (int) setSizes.sample(random));
+                    shape.recordProductSet(productIds.size());
+                    for (Long productId : productIds) {
+                        applicableProducts.add(id, productId);
+                    }
+                }
+                default -> {
+                    shape.bxgy++;
+                    row[5] = "PERCENTAGE";
+                    row[6] = BigDecimal.valueOf(100);
+                    row[18] = 1 + random.nextInt(3);
+                    row[19] = 1 + random.nextInt(2);
+                    row[20] = 1 + random.nextInt(5);
+                    row[21] = random.nextInt(3) == 0 ? "PERCENTAGE" : "FREE";
+                    
+                    Set<Long> buy = drawProducts(random, products, (int) setSizes.sample(random));
+                    Set<Long> get = drawProducts(random, products, (int) setSizes.sample(random));
+                    if (random.nextDouble() < bxgyOverlapRatio) {
+                        // "Buy any of these, get one of them free" - part of the buy set is also rewardable
+                        buy.stream().limit(Math.max(1, buy.size() / 2)).forEach(get::add);
+                    }
+                    if (!Collections.disjoint(buy, get)) {
+                        shape.overlappingBxgy++;
+                    }
+                    shape.recordProductSet(buy.size());
+                    shape.recordProductSet(get.size());
+                    for (Long productId : buy) {
+                        buyProducts.add(id, productId);
+                    }
+                    for (Long productId : get) {
+                        getProducts.add(id, productId);
+                    }
+                }
+            }
+            coupons.add(row);
+            
+            if ((i + 1) % 100_000 == 0) {
+                log.info("Generated {} / {} coupons", i + 1, couponCount);
+            }
+        }
+        coupons.flush();
+        
+        shape.productRows = applicableProducts.written + buyProducts.written + getProducts.written;
+        return shape;
+    }
+    
+    private Set<Long> drawProducts(Random random, ZipfSampler products, int size) {
+        int target = Math.min(size, productCount);
+        Set<Long> productIds = new HashSet<>(target * 2);
+        int attempts = 0;
+        while (productIds.size() < target) {
+            // Popular products dominate; fall back to uniform once the head of the distribution is exhausted
+            long productId = attempts++ < target * 4 ? products.sample(random) : 1 + random.nextInt(productCount);
+            productIds.add(productId);
+        }
+        return productIds;
+    }
+    
+    private void generateUsages(Random random, long firstId, LocalDateTime now, DatasetShape shape) {
+        ZipfSampler couponPopularity = new ZipfSampler(couponCount, couponPopularityExponent);
+        ZipfSampler userActivity = new ZipfSampler(userCount, userActivityExponent);
+        BatchWriter usages = new BatchWriter(INSERT_USAGE, true);
+        UserUsageCounts userUsage = new UserUsageCounts();
+        
+        for (long n = 0; n < usageCount; n++) {
+            int index = -1;
+            long userId = 0;
+            for (int attempt = 0; attempt < 8 && index < 0; attempt++) {
+                int candidate = (int) couponPopularity.sample(random) - 1;
+                if (shape.usage[candidate] >= shape.maxUsage[candidate]) {
+                    continue;
+                }
+                userId = drawUser(random, userActivity, userUsage, candidate, shape.maxUsagePerUser[candidate]);
+                if (userId > 0) {
+                    index = candidate;
+                }
+            }
+            if (index < 0) {
+                shape.skippedUsages++;
+                continue;
+            }
+            shape.usage[index]++;
+            if (shape.maxUsagePerUser[index] > 0) {
+                userUsage.increment(pairKey(index, userId));
+            }
+            
+            // Anywhere in the coupon's validity window up to now
+            long startsAgo = shape.startsSecondsAgo[index];
+            long endsAgo = shape.endsSecondsAgo[index];
+            usages.add(firstId + index,
+                userId,
+                String.format("gen%d-%d", seed, n),
+                BigDecimal.valueOf(100 + random.nextInt(10_000), 2),
+                Timestamp.valueOf(now.minusSeconds(endsAgo + (long) (random.nextDouble() * (startsAgo - endsAgo)))));
+            
+            if ((n + 1) % 1_000_000 == 0) {
+                log.info("Generated {} / {} usages", n + 1, usageCount);
+            }
+        }
+        usages.flush();
+        shape.usageRows = usages.written;
+    }
+    
+    /**
+     * A user who may still use the coupon, or 0 if the few users drawn have all reached its per-user limit
+     */
+    private long drawUser(Random random, ZipfSampler userActivity, UserUsageCounts userUsage,
+                          int couponIndex, int maxUsagePerUser) {
+        for (int attempt = 0; attempt < 4; attempt++) {
+            long userId = userActivity.sample(random);
+            if (maxUsagePerUser == 0 || userUsage.get(pairKey(couponIndex, userId)) < maxUsagePerUser) {
+                return userId;
+            }
+        }
+        return 0;
+    }
+    
+    private long pairKey(int couponIndex, long userId) {
+        return (long) couponIndex * userCount + userId;
+    }
+    
+    private void updateCurrentUsage(long firstId, DatasetShape shape) {
+        BatchWriter updates = new BatchWriter(UPDATE_CURRENT_USAGE, true);
+        for (int i = 0; i < shape.usage.length; i++) {
+            if (shape.usage[i] > 0) {
+                updates.add(shape.usage[i], firstId + i);
+            }
+        }
+        updates.flush();
+    }
+    
+    private void printSummary(DatasetShape shape) {
+        int[] setSizes = Arrays.copyOf(shape.productSetSizes, shape.productSets);
+        Arrays.sort(setSizes);
+        int[] usage = shape.usage.clone();
+        Arrays.sort(usage);
+        long usedCoupons = Arrays.stream(usage).filter(count -> count > 0).count();
+        long topPercentUsages = 0;
+        for (int i = usage.length - 1; i >= usage.length - Math.max(1, usage.length / 100); i--) {
+            topPercentUsages += usage[i];
+        }
+        
+        log.info("Dataset summary (seed {})", seed);
+        log.info("  coupons: {} (cart-wise {}, product-wise {}, bxgy {}) in {}s",
+            couponCount, shape.cartWise, shape.productWise, shape.bxgy, String.format("%.1f", shape.couponSeconds));
+        log.info("  product sets: {} sets, {} rows, size p50 {} / p90 {} / p99 {} / max {}",
+            setSizes.length, shape.productRows, percentile(setSizes, 0.50), percentile(setSizes, 0.90),
+            percentile(setSizes, 0.99), setSizes.length == 0 ? 0 : setSizes[setSizes.length - 1]);
+        log.info("  bxgy coupons with overlapping buy/get sets: {}", shape.overlappingBxgy);
+        log.info("  usages: {} rows in {}s ({} skipped on exhausted or per-user-limited coupons), {} coupons used",
+            shape.usageRows, String.format("%.1f", shape.usageSeconds), shape.skippedUsages, usedCoupons);
+        log.info("  usage per coupon p50 {} / p99 {} / max {}, top 1% of coupons hold {}% of usages",
+            percentile(usage, 0.50), percentile(usage, 0.99), usage.length == 0 ? 0 : usage[usage.length - 1],
+            shape.usageRows == 0 ? "0" : String.format("%.1f", 100.0 * topPercentUsages / shape.usageRows));
+    }
+    
+    private static int percentile(int[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+    
+    /**
+     * Buffers rows for one statement and writes them with JDBC batching. Dependent writers are
+     * flushed right after this one so their foreign keys always point at rows already written.
+     */
+    private class BatchWriter {
+        private final String sql;
+        private final boolean autoFlush;
+        private final BatchWriter[] dependents;
+        private final List<Object[]> rows = new ArrayList<>();
+        private long written;
+        
+        BatchWriter(String sql, boolean autoFlush, BatchWriter... dependents) {
+            this.sql = sql;
+            this.autoFlush = autoFlush;
+            this.dependents = dependents;
+        }
+        
+        void add(Object... row) {
+            rows.add(row);
+            if (autoFlush && rows.size() >= batchSize) {
+                flush();
+            }
+        }
+        
+        void flush() {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                written += rows.size();
+                rows.clear();
+            }
+            for (BatchWriter dependent : dependents) {
+                dependent.flush();
+            }
+        }
+    }
+    
+    /**
+     * Uses per (coupon, user) pair of per-user-limited coupons, in an open-addressing table of packed
+     * longs: pair key + 1 in the high bits, count in the low 8 bits. Memory grows with the number of
+     * distinct pairs, about 16 bytes each at the maximum load.
+     */
+    private static class UserUsageCounts {
+        private static final int COUNT_BITS = 8;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+        
+        private long[] slots = new long[1 << 16];
+        private int size;
+        
+        int get(long pair) {
+            long slot = slots[find(slots, pair)];
+            return slot == 0 ? 0 : (int) (slot & COUNT_MASK);
+        }
+        
+        void increment(long pair) {
+            int index = find(slots, pair);
+            if (slots[index] == 0) {
+                slots[index] = ((pair + 1) << COUNT_BITS) | 1;
+                if (++size > slots.length / 2) {
+                    grow();
+                }
+            } else {
+                slots[index]++;
+            }
+        }
+        
+        private void grow() {
+            long[] grown = new long[slots.length * 2];
+            for (long slot : slots) {
+                if (slot != 0) {
+                    grown[find(grown, (slot >>> COUNT_BITS) - 1)] = slot;
+                }
+            }
+            slots = grown;
+        }
+        
+        /**
+         * Index of the pair's slot, or of the empty slot where it belongs
+         */
+        private static int find(long[] table, long pair) {
+            long hash = (pair + 1) * 0x9E3779B97F4A7C15L;
+            int mask = table.length - 1;
+            int index = (int) (hash >>> 40) & mask;
+            while (table[index] != 0 && (table[index] >>> COUNT_BITS) != pair + 1) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+    }
+    
+    private static class DatasetShape {
+        private final int[] maxUsage;
+        private final int[] maxUsagePerUser; // 0 when unlimited
+        private final long[] startsSecondsAgo;
+        private final long[] endsSecondsAgo; // 0 for coupons still running
+        private final int[] usage;
+        private int[] productSetSizes = new int[1024];
+        private int productSets;
+        private int cartWise;
+        private int productWise;
+        private int bxgy;
+        private int overlappingBxgy;
+        private long productRows;
+        private long usageRows;
+        private long skippedUsages;
+        private double couponSeconds;
+        private double usageSeconds;
+        
+        DatasetShape(int couponCount) {
+            this.maxUsage = new int[couponCount];
+            this.maxUsagePerUser = new int[couponCount];
+            this.startsSecondsAgo = new long[couponCount];
+            this.endsSecondsAgo = new long[couponCount];
+            this.usage = new int[couponCount];
+        }
+        
+        void recordProductSet(int size) {
+            if (productSets == productSetSizes.length) {
+                productSetSizes = Arrays.copyOf(productSetSizes, productSetSizes.length * 2);
+            }
+            productSetSizes[productSets++] = size;
+        }
+    }
+}
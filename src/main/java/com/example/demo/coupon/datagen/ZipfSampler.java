@@ -0,0 +1,34 @@
+package com.example.demo.coupon.datagen;
+
+import java.util.Random;
+
+/**
+ * Samples ranks 1..n with probability roughly proportional to 1 / rank^exponent.
+ * Uses the inverse CDF of the continuous power law, so it needs no tables even for millions of ranks.
+ */
+class ZipfSampler {
+    
+    private final long n;
+    private final double exponent;
+    private final double nPower;
+    
+    ZipfSampler(long n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.nPower = exponent == 1.0 ? Math.log(n + 1.0) : Math.pow(n + 1.0, 1.0 - exponent);
+    }
+    
+    long sample(Random random) {
+        double u = random.nextDouble();
+        double x;
+        if (exponent == 1.0) {
+            x = Math.exp(u * nPower);
+        } else {
+            x = Math.pow(1.0 + u * (nPower - 1.0), 1.0 / (1.0 - exponent));
+        }
+        return Math.min(n, Math.max(1L, (long) x));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.demo.coupon.dto;
 
 import com.example.demo.coupon.model.enums.CouponType;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +13,7 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL) // compact view leaves everything but id, code and discount unset
 public class ApplicableCouponResponse {
     
     private Long couponId;
@@ -1,5 +1,6 @@
 package com.example.demo.coupon.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,5 +18,8 @@ public class ApplicableCouponsResponse {
     private List<ApplicableCouponResponse> applicableCoupons;
     private BigDecimal cartTotal;
     private BigDecimal bestDiscount; // Highest discount available
+    
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private EvaluationExplanation explanation; // Only with explain=true
 }
 
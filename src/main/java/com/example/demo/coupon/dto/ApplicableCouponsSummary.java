@@ -0,0 +1,24 @@
+package com.example.demo.coupon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Trailer line of the streamed applicable-coupons response, written after the last coupon
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ApplicableCouponsSummary {
+    
+    @Builder.Default
+    private String type = StreamError.SUMMARY; // Tells the trailer apart from the lines before it
+    private BigDecimal cartTotal;
+    private BigDecimal bestDiscount; // Highest discount available
+    private Integer applicableCount; // Coupon lines written before this trailer
+}
@@ -0,0 +1,23 @@
+package com.example.demo.coupon.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Carts to evaluate in one call. Each cart is validated on its own, so one bad cart
+ * yields an error line instead of rejecting the whole batch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchCartRequest {
+    
+    @NotEmpty(message = "Carts cannot be empty")
+    private List<CartRequest> carts;
+}
@@ -0,0 +1,23 @@
+package com.example.demo.coupon.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of the batch response: the applicable coupons of the cart at {@code index}, or why it was rejected
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchCartResult {
+    
+    private Integer index; // Position of the cart in the request
+    private Long userId;
+    private ApplicableCouponsResponse result;
+    private String error;
+}
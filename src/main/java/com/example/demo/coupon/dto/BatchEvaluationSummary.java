@@ -0,0 +1,22 @@
+package com.example.demo.coupon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Trailer line of the batch response, written after the last cart
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchEvaluationSummary {
+    
+    @Builder.Default
+    private String type = StreamError.SUMMARY; // Tells the trailer apart from the lines before it
+    private Long catalogVersion; // Snapshot every cart was evaluated against
+    private Integer cartCount;
+    private Integer failedCount; // Carts answered with an error line
+}
@@ -0,0 +1,20 @@
+package com.example.demo.coupon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchRedemptionItem {
+    
+    private String orderId; // Caller's reference, echoed in the result
+    private Long couponId;
+    private Long userId;
+    private List<CartItemRequest> cartItems;
+}
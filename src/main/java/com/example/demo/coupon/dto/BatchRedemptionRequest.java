@@ -0,0 +1,22 @@
+package com.example.demo.coupon.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Orders to redeem in one call. Each order is checked on its own and gets its own status.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchRedemptionRequest {
+    
+    @NotEmpty(message = "Redemptions cannot be empty")
+    private List<BatchRedemptionItem> redemptions;
+}
@@ -0,0 +1,19 @@
+package com.example.demo.coupon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchRedemptionResponse {
+    
+    private List<BatchRedemptionResult> results; // In request order
+    private Integer redeemedCount;
+    private Integer rejectedCount;
+}
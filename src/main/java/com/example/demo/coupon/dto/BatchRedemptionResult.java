@@ -0,0 +1,26 @@
+package com.example.demo.coupon.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchRedemptionResult {
+    
+    private Integer index; // Position of the order in the request
+    private String orderId;
+    private Long couponId;
+    private RedemptionStatus status;
+    private String cartId; // Only for redeemed orders
+    private BigDecimal discountApplied;
+    private BigDecimal finalTotal;
+    private String message; // Why the order was not redeemed
+}
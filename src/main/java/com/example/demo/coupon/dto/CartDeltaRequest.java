@@ -0,0 +1,21 @@
+package com.example.demo.coupon.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartDeltaRequest {
+    
+    @NotEmpty(message = "Changes cannot be empty")
+    @Valid
+    private List<CartLineChange> changes;
+}
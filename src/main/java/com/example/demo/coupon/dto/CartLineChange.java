@@ -0,0 +1,30 @@
+package com.example.demo.coupon.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartLineChange {
+    
+    @NotNull(message = "Product ID is required")
+    private Long productId;
+    
+    private String productName;
+    
+    @NotNull(message = "Quantity is required")
+    @PositiveOrZero(message = "Quantity cannot be negative")
+    private Integer quantity; // New quantity for the line, 0 removes it
+    
+    @Positive(message = "Unit price must be positive")
+    private BigDecimal unitPrice; // Required when adding a product, optional otherwise
+}
@@ -0,0 +1,29 @@
+package com.example.demo.coupon.dto;
+
+import com.example.demo.coupon.model.enums.CouponType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CouponEvaluationTrace {
+    
+    public enum Outcome {
+        REJECTED_EARLY, // Not started, expired or usage limit reached - strategy not invoked
+        NOT_APPLICABLE,
+        APPLICABLE,
+        USER_LIMIT,     // Applicable, but the user has used up their allowance
+        ERROR
+    }
+    
+    private Long couponId;
+    private String couponCode;
+    private CouponType strategy;
+    private Outcome outcome;
+    private long nanos;
+    private String reason; // Why the coupon was not applicable, if it was not
+}
@@ -0,0 +1,57 @@
+package com.example.demo.coupon.dto;
+
+import com.example.demo.coupon.model.enums.BxGyDiscountType;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CouponExportRow {
+    
+    private Long id;
+    private String code;
+    private String name;
+    private CouponType type;
+    private DiscountType discountType;
+    private BigDecimal discountValue;
+    private Boolean isActive;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private Integer maxUsage;
+    private Integer currentUsage;
+    private Integer maxUsagePerUser;
+    
+    // Cart-wise
+    private BigDecimal minCartAmount;
+    private BigDecimal maxDiscountAmount;
+    
+    // Product-wise
+    @Builder.Default
+    private List<Long> applicableProductIds = new ArrayList<>();
+    private Integer minQuantity;
+    private Integer maxQuantity;
+    
+    // BxGy
+    @Builder.Default
+    private List<Long> buyProductIds = new ArrayList<>();
+    private Integer buyQuantity;
+    @Builder.Default
+    private List<Long> getProductIds = new ArrayList<>();
+    private Integer getQuantity;
+    private Integer repetitionLimit;
+    private BxGyDiscountType bxGyDiscountType;
+    
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,10 @@
+package com.example.demo.coupon.dto;
+
+/**
+ * How much of each applicable coupon a response carries.
+ * COMPACT returns only the coupon id, code and discount; breakdowns and messages are never built.
+ */
+public enum CouponView {
+    FULL,
+    COMPACT
+}
@@ -0,0 +1,22 @@
+package com.example.demo.coupon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EvaluationExplanation {
+    
+    private long catalogVersion;
+    private int catalogSize;
+    private int candidateCoupons;
+    private int prunedByIndex; // Product-wise/BxGy coupons sharing no product with the cart, never evaluated
+    private long evaluationNanos;
+    private List<CouponEvaluationTrace> coupons; // One entry per evaluated coupon, in catalog order
+}
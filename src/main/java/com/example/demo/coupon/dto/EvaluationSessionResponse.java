@@ -0,0 +1,17 @@
+package com.example.demo.coupon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EvaluationSessionResponse {
+    
+    private String sessionId;
+    private ApplicableCouponsResponse evaluation;
+    private Integer reevaluatedCoupons; // Coupons evaluated for this call
+}
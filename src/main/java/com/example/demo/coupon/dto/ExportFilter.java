@@ -0,0 +1,25 @@
+package com.example.demo.coupon.dto;
+
+import com.example.demo.coupon.model.enums.CouponType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Export filters; unset fields match everything. Dates are inclusive: coupons valid at some point
+ * in the range, usages made on a day in the range.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExportFilter {
+    
+    private Long couponId;
+    private CouponType type;
+    private LocalDate from;
+    private LocalDate to;
+}
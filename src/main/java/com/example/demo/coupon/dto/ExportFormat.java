@@ -0,0 +1,9 @@
+package com.example.demo.coupon.dto;
+
+/**
+ * Wire format of an export: CSV with a header line, or one JSON object per line
+ */
+public enum ExportFormat {
+    CSV,
+    NDJSON
+}
@@ -0,0 +1,42 @@
+package com.example.demo.coupon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HeavyHittersResponse {
+    
+    private LocalDateTime trackingSince;
+    private Category evaluatedCoupons;  // Coupons returned as applicable
+    private Category evaluatedProducts; // Products in evaluated carts
+    private Category redeemedCoupons;
+    private Category redeemedProducts;  // Products in carts a coupon was applied to
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Category {
+        private long total; // All occurrences recorded, not just the top entries
+        private List<Entry> top;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Entry {
+        private long id;
+        private long estimatedCount;  // Upper bound
+        private long guaranteedCount; // Lower bound
+        private double share;         // estimatedCount / total
+    }
+}
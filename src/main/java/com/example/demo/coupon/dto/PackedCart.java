@@ -0,0 +1,99 @@
+package com.example.demo.coupon.dto;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cart decoded from the compact binary encoding. Lines live in parallel primitive arrays with
+ * prices in minor units, and are only turned into {@link CartItemRequest} objects when a
+ * strategy has to evaluate them.
+ */
+public class PackedCart {
+    
+    @Getter
+    private final Long userId;
+    @Getter
+    private final int priceScale; // decimal places of the minor price unit, e.g. 2 for cents
+    private final long[] productIds;
+    private final int[] quantities;
+    private final long[] unitPrices;
+    
+    public PackedCart(Long userId, int priceScale, long[] productIds, int[] quantities, long[] unitPrices) {
+        if (productIds.length != quantities.length || productIds.length != unitPrices.length) {
+            throw new IllegalArgumentException("Cart line arrays differ in length");
+        }
+        this.userId = userId;
+        this.priceScale = priceScale;
+        this.productIds = productIds;
+        this.quantities = quantities;
+        this.unitPrices = unitPrices;
+    }
+    
+    public int size() {
+        return productIds.length;
+    }
+    
+    public long productId(int line) {
+        return productIds[line];
+    }
+    
+    public int quantity(int line) {
+        return quantities[line];
+    }
+    
+    /**
+     * Unit price of a line in minor units
+     */
+    public long unitPrice(int line) {
+        return unitPrices[line];
+    }
+    
+    /**
+     * Sort the lines in place into canonical order (product, price, quantity), as CartFingerprint.normalize does
+     */
+    public void normalize() {
+        // Carts are small and often already sorted, which insertion sort handles in linear time without boxing
+        for (int i = 1; i < productIds.length; i++) {
+            long productId = productIds[i];
+            int quantity = quantities[i];
+            long unitPrice = unitPrices[i];
+            int j = i - 1;
+            while (j >= 0 && compare(productIds[j], unitPrices[j], quantities[j], productId, unitPrice, quantity) > 0) {
+                productIds[j + 1] = productIds[j];
+                quantities[j + 1] = quantities[j];
+                unitPrices[j + 1] = unitPrices[j];
+                j--;
+            }
+            productIds[j + 1] = productId;
+            quantities[j + 1] = quantity;
+            unitPrices[j + 1] = unitPrice;
+        }
+    }
+    
+    /**
+     * Materialize the lines for the strategies
+     */
+    public List<CartItemRequest> toCartItems() {
+        List<CartItemRequest> cartItems = new ArrayList<>(productIds.length);
+        for (int i = 0; i < productIds.length; i++) {
+            cartItems.add(CartItemRequest.builder()
+                .productId(productIds[i])
+                .quantity(quantities[i])
+                .unitPrice(BigDecimal.valueOf(unitPrices[i], priceScale))
+                .build());
+        }
+        return cartItems;
+    }
+    
+    private static int compare(long productIdA, long unitPriceA, int quantityA,
+                               long productIdB, long unitPriceB, int quantityB) {
+        int result = Long.compare(productIdA, productIdB);
+        if (result == 0) {
+            result = Long.compare(unitPriceA, unitPriceB);
+        }
+        return result != 0 ? result : Integer.compare(quantityA, quantityB);
+    }
+}
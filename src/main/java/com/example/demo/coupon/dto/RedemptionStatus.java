@@ -0,0 +1,13 @@
+package com.example.demo.coupon.dto;
+
+/**
+ * Outcome of one order in a batch redemption
+ */
+public enum RedemptionStatus {
+    REDEEMED,
+    USAGE_LIMIT_REACHED, // lost to the coupon's global limit
+    USER_LIMIT_REACHED,
+    NOT_APPLICABLE,
+    INVALID,
+    NOT_FOUND
+}
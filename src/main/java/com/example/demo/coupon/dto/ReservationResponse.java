@@ -0,0 +1,19 @@
+package com.example.demo.coupon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservationResponse {
+    
+    private String reservationId;
+    private LocalDateTime expiresAt;
+    private CartResponse cart; // Priced cart the reservation holds; cartId is assigned on commit
+}
@@ -0,0 +1,25 @@
+package com.example.demo.coupon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last line of a streamed NDJSON response that failed after the 200 status was sent, in place of the trailer
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StreamError {
+    
+    // Line types of streamed responses; data lines carry none
+    public static final String SUMMARY = "summary";
+    public static final String ERROR = "error";
+    
+    @Builder.Default
+    private String type = ERROR;
+    private String error;
+    private String message;
+}
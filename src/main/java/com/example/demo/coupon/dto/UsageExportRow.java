@@ -0,0 +1,26 @@
+package com.example.demo.coupon.dto;
+
+import com.example.demo.coupon.model.enums.CouponType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UsageExportRow {
+    
+    private Long id;
+    private Long couponId;
+    private String couponCode;
+    private CouponType couponType;
+    private Long userId;
+    private String cartId;
+    private BigDecimal discountAmount;
+    private LocalDateTime usedAt;
+}
@@ -0,0 +1,40 @@
+package com.example.demo.coupon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UsageRollupResponse {
+    
+    private LocalDate from;
+    private LocalDate to;
+    private Long couponId;             // null for all coupons
+    private long rolledUpThroughId;    // Last coupon_usages id included
+    private LocalDateTime rolledUpAt;
+    private long redemptions;
+    private BigDecimal discountTotal;
+    private long distinctUsers;        // HyperLogLog estimate over the whole range
+    private List<Day> days;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Day {
+        private LocalDate date;
+        private Long couponId;
+        private long redemptions;
+        private BigDecimal discountTotal;
+        private long distinctUsers;    // Estimate
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.coupon.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Published whenever a coupon definition or its usage counters change.
+ * Listeners that keep in-memory views of coupons should react after commit.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class CouponChangedEvent {
+    
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED,
+        REDEEMED, // usage counters changed, definition unchanged
+        EXHAUSTED // redemption that used up the coupon's global maxUsage
+    }
+    
+    private final Long couponId;
+    private final ChangeType changeType;
+    private final String previousCode; // null for CREATED and usage changes
+    private final String code; // null for DELETED and usage changes
+    private final List<Long> redeemedBy; // user of each new use, null for anonymous carts; empty if none were added
+    
+    public CouponChangedEvent(Long couponId, ChangeType changeType, String previousCode, String code) {
+        this(couponId, changeType, previousCode, code, List.of());
+    }
+    
+    /**
+     * Usage counters changed without new uses, e.g. when quota leases are taken or settled
+     */
+    public static CouponChangedEvent redeemed(Long couponId, boolean exhausted) {
+        return redeemed(couponId, exhausted, List.of());
+    }
+    
+    /**
+     * New uses were recorded, one per entry of {@code redeemedBy}
+     */
+    public static CouponChangedEvent redeemed(Long couponId, boolean exhausted, List<Long> redeemedBy) {
+        return new CouponChangedEvent(couponId,
+            exhausted ? ChangeType.EXHAUSTED : ChangeType.REDEEMED, null, null, redeemedBy);
+    }
+    
+    /**
+     * Whether the set of coupons that can be offered to a cart may have changed
+     */
+    public boolean affectsCatalog() {
+        return changeType != ChangeType.REDEEMED;
+    }
+}
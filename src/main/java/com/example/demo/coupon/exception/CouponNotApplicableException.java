@@ -3,7 +3,7 @@ package com.example.demo.coupon.exception;
 public class CouponNotApplicableException extends RuntimeException {
     
     public CouponNotApplicableException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
 
@@ -3,11 +3,11 @@ package com.example.demo.coupon.exception;
 public class CouponNotFoundException extends RuntimeException {
     
     public CouponNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
     
     public CouponNotFoundException(Long couponId) {
-        super("Coupon not found with ID: " + couponId);
+        super("Coupon not found with ID: " + couponId, null, false, false);
     }
 }
 
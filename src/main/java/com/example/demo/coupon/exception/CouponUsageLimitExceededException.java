@@ -0,0 +1,14 @@
+package com.example.demo.coupon.exception;
+
+import lombok.Getter;
+
+@Getter
+public class CouponUsageLimitExceededException extends InvalidCouponException {
+    
+    private final boolean perUser; // false for the coupon's global limit
+    
+    public CouponUsageLimitExceededException(String message, boolean perUser) {
+        super(message);
+        this.perUser = perUser;
+    }
+}
@@ -3,7 +3,7 @@ package com.example.demo.coupon.exception;
 public class DuplicateCouponCodeException extends RuntimeException {
     
     public DuplicateCouponCodeException(String code) {
-        super("Coupon code already exists: " + code);
+        super("Coupon code already exists: " + code, null, false, false);
     }
 }
 
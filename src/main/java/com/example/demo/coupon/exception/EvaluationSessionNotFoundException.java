@@ -0,0 +1,8 @@
+package com.example.demo.coupon.exception;
+
+public class EvaluationSessionNotFoundException extends RuntimeException {
+    
+    public EvaluationSessionNotFoundException(String sessionId) {
+        super("Evaluation session not found or expired: " + sessionId, null, false, false);
+    }
+}
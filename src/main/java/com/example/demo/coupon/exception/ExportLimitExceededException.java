@@ -0,0 +1,8 @@
+package com.example.demo.coupon.exception;
+
+public class ExportLimitExceededException extends RuntimeException {
+    
+    public ExportLimitExceededException(int maxConcurrent) {
+        super("All " + maxConcurrent + " export slots are in use; retry later", null, false, false);
+    }
+}
@@ -3,7 +3,8 @@ package com.example.demo.coupon.exception;
 public class InvalidCouponException extends RuntimeException {
     
     public InvalidCouponException(String message) {
-        super(message);
+        // Expected rejections mapped to 4xx responses; skip stack trace capture
+        super(message, null, false, false);
     }
 }
 
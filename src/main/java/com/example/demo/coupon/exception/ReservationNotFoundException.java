@@ -0,0 +1,8 @@
+package com.example.demo.coupon.exception;
+
+public class ReservationNotFoundException extends RuntimeException {
+    
+    public ReservationNotFoundException(String reservationId) {
+        super("Reservation not found or expired: " + reservationId, null, false, false);
+    }
+}
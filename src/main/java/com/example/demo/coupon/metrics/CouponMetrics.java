@@ -0,0 +1,192 @@
+package com.example.demo.coupon.metrics;
+
+import com.example.demo.coupon.dto.RedemptionStatus;
+import com.example.demo.coupon.exception.CouponNotApplicableException;
+import com.example.demo.coupon.exception.CouponNotFoundException;
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import com.example.demo.coupon.exception.InvalidCouponException;
+import com.example.demo.coupon.exception.ReservationNotFoundException;
+import com.example.demo.coupon.model.enums.CouponType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the evaluation and redemption pipeline. All tags come from small fixed sets
+ * (coupon type, outcome, result) - never coupon ids, codes or users.
+ */
+@Component
+@RequiredArgsConstructor
+public class CouponMetrics {
+    
+    public enum StrategyOutcome { APPLICABLE, NOT_APPLICABLE, ERROR }
+    
+    private static final String[] REDEMPTION_RESULTS =
+        {"success", "usage_limit", "user_limit", "invalid", "not_applicable", "not_found", "error"};
+    
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<CouponType, Map<StrategyOutcome, Timer>> strategyTimers = new EnumMap<>(CouponType.class);
+    private final Map<String, Timer> redemptionTimers = new HashMap<>();
+    private final Map<String, Counter> redemptionCounters = new HashMap<>();
+    private Timer applicableSuccessTimer;
+    private Timer applicableErrorTimer;
+    private DistributionSummary candidateCoupons;
+    private DistributionSummary applicableCoupons;
+    
+    @PostConstruct
+    void registerMeters() {
+        for (CouponType type : CouponType.values()) {
+            Map<StrategyOutcome, Timer> timers = new EnumMap<>(StrategyOutcome.class);
+            for (StrategyOutcome outcome : StrategyOutcome.values()) {
+                timers.put(outcome, Timer.builder("coupon.strategy.evaluation")
+                    .description("Time spent in a strategy deciding applicability and discount for one coupon")
+                    .tag("strategy", type.name())
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+            }
+            strategyTimers.put(type, timers);
+        }
+        
+        for (String result : REDEMPTION_RESULTS) {
+            redemptionTimers.put(result, Timer.builder("coupon.apply.duration")
+                .description("Latency of CouponApplicationService.applyCoupon")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+            redemptionCounters.put(result, Counter.builder("coupon.redemptions")
+                .description("Redemption attempts by result")
+                .tag("result", result)
+                .register(meterRegistry));
+        }
+        
+        applicableSuccessTimer = applicableTimer("success");
+        applicableErrorTimer = applicableTimer("error");
+        candidateCoupons = DistributionSummary.builder("coupon.evaluation.candidates")
+            .description("Coupons evaluated per cart after product-index pruning")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        applicableCoupons = DistributionSummary.builder("coupon.evaluation.applicable")
+            .description("Coupons found applicable per evaluated cart")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+    
+    private Timer applicableTimer(String outcome) {
+        return Timer.builder("coupon.applicable.duration")
+            .description("Latency of CouponApplicationService.getApplicableCoupons")
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+    
+    public void recordStrategy(CouponType type, StrategyOutcome outcome, long nanos) {
+        strategyTimers.get(type).get(outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void recordEvaluation(int candidates, int applicable) {
+        candidateCoupons.record(candidates);
+        applicableCoupons.record(applicable);
+    }
+    
+    public <T> T timeApplicable(Supplier<T> evaluation) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = evaluation.get();
+            success = true;
+            return result;
+        } finally {
+            recordApplicable(System.nanoTime() - start, success);
+        }
+    }
+    
+    /**
+     * Record an evaluation timed by the caller, for callers that cannot wrap it in a Supplier
+     */
+    public void recordApplicable(long nanos, boolean success) {
+        (success ? applicableSuccessTimer : applicableErrorTimer).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Time a redemption. Inside a transaction a redemption only counts as a success once it commits,
+     * and the commit is part of its latency; a rollback after it returned is recorded as an error.
+     */
+    public <T> T timeRedemption(Supplier<T> redemption) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = redemption.get();
+        } catch (Throwable e) {
+            recordRedemption(System.nanoTime() - start, e);
+            throw e;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordRedemption(System.nanoTime() - start, null);
+            return result;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                record(System.nanoTime() - start, status == STATUS_COMMITTED ? "success" : "error");
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Record a redemption timed by the caller; failure is null for a successful redemption
+     */
+    public void recordRedemption(long nanos, Throwable failure) {
+        record(nanos, failure == null ? "success" : redemptionResult(failure));
+    }
+    
+    private void record(long nanos, String result) {
+        redemptionTimers.get(result).record(nanos, TimeUnit.NANOSECONDS);
+        redemptionCounters.get(result).increment();
+    }
+    
+    /**
+     * Count one order of a batch redemption; batches are not timed per order
+     */
+    public void countRedemption(RedemptionStatus status) {
+        String result = switch (status) {
+            case REDEEMED -> "success";
+            case USAGE_LIMIT_REACHED -> "usage_limit";
+            case USER_LIMIT_REACHED -> "user_limit";
+            case NOT_APPLICABLE -> "not_applicable";
+            case INVALID -> "invalid";
+            case NOT_FOUND -> "not_found";
+        };
+        redemptionCounters.get(result).increment();
+    }
+    
+    private static String redemptionResult(Throwable e) {
+        if (e instanceof CouponUsageLimitExceededException limitExceeded) {
+            return limitExceeded.isPerUser() ? "user_limit" : "usage_limit";
+        }
+        if (e instanceof CouponNotApplicableException) {
+            return "not_applicable";
+        }
+        if (e instanceof InvalidCouponException) {
+            return "invalid";
+        }
+        if (e instanceof CouponNotFoundException || e instanceof ReservationNotFoundException) {
+            return "not_found";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.coupon.metrics;
+
+import com.example.demo.coupon.dto.ApplicableCouponResponse;
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.HeavyHittersResponse;
+import com.example.demo.coupon.dto.PackedCart;
+import com.example.demo.coupon.util.HeavyHitterTracker;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Live top-K of the coupons and products that dominate evaluation and redemption traffic.
+ * Fed by the applicable-coupons and apply paths; memory is fixed by the configured sizes.
+ */
+@Component
+public class HeavyHitters {
+    
+    @Value("${coupon.heavy-hitters.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${coupon.heavy-hitters.capacity:100}")
+    private int capacity;
+    
+    @Value("${coupon.heavy-hitters.sketch-width:8192}")
+    private int sketchWidth;
+    
+    @Value("${coupon.heavy-hitters.sketch-depth:4}")
+    private int sketchDepth;
+    
+    private HeavyHitterTracker evaluatedCoupons;
+    private HeavyHitterTracker evaluatedProducts;
+    private HeavyHitterTracker redeemedCoupons;
+    private HeavyHitterTracker redeemedProducts;
+    private volatile LocalDateTime trackingSince = LocalDateTime.now();
+    
+    @PostConstruct
+    void init() {
+        evaluatedCoupons = new HeavyHitterTracker(capacity, sketchWidth, sketchDepth);
+        evaluatedProducts = new HeavyHitterTracker(capacity, sketchWidth, sketchDepth);
+        redeemedCoupons = new HeavyHitterTracker(capacity, sketchWidth, sketchDepth);
+        redeemedProducts = new HeavyHitterTracker(capacity, sketchWidth, sketchDepth);
+    }
+    
+    /**
+     * Count the cart's products and the coupons returned as applicable
+     */
+    public void recordEvaluation(List<CartItemRequest> cartItems, List<ApplicableCouponResponse> applicableCoupons) {
+        recordEvaluatedCart(cartItems);
+        for (ApplicableCouponResponse coupon : applicableCoupons) {
+            recordApplicableCoupon(coupon.getCouponId());
+        }
+    }
+    
+    /**
+     * Count the products of an evaluated cart, for callers that report applicable coupons one by one
+     */
+    public void recordEvaluatedCart(List<CartItemRequest> cartItems) {
+        if (!enabled) {
+            return;
+        }
+        for (CartItemRequest item : cartItems) {
+            evaluatedProducts.record(item.getProductId());
+        }
+    }
+    
+    public void recordEvaluatedCart(PackedCart cart) {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < cart.size(); i++) {
+            evaluatedProducts.record(cart.productId(i));
+        }
+    }
+    
+    public void recordApplicableCoupon(Long couponId) {
+        if (enabled) {
+            evaluatedCoupons.record(couponId);
+        }
+    }
+    
+    public void recordRedemption(Long couponId, List<CartItemRequest> cartItems) {
+        if (!enabled) {
+            return;
+        }
+        redeemedCoupons.record(couponId);
+        for (CartItemRequest item : cartItems) {
+            redeemedProducts.record(item.getProductId());
+        }
+    }
+    
+    public HeavyHittersResponse snapshot(int limit) {
+        return HeavyHittersResponse.builder()
+            .trackingSince(trackingSince)
+            .evaluatedCoupons(category(evaluatedCoupons, limit))
+            .evaluatedProducts(category(evaluatedProducts, limit))
+            .redeemedCoupons(category(redeemedCoupons, limit))
+            .redeemedProducts(category(redeemedProducts, limit))
+            .build();
+    }
+    
+    public void reset() {
+        evaluatedCoupons.reset();
+        evaluatedProducts.reset();
+        redeemedCoupons.reset();
+        redeemedProducts.reset();
+        trackingSince = LocalDateTime.now();
+    }
+    
+    private static HeavyHittersResponse.Category category(HeavyHitterTracker tracker, int limit) {
+        long total = tracker.total();
+        List<HeavyHittersResponse.Entry> top = tracker.top(limit).stream()
+            .map(hitter -> HeavyHittersResponse.Entry.builder()
+                .id(hitter.getKey())
+                .estimatedCount(hitter.getEstimatedCount())
+                .guaranteedCount(hitter.getGuaranteedCount())
+                .share(total == 0 ? 0.0 : Math.min(1.0, (double) hitter.getEstimatedCount() / total))
+                .build())
+            .toList();
+        return HeavyHittersResponse.Category.builder()
+            .total(total)
+            .top(top)
+            .build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.coupon.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * Records the number of SQL statements (Hibernate and JdbcTemplate) each API request issued, tagged by
+ * method and URI template (e.g. {@code /api/coupons/apply-coupon/{couponId}}). Statements of a streamed
+ * body, which runs on an async thread, are added to its request and recorded once the stream has ended.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryCountFilter extends OncePerRequestFilter implements WebMvcConfigurer {
+    
+    // Statements counted so far for a request whose async processing has not finished
+    private static final String STATEMENTS_ATTRIBUTE = QueryCountFilter.class.getName() + ".statements";
+    
+    private final QueryCounter queryCounter;
+    private final MeterRegistry meterRegistry;
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+    
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        queryCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = addStatements(request, queryCounter.stop());
+            if (!isAsyncStarted(request)) {
+                request.removeAttribute(STATEMENTS_ATTRIBUTE);
+                record(request, statements);
+            }
+        }
+    }
+    
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+                queryCounter.start();
+            }
+            
+            @Override
+            public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+                Integer counted = (Integer) request.getAttribute(STATEMENTS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                int statements = (counted != null ? counted : 0) + queryCounter.stop();
+                request.setAttribute(STATEMENTS_ATTRIBUTE, statements, RequestAttributes.SCOPE_REQUEST);
+            }
+        });
+    }
+    
+    private static int addStatements(HttpServletRequest request, int statements) {
+        Integer counted = (Integer) request.getAttribute(STATEMENTS_ATTRIBUTE);
+        int total = (counted != null ? counted : 0) + statements;
+        request.setAttribute(STATEMENTS_ATTRIBUTE, total);
+        return total;
+    }
+    
+    private void record(HttpServletRequest request, int statements) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("coupon.db.statements")
+            .description("SQL statements issued per API request")
+            .tag("method", request.getMethod())
+            .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(statements);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.coupon.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Uses of a coupon by one user whose coupon_usages rows have been archived.
+ * Per-user limits count these on top of the live rows.
+ */
+@Entity
+@Table(name = "coupon_usage_archived_counts")
+@IdClass(ArchivedUsageCount.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedUsageCount {
+    
+    @Id
+    @Column(name = "coupon_id")
+    private Long couponId;
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "usage_count", nullable = false)
+    private Long usageCount;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long couponId;
+        private Long userId;
+    }
+}
@@ -25,7 +25,9 @@ public class BxGyCoupon extends Coupon {
     @Column(name = "product_id")
     private Set<Long> buyProductIds = new HashSet<>();
     
-    @Column(name = "buy_quantity", nullable = false)
+    // Subtype columns must stay nullable since all coupon types share one table;
+    // required values are enforced by CouponValidator
+    @Column(name = "buy_quantity")
     private Integer buyQuantity;
     
     @ElementCollection
@@ -34,14 +36,14 @@ public class BxGyCoupon extends Coupon {
     @Column(name = "product_id")
     private Set<Long> getProductIds = new HashSet<>();
     
-    @Column(name = "get_quantity", nullable = false)
+    @Column(name = "get_quantity")
     private Integer getQuantity;
     
-    @Column(name = "repetition_limit", nullable = false)
+    @Column(name = "repetition_limit")
     private Integer repetitionLimit;
     
     @Enumerated(EnumType.STRING)
-    @Column(name = "bxgy_discount_type", nullable = false)
+    @Column(name = "bxgy_discount_type")
     private BxGyDiscountType bxGyDiscountType;
     
     @PostPersist
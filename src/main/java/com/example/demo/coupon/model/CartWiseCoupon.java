@@ -18,7 +18,7 @@ import java.math.BigDecimal;
 @AllArgsConstructor
 public class CartWiseCoupon extends Coupon {
     
-    @Column(name = "min_cart_amount", nullable = false, precision = 10, scale = 2)
+    @Column(name = "min_cart_amount", precision = 10, scale = 2) // Nullable column, required for this type
     private BigDecimal minCartAmount;
     
     @Column(name = "max_discount_amount", precision = 10, scale = 2)
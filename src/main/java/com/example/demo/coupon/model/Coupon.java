@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -61,6 +62,11 @@ public abstract class Coupon {
     @Column(name = "current_usage", nullable = false)
     private Integer currentUsage = 0;
     
+    // Quota leased to application nodes and not yet settled into currentUsage; written with SQL only
+    @ColumnDefault("0")
+    @Column(name = "leased_usage", nullable = false, insertable = false, updatable = false)
+    private Integer leasedUsage;
+    
     @Column(name = "max_usage_per_user")
     private Integer maxUsagePerUser; // null means unlimited per user
     
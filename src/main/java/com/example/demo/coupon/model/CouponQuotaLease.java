@@ -0,0 +1,44 @@
+package com.example.demo.coupon.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A block of a coupon's global-limit quota leased by one application node.
+ * The block is counted in the coupon's leased usage until the lease is settled.
+ */
+@Entity
+@Table(name = "coupon_quota_leases",
+       indexes = @Index(name = "idx_lease_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CouponQuotaLease {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+    
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+    
+    @Column(nullable = false)
+    private Integer granted;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "coupon_usages", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"coupon_id", "user_id", "cart_id"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"coupon_id", "user_id", "cart_id"}),
+       indexes = @Index(name = "idx_quota_lease_id", columnList = "quota_lease_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -39,5 +40,8 @@ public class CouponUsage {
     
     @Column(name = "used_at", nullable = false)
     private LocalDateTime usedAt;
+    
+    @Column(name = "quota_lease_id")
+    private Long quotaLeaseId; // Quota lease the use was served from; null when counted on the coupon directly
 }
 
@@ -0,0 +1,50 @@
+package com.example.demo.coupon.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One chunk of archived coupon_usages rows, stored as gzip-compressed NDJSON (one row per line).
+ */
+@Entity
+@Table(name = "coupon_usage_archive",
+       indexes = @Index(name = "idx_archive_newest_used_at", columnList = "newest_used_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CouponUsageArchive {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "first_usage_id", nullable = false)
+    private Long firstUsageId;
+    
+    @Column(name = "last_usage_id", nullable = false)
+    private Long lastUsageId;
+    
+    @Column(name = "row_count", nullable = false)
+    private Integer rowCount;
+    
+    @Column(name = "oldest_used_at", nullable = false)
+    private LocalDateTime oldestUsedAt;
+    
+    @Column(name = "newest_used_at", nullable = false)
+    private LocalDateTime newestUsedAt;
+    
+    @Lob
+    @Column(nullable = false, length = 16777215)
+    private byte[] payload;
+    
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
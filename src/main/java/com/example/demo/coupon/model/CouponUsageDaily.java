@@ -0,0 +1,61 @@
+package com.example.demo.coupon.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Redemptions of one coupon on one day, rolled up from coupon_usages. Distinct users are kept as a
+ * HyperLogLog sketch so days can be merged into distinct counts over any range.
+ * No foreign key: rollups outlive deleted coupons and archived usage rows.
+ */
+@Entity
+@Table(name = "coupon_usage_daily",
+       indexes = @Index(name = "idx_usage_daily_date", columnList = "usage_date"))
+@IdClass(CouponUsageDaily.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CouponUsageDaily {
+    
+    public static final int SKETCH_PRECISION = 12;
+    
+    @Id
+    @Column(name = "coupon_id")
+    private Long couponId;
+    
+    @Id
+    @Column(name = "usage_date")
+    private LocalDate usageDate;
+    
+    @Column(nullable = false)
+    private Long redemptions;
+    
+    @Column(name = "discount_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal discountTotal;
+    
+    @Column(name = "user_sketch", nullable = false, length = 1 << SKETCH_PRECISION)
+    private byte[] userSketch; // HyperLogLog registers over the day's user ids
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long couponId;
+        private LocalDate usageDate;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.demo.coupon.repository;
+
+import com.example.demo.coupon.model.CouponQuotaLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CouponQuotaLeaseRepository extends JpaRepository<CouponQuotaLease, Long> {
+    
+    List<CouponQuotaLease> findByExpiresAtBefore(LocalDateTime cutoff);
+    
+    List<CouponQuotaLease> findByNodeId(String nodeId);
+    
+    /**
+     * Expire other nodes' open leases on a coupon now, so their unused quota is settled back early
+     */
+    @Modifying
+    @Query("UPDATE CouponQuotaLease l SET l.expiresAt = :now "
+        + "WHERE l.couponId = :couponId AND l.nodeId <> :nodeId AND l.expiresAt > :now")
+    int recallLeases(@Param("couponId") Long couponId, @Param("nodeId") String nodeId, @Param("now") LocalDateTime now);
+    
+    /**
+     * Delete a lease; returns 0 when another node has already settled it
+     */
+    @Modifying
+    @Query("DELETE FROM CouponQuotaLease l WHERE l.id = :id")
+    int deleteLease(@Param("id") Long id);
+}
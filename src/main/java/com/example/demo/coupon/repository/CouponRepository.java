@@ -25,9 +25,25 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
     
     Page<Coupon> findByIsActiveAndType(Boolean isActive, CouponType type, Pageable pageable);
     
+    @Query("SELECT c.id AS id, c.code AS code FROM Coupon c")
+    List<CouponCodeView> findAllCodes();
+    
+    /**
+     * Code lookup under the index's normalisation (trimmed, upper case), used until the index is loaded
+     */
+    @Query("SELECT c.id FROM Coupon c WHERE UPPER(TRIM(c.code)) = :normalizedCode")
+    Optional<Long> findIdByNormalizedCode(String normalizedCode);
+    
     @Query("SELECT c FROM Coupon c WHERE c.isActive = true " +
            "AND c.startDate <= :now AND c.endDate >= :now " +
            "AND (c.maxUsage IS NULL OR c.currentUsage < c.maxUsage)")
     List<Coupon> findApplicableCoupons(LocalDateTime now);
+    
+    @Query("SELECT c FROM Coupon c WHERE c.isActive = true AND c.endDate >= :now")
+    List<Coupon> findActiveCoupons(LocalDateTime now);
+    
+    interface CouponCodeView {
+        Long getId();
+        String getCode();
+    }
 }
-
@@ -0,0 +1,9 @@
+package com.example.demo.coupon.repository;
+
+import com.example.demo.coupon.model.CouponUsageArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CouponUsageArchiveRepository extends JpaRepository<CouponUsageArchive, Long> {
+}
@@ -0,0 +1,16 @@
+package com.example.demo.coupon.repository;
+
+import com.example.demo.coupon.model.CouponUsageDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface CouponUsageDailyRepository extends JpaRepository<CouponUsageDaily, CouponUsageDaily.Key> {
+    
+    List<CouponUsageDaily> findByUsageDateBetweenOrderByUsageDateAscCouponIdAsc(LocalDate from, LocalDate to);
+    
+    List<CouponUsageDaily> findByCouponIdAndUsageDateBetweenOrderByUsageDateAsc(Long couponId, LocalDate from, LocalDate to);
+}
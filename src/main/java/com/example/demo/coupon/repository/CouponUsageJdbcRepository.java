@@ -0,0 +1,282 @@
+package com.example.demo.coupon.repository;
+
+import com.example.demo.coupon.model.ArchivedUsageCount;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.model.CouponUsage;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based writes on the usage counters and usage rows. Runs on the connection of the surrounding JPA
+ * transaction; coupon_usages ids are IDENTITY, which rules out Hibernate insert batching, so rows go through JDBC.
+ * Global limits count both current_usage and quota leased to application nodes (leased_usage).
+ */
+@Repository
+@RequiredArgsConstructor
+public class CouponUsageJdbcRepository {
+    
+    private static final RowMapper<UsageRow> USAGE_ROW_MAPPER = (rs, rowNum) -> new UsageRow(
+        rs.getLong("id"),
+        rs.getLong("coupon_id"),
+        rs.getObject("user_id", Long.class),
+        rs.getString("cart_id"),
+        rs.getBigDecimal("discount_amount"),
+        rs.getTimestamp("used_at").toLocalDateTime(),
+        rs.getObject("quota_lease_id", Long.class));
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Reserve up to {@code requested} uses of the coupon's global limit. A single conditional update
+     * claims all of them whenever the limit leaves room; otherwise the row is locked and what is left is granted.
+     * Returns null if the coupon no longer exists.
+     */
+    public UsageReservation reserveUsage(Coupon coupon, int requested, LocalDateTime now) {
+        Long couponId = coupon.getId();
+        int updated = jdbcTemplate.update("UPDATE coupons SET current_usage = current_usage + ?, updated_at = ? "
+                + "WHERE id = ? AND (max_usage IS NULL OR current_usage + leased_usage + ? <= max_usage)",
+            requested, Timestamp.valueOf(now), couponId, requested);
+        if (updated > 0) {
+            // Read back only where the counter can run out
+            Integer currentUsage = coupon.getMaxUsage() == null ? null : jdbcTemplate.queryForObject(
+                "SELECT current_usage FROM coupons WHERE id = ?", Integer.class, couponId);
+            return new UsageReservation(requested, currentUsage);
+        }
+        
+        int[] usage = lockUsage(couponId);
+        if (usage == null) {
+            return null;
+        }
+        int granted = Math.min(requested, Math.max(0, usage[2] - usage[0] - usage[1]));
+        if (granted > 0) {
+            jdbcTemplate.update("UPDATE coupons SET current_usage = current_usage + ?, updated_at = ? WHERE id = ?",
+                granted, Timestamp.valueOf(now), couponId);
+        }
+        return new UsageReservation(granted, usage[0] + granted);
+    }
+    
+    /**
+     * Uses recorded against the coupon's global limit: current usage plus the uses served from quota leases
+     * that are not settled yet. Leased quota nobody has used is not included. Null if the coupon no longer exists.
+     */
+    public Integer findRecordedUsage(Long couponId) {
+        List<Integer> usage = jdbcTemplate.queryForList("SELECT c.current_usage + (SELECT COUNT(*) "
+            + "FROM coupon_quota_leases l JOIN coupon_usages u ON u.quota_lease_id = l.id WHERE l.coupon_id = c.id) "
+            + "FROM coupons c WHERE c.id = ?", Integer.class, couponId);
+        return usage.isEmpty() ? null : usage.get(0);
+    }
+    
+    /**
+     * Uses of the coupon per user, archived ones included. Anonymous uses are left out.
+     */
+    public Map<Long, Long> findUsageByUser(Long couponId) {
+        Map<Long, Long> usage = new HashMap<>();
+        RowCallbackHandler add = rs -> usage.merge(rs.getLong(1), rs.getLong(2), Long::sum);
+        jdbcTemplate.query("SELECT user_id, COUNT(*) FROM coupon_usages WHERE coupon_id = ? AND user_id IS NOT NULL "
+            + "GROUP BY user_id", add, couponId);
+        jdbcTemplate.query("SELECT user_id, usage_count FROM coupon_usage_archived_counts WHERE coupon_id = ?",
+            add, couponId);
+        return usage;
+    }
+    
+    /**
+     * Lease up to {@code requested} uses of a limited coupon's quota to an application node.
+     * Leased uses are held in leased_usage until {@link #settleQuota} moves the ones served into current_usage.
+     * A coupon that no longer exists grants nothing.
+     */
+    public int leaseQuota(Long couponId, int requested) {
+        int updated = jdbcTemplate.update("UPDATE coupons SET leased_usage = leased_usage + ? "
+                + "WHERE id = ? AND max_usage IS NOT NULL AND current_usage + leased_usage + ? <= max_usage",
+            requested, couponId, requested);
+        if (updated > 0) {
+            return requested;
+        }
+        
+        int[] usage = lockUsage(couponId);
+        if (usage == null) {
+            return 0;
+        }
+        int granted = Math.min(requested, Math.max(0, usage[2] - usage[0] - usage[1]));
+        if (granted > 0) {
+            jdbcTemplate.update("UPDATE coupons SET leased_usage = leased_usage + ? WHERE id = ?", granted, couponId);
+        }
+        return granted;
+    }
+    
+    /**
+     * Close a quota lease: {@code used} uses become current usage and the rest of the lease is returned.
+     * Returns whether the coupon is used up afterwards.
+     */
+    public boolean settleQuota(Long couponId, int granted, int used, LocalDateTime now) {
+        jdbcTemplate.update("UPDATE coupons SET current_usage = current_usage + ?, leased_usage = leased_usage - ?, "
+            + "updated_at = ? WHERE id = ?", used, granted, Timestamp.valueOf(now), couponId);
+        List<Boolean> exhausted = jdbcTemplate.queryForList(
+            "SELECT max_usage IS NOT NULL AND current_usage >= max_usage FROM coupons WHERE id = ?", Boolean.class, couponId);
+        return !exhausted.isEmpty() && exhausted.get(0);
+    }
+    
+    /**
+     * Current usage, leased usage and limit of a coupon, read with a row lock.
+     * A locking read sees the latest counters, unlike a snapshot read under REPEATABLE READ.
+     * Null if the coupon was deleted.
+     */
+    private int[] lockUsage(Long couponId) {
+        List<int[]> usage = jdbcTemplate.query("SELECT current_usage, leased_usage, max_usage FROM coupons WHERE id = ? FOR UPDATE",
+            (rs, rowNum) -> new int[]{rs.getInt("current_usage"), rs.getInt("leased_usage"), rs.getInt("max_usage")}, couponId);
+        return usage.isEmpty() ? null : usage.get(0);
+    }
+    
+    /**
+     * Insert usage rows with JDBC batching, {@code batchSize} rows per round trip
+     */
+    public void insertUsages(List<CouponUsage> usages, int batchSize) {
+        jdbcTemplate.batchUpdate("INSERT INTO coupon_usages (coupon_id, user_id, cart_id, discount_amount, used_at, "
+                + "quota_lease_id) VALUES (?, ?, ?, ?, ?, ?)", usages, batchSize, (ps, usage) -> {
+            ps.setLong(1, usage.getCoupon().getId());
+            ps.setObject(2, usage.getUserId(), Types.BIGINT);
+            ps.setString(3, usage.getCartId());
+            ps.setBigDecimal(4, usage.getDiscountAmount());
+            ps.setTimestamp(5, Timestamp.valueOf(usage.getUsedAt()));
+            ps.setObject(6, usage.getQuotaLeaseId(), Types.BIGINT);
+        });
+    }
+    
+    /**
+     * Lowest id of the usage rows used at or after {@code since}; null if there are none
+     */
+    public Long findFirstIdUsedSince(LocalDateTime since) {
+        return jdbcTemplate.queryForObject("SELECT MIN(id) FROM coupon_usages WHERE used_at >= ?", Long.class,
+            Timestamp.valueOf(since));
+    }
+    
+    /**
+     * Up to {@code limit} usage rows with ids above {@code afterId}, in id order
+     */
+    public List<UsageRow> findUsagesAfter(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT id, coupon_id, user_id, cart_id, discount_amount, used_at, quota_lease_id "
+            + "FROM coupon_usages WHERE id > ? ORDER BY id LIMIT ?", USAGE_ROW_MAPPER, afterId, limit);
+    }
+    
+    /**
+     * Usage rows in id order within {@code (afterId, maxId]}, at most {@code limit}, up to but not including
+     * the first row that was used at or after {@code usedBefore} or still counts against an open quota lease
+     */
+    public List<UsageRow> findAgedUsages(long afterId, long maxId, LocalDateTime usedBefore, int limit) {
+        return jdbcTemplate.query("SELECT u.id, u.coupon_id, u.user_id, u.cart_id, u.discount_amount, u.used_at, "
+                + "u.quota_lease_id, (u.used_at < ? AND (u.quota_lease_id IS NULL OR NOT EXISTS "
+                + "(SELECT 1 FROM coupon_quota_leases l WHERE l.id = u.quota_lease_id))) AS archivable "
+                + "FROM coupon_usages u WHERE u.id > ? AND u.id <= ? ORDER BY u.id LIMIT ?", rs -> {
+                List<UsageRow> aged = new ArrayList<>();
+                while (rs.next() && rs.getBoolean("archivable")) {
+                    aged.add(USAGE_ROW_MAPPER.mapRow(rs, aged.size()));
+                }
+                return aged;
+            }, Timestamp.valueOf(usedBefore), afterId, maxId, limit);
+    }
+    
+    /**
+     * Ids of coupons that ended before {@code endedBefore} and still have usage rows
+     */
+    public List<Long> findEndedCouponIdsWithUsages(LocalDateTime endedBefore) {
+        return jdbcTemplate.queryForList("SELECT c.id FROM coupons c WHERE c.end_date < ? "
+            + "AND EXISTS (SELECT 1 FROM coupon_usages u WHERE u.coupon_id = c.id) ORDER BY c.id",
+            Long.class, Timestamp.valueOf(endedBefore));
+    }
+    
+    /**
+     * Up to {@code limit} usage rows of one coupon with ids up to {@code maxId}, in id order, found through
+     * the (coupon_id, user_id, cart_id) key. Rows still counted against an open quota lease are skipped.
+     */
+    public List<UsageRow> findCouponUsages(long couponId, long maxId, int limit) {
+        return jdbcTemplate.query("SELECT u.id, u.coupon_id, u.user_id, u.cart_id, u.discount_amount, u.used_at, "
+                + "u.quota_lease_id FROM coupon_usages u WHERE u.coupon_id = ? AND u.id <= ? "
+                + "AND (u.quota_lease_id IS NULL OR NOT EXISTS "
+                + "(SELECT 1 FROM coupon_quota_leases l WHERE l.id = u.quota_lease_id)) "
+                + "ORDER BY u.id LIMIT ?", USAGE_ROW_MAPPER, couponId, maxId, limit);
+    }
+    
+    /**
+     * Add to the archived per-user usage counts, creating the pairs not seen before.
+     * Callers must keep concurrent archival runs out.
+     */
+    public void addArchivedCounts(Map<ArchivedUsageCount.Key, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        Set<Long> couponIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        counts.keySet().forEach(key -> {
+            couponIds.add(key.getCouponId());
+            userIds.add(key.getUserId());
+        });
+        // Superset of the existing pairs; new ones are inserted at zero so every pair takes the same update
+        Set<ArchivedUsageCount.Key> existing = new HashSet<>(jdbcTemplate.query(
+            "SELECT coupon_id, user_id FROM coupon_usage_archived_counts WHERE coupon_id IN (" + placeholders(couponIds.size())
+                + ") AND user_id IN (" + placeholders(userIds.size()) + ")",
+            (rs, rowNum) -> new ArchivedUsageCount.Key(rs.getLong("coupon_id"), rs.getLong("user_id")),
+            concat(couponIds, userIds)));
+        List<ArchivedUsageCount.Key> missing = counts.keySet().stream().filter(key -> !existing.contains(key)).toList();
+        jdbcTemplate.batchUpdate("INSERT INTO coupon_usage_archived_counts (coupon_id, user_id, usage_count) "
+            + "VALUES (?, ?, 0)", missing, missing.size(), (ps, key) -> {
+                ps.setLong(1, key.getCouponId());
+                ps.setLong(2, key.getUserId());
+            });
+        
+        List<Object[]> increments = counts.entrySet().stream()
+            .map(entry -> new Object[]{entry.getValue(), entry.getKey().getCouponId(), entry.getKey().getUserId()})
+            .toList();
+        jdbcTemplate.batchUpdate("UPDATE coupon_usage_archived_counts SET usage_count = usage_count + ? "
+            + "WHERE coupon_id = ? AND user_id = ?", increments);
+    }
+    
+    public void deleteUsages(List<Long> ids, int batchSize) {
+        jdbcTemplate.batchUpdate("DELETE FROM coupon_usages WHERE id = ?", ids, batchSize,
+            (ps, id) -> ps.setLong(1, id));
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+    
+    private static Object[] concat(Collection<Long> first, Collection<Long> second) {
+        List<Object> args = new ArrayList<>(first);
+        args.addAll(second);
+        return args.toArray();
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    public static class UsageReservation {
+        private final int granted;
+        private final Integer currentUsage; // Counter value after the reservation; null for unlimited coupons
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    public static class UsageRow {
+        private final long id;
+        private final long couponId;
+        private final Long userId;
+        private final String cartId;
+        private final BigDecimal discountAmount;
+        private final LocalDateTime usedAt;
+        private final Long quotaLeaseId;
+    }
+}
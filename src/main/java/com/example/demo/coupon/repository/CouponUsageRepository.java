@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,9 +14,42 @@ public interface CouponUsageRepository extends JpaRepository<CouponUsage, Long>
     
     List<CouponUsage> findByCouponIdAndUserId(Long couponId, Long userId);
     
-    @Query("SELECT COUNT(cu) FROM CouponUsage cu WHERE cu.coupon.id = :couponId AND cu.userId = :userId")
+    /**
+     * Uses of the coupon by the user, archived ones included
+     */
+    @Query("SELECT COUNT(cu) + COALESCE((SELECT a.usageCount FROM ArchivedUsageCount a " +
+           "WHERE a.couponId = :couponId AND a.userId = :userId), 0) " +
+           "FROM CouponUsage cu WHERE cu.coupon.id = :couponId AND cu.userId = :userId")
     Long countByCouponIdAndUserId(@Param("couponId") Long couponId, @Param("userId") Long userId);
     
     boolean existsByCouponIdAndUserIdAndCartId(Long couponId, Long userId, String cartId);
+    
+    long countByQuotaLeaseId(Long quotaLeaseId);
+    
+    @Query("SELECT u.couponId AS couponId, SUM(u.usageCount) AS usageCount FROM (" +
+           "SELECT cu.coupon.id AS couponId, COUNT(cu) AS usageCount FROM CouponUsage cu " +
+           "WHERE cu.userId = :userId AND cu.coupon.id IN :couponIds GROUP BY cu.coupon.id " +
+           "UNION ALL SELECT a.couponId AS couponId, a.usageCount AS usageCount FROM ArchivedUsageCount a " +
+           "WHERE a.userId = :userId AND a.couponId IN :couponIds) u GROUP BY u.couponId")
+    List<CouponUsageCount> countByCouponIdsAndUserId(@Param("couponIds") Collection<Long> couponIds,
+                                                     @Param("userId") Long userId);
+    
+    @Query("SELECT u.couponId AS couponId, u.userId AS userId, SUM(u.usageCount) AS usageCount FROM (" +
+           "SELECT cu.coupon.id AS couponId, cu.userId AS userId, COUNT(cu) AS usageCount FROM CouponUsage cu " +
+           "WHERE cu.userId IN :userIds AND cu.coupon.id IN :couponIds GROUP BY cu.coupon.id, cu.userId " +
+           "UNION ALL SELECT a.couponId AS couponId, a.userId AS userId, a.usageCount AS usageCount " +
+           "FROM ArchivedUsageCount a WHERE a.userId IN :userIds AND a.couponId IN :couponIds) u " +
+           "GROUP BY u.couponId, u.userId")
+    List<UserCouponUsageCount> countByCouponIdsAndUserIds(@Param("couponIds") Collection<Long> couponIds,
+                                                          @Param("userIds") Collection<Long> userIds);
+    
+    interface CouponUsageCount {
+        Long getCouponId();
+        Long getUsageCount();
+    }
+    
+    interface UserCouponUsageCount extends CouponUsageCount {
+        Long getUserId();
+    }
 }
 
@@ -0,0 +1,176 @@
+package com.example.demo.coupon.repository;
+
+import com.example.demo.coupon.dto.CouponExportRow;
+import com.example.demo.coupon.dto.ExportFilter;
+import com.example.demo.coupon.dto.UsageExportRow;
+import com.example.demo.coupon.model.enums.BxGyDiscountType;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Forward-only, read-only result streaming for exports. Rows are handed to the consumer as they are
+ * read, so memory stays flat whatever the table size; no entities or persistence context are involved.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExportJdbcRepository {
+    
+    private static final String COUPON_COLUMNS = "c.id, c.code, c.name, c.type, c.discount_type, c.discount_value, "
+        + "c.is_active, c.start_date, c.end_date, c.max_usage, c.current_usage, c.max_usage_per_user, "
+        + "c.min_cart_amount, c.max_discount_amount, c.min_quantity, c.max_quantity, c.buy_quantity, "
+        + "c.get_quantity, c.repetition_limit, c.bxgy_discount_type, c.created_at, c.updated_at";
+    
+    // Product ids of all three collection tables, tagged with the collection they belong to
+    private static final String COUPON_PRODUCTS = "SELECT coupon_id, 'A' AS role, product_id FROM coupon_applicable_products "
+        + "UNION ALL SELECT coupon_id, 'B', product_id FROM bxgy_buy_products "
+        + "UNION ALL SELECT coupon_id, 'G', product_id FROM bxgy_get_products";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${coupon.export.fetch-size:1000}")
+    private int fetchSize;
+    
+    /**
+     * Coupons in id order with their product ids; product rows of one coupon arrive together and are
+     * folded into a single row
+     */
+    public void streamCoupons(ExportFilter filter, Consumer<CouponExportRow> consumer) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ").append(COUPON_COLUMNS).append(", p.role, p.product_id ")
+            .append("FROM coupons c LEFT JOIN (").append(COUPON_PRODUCTS).append(") p ON p.coupon_id = c.id WHERE 1 = 1");
+        if (filter.getCouponId() != null) {
+            sql.append(" AND c.id = ?");
+            args.add(filter.getCouponId());
+        }
+        if (filter.getType() != null) {
+            sql.append(" AND c.type = ?");
+            args.add(filter.getType().name());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" AND c.end_date >= ?");
+            args.add(Timestamp.valueOf(filter.getFrom().atStartOfDay()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND c.start_date < ?");
+            args.add(Timestamp.valueOf(filter.getTo().plusDays(1).atStartOfDay()));
+        }
+        sql.append(" ORDER BY c.id");
+        
+        CouponExportRow[] current = {null};
+        jdbcTemplate.query(streaming(sql.toString(), args), rs -> {
+            long id = rs.getLong("id");
+            if (current[0] == null || current[0].getId() != id) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                current[0] = mapCoupon(rs);
+            }
+            long productId = rs.getLong("product_id");
+            if (!rs.wasNull()) {
+                switch (rs.getString("role")) {
+                    case "A" -> current[0].getApplicableProductIds().add(productId);
+                    case "B" -> current[0].getBuyProductIds().add(productId);
+                    default -> current[0].getGetProductIds().add(productId);
+                }
+            }
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+    
+    /**
+     * Usage rows in id order. Rows moved to the archive are not included.
+     */
+    public void streamUsages(ExportFilter filter, Consumer<UsageExportRow> consumer) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT u.id, u.coupon_id, c.code, c.type, u.user_id, u.cart_id, "
+            + "u.discount_amount, u.used_at FROM coupon_usages u JOIN coupons c ON c.id = u.coupon_id WHERE 1 = 1");
+        if (filter.getCouponId() != null) {
+            sql.append(" AND u.coupon_id = ?");
+            args.add(filter.getCouponId());
+        }
+        if (filter.getType() != null) {
+            sql.append(" AND c.type = ?");
+            args.add(filter.getType().name());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" AND u.used_at >= ?");
+            args.add(Timestamp.valueOf(filter.getFrom().atStartOfDay()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND u.used_at < ?");
+            args.add(Timestamp.valueOf(filter.getTo().plusDays(1).atStartOfDay()));
+        }
+        sql.append(" ORDER BY u.id");
+        
+        jdbcTemplate.query(streaming(sql.toString(), args), rs -> {
+            consumer.accept(UsageExportRow.builder()
+                .id(rs.getLong("id"))
+                .couponId(rs.getLong("coupon_id"))
+                .couponCode(rs.getString("code"))
+                .couponType(CouponType.valueOf(rs.getString("type")))
+                .userId(rs.getObject("user_id", Long.class))
+                .cartId(rs.getString("cart_id"))
+                .discountAmount(rs.getBigDecimal("discount_amount"))
+                .usedAt(rs.getTimestamp("used_at").toLocalDateTime())
+                .build());
+        });
+    }
+    
+    private PreparedStatementCreator streaming(String sql, List<Object> args) {
+        return con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Connector/J streams row by row only at Integer.MIN_VALUE; other fetch sizes buffer the whole result
+            boolean mysql = con.getMetaData().getDatabaseProductName().contains("MySQL");
+            ps.setFetchSize(mysql ? Integer.MIN_VALUE : fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        };
+    }
+    
+    private static CouponExportRow mapCoupon(ResultSet rs) throws SQLException {
+        String bxGyDiscountType = rs.getString("bxgy_discount_type");
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        return CouponExportRow.builder()
+            .id(rs.getLong("id"))
+            .code(rs.getString("code"))
+            .name(rs.getString("name"))
+            .type(CouponType.valueOf(rs.getString("type")))
+            .discountType(DiscountType.valueOf(rs.getString("discount_type")))
+            .discountValue(rs.getBigDecimal("discount_value"))
+            .isActive(rs.getBoolean("is_active"))
+            .startDate(rs.getTimestamp("start_date").toLocalDateTime())
+            .endDate(rs.getTimestamp("end_date").toLocalDateTime())
+            .maxUsage(rs.getObject("max_usage", Integer.class))
+            .currentUsage(rs.getInt("current_usage"))
+            .maxUsagePerUser(rs.getObject("max_usage_per_user", Integer.class))
+            .minCartAmount(rs.getBigDecimal("min_cart_amount"))
+            .maxDiscountAmount(rs.getBigDecimal("max_discount_amount"))
+            .minQuantity(rs.getObject("min_quantity", Integer.class))
+            .maxQuantity(rs.getObject("max_quantity", Integer.class))
+            .buyQuantity(rs.getObject("buy_quantity", Integer.class))
+            .getQuantity(rs.getObject("get_quantity", Integer.class))
+            .repetitionLimit(rs.getObject("repetition_limit", Integer.class))
+            .bxGyDiscountType(bxGyDiscountType != null ? BxGyDiscountType.valueOf(bxGyDiscountType) : null)
+            .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+            .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+            .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.coupon.repository;
+
+import com.example.demo.coupon.model.RollupWatermark;
+import jakarta.persistence.LockModeType;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RollupWatermarkRepository extends JpaRepository<RollupWatermark, String> {
+    
+    /**
+     * Read a watermark with a row lock, held until the surrounding transaction ends
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM RollupWatermark w WHERE w.name = :name")
+    Optional<RollupWatermark> lockByName(@Param("name") String name);
+    
+    /**
+     * Create the watermark at zero unless it exists. Call outside a transaction: losing the race to
+     * another node fails the insert, which is fine on its own but would doom a surrounding transaction.
+     */
+    default void createIfAbsent(String name) {
+        if (existsById(name)) {
+            return;
+        }
+        try {
+            saveAndFlush(RollupWatermark.builder()
+                .name(name)
+                .lastId(0L)
+                .updatedAt(LocalDateTime.now())
+                .build());
+        } catch (DataIntegrityViolationException e) {
+            // Created by another node in the meantime
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.ApplicableCouponResponse;
+import com.example.demo.coupon.dto.ApplicableCouponsSummary;
+
+import java.util.function.Consumer;
+
+/**
+ * Applicable coupons for a validated cart, produced on demand. Coupons are passed to the
+ * sink one at a time as they are evaluated and the summary is returned at the end.
+ */
+@FunctionalInterface
+public interface ApplicableCouponStream {
+    
+    ApplicableCouponsSummary writeTo(Consumer<ApplicableCouponResponse> sink);
+}
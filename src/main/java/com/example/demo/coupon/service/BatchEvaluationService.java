@@ -0,0 +1,191 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.cache.ApplicableCouponCache;
+import com.example.demo.coupon.cache.CouponCatalog;
+import com.example.demo.coupon.dto.*;
+import com.example.demo.coupon.exception.InvalidCouponException;
+import com.example.demo.coupon.repository.CouponUsageRepository;
+import com.example.demo.coupon.util.CartFingerprint;
+import com.example.demo.coupon.validator.CartValidator;
+import com.example.demo.coupon.validator.ValidationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates many carts against one catalog snapshot. Carts are processed in chunks: each chunk
+ * is evaluated in parallel, per-user limits for the whole chunk are looked up with one query,
+ * and the chunk's results are handed over in request order before the next chunk starts.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BatchEvaluationService {
+    
+    private final CouponCatalog couponCatalog;
+    private final ApplicableCouponCache applicableCouponCache;
+    private final CouponEvaluator couponEvaluator;
+    private final CouponUsageRepository couponUsageRepository;
+    private final CartValidator cartValidator;
+    private final AsyncTaskExecutor applicationTaskExecutor; // resolved by name: Boot's shared task executor
+    
+    @Value("${coupon.batch.max-carts:10000}")
+    private int maxCarts;
+    
+    @Value("${coupon.batch.chunk-size:256}")
+    private int chunkSize;
+    
+    @Value("${coupon.batch.parallelism:4}")
+    private int parallelism;
+    
+    /**
+     * The batch size is checked here, before anything is written; individual carts are validated
+     * while the batch is streamed and rejected carts get an error line
+     */
+    public BatchEvaluationStream evaluate(BatchCartRequest batchRequest, CouponView view) {
+        List<CartRequest> carts = batchRequest.getCarts();
+        if (carts.size() > maxCarts) {
+            throw new InvalidCouponException(
+                String.format("A batch can hold at most %d carts (got %d)", maxCarts, carts.size()));
+        }
+        log.info("Evaluating batch of {} carts", carts.size());
+        
+        return chunkSink -> {
+            CouponCatalog.Snapshot snapshot = couponCatalog.current();
+            // Usage counts looked up so far, by user and coupon; reused by later chunks
+            Map<Long, Map<Long, Long>> usageByUser = new HashMap<>();
+            int failed = 0;
+            
+            for (int from = 0; from < carts.size(); from += chunkSize) {
+                List<CartRequest> chunk = carts.subList(from, Math.min(from + chunkSize, carts.size()));
+                CartEvaluation[] evaluations = new CartEvaluation[chunk.size()];
+                String[] errors = new String[chunk.size()];
+                
+                evaluateInParallel(snapshot, chunk, view, evaluations, errors);
+                loadUsageCounts(chunk, evaluations, usageByUser);
+                
+                List<BatchCartResult> results = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Long userId = chunk.get(i) != null ? chunk.get(i).getUserId() : null;
+                    BatchCartResult.BatchCartResultBuilder result = BatchCartResult.builder()
+                        .index(from + i)
+                        .userId(userId);
+                    if (errors[i] != null) {
+                        result.error(errors[i]);
+                        failed++;
+                    } else {
+                        Map<Long, Long> usageCounts = userId != null ? usageByUser.get(userId) : null;
+                        result.result(couponEvaluator.applyUsageCounts(evaluations[i],
+                            usageCounts != null ? usageCounts : Map.of(), null));
+                    }
+                    results.add(result.build());
+                }
+                chunkSink.accept(results);
+            }
+            
+            log.info("Evaluated batch of {} carts against catalog version {} ({} rejected)",
+                carts.size(), snapshot.getVersion(), failed);
+            return BatchEvaluationSummary.builder()
+                .catalogVersion(snapshot.getVersion())
+                .cartCount(carts.size())
+                .failedCount(failed)
+                .build();
+        };
+    }
+    
+    /**
+     * Workers claim carts from a shared index. The calling thread is one of them, so the chunk
+     * completes even when the executor has no thread to spare for the helpers.
+     */
+    private void evaluateInParallel(CouponCatalog.Snapshot snapshot, List<CartRequest> chunk, CouponView view,
+                                    CartEvaluation[] evaluations, String[] errors) {
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(chunk.size());
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < chunk.size(); i = next.getAndIncrement()) {
+                try {
+                    evaluateCart(snapshot, chunk.get(i), view, evaluations, errors, i);
+                } catch (RuntimeException e) {
+                    log.warn("Error evaluating batch cart: {}", e.getMessage());
+                    errors[i] = "Evaluation failed";
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        
+        for (int helper = 1; helper < Math.min(parallelism, chunk.size()); helper++) {
+            try {
+                applicationTaskExecutor.execute(worker);
+            } catch (TaskRejectedException e) {
+                break; // the calling thread picks up the remaining carts
+            }
+        }
+        worker.run();
+        
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating batch", e);
+        }
+    }
+    
+    private void evaluateCart(CouponCatalog.Snapshot snapshot, CartRequest cart, CouponView view,
+                              CartEvaluation[] evaluations, String[] errors, int i) {
+        ValidationResult validation = cartValidator.checkCartItems(cart != null ? cart.getCartItems() : null);
+        if (!validation.isValid()) {
+            errors[i] = validation.getMessage();
+            return;
+        }
+        
+        // Shares memoized evaluations with /applicable-coupons
+        List<CartItemRequest> cartItems = CartFingerprint.normalize(cart.getCartItems());
+        String fingerprint = CartFingerprint.of(cartItems);
+        CartEvaluation evaluation = applicableCouponCache.getIfPresent(snapshot.getVersion(), fingerprint, view);
+        if (evaluation == null) {
+            evaluation = couponEvaluator.evaluate(snapshot, cartItems, view);
+            applicableCouponCache.put(snapshot.getVersion(), fingerprint, view, evaluation);
+        }
+        evaluations[i] = evaluation;
+    }
+    
+    /**
+     * One usage query for every (user, limited coupon) pair of the chunk not already known from earlier chunks
+     */
+    private void loadUsageCounts(List<CartRequest> chunk, CartEvaluation[] evaluations,
+                                 Map<Long, Map<Long, Long>> usageByUser) {
+        Map<Long, Set<Long>> missing = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (evaluations[i] == null || chunk.get(i).getUserId() == null) {
+                continue;
+            }
+            Long userId = chunk.get(i).getUserId();
+            Map<Long, Long> known = usageByUser.computeIfAbsent(userId, id -> new HashMap<>());
+            for (Long couponId : evaluations[i].getMaxUsagePerUser().keySet()) {
+                if (!known.containsKey(couponId)) {
+                    missing.computeIfAbsent(userId, id -> new HashSet<>()).add(couponId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        
+        Set<Long> couponIds = new HashSet<>();
+        missing.values().forEach(couponIds::addAll);
+        for (CouponUsageRepository.UserCouponUsageCount count : couponUsageRepository
+                .countByCouponIdsAndUserIds(couponIds, missing.keySet())) {
+            usageByUser.get(count.getUserId()).put(count.getCouponId(), count.getUsageCount());
+        }
+        // Pairs without usage rows are known to be unused
+        missing.forEach((userId, ids) -> ids.forEach(couponId -> usageByUser.get(userId).putIfAbsent(couponId, 0L)));
+    }
+}
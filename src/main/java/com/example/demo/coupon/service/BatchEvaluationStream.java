@@ -0,0 +1,17 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.BatchCartResult;
+import com.example.demo.coupon.dto.BatchEvaluationSummary;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Results of a validated batch, produced on demand. Results are passed to the sink one chunk
+ * at a time in request order and the summary is returned at the end.
+ */
+@FunctionalInterface
+public interface BatchEvaluationStream {
+    
+    BatchEvaluationSummary writeTo(Consumer<List<BatchCartResult>> chunkSink);
+}
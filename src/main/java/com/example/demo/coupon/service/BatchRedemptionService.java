@@ -0,0 +1,261 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.*;
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.example.demo.coupon.exception.CouponNotApplicableException;
+import com.example.demo.coupon.exception.InvalidCouponException;
+import com.example.demo.coupon.metrics.CouponMetrics;
+import com.example.demo.coupon.metrics.HeavyHitters;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.model.CouponUsage;
+import com.example.demo.coupon.repository.CouponRepository;
+import com.example.demo.coupon.repository.CouponUsageJdbcRepository;
+import com.example.demo.coupon.repository.CouponUsageRepository;
+import com.example.demo.coupon.util.AfterCommit;
+import com.example.demo.coupon.validator.CartValidator;
+import com.example.demo.coupon.validator.CouponValidator;
+import com.example.demo.coupon.validator.ValidationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Redeems many orders in one transaction. Orders are checked and priced individually, then grouped
+ * by coupon: each group reserves its uses with one counter update and all usage rows are inserted
+ * in JDBC batches. When a coupon runs out, earlier orders in the request win.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BatchRedemptionService {
+    
+    private final CouponRepository couponRepository;
+    private final CouponUsageRepository couponUsageRepository;
+    private final CouponUsageJdbcRepository couponUsageJdbcRepository;
+    private final CouponValidator couponValidator;
+    private final CartValidator cartValidator;
+    private final CouponEvaluator couponEvaluator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CouponMetrics couponMetrics;
+    private final HeavyHitters heavyHitters;
+    
+    @Value("${coupon.batch-redemption.max-orders:5000}")
+    private int maxOrders;
+    
+    @Value("${coupon.batch-redemption.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+    
+    @Transactional
+    public BatchRedemptionResponse redeem(BatchRedemptionRequest batchRequest) {
+        List<BatchRedemptionItem> items = batchRequest.getRedemptions();
+        if (items.size() > maxOrders) {
+            throw new InvalidCouponException(
+                String.format("A batch can hold at most %d orders (got %d)", maxOrders, items.size()));
+        }
+        log.info("Redeeming batch of {} orders", items.size());
+        
+        LocalDateTime now = LocalDateTime.now();
+        BatchRedemptionResult[] results = new BatchRedemptionResult[items.size()];
+        
+        // One query for all coupons and one for all per-user counts
+        Set<Long> couponIds = new HashSet<>();
+        for (BatchRedemptionItem item : items) {
+            if (item != null && item.getCouponId() != null) {
+                couponIds.add(item.getCouponId());
+            }
+        }
+        Map<Long, Coupon> coupons = new HashMap<>();
+        couponRepository.findAllById(couponIds).forEach(coupon -> coupons.put(coupon.getId(), coupon));
+        Map<Long, Map<Long, Long>> userUsage = loadUserUsage(items, coupons);
+        
+        // Orders that passed every check, by coupon id and then request order
+        SortedMap<Long, List<PendingRedemption>> groups = new TreeMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            PendingRedemption pending = check(i, items.get(i), coupons, userUsage, now, results);
+            if (pending != null) {
+                groups.computeIfAbsent(pending.coupon.getId(), id -> new ArrayList<>()).add(pending);
+            }
+        }
+        
+        // Coupons are reserved in id order so concurrent batches lock rows in the same order
+        List<CouponUsage> usages = new ArrayList<>();
+        List<PendingRedemption> redeemed = new ArrayList<>();
+        for (List<PendingRedemption> group : groups.values()) {
+            Coupon coupon = group.get(0).coupon;
+            CouponUsageJdbcRepository.UsageReservation reservation =
+                couponUsageJdbcRepository.reserveUsage(coupon, group.size(), now);
+            if (reservation == null) {
+                // Deleted since it was loaded
+                for (PendingRedemption pending : group) {
+                    results[pending.index] = rejected(pending.index, pending.item, RedemptionStatus.NOT_FOUND,
+                        "Coupon not found with id: " + coupon.getId());
+                }
+                continue;
+            }
+            
+            List<Long> redeemedBy = new ArrayList<>();
+            for (int k = 0; k < group.size(); k++) {
+                PendingRedemption pending = group.get(k);
+                if (k >= reservation.getGranted()) {
+                    results[pending.index] = rejected(pending.index, pending.item,
+                        RedemptionStatus.USAGE_LIMIT_REACHED, "Coupon usage limit exceeded");
+                    continue;
+                }
+                // Suffixed with the position: one user's orders in a batch share a timestamp
+                String cartId = PricedCart.newCartId(pending.item.getUserId()) + "-" + pending.index;
+                usages.add(CouponUsage.builder()
+                    .coupon(coupon)
+                    .userId(pending.item.getUserId())
+                    .cartId(cartId)
+                    .discountAmount(pending.pricedCart.getDiscountApplied())
+                    .usedAt(now)
+                    .build());
+                results[pending.index] = BatchRedemptionResult.builder()
+                    .index(pending.index)
+                    .orderId(pending.item.getOrderId())
+                    .couponId(coupon.getId())
+                    .status(RedemptionStatus.REDEEMED)
+                    .cartId(cartId)
+                    .discountApplied(pending.pricedCart.getDiscountApplied())
+                    .finalTotal(pending.pricedCart.getFinalTotal())
+                    .build();
+                redeemed.add(pending);
+                redeemedBy.add(pending.item.getUserId());
+            }
+            
+            if (reservation.getGranted() > 0) {
+                eventPublisher.publishEvent(CouponChangedEvent.redeemed(coupon.getId(), coupon.getMaxUsage() != null
+                    && reservation.getCurrentUsage() != null && reservation.getCurrentUsage() >= coupon.getMaxUsage(),
+                    redeemedBy));
+            }
+        }
+        couponUsageJdbcRepository.insertUsages(usages, jdbcBatchSize);
+        
+        AfterCommit.run(() -> {
+            redeemed.forEach(pending -> heavyHitters.recordRedemption(pending.coupon.getId(), pending.item.getCartItems()));
+            for (BatchRedemptionResult result : results) {
+                couponMetrics.countRedemption(result.getStatus());
+            }
+        });
+        log.info("Redeemed {} of {} orders across {} coupons", usages.size(), items.size(), groups.size());
+        
+        return BatchRedemptionResponse.builder()
+            .results(Arrays.asList(results))
+            .redeemedCount(usages.size())
+            .rejectedCount(items.size() - usages.size())
+            .build();
+    }
+    
+    /**
+     * Validate and price one order; returns null after recording a rejection
+     */
+    private PendingRedemption check(int index, BatchRedemptionItem item, Map<Long, Coupon> coupons,
+                                    Map<Long, Map<Long, Long>> userUsage, LocalDateTime now,
+                                    BatchRedemptionResult[] results) {
+        if (item == null || item.getCouponId() == null) {
+            results[index] = rejected(index, item, RedemptionStatus.INVALID, "Coupon ID is required");
+            return null;
+        }
+        
+        ValidationResult cartValidation = cartValidator.checkCartItems(item.getCartItems());
+        if (!cartValidation.isValid()) {
+            results[index] = rejected(index, item, RedemptionStatus.INVALID, cartValidation.getMessage());
+            return null;
+        }
+        
+        Coupon coupon = coupons.get(item.getCouponId());
+        if (coupon == null) {
+            results[index] = rejected(index, item, RedemptionStatus.NOT_FOUND,
+                "Coupon not found with id: " + item.getCouponId());
+            return null;
+        }
+        
+        // Per-user counts include orders accepted earlier in this batch
+        Map<Long, Long> usageByUser = userUsage.get(coupon.getId());
+        boolean perUser = item.getUserId() != null && usageByUser != null;
+        Long userUsageCount = perUser ? usageByUser.getOrDefault(item.getUserId(), 0L) : null;
+        
+        ValidationResult validation = couponValidator.checkCouponApplicable(coupon, item.getUserId(), userUsageCount, now);
+        if (!validation.isValid()) {
+            RedemptionStatus status = switch (validation.getReason()) {
+                case USAGE_LIMIT_REACHED -> RedemptionStatus.USAGE_LIMIT_REACHED;
+                case USER_LIMIT_REACHED -> RedemptionStatus.USER_LIMIT_REACHED;
+                default -> RedemptionStatus.INVALID;
+            };
+            results[index] = rejected(index, item, status, validation.getMessage());
+            return null;
+        }
+        
+        PricedCart pricedCart;
+        try {
+            pricedCart = couponEvaluator.price(coupon, item.getCartItems());
+        } catch (CouponNotApplicableException | InvalidCouponException e) {
+            results[index] = rejected(index, item, RedemptionStatus.NOT_APPLICABLE, e.getMessage());
+            return null;
+        }
+        
+        if (perUser) {
+            usageByUser.merge(item.getUserId(), 1L, Long::sum);
+        }
+        return new PendingRedemption(index, item, coupon, pricedCart);
+    }
+    
+    /**
+     * Usage counts by coupon and user for every coupon in the batch that has a per-user limit
+     */
+    private Map<Long, Map<Long, Long>> loadUserUsage(List<BatchRedemptionItem> items, Map<Long, Coupon> coupons) {
+        Set<Long> limitedCouponIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (BatchRedemptionItem item : items) {
+            if (item == null || item.getUserId() == null) {
+                continue;
+            }
+            Coupon coupon = coupons.get(item.getCouponId());
+            if (coupon != null && coupon.getMaxUsagePerUser() != null) {
+                limitedCouponIds.add(coupon.getId());
+                userIds.add(item.getUserId());
+            }
+        }
+        
+        Map<Long, Map<Long, Long>> userUsage = new HashMap<>();
+        limitedCouponIds.forEach(couponId -> userUsage.put(couponId, new HashMap<>()));
+        if (!limitedCouponIds.isEmpty()) {
+            for (CouponUsageRepository.UserCouponUsageCount count : couponUsageRepository
+                    .countByCouponIdsAndUserIds(limitedCouponIds, userIds)) {
+                userUsage.get(count.getCouponId()).put(count.getUserId(), count.getUsageCount());
+            }
+        }
+        return userUsage;
+    }
+    
+    private static BatchRedemptionResult rejected(int index, BatchRedemptionItem item, RedemptionStatus status,
+                                                  String message) {
+        return BatchRedemptionResult.builder()
+            .index(index)
+            .orderId(item != null ? item.getOrderId() : null)
+            .couponId(item != null ? item.getCouponId() : null)
+            .status(status)
+            .message(message)
+            .build();
+    }
+    
+    private static class PendingRedemption {
+        private final int index;
+        private final BatchRedemptionItem item;
+        private final Coupon coupon;
+        private final PricedCart pricedCart;
+        
+        PendingRedemption(int index, BatchRedemptionItem item, Coupon coupon, PricedCart pricedCart) {
+            this.index = index;
+            this.item = item;
+            this.coupon = coupon;
+            this.pricedCart = pricedCart;
+        }
+    }
+}
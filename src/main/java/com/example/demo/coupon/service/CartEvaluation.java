@@ -0,0 +1,22 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.ApplicableCouponResponse;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * User-independent result of evaluating a cart against a catalog snapshot.
+ * Shared between requests, so treat it as immutable.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CartEvaluation {
+    
+    private final List<ApplicableCouponResponse> applicableCoupons;
+    private final Map<Long, Integer> maxUsagePerUser; // only coupons with a per-user limit
+    private final BigDecimal cartTotal;
+}
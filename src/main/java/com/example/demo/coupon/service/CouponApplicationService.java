@@ -1,26 +1,36 @@
 package com.example.demo.coupon.service;
 
+import com.example.demo.coupon.cache.ApplicableCouponCache;
+import com.example.demo.coupon.cache.CouponCatalog;
+import com.example.demo.coupon.cache.CouponCodeIndex;
+import com.example.demo.coupon.cache.IdempotencyCache;
 import com.example.demo.coupon.dto.*;
-import com.example.demo.coupon.exception.CouponNotApplicableException;
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.example.demo.coupon.metrics.CouponMetrics;
+import com.example.demo.coupon.metrics.HeavyHitters;
 import com.example.demo.coupon.exception.CouponNotFoundException;
 import com.example.demo.coupon.exception.InvalidCouponException;
 import com.example.demo.coupon.model.Coupon;
 import com.example.demo.coupon.model.CouponUsage;
 import com.example.demo.coupon.repository.CouponRepository;
 import com.example.demo.coupon.repository.CouponUsageRepository;
-import com.example.demo.coupon.service.strategy.CouponStrategy;
-import com.example.demo.coupon.service.strategy.CouponStrategyFactory;
-import com.example.demo.coupon.util.DiscountCalculator;
+import com.example.demo.coupon.util.AfterCommit;
+import com.example.demo.coupon.util.CartFingerprint;
+import com.example.demo.coupon.util.SingleFlight;
 import com.example.demo.coupon.validator.CartValidator;
 import com.example.demo.coupon.validator.CouponValidator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,61 +40,181 @@ public class CouponApplicationService {
     
     private final CouponRepository couponRepository;
     private final CouponUsageRepository couponUsageRepository;
-    private final CouponStrategyFactory strategyFactory;
     private final CouponValidator couponValidator;
     private final CartValidator cartValidator;
+    private final CouponCodeIndex couponCodeIndex;
+    private final CouponCatalog couponCatalog;
+    private final ApplicableCouponCache applicableCouponCache;
+    private final CouponEvaluator couponEvaluator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final CouponMetrics couponMetrics;
+    private final HeavyHitters heavyHitters;
+    private final QuotaLeaseManager quotaLeaseManager;
+    private final IdempotencyCache idempotencyCache;
+    
+    private final SingleFlight<String, CartEvaluation> evaluationFlights = new SingleFlight<>();
+    
+    @PostConstruct
+    void registerMetrics() {
+        FunctionCounter.builder("coupon.evaluation.singleflight", evaluationFlights, SingleFlight::getExecutions)
+            .description("Cart evaluations actually executed")
+            .tag("result", "executed")
+            .register(meterRegistry);
+        FunctionCounter.builder("coupon.evaluation.singleflight", evaluationFlights, SingleFlight::getCoalesced)
+            .description("Requests that shared an in-flight evaluation of an identical cart")
+            .tag("result", "coalesced")
+            .register(meterRegistry);
+    }
     
     public ApplicableCouponsResponse getApplicableCoupons(CartRequest cartRequest) {
+        return getApplicableCoupons(cartRequest, false);
+    }
+    
+    /**
+     * With explain, the cart is evaluated afresh (bypassing the memoized result) and the response
+     * carries a per-coupon trace of strategy, time spent and outcome
+     */
+    public ApplicableCouponsResponse getApplicableCoupons(CartRequest cartRequest, boolean explain) {
+        return getApplicableCoupons(cartRequest, explain, CouponView.FULL);
+    }
+    
+    /**
+     * The compact view carries only coupon id, code and discount, so breakdowns and messages are never built
+     */
+    public ApplicableCouponsResponse getApplicableCoupons(CartRequest cartRequest, boolean explain, CouponView view) {
+        return couponMetrics.timeApplicable(() -> findApplicableCoupons(cartRequest, explain, view));
+    }
+    
+    private ApplicableCouponsResponse findApplicableCoupons(CartRequest cartRequest, boolean explain,
+                                                            CouponView view) {
         log.info("Getting applicable coupons for cart with {} items", cartRequest.getCartItems().size());
         
         // Validate cart
         cartValidator.validateCartItems(cartRequest.getCartItems());
         
-        // Calculate cart total
-        BigDecimal cartTotal = cartValidator.calculateCartTotal(cartRequest.getCartItems());
-        
-        // Get all active and applicable coupons
-        List<Coupon> allCoupons = couponRepository.findApplicableCoupons(LocalDateTime.now());
-        
-        List<ApplicableCouponResponse> applicableCoupons = new ArrayList<>();
-        BigDecimal bestDiscount = BigDecimal.ZERO;
-        
-        for (Coupon coupon : allCoupons) {
-            try {
-                // Check per-user usage limit if userId provided
-                if (cartRequest.getUserId() != null && coupon.getMaxUsagePerUser() != null) {
-                    Long userUsageCount = couponUsageRepository.countByCouponIdAndUserId(
-                        coupon.getId(), cartRequest.getUserId());
-                    if (userUsageCount >= coupon.getMaxUsagePerUser()) {
-                        continue; // Skip this coupon
-                    }
-                }
-                
-                CouponStrategy strategy = strategyFactory.getStrategy(coupon.getType());
-                ApplicableCouponResponse response = strategy.getApplicabilityInfo(
-                    coupon, cartRequest.getCartItems(), cartTotal);
-                
-                if (response.getIsApplicable()) {
-                    applicableCoupons.add(response);
-                    if (response.getTotalDiscount().compareTo(bestDiscount) > 0) {
-                        bestDiscount = response.getTotalDiscount();
-                    }
-                }
-            } catch (Exception e) {
-                log.warn("Error checking coupon {} applicability: {}", coupon.getCode(), e.getMessage());
-                // Continue with other coupons
-            }
+        // Identical carts (in any line order) share one evaluation per catalog version
+        List<CartItemRequest> cartItems = CartFingerprint.normalize(cartRequest.getCartItems());
+        String fingerprint = CartFingerprint.of(cartItems);
+        CouponCatalog.Snapshot snapshot = couponCatalog.current();
+        
+        if (explain) {
+            EvaluationProfile profile = new EvaluationProfile();
+            CartEvaluation evaluation = couponEvaluator.evaluate(snapshot, cartItems, profile, view);
+            ApplicableCouponsResponse response = couponEvaluator.filterForUser(evaluation, cartRequest.getUserId(), profile);
+            heavyHitters.recordEvaluation(cartItems, response.getApplicableCoupons());
+            return response;
         }
         
-        return ApplicableCouponsResponse.builder()
-            .applicableCoupons(applicableCoupons)
-            .cartTotal(cartTotal)
-            .bestDiscount(bestDiscount)
-            .build();
+        CartEvaluation evaluation = evaluateMemoized(snapshot, fingerprint, view, () -> cartItems);
+        ApplicableCouponsResponse response = couponEvaluator.filterForUser(evaluation, cartRequest.getUserId());
+        heavyHitters.recordEvaluation(cartItems, response.getApplicableCoupons());
+        return response;
+    }
+    
+    /**
+     * Applicable coupons for a cart in the compact binary encoding. Validation and fingerprinting
+     * run on the primitive lines; CartItemRequest objects are only built if the evaluation is not memoized.
+     */
+    public ApplicableCouponsResponse getApplicableCoupons(PackedCart cart) {
+        return couponMetrics.timeApplicable(() -> findApplicableCoupons(cart));
+    }
+    
+    private ApplicableCouponsResponse findApplicableCoupons(PackedCart cart) {
+        log.info("Getting applicable coupons for packed cart with {} items", cart.size());
+        
+        // Validate cart
+        cartValidator.validatePackedCart(cart);
+        
+        cart.normalize();
+        String fingerprint = CartFingerprint.of(cart);
+        CouponCatalog.Snapshot snapshot = couponCatalog.current();
+        
+        CartEvaluation evaluation = evaluateMemoized(snapshot, fingerprint, CouponView.FULL, cart::toCartItems);
+        ApplicableCouponsResponse response = couponEvaluator.filterForUser(evaluation, cart.getUserId());
+        heavyHitters.recordEvaluatedCart(cart);
+        for (ApplicableCouponResponse coupon : response.getApplicableCoupons()) {
+            heavyHitters.recordApplicableCoupon(coupon.getCouponId());
+        }
+        return response;
+    }
+    
+    private CartEvaluation evaluateMemoized(CouponCatalog.Snapshot snapshot, String fingerprint, CouponView view,
+                                            Supplier<List<CartItemRequest>> cartItems) {
+        CartEvaluation evaluation = applicableCouponCache.getIfPresent(snapshot.getVersion(), fingerprint, view);
+        if (evaluation == null) {
+            // Concurrent requests for the same cart share one in-flight evaluation
+            String key = ApplicableCouponCache.key(snapshot.getVersion(), fingerprint, view);
+            evaluation = evaluationFlights.execute(key, () -> {
+                CartEvaluation evaluated = couponEvaluator.evaluate(snapshot, cartItems.get(), view);
+                applicableCouponCache.put(snapshot.getVersion(), fingerprint, view, evaluated);
+                return evaluated;
+            });
+        }
+        return evaluation;
+    }
+    
+    /**
+     * Streaming variant of getApplicableCoupons. The cart is validated here, before anything is written;
+     * the returned stream replays a memoized evaluation if there is one, otherwise it evaluates the cart
+     * coupon by coupon without collecting the results.
+     */
+    public ApplicableCouponStream streamApplicableCoupons(CartRequest cartRequest) {
+        log.info("Streaming applicable coupons for cart with {} items", cartRequest.getCartItems().size());
+        
+        // Validate cart
+        cartValidator.validateCartItems(cartRequest.getCartItems());
+        
+        List<CartItemRequest> cartItems = CartFingerprint.normalize(cartRequest.getCartItems());
+        String fingerprint = CartFingerprint.of(cartItems);
+        
+        return sink -> couponMetrics.timeApplicable(() -> {
+            CouponCatalog.Snapshot snapshot = couponCatalog.current();
+            heavyHitters.recordEvaluatedCart(cartItems);
+            
+            CartEvaluation evaluation = applicableCouponCache.getIfPresent(snapshot.getVersion(), fingerprint);
+            if (evaluation == null) {
+                return couponEvaluator.stream(snapshot, cartItems, cartRequest.getUserId(), coupon -> {
+                    heavyHitters.recordApplicableCoupon(coupon.getCouponId());
+                    sink.accept(coupon);
+                });
+            }
+            
+            ApplicableCouponsResponse response = couponEvaluator.filterForUser(evaluation, cartRequest.getUserId());
+            for (ApplicableCouponResponse coupon : response.getApplicableCoupons()) {
+                heavyHitters.recordApplicableCoupon(coupon.getCouponId());
+                sink.accept(coupon);
+            }
+            return ApplicableCouponsSummary.builder()
+                .cartTotal(response.getCartTotal())
+                .bestDiscount(response.getBestDiscount())
+                .applicableCount(response.getApplicableCoupons().size())
+                .build();
+        });
+    }
+    
+    /**
+     * The applicable coupon with the highest discount for the cart, if any
+     */
+    public Optional<ApplicableCouponResponse> getBestCoupon(CartRequest cartRequest) {
+        return CouponEvaluator.best(getApplicableCoupons(cartRequest));
     }
     
     @Transactional
     public CartResponse applyCoupon(Long couponId, CartRequest cartRequest) {
+        return couponMetrics.timeRedemption(() -> redeemCoupon(couponId, cartRequest));
+    }
+    
+    /**
+     * Apply a coupon; a retry carrying the same idempotency key gets the first response back
+     * without evaluating the cart or touching usage counters again
+     */
+    public CartResponse applyCoupon(Long couponId, CartRequest cartRequest, String idempotencyKey) {
+        return idempotencyCache.execute(idempotencyKey, requestFingerprint(idempotencyKey, "id:" + couponId, cartRequest),
+            () -> couponMetrics.timeRedemption(() -> redeemCoupon(couponId, cartRequest)));
+    }
+    
+    private CartResponse redeemCoupon(Long couponId, CartRequest cartRequest) {
         log.info("Applying coupon {} to cart", couponId);
         
         // Validate cart
@@ -104,66 +234,74 @@ public class CouponApplicationService {
         // Validate coupon is applicable
         couponValidator.validateCouponApplicable(coupon, cartRequest.getUserId(), userUsageCount);
         
-        // Calculate cart total
-        BigDecimal cartTotal = cartValidator.calculateCartTotal(cartRequest.getCartItems());
+        // Check applicability and price the cart
+        PricedCart pricedCart = couponEvaluator.price(coupon, cartRequest.getCartItems());
         
-        // Get strategy
-        CouponStrategy strategy = strategyFactory.getStrategy(coupon.getType());
-        
-        // Check if coupon is applicable to this cart
-        if (!strategy.isApplicable(coupon, cartRequest.getCartItems(), cartTotal)) {
-            throw new CouponNotApplicableException("Coupon is not applicable to this cart");
-        }
-        
-        // Type-specific validation
-        if (coupon instanceof com.example.demo.coupon.model.CartWiseCoupon cartWiseCoupon) {
-            couponValidator.validateCartWiseCoupon(cartWiseCoupon, cartTotal);
+        // Update coupon usage; with quota leasing the use comes from this node's block instead of the coupon row
+        Long quotaLeaseId = null;
+        if (quotaLeaseManager.covers(coupon)) {
+            quotaLeaseId = quotaLeaseManager.acquire(coupon);
+        } else {
+            coupon.setCurrentUsage(coupon.getCurrentUsage() + 1);
+            couponRepository.save(coupon);
         }
         
-        // Apply coupon
-        List<CartItemResponse> updatedCartItems = strategy.applyCoupon(
-            coupon, cartRequest.getCartItems(), cartTotal);
-        
-        // Calculate totals
-        BigDecimal originalTotal = cartTotal;
-        BigDecimal discountApplied = strategy.getTotalDiscountApplied(
-            coupon, cartRequest.getCartItems(), cartTotal);
-        BigDecimal finalTotal = DiscountCalculator.ensureNonNegative(originalTotal, discountApplied);
-        
-        // Update coupon usage
-        coupon.setCurrentUsage(coupon.getCurrentUsage() + 1);
-        couponRepository.save(coupon);
-        
         // Record coupon usage
-        String cartId = "cart-" + System.currentTimeMillis() + "-" + 
-                       (cartRequest.getUserId() != null ? cartRequest.getUserId() : "anonymous");
+        String cartId = PricedCart.newCartId(cartRequest.getUserId());
         
         CouponUsage usage = CouponUsage.builder()
             .coupon(coupon)
             .userId(cartRequest.getUserId())
             .cartId(cartId)
-            .discountAmount(discountApplied)
+            .discountAmount(pricedCart.getDiscountApplied())
             .usedAt(LocalDateTime.now())
+            .quotaLeaseId(quotaLeaseId)
             .build();
         couponUsageRepository.save(usage);
+        // Leased uses reach the coupon's counter when their lease is settled
+        eventPublisher.publishEvent(CouponChangedEvent.redeemed(coupon.getId(), quotaLeaseId == null
+            && coupon.getMaxUsage() != null && coupon.getCurrentUsage() >= coupon.getMaxUsage(),
+            Collections.singletonList(cartRequest.getUserId())));
+        AfterCommit.run(() -> heavyHitters.recordRedemption(coupon.getId(), cartRequest.getCartItems()));
         
-        log.info("Coupon applied successfully. Discount: {}, Final Total: {}", discountApplied, finalTotal);
+        log.info("Coupon applied successfully. Discount: {}, Final Total: {}",
+            pricedCart.getDiscountApplied(), pricedCart.getFinalTotal());
         
-        // Build response
-        CartResponse.AppliedCouponInfo appliedCouponInfo = CartResponse.AppliedCouponInfo.builder()
-            .couponId(coupon.getId())
-            .couponCode(coupon.getCode())
-            .couponType(coupon.getType())
-            .build();
+        return pricedCart.toResponse(cartId);
+    }
+    
+    @Transactional
+    public CartResponse applyCouponByCode(String code, CartRequest cartRequest) {
+        return couponMetrics.timeRedemption(() -> redeemCouponByCode(code, cartRequest));
+    }
+    
+    public CartResponse applyCouponByCode(String code, CartRequest cartRequest, String idempotencyKey) {
+        // Spellings of a code that resolve to the same coupon are the same request
+        String target = "code:" + CouponCodeIndex.normalize(code);
+        return idempotencyCache.execute(idempotencyKey, requestFingerprint(idempotencyKey, target, cartRequest),
+            () -> couponMetrics.timeRedemption(() -> redeemCouponByCode(code, cartRequest)));
+    }
+    
+    private CartResponse redeemCouponByCode(String code, CartRequest cartRequest) {
+        log.info("Applying coupon by code to cart");
         
-        return CartResponse.builder()
-            .cartId(cartId)
-            .originalTotal(DiscountCalculator.round(originalTotal))
-            .discountApplied(DiscountCalculator.round(discountApplied))
-            .finalTotal(DiscountCalculator.round(finalTotal))
-            .appliedCoupon(appliedCouponInfo)
-            .cartItems(updatedCartItems)
-            .build();
+        // Unknown codes are rejected from memory without a database round trip
+        Long couponId = couponCodeIndex.resolve(code)
+            .orElseThrow(() -> new CouponNotFoundException("Coupon not found with code: " + code));
+        
+        return redeemCoupon(couponId, cartRequest);
+    }
+    
+    /**
+     * What a key is bound to: the endpoint and coupon, the user and the cart. Null without a key.
+     */
+    private String requestFingerprint(String idempotencyKey, String target, CartRequest cartRequest) {
+        if (idempotencyKey == null) {
+            return null;
+        }
+        // The cart is validated before it is fingerprinted
+        cartValidator.validateCartItems(cartRequest.getCartItems());
+        return target + ":" + cartRequest.getUserId() + ":"
+            + CartFingerprint.of(CartFingerprint.normalize(cartRequest.getCartItems()));
     }
 }
-
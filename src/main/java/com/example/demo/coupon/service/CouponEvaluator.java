@@ -0,0 +1,326 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.cache.CouponCatalog;
+import com.example.demo.coupon.dto.ApplicableCouponResponse;
+import com.example.demo.coupon.dto.ApplicableCouponsResponse;
+import com.example.demo.coupon.dto.ApplicableCouponsSummary;
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartItemResponse;
+import com.example.demo.coupon.dto.CouponEvaluationTrace;
+import com.example.demo.coupon.dto.CouponView;
+import com.example.demo.coupon.exception.CouponNotApplicableException;
+import com.example.demo.coupon.metrics.CouponMetrics;
+import com.example.demo.coupon.model.CartWiseCoupon;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.repository.CouponUsageRepository;
+import com.example.demo.coupon.service.strategy.CouponStrategy;
+import com.example.demo.coupon.service.strategy.CouponStrategyFactory;
+import com.example.demo.coupon.util.DiscountCalculator;
+import com.example.demo.coupon.validator.CartValidator;
+import com.example.demo.coupon.validator.CouponValidator;
+import com.example.demo.coupon.validator.ValidationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates carts against a catalog snapshot. Shared by the single-cart,
+ * session-based and batch evaluation paths.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CouponEvaluator {
+    
+    private final CouponStrategyFactory strategyFactory;
+    private final CouponUsageRepository couponUsageRepository;
+    private final CartValidator cartValidator;
+    private final CouponValidator couponValidator;
+    private final CouponMetrics couponMetrics;
+    
+    /**
+     * Evaluate the candidate coupons for a cart, ignoring per-user limits.
+     * Product-wise and BxGy coupons that share no product with the cart are pruned via the snapshot index.
+     */
+    public CartEvaluation evaluate(CouponCatalog.Snapshot snapshot, List<CartItemRequest> cartItems) {
+        return evaluate(snapshot, cartItems, null, CouponView.FULL);
+    }
+    
+    /**
+     * Evaluate for the given view; compact results carry only the coupon id, code and discount
+     */
+    public CartEvaluation evaluate(CouponCatalog.Snapshot snapshot, List<CartItemRequest> cartItems, CouponView view) {
+        return evaluate(snapshot, cartItems, null, view);
+    }
+    
+    /**
+     * Evaluate with an optional profile that records a trace for every evaluated coupon
+     */
+    public CartEvaluation evaluate(CouponCatalog.Snapshot snapshot, List<CartItemRequest> cartItems,
+                                   EvaluationProfile profile) {
+        return evaluate(snapshot, cartItems, profile, CouponView.FULL);
+    }
+    
+    public CartEvaluation evaluate(CouponCatalog.Snapshot snapshot, List<CartItemRequest> cartItems,
+                                    EvaluationProfile profile, CouponView view) {
+        long start = profile != null ? System.nanoTime() : 0L;
+        
+        // Calculate cart total
+        BigDecimal cartTotal = cartValidator.calculateCartTotal(cartItems);
+        LocalDateTime now = LocalDateTime.now();
+        
+        Set<Long> productIds = cartItems.stream()
+            .map(CartItemRequest::getProductId)
+            .collect(Collectors.toSet());
+        BitSet candidates = snapshot.candidatesFor(productIds);
+        if (profile != null) {
+            profile.catalog(snapshot.getVersion(), snapshot.getCoupons().size(), candidates.cardinality());
+        }
+        
+        List<ApplicableCouponResponse> applicableCoupons = new ArrayList<>();
+        Map<Long, Integer> maxUsagePerUser = new HashMap<>();
+        
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            Coupon coupon = snapshot.getCoupons().get(i);
+            ApplicableCouponResponse response = evaluateCoupon(coupon, cartItems, cartTotal, now, profile, view);
+            if (response != null) {
+                applicableCoupons.add(response);
+                if (coupon.getMaxUsagePerUser() != null) {
+                    maxUsagePerUser.put(coupon.getId(), coupon.getMaxUsagePerUser());
+                }
+            }
+        }
+        
+        couponMetrics.recordEvaluation(candidates.cardinality(), applicableCoupons.size());
+        if (profile != null) {
+            profile.evaluationNanos(System.nanoTime() - start);
+        }
+        return new CartEvaluation(List.copyOf(applicableCoupons), Map.copyOf(maxUsagePerUser), cartTotal);
+    }
+    
+    /**
+     * Streaming evaluation for one user: per-user limits are looked up once for the candidate coupons,
+     * then each applicable coupon is handed to the sink as soon as it is evaluated instead of being collected
+     */
+    public ApplicableCouponsSummary stream(CouponCatalog.Snapshot snapshot, List<CartItemRequest> cartItems,
+                                           Long userId, Consumer<ApplicableCouponResponse> sink) {
+        BigDecimal cartTotal = cartValidator.calculateCartTotal(cartItems);
+        LocalDateTime now = LocalDateTime.now();
+        
+        Set<Long> productIds = cartItems.stream()
+            .map(CartItemRequest::getProductId)
+            .collect(Collectors.toSet());
+        BitSet candidates = snapshot.candidatesFor(productIds);
+        Set<Long> usedUp = usedUpCandidates(snapshot, candidates, userId);
+        
+        int applicable = 0;
+        BigDecimal bestDiscount = BigDecimal.ZERO;
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            Coupon coupon = snapshot.getCoupons().get(i);
+            if (usedUp.contains(coupon.getId())) {
+                continue;
+            }
+            ApplicableCouponResponse response = evaluateCoupon(coupon, cartItems, cartTotal, now, null, CouponView.FULL);
+            if (response != null) {
+                sink.accept(response);
+                applicable++;
+                if (response.getTotalDiscount().compareTo(bestDiscount) > 0) {
+                    bestDiscount = response.getTotalDiscount();
+                }
+            }
+        }
+        
+        couponMetrics.recordEvaluation(candidates.cardinality(), applicable);
+        return ApplicableCouponsSummary.builder()
+            .cartTotal(cartTotal)
+            .bestDiscount(bestDiscount)
+            .applicableCount(applicable)
+            .build();
+    }
+    
+    private Set<Long> usedUpCandidates(CouponCatalog.Snapshot snapshot, BitSet candidates, Long userId) {
+        if (userId == null) {
+            return Set.of();
+        }
+        Map<Long, Integer> maxUsagePerUser = new HashMap<>();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            Coupon coupon = snapshot.getCoupons().get(i);
+            if (coupon.getMaxUsagePerUser() != null) {
+                maxUsagePerUser.put(coupon.getId(), coupon.getMaxUsagePerUser());
+            }
+        }
+        if (maxUsagePerUser.isEmpty()) {
+            return Set.of();
+        }
+        
+        Set<Long> usedUp = new HashSet<>();
+        for (CouponUsageRepository.CouponUsageCount count : couponUsageRepository
+                .countByCouponIdsAndUserId(maxUsagePerUser.keySet(), userId)) {
+            if (count.getUsageCount() >= maxUsagePerUser.get(count.getCouponId())) {
+                usedUp.add(count.getCouponId());
+            }
+        }
+        return usedUp;
+    }
+    
+    /**
+     * Evaluate a single coupon, returning null if it is not redeemable or not applicable
+     */
+    public ApplicableCouponResponse evaluateCoupon(Coupon coupon, List<CartItemRequest> cartItems,
+                                                   BigDecimal cartTotal, LocalDateTime now) {
+        return evaluateCoupon(coupon, cartItems, cartTotal, now, null, CouponView.FULL);
+    }
+    
+    /**
+     * Breakdown and message are only built for coupons that apply in the full view,
+     * and the reason a coupon does not apply only when a profile asks for it
+     */
+    private ApplicableCouponResponse evaluateCoupon(Coupon coupon, List<CartItemRequest> cartItems,
+                                                    BigDecimal cartTotal, LocalDateTime now,
+                                                    EvaluationProfile profile, CouponView view) {
+        long start = System.nanoTime();
+        ValidationResult.Reason rejected = couponValidator.redeemableReason(coupon, now);
+        if (rejected != null) {
+            if (profile != null) {
+                profile.record(coupon, CouponEvaluationTrace.Outcome.REJECTED_EARLY, System.nanoTime() - start,
+                    couponValidator.describe(rejected, coupon));
+            }
+            return null;
+        }
+        try {
+            CouponStrategy strategy = strategyFactory.getStrategy(coupon.getType());
+            BigDecimal discount = strategy.applicableDiscount(coupon, cartItems, cartTotal);
+            ApplicableCouponResponse response = discount == null ? null
+                : view == CouponView.COMPACT ? compact(coupon, discount)
+                : strategy.describeApplicable(coupon, cartItems, cartTotal, discount);
+            long elapsed = System.nanoTime() - start;
+            couponMetrics.recordStrategy(coupon.getType(), response != null ? CouponMetrics.StrategyOutcome.APPLICABLE
+                : CouponMetrics.StrategyOutcome.NOT_APPLICABLE, elapsed);
+            if (profile != null) {
+                profile.record(coupon, response != null ? CouponEvaluationTrace.Outcome.APPLICABLE
+                    : CouponEvaluationTrace.Outcome.NOT_APPLICABLE, elapsed, response != null ? null
+                    : strategy.getApplicabilityInfo(coupon, cartItems, cartTotal).getApplicabilityMessage());
+            }
+            return response;
+        } catch (Exception e) {
+            // Strategies report non-applicability through the response; this only guards against malformed coupon data
+            long elapsed = System.nanoTime() - start;
+            couponMetrics.recordStrategy(coupon.getType(), CouponMetrics.StrategyOutcome.ERROR, elapsed);
+            if (profile != null) {
+                profile.record(coupon, CouponEvaluationTrace.Outcome.ERROR, elapsed, e.getMessage());
+            }
+            log.warn("Error checking coupon {} applicability: {}", coupon.getCode(), e.getMessage());
+            // Continue with other coupons
+            return null;
+        }
+    }
+    
+    private static ApplicableCouponResponse compact(Coupon coupon, BigDecimal discount) {
+        return ApplicableCouponResponse.builder()
+            .couponId(coupon.getId())
+            .couponCode(coupon.getCode())
+            .totalDiscount(discount)
+            .build();
+    }
+    
+    /**
+     * Drop coupons the user has already used up, with one usage query for all limited coupons
+     */
+    public ApplicableCouponsResponse filterForUser(CartEvaluation evaluation, Long userId) {
+        return filterForUser(evaluation, userId, null);
+    }
+    
+    /**
+     * Same as {@link #filterForUser(CartEvaluation, Long)}, marking used-up coupons in the profile and attaching it
+     */
+    public ApplicableCouponsResponse filterForUser(CartEvaluation evaluation, Long userId, EvaluationProfile profile) {
+        Map<Long, Long> usageCounts = new HashMap<>();
+        if (userId != null && !evaluation.getMaxUsagePerUser().isEmpty()) {
+            for (CouponUsageRepository.CouponUsageCount count : couponUsageRepository
+                    .countByCouponIdsAndUserId(evaluation.getMaxUsagePerUser().keySet(), userId)) {
+                usageCounts.put(count.getCouponId(), count.getUsageCount());
+            }
+        }
+        return applyUsageCounts(evaluation, usageCounts, profile);
+    }
+    
+    /**
+     * Drop coupons whose per-user limit is reached given the user's usage counts, which are looked up
+     * by the caller for the coupons in {@link CartEvaluation#getMaxUsagePerUser()}
+     */
+    public ApplicableCouponsResponse applyUsageCounts(CartEvaluation evaluation, Map<Long, Long> usageCounts,
+                                                      EvaluationProfile profile) {
+        Set<Long> usedUp = new HashSet<>();
+        usageCounts.forEach((couponId, usageCount) -> {
+            Integer maxUsagePerUser = evaluation.getMaxUsagePerUser().get(couponId);
+            if (maxUsagePerUser != null && usageCount >= maxUsagePerUser) {
+                usedUp.add(couponId);
+                if (profile != null) {
+                    profile.userLimitReached(couponId);
+                }
+            }
+        });
+        
+        List<ApplicableCouponResponse> applicableCoupons = new ArrayList<>();
+        BigDecimal bestDiscount = BigDecimal.ZERO;
+        for (ApplicableCouponResponse response : evaluation.getApplicableCoupons()) {
+            if (usedUp.contains(response.getCouponId())) {
+                continue; // Skip this coupon
+            }
+            applicableCoupons.add(response);
+            if (response.getTotalDiscount().compareTo(bestDiscount) > 0) {
+                bestDiscount = response.getTotalDiscount();
+            }
+        }
+        
+        return ApplicableCouponsResponse.builder()
+            .applicableCoupons(applicableCoupons)
+            .cartTotal(evaluation.getCartTotal())
+            .bestDiscount(bestDiscount)
+            .explanation(profile != null ? profile.toExplanation() : null)
+            .build();
+    }
+    
+    /**
+     * Price a cart with a coupon that already passed date, usage and per-user checks
+     */
+    public PricedCart price(Coupon coupon, List<CartItemRequest> cartItems) {
+        // Calculate cart total
+        BigDecimal cartTotal = cartValidator.calculateCartTotal(cartItems);
+        
+        // Get strategy
+        CouponStrategy strategy = strategyFactory.getStrategy(coupon.getType());
+        
+        // Check if coupon is applicable to this cart
+        if (!strategy.isApplicable(coupon, cartItems, cartTotal)) {
+            throw new CouponNotApplicableException("Coupon is not applicable to this cart");
+        }
+        
+        // Type-specific validation
+        if (coupon instanceof CartWiseCoupon cartWiseCoupon) {
+            couponValidator.validateCartWiseCoupon(cartWiseCoupon, cartTotal);
+        }
+        
+        // Apply coupon
+        List<CartItemResponse> updatedCartItems = strategy.applyCoupon(coupon, cartItems, cartTotal);
+        
+        // Calculate totals
+        BigDecimal discountApplied = strategy.getTotalDiscountApplied(coupon, cartItems, cartTotal);
+        BigDecimal finalTotal = DiscountCalculator.ensureNonNegative(cartTotal, discountApplied);
+        return new PricedCart(coupon, cartTotal, discountApplied, finalTotal, updatedCartItems);
+    }
+    
+    /**
+     * The applicable coupon with the highest discount, if any
+     */
+    public static Optional<ApplicableCouponResponse> best(ApplicableCouponsResponse response) {
+        return response.getApplicableCoupons().stream()
+            .max(Comparator.comparing(ApplicableCouponResponse::getTotalDiscount));
+    }
+}
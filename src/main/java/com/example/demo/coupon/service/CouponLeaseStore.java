@@ -0,0 +1,199 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import com.example.demo.coupon.model.Coupon;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory leases on coupon uses. A held lease counts against maxUsage and maxUsagePerUser until
+ * it is committed, released or expires. Checks add the holds to the recorded usage, which includes
+ * uses taken by direct and batch redemptions; a commit re-checks the limits in the database, so a
+ * use taken by another path since the reservation turns into a rejected commit.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CouponLeaseStore {
+    
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    // Holds of coupons with at least one lease; updated only inside compute, which serialises them per coupon
+    private final Map<Long, CouponHolds> holdsByCoupon = new ConcurrentHashMap<>();
+    
+    private Counter committedCounter;
+    private Counter releasedCounter;
+    private Counter expiredCounter;
+    
+    @PostConstruct
+    void init() {
+        Gauge.builder("coupon.reservations.active", leases, Map::size)
+            .description("Coupon reservations currently held")
+            .register(meterRegistry);
+        committedCounter = reservationCounter("committed");
+        releasedCounter = reservationCounter("released");
+        expiredCounter = reservationCounter("expired");
+    }
+    
+    /**
+     * Hold one use of the coupon for the user until {@code expiresAt}. {@code usedUses} is the usage
+     * recorded against the global limit and {@code userUses} the user's recorded uses; either is null
+     * when the coupon has no such limit.
+     */
+    public Lease acquire(Coupon coupon, Long userId, Integer usedUses, Long userUses, List<CartItemRequest> cartItems,
+                         PricedCart pricedCart, LocalDateTime expiresAt) {
+        Lease lease = new Lease(UUID.randomUUID().toString(), coupon, userId, cartItems, pricedCart, expiresAt);
+        holdsByCoupon.compute(coupon.getId(), (id, holds) -> {
+            CouponHolds current = holds != null ? holds : new CouponHolds();
+            if (coupon.getMaxUsage() != null && usedUses != null && usedUses + current.held >= coupon.getMaxUsage()) {
+                throw new CouponUsageLimitExceededException("Coupon usage limit exceeded", false);
+            }
+            if (userId != null && coupon.getMaxUsagePerUser() != null && userUses != null
+                    && userUses + current.heldByUser.getOrDefault(userId, 0) >= coupon.getMaxUsagePerUser()) {
+                throw new CouponUsageLimitExceededException("User has exceeded the usage limit for this coupon", true);
+            }
+            current.held++;
+            if (userId != null) {
+                current.heldByUser.merge(userId, 1, Integer::sum);
+            }
+            return current;
+        });
+        leases.put(lease.id, lease);
+        return lease;
+    }
+    
+    /**
+     * Take a lease out for committing. Its hold stays in place until {@link #committed} or
+     * {@link #release(Lease)}; returns null for unknown or expired leases.
+     */
+    public Lease claim(String leaseId, LocalDateTime now) {
+        Lease lease = leases.remove(leaseId);
+        if (lease == null) {
+            return null;
+        }
+        if (lease.isExpired(now)) {
+            free(lease);
+            expiredCounter.increment();
+            return null;
+        }
+        return lease;
+    }
+    
+    /**
+     * Drop a claimed lease's hold once its use is committed; the database counts it from then on
+     */
+    public void committed(Lease lease) {
+        free(lease);
+        committedCounter.increment();
+    }
+    
+    /**
+     * Give up a claimed lease whose commit failed
+     */
+    public void release(Lease lease) {
+        free(lease);
+        releasedCounter.increment();
+    }
+    
+    /**
+     * Release a held lease; false if it is unknown or already gone
+     */
+    public boolean release(String leaseId) {
+        Lease lease = leases.remove(leaseId);
+        if (lease == null) {
+            return false;
+        }
+        release(lease);
+        return true;
+    }
+    
+    @Scheduled(fixedDelayString = "${coupon.reservation.sweep-interval:PT5S}")
+    public void sweepExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = 0;
+        for (Lease lease : leases.values()) {
+            // remove(key, value) loses to a concurrent claim or release of the same lease
+            if (lease.isExpired(now) && leases.remove(lease.id, lease)) {
+                free(lease);
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            expiredCounter.increment(expired);
+            log.info("Released {} expired coupon reservation(s)", expired);
+        }
+    }
+    
+    /**
+     * Give back a lease's hold; the coupon's entry goes once nothing is held on it
+     */
+    private void free(Lease lease) {
+        holdsByCoupon.computeIfPresent(lease.coupon.getId(), (id, holds) -> {
+            holds.held--;
+            if (lease.userId != null) {
+                holds.heldByUser.computeIfPresent(lease.userId, (userId, count) -> count > 1 ? count - 1 : null);
+            }
+            return holds.held > 0 ? holds : null;
+        });
+    }
+    
+    /**
+     * Uses of the coupon currently held
+     */
+    int heldUses(Long couponId) {
+        CouponHolds holds = holdsByCoupon.get(couponId);
+        return holds != null ? holds.held : 0;
+    }
+    
+    private Counter reservationCounter(String result) {
+        return Counter.builder("coupon.reservations")
+            .description("Coupon reservations by how they ended")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+    
+    @Getter
+    public static class Lease {
+        private final String id;
+        private final Coupon coupon;
+        private final Long userId;
+        private final List<CartItemRequest> cartItems;
+        private final PricedCart pricedCart;
+        private final LocalDateTime expiresAt;
+        
+        Lease(String id, Coupon coupon, Long userId, List<CartItemRequest> cartItems, PricedCart pricedCart,
+              LocalDateTime expiresAt) {
+            this.id = id;
+            this.coupon = coupon;
+            this.userId = userId;
+            this.cartItems = cartItems;
+            this.pricedCart = pricedCart;
+            this.expiresAt = expiresAt;
+        }
+        
+        boolean isExpired(LocalDateTime now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+    
+    private static class CouponHolds {
+        private int held;
+        private final Map<Long, Integer> heldByUser = new HashMap<>();
+    }
+}
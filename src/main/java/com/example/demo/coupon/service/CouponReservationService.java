@@ -0,0 +1,194 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.cache.CouponCatalog;
+import com.example.demo.coupon.cache.CouponUsageCache;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.CartResponse;
+import com.example.demo.coupon.dto.ReservationResponse;
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.example.demo.coupon.exception.CouponNotFoundException;
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import com.example.demo.coupon.exception.InvalidCouponException;
+import com.example.demo.coupon.exception.ReservationNotFoundException;
+import com.example.demo.coupon.metrics.CouponMetrics;
+import com.example.demo.coupon.metrics.HeavyHitters;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.model.CouponUsage;
+import com.example.demo.coupon.repository.CouponRepository;
+import com.example.demo.coupon.repository.CouponUsageJdbcRepository;
+import com.example.demo.coupon.repository.CouponUsageRepository;
+import com.example.demo.coupon.validator.CartValidator;
+import com.example.demo.coupon.validator.CouponValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Two-phase redemption. A reservation prices the cart and holds one use of the coupon in the
+ * lease store on top of the usage already recorded, both kept in memory; committing records the
+ * usage, releasing or letting the reservation expire gives the use back.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CouponReservationService {
+    
+    private final CouponCatalog couponCatalog;
+    private final CouponUsageCache couponUsageCache;
+    private final CouponLeaseStore couponLeaseStore;
+    private final CouponRepository couponRepository;
+    private final CouponUsageRepository couponUsageRepository;
+    private final CouponUsageJdbcRepository couponUsageJdbcRepository;
+    private final CouponValidator couponValidator;
+    private final CartValidator cartValidator;
+    private final CouponEvaluator couponEvaluator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CouponMetrics couponMetrics;
+    private final HeavyHitters heavyHitters;
+    private final QuotaLeaseManager quotaLeaseManager;
+    
+    @Value("${coupon.reservation.ttl:PT10M}")
+    private Duration reservationTtl;
+    
+    public ReservationResponse reserve(Long couponId, CartRequest cartRequest) {
+        log.info("Reserving coupon {} for cart", couponId);
+        
+        // Validate cart
+        cartValidator.validateCartItems(cartRequest.getCartItems());
+        
+        LocalDateTime now = LocalDateTime.now();
+        Coupon coupon = couponCatalog.current().find(couponId);
+        if (coupon == null) {
+            // The snapshot holds active coupons only; the database just tells unknown ids apart
+            throw couponRepository.existsById(couponId)
+                ? new InvalidCouponException("Coupon is not active or has expired")
+                : new CouponNotFoundException(couponId);
+        }
+        
+        // Usage limits are checked by the lease store, which adds held reservations to the recorded usage
+        couponValidator.checkCouponApplicable(coupon, null, null, now).orThrow();
+        PricedCart pricedCart = couponEvaluator.price(coupon, cartRequest.getCartItems());
+        
+        // Recorded usage comes from memory, so a reservation does not touch the database
+        CouponUsageCache.RecordedUsage recorded = couponUsageCache.get(coupon);
+        if (recorded == null) {
+            throw new CouponNotFoundException(couponId);
+        }
+        Long userId = cartRequest.getUserId();
+        Integer usedUses = coupon.getMaxUsage() != null ? recorded.getUses() : null;
+        Long userUses = userId != null && coupon.getMaxUsagePerUser() != null ? recorded.getUsesBy(userId) : null;
+        
+        CouponLeaseStore.Lease lease = couponLeaseStore.acquire(coupon, userId, usedUses, userUses,
+            List.copyOf(cartRequest.getCartItems()), pricedCart, now.plus(reservationTtl));
+        
+        return ReservationResponse.builder()
+            .reservationId(lease.getId())
+            .expiresAt(lease.getExpiresAt())
+            .cart(pricedCart.toResponse(null))
+            .build();
+    }
+    
+    @Transactional
+    public CartResponse commit(String reservationId) {
+        return couponMetrics.timeRedemption(() -> {
+            CouponLeaseStore.Lease lease = couponLeaseStore.claim(reservationId, LocalDateTime.now());
+            if (lease == null) {
+                throw new ReservationNotFoundException(reservationId);
+            }
+            endHoldWithTransaction(lease);
+            return recordUsage(lease);
+        });
+    }
+    
+    public void release(String reservationId) {
+        if (!couponLeaseStore.release(reservationId)) {
+            throw new ReservationNotFoundException(reservationId);
+        }
+    }
+    
+    /**
+     * The hold stays in place until the transaction ends, so the use is always counted by the store,
+     * the database or both. A commit turns it into a recorded use; a rollback gives it back.
+     */
+    private void endHoldWithTransaction(CouponLeaseStore.Lease lease) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    couponLeaseStore.committed(lease);
+                    heavyHitters.recordRedemption(lease.getCoupon().getId(), lease.getCartItems());
+                } else {
+                    couponLeaseStore.release(lease);
+                }
+            }
+        });
+    }
+    
+    /**
+     * The database has the final say: the coupon is re-read, so one deactivated, expired or deleted
+     * since the reservation is rejected, and limits are re-checked against the stored counters
+     */
+    private CartResponse recordUsage(CouponLeaseStore.Lease lease) {
+        Long userId = lease.getUserId();
+        LocalDateTime now = LocalDateTime.now();
+        Coupon coupon = couponRepository.findById(lease.getCoupon().getId())
+            .orElseThrow(() -> new CouponNotFoundException(lease.getCoupon().getId()));
+        couponValidator.checkCouponApplicable(coupon, null, null, now).orThrow();
+        
+        // Check per-user usage
+        Long userUsageCount = null;
+        if (userId != null && coupon.getMaxUsagePerUser() != null) {
+            userUsageCount = couponUsageRepository.countByCouponIdAndUserId(coupon.getId(), userId);
+            if (userUsageCount >= coupon.getMaxUsagePerUser()) {
+                throw new CouponUsageLimitExceededException("User has exceeded the usage limit for this coupon", true);
+            }
+        }
+        
+        Long quotaLeaseId = null;
+        CouponUsageJdbcRepository.UsageReservation reservation;
+        if (quotaLeaseManager.covers(coupon)) {
+            // Served from this node's quota block; the coupon's counter is updated when the lease is settled
+            quotaLeaseId = quotaLeaseManager.acquire(coupon);
+            reservation = new CouponUsageJdbcRepository.UsageReservation(1, null);
+        } else {
+            reservation = couponUsageJdbcRepository.reserveUsage(coupon, 1, now);
+            if (reservation == null) {
+                throw new CouponNotFoundException(coupon.getId());
+            }
+            if (reservation.getGranted() == 0) {
+                throw new CouponUsageLimitExceededException("Coupon usage limit exceeded", false);
+            }
+        }
+        
+        // Record coupon usage
+        String cartId = PricedCart.newCartId(userId);
+        PricedCart pricedCart = lease.getPricedCart();
+        couponUsageJdbcRepository.insertUsages(List.of(CouponUsage.builder()
+            .coupon(coupon)
+            .userId(userId)
+            .cartId(cartId)
+            .discountAmount(pricedCart.getDiscountApplied())
+            .usedAt(now)
+            .quotaLeaseId(quotaLeaseId)
+            .build()), 1);
+        
+        eventPublisher.publishEvent(CouponChangedEvent.redeemed(coupon.getId(), coupon.getMaxUsage() != null
+            && reservation.getCurrentUsage() != null && reservation.getCurrentUsage() >= coupon.getMaxUsage(),
+            Collections.singletonList(userId)));
+        
+        log.info("Reservation {} committed. Discount: {}, Final Total: {}",
+            lease.getId(), pricedCart.getDiscountApplied(), pricedCart.getFinalTotal());
+        
+        return pricedCart.toResponse(cartId);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.demo.coupon.service;
 
 import com.example.demo.coupon.dto.CouponRequest;
 import com.example.demo.coupon.dto.CouponResponse;
+import com.example.demo.coupon.event.CouponChangedEvent;
 import com.example.demo.coupon.exception.CouponNotFoundException;
 import com.example.demo.coupon.exception.DuplicateCouponCodeException;
 import com.example.demo.coupon.exception.InvalidCouponException;
@@ -11,6 +12,7 @@ import com.example.demo.coupon.repository.CouponRepository;
 import com.example.demo.coupon.validator.CouponValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -26,6 +28,7 @@ public class CouponService {
     
     private final CouponRepository couponRepository;
     private final CouponValidator couponValidator;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional
     public CouponResponse createCoupon(CouponRequest request) {
@@ -53,6 +56,8 @@ public class CouponService {
         
         Coupon savedCoupon = couponRepository.save(coupon);
         log.info("Coupon created successfully with ID: {}", savedCoupon.getId());
+        eventPublisher.publishEvent(new CouponChangedEvent(
+            savedCoupon.getId(), CouponChangedEvent.ChangeType.CREATED, null, savedCoupon.getCode()));
         
         return mapToResponse(savedCoupon);
     }
@@ -96,6 +101,8 @@ public class CouponService {
             throw new DuplicateCouponCodeException(request.getCode());
         }
         
+        String previousCode = existingCoupon.getCode();
+        
         // Update fields
         updateCouponFromRequest(existingCoupon, request);
         
@@ -114,6 +121,8 @@ public class CouponService {
         
         Coupon updatedCoupon = couponRepository.save(existingCoupon);
         log.info("Coupon updated successfully with ID: {}", updatedCoupon.getId());
+        eventPublisher.publishEvent(new CouponChangedEvent(
+            updatedCoupon.getId(), CouponChangedEvent.ChangeType.UPDATED, previousCode, updatedCoupon.getCode()));
         
         return mapToResponse(updatedCoupon);
     }
@@ -127,6 +136,8 @@ public class CouponService {
         
         couponRepository.delete(coupon);
         log.info("Coupon deleted successfully with ID: {}", id);
+        eventPublisher.publishEvent(new CouponChangedEvent(
+            id, CouponChangedEvent.ChangeType.DELETED, coupon.getCode(), null));
     }
     
     private Coupon createCouponFromRequest(CouponRequest request) {
@@ -0,0 +1,66 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.CouponEvaluationTrace;
+import com.example.demo.coupon.dto.EvaluationExplanation;
+import com.example.demo.coupon.model.Coupon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects per-coupon traces for one explain request. Evaluation code takes a nullable profile
+ * and only records when it is present, so the regular path pays a null check and nothing else.
+ */
+public class EvaluationProfile {
+    
+    private final List<CouponEvaluationTrace> traces = new ArrayList<>();
+    private final Map<Long, CouponEvaluationTrace> tracesByCoupon = new HashMap<>();
+    private long catalogVersion;
+    private int catalogSize;
+    private int candidateCoupons;
+    private long evaluationNanos;
+    
+    void catalog(long version, int size, int candidates) {
+        this.catalogVersion = version;
+        this.catalogSize = size;
+        this.candidateCoupons = candidates;
+    }
+    
+    void record(Coupon coupon, CouponEvaluationTrace.Outcome outcome, long nanos, String reason) {
+        CouponEvaluationTrace trace = CouponEvaluationTrace.builder()
+            .couponId(coupon.getId())
+            .couponCode(coupon.getCode())
+            .strategy(coupon.getType())
+            .outcome(outcome)
+            .nanos(nanos)
+            .reason(reason)
+            .build();
+        traces.add(trace);
+        tracesByCoupon.put(coupon.getId(), trace);
+    }
+    
+    void userLimitReached(Long couponId) {
+        CouponEvaluationTrace trace = tracesByCoupon.get(couponId);
+        if (trace != null) {
+            trace.setOutcome(CouponEvaluationTrace.Outcome.USER_LIMIT);
+            trace.setReason("User has exceeded the usage limit for this coupon");
+        }
+    }
+    
+    void evaluationNanos(long nanos) {
+        this.evaluationNanos = nanos;
+    }
+    
+    EvaluationExplanation toExplanation() {
+        return EvaluationExplanation.builder()
+            .catalogVersion(catalogVersion)
+            .catalogSize(catalogSize)
+            .candidateCoupons(candidateCoupons)
+            .prunedByIndex(catalogSize - candidateCoupons)
+            .evaluationNanos(evaluationNanos)
+            .coupons(traces)
+            .build();
+    }
+}
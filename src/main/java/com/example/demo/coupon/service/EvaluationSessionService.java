@@ -0,0 +1,268 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.cache.CouponCatalog;
+import com.example.demo.coupon.dto.*;
+import com.example.demo.coupon.exception.EvaluationSessionNotFoundException;
+import com.example.demo.coupon.exception.InvalidCouponException;
+import com.example.demo.coupon.model.CartWiseCoupon;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.validator.CartValidator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Stateful cart evaluation. A session keeps the cart and the per-coupon results so that
+ * later calls carrying only line changes re-evaluate just the coupons those changes can affect.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class EvaluationSessionService {
+    
+    private final CouponCatalog couponCatalog;
+    private final CouponEvaluator couponEvaluator;
+    private final CartValidator cartValidator;
+    
+    @Value("${coupon.evaluation-session.ttl:PT30M}")
+    private Duration sessionTtl;
+    
+    @Value("${coupon.evaluation-session.max-sessions:50000}")
+    private long maxSessions;
+    
+    private Cache<String, EvaluationSession> sessions;
+    
+    @PostConstruct
+    void init() {
+        sessions = Caffeine.newBuilder()
+            .maximumSize(maxSessions)
+            .expireAfterAccess(sessionTtl)
+            .build();
+    }
+    
+    public EvaluationSessionResponse startSession(CartRequest cartRequest) {
+        log.info("Starting evaluation session for cart with {} items", cartRequest.getCartItems().size());
+        
+        // Validate cart
+        cartValidator.validateCartItems(cartRequest.getCartItems());
+        
+        EvaluationSession session = new EvaluationSession(UUID.randomUUID().toString(), cartRequest.getUserId());
+        for (CartItemRequest item : cartRequest.getCartItems()) {
+            if (session.lines.putIfAbsent(item.getProductId(), item) != null) {
+                throw new InvalidCouponException(
+                    String.format("Product %d appears more than once in the cart", item.getProductId()));
+            }
+        }
+        
+        // Taken outside the monitor: current() may reload over JDBC
+        CouponCatalog.Snapshot snapshot = couponCatalog.current();
+        int evaluated;
+        synchronized (session) {
+            evaluated = evaluateFully(session, snapshot);
+        }
+        sessions.put(session.id, session);
+        
+        return buildResponse(session, evaluated);
+    }
+    
+    public EvaluationSessionResponse applyChanges(String sessionId, CartDeltaRequest deltaRequest) {
+        EvaluationSession session = sessions.getIfPresent(sessionId);
+        if (session == null) {
+            throw new EvaluationSessionNotFoundException(sessionId);
+        }
+        
+        CouponCatalog.Snapshot snapshot = couponCatalog.current();
+        int evaluated;
+        synchronized (session) {
+            Set<Long> changedProducts = applyLineChanges(session, deltaRequest.getChanges());
+            
+            if (snapshot != session.snapshot) {
+                // Coupons changed since the last call - positions are no longer comparable
+                evaluated = evaluateFully(session, snapshot);
+            } else {
+                evaluated = evaluateIncrementally(session, changedProducts);
+            }
+        }
+        log.info("Session {} re-evaluated {} coupon(s) after {} change(s)",
+            sessionId, evaluated, deltaRequest.getChanges().size());
+        
+        return buildResponse(session, evaluated);
+    }
+    
+    public void closeSession(String sessionId) {
+        sessions.invalidate(sessionId);
+    }
+    
+    private Set<Long> applyLineChanges(EvaluationSession session, List<CartLineChange> changes) {
+        Set<Long> changedProducts = new HashSet<>();
+        for (CartLineChange change : changes) {
+            CartItemRequest existing = session.lines.get(change.getProductId());
+            
+            if (change.getQuantity() == 0) {
+                if (existing != null) {
+                    session.lines.remove(change.getProductId());
+                    changedProducts.add(change.getProductId());
+                }
+                continue;
+            }
+            
+            BigDecimal unitPrice = change.getUnitPrice() != null ? change.getUnitPrice()
+                : existing != null ? existing.getUnitPrice() : null;
+            if (unitPrice == null) {
+                throw new InvalidCouponException(
+                    String.format("Unit price is required when adding product %d", change.getProductId()));
+            }
+            String productName = change.getProductName() != null ? change.getProductName()
+                : existing != null ? existing.getProductName() : null;
+            
+            session.lines.put(change.getProductId(), CartItemRequest.builder()
+                .productId(change.getProductId())
+                .productName(productName)
+                .quantity(change.getQuantity())
+                .unitPrice(unitPrice)
+                .build());
+            changedProducts.add(change.getProductId());
+        }
+        return changedProducts;
+    }
+    
+    private int evaluateFully(EvaluationSession session, CouponCatalog.Snapshot snapshot) {
+        List<CartItemRequest> cartItems = session.cartItems();
+        BigDecimal cartTotal = cartValidator.calculateCartTotal(cartItems);
+        LocalDateTime now = LocalDateTime.now();
+        
+        session.snapshot = snapshot;
+        session.cartTotal = cartTotal;
+        session.results.clear();
+        session.maxUsagePerUser.clear();
+        
+        BitSet candidates = snapshot.candidatesFor(session.lines.keySet());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            reevaluate(session, snapshot.getCoupons().get(i), i, cartItems, cartTotal, now);
+        }
+        return candidates.cardinality();
+    }
+    
+    private int evaluateIncrementally(EvaluationSession session, Set<Long> changedProducts) {
+        CouponCatalog.Snapshot snapshot = session.snapshot;
+        List<CartItemRequest> cartItems = session.cartItems();
+        BigDecimal previousTotal = session.cartTotal;
+        BigDecimal cartTotal = cartValidator.calculateCartTotal(cartItems);
+        LocalDateTime now = LocalDateTime.now();
+        session.cartTotal = cartTotal;
+        
+        // Product-wise and BxGy coupons whose product sets touch a changed line
+        BitSet affected = snapshot.touching(changedProducts);
+        
+        // Cart-wise coupons applicable before or after: thresholds crossed or discounts that scale with the total
+        if (cartTotal.compareTo(previousTotal) != 0) {
+            BitSet cartWise = snapshot.cartWise();
+            for (int i = cartWise.nextSetBit(0); i >= 0; i = cartWise.nextSetBit(i + 1)) {
+                BigDecimal minCartAmount = ((CartWiseCoupon) snapshot.getCoupons().get(i)).getMinCartAmount();
+                if (session.results.containsKey(i)
+                        || (minCartAmount != null && cartTotal.compareTo(minCartAmount) >= 0)) {
+                    affected.set(i);
+                }
+            }
+        }
+        
+        for (int i = affected.nextSetBit(0); i >= 0; i = affected.nextSetBit(i + 1)) {
+            reevaluate(session, snapshot.getCoupons().get(i), i, cartItems, cartTotal, now);
+        }
+        
+        // Untouched results keep their discount; drop expired coupons and refresh the reported cart total
+        Iterator<Map.Entry<Integer, ApplicableCouponResponse>> iterator = session.results.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, ApplicableCouponResponse> entry = iterator.next();
+            if (affected.get(entry.getKey())) {
+                continue;
+            }
+            if (!CouponCatalog.Snapshot.isRedeemable(snapshot.getCoupons().get(entry.getKey()), now)) {
+                iterator.remove();
+            } else if (cartTotal.compareTo(previousTotal) != 0) {
+                entry.setValue(withCartTotal(entry.getValue(), cartTotal));
+            }
+        }
+        return affected.cardinality();
+    }
+    
+    private void reevaluate(EvaluationSession session, Coupon coupon, int position,
+                            List<CartItemRequest> cartItems, BigDecimal cartTotal, LocalDateTime now) {
+        ApplicableCouponResponse response = cartItems.isEmpty() ? null
+            : couponEvaluator.evaluateCoupon(coupon, cartItems, cartTotal, now);
+        if (response != null) {
+            session.results.put(position, response);
+            if (coupon.getMaxUsagePerUser() != null) {
+                session.maxUsagePerUser.put(coupon.getId(), coupon.getMaxUsagePerUser());
+            }
+        } else {
+            session.results.remove(position);
+            session.maxUsagePerUser.remove(coupon.getId());
+        }
+    }
+    
+    private EvaluationSessionResponse buildResponse(EvaluationSession session, int evaluated) {
+        CartEvaluation evaluation;
+        synchronized (session) {
+            evaluation = new CartEvaluation(List.copyOf(session.results.values()),
+                Map.copyOf(session.maxUsagePerUser), session.cartTotal);
+        }
+        return EvaluationSessionResponse.builder()
+            .sessionId(session.id)
+            .evaluation(couponEvaluator.filterForUser(evaluation, session.userId))
+            .reevaluatedCoupons(evaluated)
+            .build();
+    }
+    
+    private static ApplicableCouponResponse withCartTotal(ApplicableCouponResponse response, BigDecimal cartTotal) {
+        DiscountBreakdown breakdown = response.getDiscountBreakdown();
+        DiscountBreakdown updatedBreakdown = breakdown == null ? null : DiscountBreakdown.builder()
+            .cartTotal(cartTotal)
+            .discountPercentage(breakdown.getDiscountPercentage())
+            .discountAmount(breakdown.getDiscountAmount())
+            .productDiscounts(breakdown.getProductDiscounts())
+            .buyQuantity(breakdown.getBuyQuantity())
+            .getQuantity(breakdown.getGetQuantity())
+            .applications(breakdown.getApplications())
+            .build();
+        
+        return ApplicableCouponResponse.builder()
+            .couponId(response.getCouponId())
+            .couponCode(response.getCouponCode())
+            .couponName(response.getCouponName())
+            .couponType(response.getCouponType())
+            .totalDiscount(response.getTotalDiscount())
+            .discountBreakdown(updatedBreakdown)
+            .isApplicable(response.getIsApplicable())
+            .applicabilityMessage(response.getApplicabilityMessage())
+            .build();
+    }
+    
+    private static class EvaluationSession {
+        private final String id;
+        private final Long userId;
+        private final SortedMap<Long, CartItemRequest> lines = new TreeMap<>(); // canonical order by product
+        private final SortedMap<Integer, ApplicableCouponResponse> results = new TreeMap<>(); // by snapshot position
+        private final Map<Long, Integer> maxUsagePerUser = new HashMap<>();
+        private CouponCatalog.Snapshot snapshot;
+        private BigDecimal cartTotal = BigDecimal.ZERO;
+        
+        EvaluationSession(String id, Long userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+        
+        List<CartItemRequest> cartItems() {
+            return new ArrayList<>(lines.values());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.CouponExportRow;
+import com.example.demo.coupon.dto.ExportFilter;
+import com.example.demo.coupon.dto.ExportFormat;
+import com.example.demo.coupon.dto.StreamError;
+import com.example.demo.coupon.dto.UsageExportRow;
+import com.example.demo.coupon.exception.ExportLimitExceededException;
+import com.example.demo.coupon.repository.ExportJdbcRepository;
+import com.example.demo.coupon.util.CsvWriter;
+import com.example.demo.coupon.util.NdjsonWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Writes exports straight from the JDBC cursor to the response stream, one row at a time. A failed
+ * export ends with a StreamError line (NDJSON) or an "error" row (CSV).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ExportService {
+    
+    private final ExportJdbcRepository exportJdbcRepository;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${coupon.export.max-concurrent:2}")
+    private int maxConcurrent;
+    
+    private Semaphore slots;
+    
+    @PostConstruct
+    void init() {
+        slots = new Semaphore(maxConcurrent);
+    }
+    
+    /**
+     * Take an export slot before the response is committed. A running export holds a pooled connection
+     * for as long as the client keeps reading, so at most max-concurrent of them run at once.
+     */
+    public void acquireSlot() {
+        if (!slots.tryAcquire()) {
+            throw new ExportLimitExceededException(maxConcurrent);
+        }
+    }
+    
+    /**
+     * Give back a slot taken by {@link #acquireSlot()} once the export has ended, however it ended
+     */
+    public void releaseSlot() {
+        slots.release();
+    }
+    
+    public void writeCoupons(ExportFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        Consumer<Consumer<CouponExportRow>> coupons = consumer -> exportJdbcRepository.streamCoupons(filter, consumer);
+        if (format == ExportFormat.NDJSON) {
+            try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out)) {
+                export("coupon(s)", format, coupons, writer::write, () -> writer.write(exportError()));
+            }
+        } else {
+            try (CsvWriter writer = new CsvWriter(out)) {
+                writer.writeRow("id", "code", "name", "type", "discount_type", "discount_value", "is_active",
+                    "start_date", "end_date", "max_usage", "current_usage", "max_usage_per_user", "min_cart_amount",
+                    "max_discount_amount", "applicable_product_ids", "min_quantity", "max_quantity", "buy_product_ids",
+                    "buy_quantity", "get_product_ids", "get_quantity", "repetition_limit", "bxgy_discount_type",
+                    "created_at", "updated_at");
+                export("coupon(s)", format, coupons, coupon -> writeCsv(writer, coupon), () -> writeCsvError(writer));
+            }
+        }
+    }
+    
+    public void writeUsages(ExportFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        Consumer<Consumer<UsageExportRow>> usages = consumer -> exportJdbcRepository.streamUsages(filter, consumer);
+        if (format == ExportFormat.NDJSON) {
+            try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out)) {
+                export("usage row(s)", format, usages, writer::write, () -> writer.write(exportError()));
+            }
+        } else {
+            try (CsvWriter writer = new CsvWriter(out)) {
+                writer.writeRow("id", "coupon_id", "coupon_code", "coupon_type", "user_id", "cart_id",
+                    "discount_amount", "used_at");
+                export("usage row(s)", format, usages, usage -> writeCsv(writer, usage), () -> writeCsvError(writer));
+            }
+        }
+    }
+    
+    /**
+     * Stream the rows of {@code source} into {@code sink}. The 200 status goes out with the first flush,
+     * so a failure part way ends the body through {@code failed} instead of leaving it silently cut short.
+     */
+    private <T> void export(String rowName, ExportFormat format, Consumer<Consumer<T>> source, Consumer<T> sink,
+                            Runnable failed) {
+        long[] rows = {0};
+        try {
+            source.accept(row -> {
+                sink.accept(row);
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            // The client is gone; there is nobody to tell
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("Export failed after {} {} as {}", rows[0], rowName, format, e);
+            failed.run();
+            return;
+        }
+        log.info("Exported {} {} as {}", rows[0], rowName, format);
+    }
+    
+    private static StreamError exportError() {
+        return StreamError.builder()
+            .error("Internal server error")
+            .message("The export is incomplete; retry the request")
+            .build();
+    }
+    
+    /**
+     * Last row of a failed CSV export; "error" can never be a row id
+     */
+    private static void writeCsvError(CsvWriter writer) {
+        StreamError error = exportError();
+        writer.writeRow(error.getType(), error.getError(), error.getMessage());
+    }
+    
+    private static void writeCsv(CsvWriter writer, UsageExportRow usage) {
+        writer.writeRow(usage.getId(), usage.getCouponId(), usage.getCouponCode(), usage.getCouponType(),
+            usage.getUserId(), usage.getCartId(), usage.getDiscountAmount(), usage.getUsedAt());
+    }
+    
+    private static void writeCsv(CsvWriter writer, CouponExportRow coupon) {
+        writer.writeRow(coupon.getId(), coupon.getCode(), coupon.getName(), coupon.getType(), coupon.getDiscountType(),
+            coupon.getDiscountValue(), coupon.getIsActive(), coupon.getStartDate(), coupon.getEndDate(),
+            coupon.getMaxUsage(), coupon.getCurrentUsage(), coupon.getMaxUsagePerUser(), coupon.getMinCartAmount(),
+            coupon.getMaxDiscountAmount(), productIds(coupon.getApplicableProductIds()), coupon.getMinQuantity(),
+            coupon.getMaxQuantity(), productIds(coupon.getBuyProductIds()), coupon.getBuyQuantity(),
+            productIds(coupon.getGetProductIds()), coupon.getGetQuantity(), coupon.getRepetitionLimit(),
+            coupon.getBxGyDiscountType(), coupon.getCreatedAt(), coupon.getUpdatedAt());
+    }
+    
+    /**
+     * Space-separated, so the list stays a single unquoted field
+     */
+    private static String productIds(List<Long> ids) {
+        return ids.isEmpty() ? null : ids.stream().map(String::valueOf).collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.CartItemResponse;
+import com.example.demo.coupon.dto.CartResponse;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.util.DiscountCalculator;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A cart priced with one coupon, before the redemption is recorded.
+ * Shared by the blocking and reactive apply paths.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PricedCart {
+    
+    private final Coupon coupon;
+    private final BigDecimal originalTotal;
+    private final BigDecimal discountApplied;
+    private final BigDecimal finalTotal;
+    private final List<CartItemResponse> cartItems;
+    
+    public static String newCartId(Long userId) {
+        return "cart-" + System.currentTimeMillis() + "-" + (userId != null ? userId : "anonymous");
+    }
+    
+    public CartResponse toResponse(String cartId) {
+        CartResponse.AppliedCouponInfo appliedCouponInfo = CartResponse.AppliedCouponInfo.builder()
+            .couponId(coupon.getId())
+            .couponCode(coupon.getCode())
+            .couponType(coupon.getType())
+            .build();
+        
+        return CartResponse.builder()
+            .cartId(cartId)
+            .originalTotal(DiscountCalculator.round(originalTotal))
+            .discountApplied(DiscountCalculator.round(discountApplied))
+            .finalTotal(DiscountCalculator.round(finalTotal))
+            .appliedCoupon(appliedCouponInfo)
+            .cartItems(cartItems)
+            .build();
+    }
+}
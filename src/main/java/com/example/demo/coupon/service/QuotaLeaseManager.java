@@ -0,0 +1,278 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.model.CouponQuotaLease;
+import com.example.demo.coupon.repository.CouponQuotaLeaseRepository;
+import com.example.demo.coupon.repository.CouponUsageJdbcRepository;
+import com.example.demo.coupon.repository.CouponUsageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves the global limit of capped coupons from blocks of quota leased to this node. A redemption
+ * takes a use from the local block with an atomic counter and only goes to the coupon row when the
+ * block runs out. Expired leases are settled by whichever node sweeps first: the uses recorded
+ * against the lease become current usage and the rest is returned. A node that finds the whole
+ * limit leased out recalls the other nodes' leases on its next sweep; each node drops recalled
+ * blocks on its own next sweep, so the sweep interval must stay below the settle grace.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class QuotaLeaseManager {
+    
+    private final CouponQuotaLeaseRepository quotaLeaseRepository;
+    private final CouponUsageRepository couponUsageRepository;
+    private final CouponUsageJdbcRepository couponUsageJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${coupon.quota.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${coupon.quota.block-size:100}")
+    private int blockSize;
+    
+    @Value("${coupon.quota.lease-ttl:PT1M}")
+    private Duration leaseTtl;
+    
+    // Time after expiry for redemptions still in flight on the leasing node to commit
+    @Value("${coupon.quota.settle-grace:PT30S}")
+    private Duration settleGrace;
+    
+    @Value("${coupon.quota.node-id:${random.uuid}}")
+    private String nodeId;
+    
+    private final Map<Long, QuotaBlock> blocks = new ConcurrentHashMap<>();
+    private final Map<Long, ReentrantLock> leaseLocks = new ConcurrentHashMap<>();
+    // Coupons this node has reported as fully leased, so rejected redemptions do not repeat the event
+    private final Set<Long> exhaustedCoupons = ConcurrentHashMap.newKeySet();
+    // Coupons this node was granted nothing of since the last sweep
+    private final Set<Long> recallRequests = ConcurrentHashMap.newKeySet();
+    
+    private TransactionTemplate transactionTemplate;
+    private Counter leasedCounter;
+    private Counter settledCounter;
+    
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        leasedCounter = leaseCounter("leased");
+        settledCounter = leaseCounter("settled");
+    }
+    
+    /**
+     * Whether redemptions of the coupon are counted through quota leases
+     */
+    public boolean covers(Coupon coupon) {
+        return enabled && coupon.getMaxUsage() != null;
+    }
+    
+    /**
+     * Take one use of the coupon's global limit and return the id of the lease it came from.
+     * Leasing a new block joins the caller's transaction; the block is shared with other
+     * redemptions once that transaction commits.
+     */
+    public Long acquire(Coupon coupon) {
+        Long couponId = coupon.getId();
+        Long leaseId = takeLocal(couponId);
+        if (leaseId != null) {
+            return leaseId;
+        }
+        
+        // Held while leasing over JDBC, so a lock for the reason given in CouponCatalog.reload
+        ReentrantLock lock = leaseLocks.computeIfAbsent(couponId, id -> new ReentrantLock());
+        lock.lock();
+        boolean handedOver = false;
+        try {
+            // Another redemption may have published a block while this one waited
+            leaseId = takeLocal(couponId);
+            if (leaseId != null) {
+                return leaseId;
+            }
+            
+            QuotaBlock block = transactionTemplate.execute(status -> {
+                QuotaBlock leased = leaseBlock(couponId);
+                if (leased != null) {
+                    leased.taken.incrementAndGet();
+                    publishOnCommit(couponId, leased, lock);
+                }
+                return leased;
+            });
+            if (block == null) {
+                // The caller's transaction rolls back, so the recall waits for the next sweep
+                recallRequests.add(couponId);
+                throw new CouponUsageLimitExceededException("Coupon usage limit exceeded", false);
+            }
+            handedOver = true;
+            return block.leaseId;
+        } finally {
+            if (!handedOver) {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Share a freshly leased block once its transaction commits. Waiters stay blocked on the lock
+     * until then, and lease their own block if the transaction rolls back.
+     */
+    private void publishOnCommit(Long couponId, QuotaBlock block, ReentrantLock lock) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                blocks.put(couponId, block);
+            }
+            
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${coupon.quota.sweep-interval:PT5S}")
+    public void settleExpiredLeases() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Long couponId : List.copyOf(recallRequests)) {
+            recallRequests.remove(couponId);
+            transactionTemplate.executeWithoutResult(status -> recallLeases(couponId, now));
+        }
+        blocks.values().removeIf(block -> block.isExpired(now));
+        if (!blocks.isEmpty()) {
+            // Stop serving blocks whose lease another node recalled or settled
+            Map<Long, LocalDateTime> open = new HashMap<>();
+            quotaLeaseRepository.findByNodeId(nodeId).forEach(lease -> open.put(lease.getId(), lease.getExpiresAt()));
+            blocks.values().removeIf(block -> !open.containsKey(block.leaseId) || !now.isBefore(open.get(block.leaseId)));
+        }
+        
+        List<CouponQuotaLease> due = quotaLeaseRepository.findByExpiresAtBefore(now.minus(settleGrace));
+        int settled = 0;
+        for (CouponQuotaLease lease : due) {
+            Boolean done = transactionTemplate.execute(status -> settle(lease, now));
+            if (Boolean.TRUE.equals(done)) {
+                settled++;
+            }
+        }
+        if (settled > 0) {
+            settledCounter.increment(settled);
+            log.info("Node {} settled {} expired quota lease(s)", nodeId, settled);
+        }
+    }
+    
+    /**
+     * Nothing was left to lease: report the coupon exhausted and recall other nodes' leases, whose
+     * unused quota comes back after their next sweep and the settle grace
+     */
+    private void recallLeases(Long couponId, LocalDateTime now) {
+        if (exhaustedCoupons.add(couponId)) {
+            eventPublisher.publishEvent(CouponChangedEvent.redeemed(couponId, true));
+        }
+        int recalled = quotaLeaseRepository.recallLeases(couponId, nodeId, now);
+        if (recalled > 0) {
+            log.info("Node {} recalled {} quota lease(s) of coupon {}", nodeId, recalled, couponId);
+        }
+    }
+    
+    private Long takeLocal(Long couponId) {
+        QuotaBlock block = blocks.get(couponId);
+        if (block == null || block.isExpired(LocalDateTime.now())) {
+            return null;
+        }
+        return block.taken.incrementAndGet() <= block.granted ? block.leaseId : null;
+    }
+    
+    private QuotaBlock leaseBlock(Long couponId) {
+        int granted = couponUsageJdbcRepository.leaseQuota(couponId, blockSize);
+        if (granted == 0) {
+            return null;
+        }
+        if (granted < blockSize) {
+            // What is left of the limit is now leased out; published after commit like any other change
+            if (exhaustedCoupons.add(couponId)) {
+                eventPublisher.publishEvent(CouponChangedEvent.redeemed(couponId, true));
+            }
+        } else {
+            exhaustedCoupons.remove(couponId);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        CouponQuotaLease lease = quotaLeaseRepository.save(CouponQuotaLease.builder()
+            .couponId(couponId)
+            .nodeId(nodeId)
+            .granted(granted)
+            .expiresAt(now.plus(leaseTtl))
+            .createdAt(now)
+            .build());
+        leasedCounter.increment();
+        log.debug("Node {} leased {} uses of coupon {} (lease {})", nodeId, granted, couponId, lease.getId());
+        return new QuotaBlock(lease.getId(), granted, lease.getExpiresAt());
+    }
+    
+    /**
+     * Settle one lease unless another node got to it first
+     */
+    private boolean settle(CouponQuotaLease lease, LocalDateTime now) {
+        if (quotaLeaseRepository.deleteLease(lease.getId()) == 0) {
+            return false;
+        }
+        int used = (int) Math.min(couponUsageRepository.countByQuotaLeaseId(lease.getId()), lease.getGranted());
+        boolean exhausted = couponUsageJdbcRepository.settleQuota(lease.getCouponId(), lease.getGranted(), used, now);
+        if (!exhausted && used < lease.getGranted()) {
+            // Quota came back, so running out again is news
+            exhaustedCoupons.remove(lease.getCouponId());
+        }
+        eventPublisher.publishEvent(CouponChangedEvent.redeemed(lease.getCouponId(), exhausted));
+        return true;
+    }
+    
+    private Counter leaseCounter(String event) {
+        return Counter.builder("coupon.quota.leases")
+            .description("Quota leases taken and settled")
+            .tag("event", event)
+            .register(meterRegistry);
+    }
+    
+    private static class QuotaBlock {
+        private final Long leaseId;
+        private final int granted;
+        private final LocalDateTime expiresAt;
+        private final AtomicInteger taken = new AtomicInteger();
+        
+        QuotaBlock(Long leaseId, int granted, LocalDateTime expiresAt) {
+            this.leaseId = leaseId;
+            this.granted = granted;
+            this.expiresAt = expiresAt;
+        }
+        
+        boolean isExpired(LocalDateTime now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+}
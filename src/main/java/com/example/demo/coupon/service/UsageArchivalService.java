@@ -0,0 +1,204 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.model.ArchivedUsageCount;
+import com.example.demo.coupon.model.CouponUsageArchive;
+import com.example.demo.coupon.model.RollupWatermark;
+import com.example.demo.coupon.repository.CouponUsageArchiveRepository;
+import com.example.demo.coupon.repository.CouponUsageJdbcRepository;
+import com.example.demo.coupon.repository.RollupWatermarkRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves old coupon_usages rows into compressed chunks in coupon_usage_archive. A row qualifies once it
+ * is older than the retention period or its coupon ended more than the grace period ago, and only after
+ * the daily rollup has counted it. Each chunk is archived, counted into the archived per-user totals and
+ * deleted in one short transaction, so per-user limits see every use either as a row or as a count.
+ * Aged rows are found by walking ids from a cursor, rows of ended coupons through their coupon id.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UsageArchivalService {
+    
+    // Locked while a chunk is archived; last_id is the cursor of the age scan, below which no aged row is left
+    static final String LOCK = "coupon_usage_archive";
+    
+    private final CouponUsageJdbcRepository couponUsageJdbcRepository;
+    private final CouponUsageArchiveRepository archiveRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${coupon.retention.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${coupon.retention.max-age:P365D}")
+    private Duration maxAge;
+    
+    @Value("${coupon.retention.expired-coupon-grace:P30D}")
+    private Duration expiredCouponGrace;
+    
+    @Value("${coupon.retention.chunk-size:1000}")
+    private int chunkSize;
+    
+    @Value("${coupon.retention.max-chunks-per-run:100}")
+    private int maxChunksPerRun;
+    
+    @Value("${coupon.rollup.enabled:true}")
+    private boolean rollupEnabled;
+    
+    private TransactionTemplate transactionTemplate;
+    private Counter archivedCounter;
+    
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        archivedCounter = Counter.builder("coupon.retention.archived")
+            .description("Usage rows moved to the archive")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Archive up to max-chunks-per-run chunks of qualifying rows; returns the number of rows archived
+     */
+    @Scheduled(fixedDelayString = "${coupon.retention.interval:PT10M}")
+    public int archive() {
+        if (!enabled) {
+            return 0;
+        }
+        watermarkRepository.createIfAbsent(LOCK);
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        int chunks = 0;
+        
+        // Rows past the retention age, resuming where the last run stopped
+        while (chunks < maxChunksPerRun) {
+            int rows = transactionTemplate.execute(status -> archiveAgedChunk(now));
+            chunks++;
+            total += rows;
+            if (rows < chunkSize) {
+                break;
+            }
+        }
+        
+        // Rows of coupons that ended more than the grace period ago, whatever their age
+        for (Long couponId : couponUsageJdbcRepository.findEndedCouponIdsWithUsages(now.minus(expiredCouponGrace))) {
+            int rows = chunkSize;
+            while (rows == chunkSize && chunks < maxChunksPerRun) {
+                rows = transactionTemplate.execute(status -> archiveCouponChunk(couponId, now));
+                chunks++;
+                total += rows;
+            }
+        }
+        
+        if (total > 0) {
+            archivedCounter.increment(total);
+            log.info("Archived {} coupon usage row(s)", total);
+        }
+        return total;
+    }
+    
+    /**
+     * Archive the next aged rows after the cursor. The scan stops at the first row that does not
+     * qualify yet, so the cursor never passes a row that still has to be archived.
+     */
+    private int archiveAgedChunk(LocalDateTime now) {
+        // The lock keeps other nodes from archiving, and counting, the same rows
+        RollupWatermark lock = watermarkRepository.lockByName(LOCK).orElseThrow();
+        List<CouponUsageJdbcRepository.UsageRow> usages = couponUsageJdbcRepository.findAgedUsages(
+            lock.getLastId(), rolledUpThroughId(), now.minus(maxAge), chunkSize);
+        if (usages.isEmpty()) {
+            return 0;
+        }
+        store(usages, now);
+        lock.setLastId(usages.get(usages.size() - 1).getId());
+        lock.setUpdatedAt(now);
+        return usages.size();
+    }
+    
+    private int archiveCouponChunk(Long couponId, LocalDateTime now) {
+        RollupWatermark lock = watermarkRepository.lockByName(LOCK).orElseThrow();
+        List<CouponUsageJdbcRepository.UsageRow> usages =
+            couponUsageJdbcRepository.findCouponUsages(couponId, rolledUpThroughId(), chunkSize);
+        if (usages.isEmpty()) {
+            return 0;
+        }
+        store(usages, now);
+        lock.setUpdatedAt(now);
+        return usages.size();
+    }
+    
+    /**
+     * Highest usage id the daily rollup has counted; rows above it are not archived yet
+     */
+    private long rolledUpThroughId() {
+        if (!rollupEnabled) {
+            return Long.MAX_VALUE;
+        }
+        return watermarkRepository.findById(UsageRollupService.WATERMARK).map(RollupWatermark::getLastId).orElse(0L);
+    }
+    
+    private void store(List<CouponUsageJdbcRepository.UsageRow> usages, LocalDateTime now) {
+        CouponUsageJdbcRepository.UsageRow first = usages.get(0);
+        CouponUsageJdbcRepository.UsageRow last = usages.get(usages.size() - 1);
+        LocalDateTime oldest = first.getUsedAt();
+        LocalDateTime newest = first.getUsedAt();
+        Map<ArchivedUsageCount.Key, Long> userCounts = new HashMap<>();
+        for (CouponUsageJdbcRepository.UsageRow usage : usages) {
+            oldest = usage.getUsedAt().isBefore(oldest) ? usage.getUsedAt() : oldest;
+            newest = usage.getUsedAt().isAfter(newest) ? usage.getUsedAt() : newest;
+            if (usage.getUserId() != null) {
+                userCounts.merge(new ArchivedUsageCount.Key(usage.getCouponId(), usage.getUserId()), 1L, Long::sum);
+            }
+        }
+        
+        archiveRepository.save(CouponUsageArchive.builder()
+            .firstUsageId(first.getId())
+            .lastUsageId(last.getId())
+            .rowCount(usages.size())
+            .oldestUsedAt(oldest)
+            .newestUsedAt(newest)
+            .payload(compress(usages))
+            .archivedAt(now)
+            .build());
+        couponUsageJdbcRepository.addArchivedCounts(userCounts);
+        couponUsageJdbcRepository.deleteUsages(usages.stream().map(CouponUsageJdbcRepository.UsageRow::getId).toList(),
+            chunkSize);
+    }
+    
+    /**
+     * One JSON object per line, gzip-compressed
+     */
+    private byte[] compress(List<CouponUsageJdbcRepository.UsageRow> usages) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            for (CouponUsageJdbcRepository.UsageRow usage : usages) {
+                gzip.write(objectMapper.writeValueAsBytes(usage));
+                gzip.write('\n');
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not compress archived usage rows", e);
+        }
+        return bytes.toByteArray();
+    }
+}
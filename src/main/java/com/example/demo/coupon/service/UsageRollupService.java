@@ -0,0 +1,300 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.UsageRollupResponse;
+import com.example.demo.coupon.model.CouponUsageDaily;
+import com.example.demo.coupon.model.RollupWatermark;
+import com.example.demo.coupon.repository.CouponUsageDailyRepository;
+import com.example.demo.coupon.repository.CouponUsageJdbcRepository;
+import com.example.demo.coupon.repository.RollupWatermarkRepository;
+import com.example.demo.coupon.util.HyperLogLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains coupon_usage_daily from coupon_usages, one batch of rows above the watermark at a time,
+ * and answers usage reports from the rollups alone. Each batch folds its rows into the day rows and
+ * advances the watermark in one transaction, so a row is counted exactly once. A row whose transaction
+ * commits after the watermark has passed its id is picked up by the periodic recount of recent days.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UsageRollupService {
+    
+    static final String WATERMARK = "coupon_usage_daily";
+    
+    private final CouponUsageJdbcRepository couponUsageJdbcRepository;
+    private final CouponUsageDailyRepository dailyRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${coupon.rollup.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${coupon.rollup.batch-size:5000}")
+    private int batchSize;
+    
+    // Rows younger than this are left for the next run: a transaction still open when a higher id
+    // committed would otherwise fall below the watermark and never be counted
+    @Value("${coupon.rollup.settle-lag:PT30S}")
+    private Duration settleLag;
+    
+    // Days recounted by reconcile, today included
+    @Value("${coupon.rollup.reconcile-days:2}")
+    private int reconcileDays;
+    
+    private TransactionTemplate transactionTemplate;
+    private Counter rolledUpCounter;
+    private Counter reconciledCounter;
+    
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        rolledUpCounter = Counter.builder("coupon.rollup.rows")
+            .description("Usage rows folded into the daily rollup")
+            .register(meterRegistry);
+        reconciledCounter = Counter.builder("coupon.rollup.reconciled")
+            .description("Day rows corrected by recounting usage rows that committed late")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Roll up every settled usage row above the watermark; returns the number of rows folded in
+     */
+    @Scheduled(fixedDelayString = "${coupon.rollup.interval:PT1M}")
+    public int rollUp() {
+        if (!enabled) {
+            return 0;
+        }
+        watermarkRepository.createIfAbsent(WATERMARK);
+        int total = 0;
+        BatchResult batch;
+        do {
+            batch = transactionTemplate.execute(status -> rollUpBatch(LocalDateTime.now()));
+            total += batch.rows;
+        } while (batch.more);
+        if (total > 0) {
+            rolledUpCounter.increment(total);
+            log.info("Rolled up {} usage row(s) into {}", total, WATERMARK);
+        }
+        return total;
+    }
+    
+    /**
+     * Recount the recent days below the watermark and correct day rows that missed usage rows whose
+     * transaction outlived the settle lag; returns the number of day rows corrected
+     */
+    @Scheduled(fixedDelayString = "${coupon.rollup.reconcile-interval:PT1H}")
+    public int reconcile() {
+        if (!enabled) {
+            return 0;
+        }
+        watermarkRepository.createIfAbsent(WATERMARK);
+        int corrected = transactionTemplate.execute(status -> reconcileRecentDays(LocalDateTime.now()));
+        if (corrected > 0) {
+            reconciledCounter.increment(corrected);
+            log.warn("Corrected {} day row(s) in {} that missed late-committing usage rows", corrected, WATERMARK);
+        }
+        return corrected;
+    }
+    
+    @Transactional(readOnly = true)
+    public UsageRollupResponse query(Long couponId, LocalDate from, LocalDate to) {
+        List<CouponUsageDaily> rows = couponId != null
+            ? dailyRepository.findByCouponIdAndUsageDateBetweenOrderByUsageDateAsc(couponId, from, to)
+            : dailyRepository.findByUsageDateBetweenOrderByUsageDateAscCouponIdAsc(from, to);
+        
+        List<UsageRollupResponse.Day> days = new ArrayList<>(rows.size());
+        HyperLogLog users = new HyperLogLog(CouponUsageDaily.SKETCH_PRECISION);
+        long redemptions = 0;
+        BigDecimal discountTotal = BigDecimal.ZERO;
+        for (CouponUsageDaily row : rows) {
+            HyperLogLog daySketch = HyperLogLog.fromBytes(row.getUserSketch());
+            users.merge(daySketch);
+            redemptions += row.getRedemptions();
+            discountTotal = discountTotal.add(row.getDiscountTotal());
+            days.add(UsageRollupResponse.Day.builder()
+                .date(row.getUsageDate())
+                .couponId(row.getCouponId())
+                .redemptions(row.getRedemptions())
+                .discountTotal(row.getDiscountTotal())
+                .distinctUsers(daySketch.estimate())
+                .build());
+        }
+        
+        RollupWatermark watermark = watermarkRepository.findById(WATERMARK).orElse(null);
+        return UsageRollupResponse.builder()
+            .from(from)
+            .to(to)
+            .couponId(couponId)
+            .rolledUpThroughId(watermark != null ? watermark.getLastId() : 0L)
+            .rolledUpAt(watermark != null ? watermark.getUpdatedAt() : null)
+            .redemptions(redemptions)
+            .discountTotal(discountTotal)
+            .distinctUsers(users.estimate())
+            .days(days)
+            .build();
+    }
+    
+    private BatchResult rollUpBatch(LocalDateTime now) {
+        // The lock keeps other nodes out until this batch commits
+        RollupWatermark watermark = watermarkRepository.lockByName(WATERMARK).orElseThrow();
+        List<CouponUsageJdbcRepository.UsageRow> usages =
+            couponUsageJdbcRepository.findUsagesAfter(watermark.getLastId(), batchSize);
+        
+        LocalDateTime settledBefore = now.minus(settleLag);
+        Map<CouponUsageDaily.Key, DayDelta> deltas = new LinkedHashMap<>();
+        long lastId = watermark.getLastId();
+        int rows = 0;
+        for (CouponUsageJdbcRepository.UsageRow usage : usages) {
+            if (!usage.getUsedAt().isBefore(settledBefore)) {
+                // Later ids were inserted later; the rest waits for the next run
+                break;
+            }
+            deltas.computeIfAbsent(new CouponUsageDaily.Key(usage.getCouponId(), usage.getUsedAt().toLocalDate()),
+                key -> new DayDelta()).add(usage);
+            lastId = usage.getId();
+            rows++;
+        }
+        if (rows == 0) {
+            return new BatchResult(0, false);
+        }
+        
+        Map<CouponUsageDaily.Key, CouponUsageDaily> existing = new HashMap<>();
+        for (CouponUsageDaily day : dailyRepository.findAllById(deltas.keySet())) {
+            existing.put(new CouponUsageDaily.Key(day.getCouponId(), day.getUsageDate()), day);
+        }
+        List<CouponUsageDaily> changed = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> {
+            CouponUsageDaily day = existing.get(key);
+            if (day == null) {
+                changed.add(CouponUsageDaily.builder()
+                    .couponId(key.getCouponId())
+                    .usageDate(key.getUsageDate())
+                    .redemptions(delta.redemptions)
+                    .discountTotal(delta.discountTotal)
+                    .userSketch(delta.users.toBytes())
+                    .updatedAt(now)
+                    .build());
+                return;
+            }
+            HyperLogLog users = HyperLogLog.fromBytes(day.getUserSketch());
+            users.merge(delta.users);
+            day.setRedemptions(day.getRedemptions() + delta.redemptions);
+            day.setDiscountTotal(day.getDiscountTotal().add(delta.discountTotal));
+            day.setUserSketch(users.toBytes());
+            day.setUpdatedAt(now);
+            changed.add(day);
+        });
+        dailyRepository.saveAll(changed);
+        
+        watermark.setLastId(lastId);
+        watermark.setUpdatedAt(now);
+        return new BatchResult(rows, rows == batchSize);
+    }
+    
+    private int reconcileRecentDays(LocalDateTime now) {
+        // Locked so no batch moves the watermark while the days are recounted
+        RollupWatermark watermark = watermarkRepository.lockByName(WATERMARK).orElseThrow();
+        LocalDateTime from = now.toLocalDate().minusDays(reconcileDays - 1L).atStartOfDay();
+        Long firstId = couponUsageJdbcRepository.findFirstIdUsedSince(from);
+        if (firstId == null || firstId > watermark.getLastId()) {
+            return 0;
+        }
+        
+        Map<CouponUsageDaily.Key, DayDelta> recount = new HashMap<>();
+        long afterId = firstId - 1;
+        boolean more = true;
+        while (more) {
+            List<CouponUsageJdbcRepository.UsageRow> usages = couponUsageJdbcRepository.findUsagesAfter(afterId, batchSize);
+            more = usages.size() == batchSize;
+            for (CouponUsageJdbcRepository.UsageRow usage : usages) {
+                if (usage.getId() > watermark.getLastId()) {
+                    more = false;
+                    break;
+                }
+                if (!usage.getUsedAt().isBefore(from)) {
+                    recount.computeIfAbsent(new CouponUsageDaily.Key(usage.getCouponId(), usage.getUsedAt().toLocalDate()),
+                        key -> new DayDelta()).add(usage);
+                }
+                afterId = usage.getId();
+            }
+        }
+        
+        Map<CouponUsageDaily.Key, CouponUsageDaily> existing = new HashMap<>();
+        for (CouponUsageDaily day : dailyRepository.findAllById(recount.keySet())) {
+            existing.put(new CouponUsageDaily.Key(day.getCouponId(), day.getUsageDate()), day);
+        }
+        List<CouponUsageDaily> corrected = new ArrayList<>();
+        recount.forEach((key, counted) -> {
+            CouponUsageDaily day = existing.get(key);
+            if (day == null) {
+                corrected.add(CouponUsageDaily.builder()
+                    .couponId(key.getCouponId())
+                    .usageDate(key.getUsageDate())
+                    .redemptions(counted.redemptions)
+                    .discountTotal(counted.discountTotal)
+                    .userSketch(counted.users.toBytes())
+                    .updatedAt(now)
+                    .build());
+            } else if (counted.redemptions > day.getRedemptions()) {
+                // Late rows only ever add to a day, so a lower recount means nothing was missed
+                HyperLogLog users = HyperLogLog.fromBytes(day.getUserSketch());
+                users.merge(counted.users);
+                day.setRedemptions(counted.redemptions);
+                day.setDiscountTotal(counted.discountTotal);
+                day.setUserSketch(users.toBytes());
+                day.setUpdatedAt(now);
+                corrected.add(day);
+            }
+        });
+        dailyRepository.saveAll(corrected);
+        return corrected.size();
+    }
+    
+    private static class DayDelta {
+        private long redemptions;
+        private BigDecimal discountTotal = BigDecimal.ZERO;
+        private final HyperLogLog users = new HyperLogLog(CouponUsageDaily.SKETCH_PRECISION);
+        
+        void add(CouponUsageJdbcRepository.UsageRow usage) {
+            redemptions++;
+            if (usage.getDiscountAmount() != null) {
+                discountTotal = discountTotal.add(usage.getDiscountAmount());
+            }
+            if (usage.getUserId() != null) {
+                users.add(usage.getUserId());
+            }
+        }
+    }
+    
+    private static class BatchResult {
+        private final int rows;
+        private final boolean more;
+        
+        BatchResult(int rows, boolean more) {
+            this.rows = rows;
+            this.more = more;
+        }
+    }
+}
@@ -137,30 +137,34 @@ public class BxGyStrategy implements CouponStrategy {
     
     @Override
     public ApplicableCouponResponse getApplicabilityInfo(Coupon coupon, List<CartItemRequest> cartItems, BigDecimal cartTotal) {
-        boolean applicable = isApplicable(coupon, cartItems, cartTotal);
-        
-        if (!applicable) {
-            BxGyCoupon bxGyCoupon = (BxGyCoupon) coupon;
-            int buyCount = countProductsInSet(cartItems, bxGyCoupon.getBuyProductIds());
-            int getCount = countGetProductsExcludingBuy(cartItems, bxGyCoupon);
-            
-            String message = String.format(
-                "Not applicable: Need %d buy products (have %d) and %d get products (have %d)",
-                bxGyCoupon.getBuyQuantity(), buyCount,
-                bxGyCoupon.getGetQuantity(), getCount);
-            
-            return ApplicableCouponResponse.builder()
-                .couponId(coupon.getId())
-                .couponCode(coupon.getCode())
-                .couponName(coupon.getName())
-                .couponType(coupon.getType())
-                .totalDiscount(BigDecimal.ZERO)
-                .isApplicable(false)
-                .applicabilityMessage(message)
-                .build();
+        BigDecimal discount = applicableDiscount(coupon, cartItems, cartTotal);
+        if (discount != null) {
+            return describeApplicable(coupon, cartItems, cartTotal, discount);
         }
         
-        BigDecimal discount = calculateDiscount(coupon, cartItems, cartTotal);
+        BxGyCoupon bxGyCoupon = (BxGyCoupon) coupon;
+        int buyCount = countProductsInSet(cartItems, bxGyCoupon.getBuyProductIds());
+        int getCount = countGetProductsExcludingBuy(cartItems, bxGyCoupon);
+        
+        String message = String.format(
+            "Not applicable: Need %d buy products (have %d) and %d get products (have %d)",
+            bxGyCoupon.getBuyQuantity(), buyCount,
+            bxGyCoupon.getGetQuantity(), getCount);
+        
+        return ApplicableCouponResponse.builder()
+            .couponId(coupon.getId())
+            .couponCode(coupon.getCode())
+            .couponName(coupon.getName())
+            .couponType(coupon.getType())
+            .totalDiscount(BigDecimal.ZERO)
+            .isApplicable(false)
+            .applicabilityMessage(message)
+            .build();
+    }
+    
+    @Override
+    public ApplicableCouponResponse describeApplicable(Coupon coupon, List<CartItemRequest> cartItems,
+                                                       BigDecimal cartTotal, BigDecimal discount) {
         BxGyCoupon bxGyCoupon = (BxGyCoupon) coupon;
         int applications = calculateApplications(bxGyCoupon, cartItems);
         
@@ -180,7 +184,7 @@ public class BxGyStrategy implements CouponStrategy {
             .totalDiscount(discount)
             .discountBreakdown(breakdown)
             .isApplicable(true)
-            .applicabilityMessage(String.format("Coupon applicable: %d application(s)", applications))
+            .applicabilityMessage("Coupon applicable: " + applications + " application(s)")
             .build();
     }
     
@@ -62,35 +62,53 @@ public class CartWiseStrategy implements CouponStrategy {
     
     @Override
     public ApplicableCouponResponse getApplicabilityInfo(Coupon coupon, List<CartItemRequest> cartItems, BigDecimal cartTotal) {
-        boolean applicable = isApplicable(coupon, cartItems, cartTotal);
-        BigDecimal discount = applicable ? calculateDiscount(coupon, cartItems, cartTotal) : BigDecimal.ZERO;
-        
-        DiscountBreakdown breakdown = DiscountBreakdown.builder()
-            .cartTotal(cartTotal)
-            .discountAmount(discount)
-            .build();
-        
-        if (coupon.getDiscountType() == DiscountType.PERCENTAGE) {
-            breakdown.setDiscountPercentage(coupon.getDiscountValue());
+        BigDecimal discount = applicableDiscount(coupon, cartItems, cartTotal);
+        if (discount != null) {
+            return describeApplicable(coupon, cartItems, cartTotal, discount);
         }
         
-        String message = applicable 
-            ? "Coupon applicable" 
-            : String.format("Cart total (%.2f) is less than minimum required (%.2f)", 
-                cartTotal, ((CartWiseCoupon) coupon).getMinCartAmount());
+        String message = String.format("Cart total (%.2f) is less than minimum required (%.2f)", 
+            cartTotal, ((CartWiseCoupon) coupon).getMinCartAmount());
         
         return ApplicableCouponResponse.builder()
             .couponId(coupon.getId())
             .couponCode(coupon.getCode())
             .couponName(coupon.getName())
             .couponType(coupon.getType())
-            .totalDiscount(discount)
-            .discountBreakdown(breakdown)
-            .isApplicable(applicable)
+            .totalDiscount(BigDecimal.ZERO)
+            .discountBreakdown(breakdown(coupon, cartTotal, BigDecimal.ZERO))
+            .isApplicable(false)
             .applicabilityMessage(message)
             .build();
     }
     
+    @Override
+    public ApplicableCouponResponse describeApplicable(Coupon coupon, List<CartItemRequest> cartItems,
+                                                       BigDecimal cartTotal, BigDecimal discount) {
+        return ApplicableCouponResponse.builder()
+            .couponId(coupon.getId())
+            .couponCode(coupon.getCode())
+            .couponName(coupon.getName())
+            .couponType(coupon.getType())
+            .totalDiscount(discount)
+            .discountBreakdown(breakdown(coupon, cartTotal, discount))
+            .isApplicable(true)
+            .applicabilityMessage("Coupon applicable")
+            .build();
+    }
+    
+    private DiscountBreakdown breakdown(Coupon coupon, BigDecimal cartTotal, BigDecimal discount) {
+        DiscountBreakdown breakdown = DiscountBreakdown.builder()
+            .cartTotal(cartTotal)
+            .discountAmount(discount)
+            .build();
+        
+        if (coupon.getDiscountType() == DiscountType.PERCENTAGE) {
+            breakdown.setDiscountPercentage(coupon.getDiscountValue());
+        }
+        return breakdown;
+    }
+    
     @Override
     public List<CartItemResponse> applyCoupon(Coupon coupon, List<CartItemRequest> cartItems, BigDecimal cartTotal) {
         BigDecimal totalDiscount = calculateDiscount(coupon, cartItems, cartTotal);
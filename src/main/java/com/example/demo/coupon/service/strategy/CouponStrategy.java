@@ -25,6 +25,20 @@ public interface CouponStrategy {
      */
     ApplicableCouponResponse getApplicabilityInfo(Coupon coupon, List<CartItemRequest> cartItems, BigDecimal cartTotal);
     
+    /**
+     * Discount for a coupon that applies to the cart, or null if it does not.
+     * Builds no breakdown or message, for callers that only need the amount.
+     */
+    default BigDecimal applicableDiscount(Coupon coupon, List<CartItemRequest> cartItems, BigDecimal cartTotal) {
+        return isApplicable(coupon, cartItems, cartTotal) ? calculateDiscount(coupon, cartItems, cartTotal) : null;
+    }
+    
+    /**
+     * Detailed information for a coupon already known to apply, given its discount
+     */
+    ApplicableCouponResponse describeApplicable(Coupon coupon, List<CartItemRequest> cartItems,
+                                                BigDecimal cartTotal, BigDecimal discount);
+    
     /**
      * Apply coupon and return updated cart items with discounts
      */
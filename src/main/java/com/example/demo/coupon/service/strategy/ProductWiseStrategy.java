@@ -105,35 +105,60 @@ public class ProductWiseStrategy implements CouponStrategy {
     
     @Override
     public ApplicableCouponResponse getApplicabilityInfo(Coupon coupon, List<CartItemRequest> cartItems, BigDecimal cartTotal) {
-        boolean applicable = isApplicable(coupon, cartItems, cartTotal);
-        BigDecimal discount = applicable ? calculateDiscount(coupon, cartItems, cartTotal) : BigDecimal.ZERO;
+        BigDecimal discount = applicableDiscount(coupon, cartItems, cartTotal);
+        if (discount != null) {
+            return describeApplicable(coupon, cartItems, cartTotal, discount);
+        }
+        
+        DiscountBreakdown breakdown = DiscountBreakdown.builder()
+            .cartTotal(cartTotal)
+            .discountAmount(BigDecimal.ZERO)
+            .productDiscounts(new HashMap<>())
+            .build();
         
+        if (coupon.getDiscountType() == DiscountType.PERCENTAGE) {
+            breakdown.setDiscountPercentage(coupon.getDiscountValue());
+        }
+        
+        return ApplicableCouponResponse.builder()
+            .couponId(coupon.getId())
+            .couponCode(coupon.getCode())
+            .couponName(coupon.getName())
+            .couponType(coupon.getType())
+            .totalDiscount(BigDecimal.ZERO)
+            .discountBreakdown(breakdown)
+            .isApplicable(false)
+            .applicabilityMessage("No applicable products found in cart or minimum quantity requirement not met")
+            .build();
+    }
+    
+    @Override
+    public ApplicableCouponResponse describeApplicable(Coupon coupon, List<CartItemRequest> cartItems,
+                                                       BigDecimal cartTotal, BigDecimal discount) {
         Map<Long, BigDecimal> productDiscounts = new HashMap<>();
-        if (applicable) {
-            ProductWiseCoupon productWiseCoupon = (ProductWiseCoupon) coupon;
-            Set<Long> applicableProductIds = productWiseCoupon.getApplicableProductIds();
-            
-            for (CartItemRequest item : cartItems) {
-                if (applicableProductIds.contains(item.getProductId())) {
-                    int quantityForDiscount = item.getQuantity();
-                    if (productWiseCoupon.getMaxQuantity() != null) {
-                        quantityForDiscount = Math.min(quantityForDiscount, productWiseCoupon.getMaxQuantity());
-                    }
-                    
-                    BigDecimal productTotal = item.getUnitPrice()
-                        .multiply(BigDecimal.valueOf(quantityForDiscount));
-                    
-                    BigDecimal itemDiscount = BigDecimal.ZERO;
-                    if (coupon.getDiscountType() == DiscountType.PERCENTAGE) {
-                        itemDiscount = DiscountCalculator.calculatePercentageDiscount(
-                            productTotal, coupon.getDiscountValue());
-                    } else if (coupon.getDiscountType() == DiscountType.FIXED_AMOUNT) {
-                        itemDiscount = DiscountCalculator.calculateFixedDiscount(
-                            productTotal, coupon.getDiscountValue());
-                    }
-                    
-                    productDiscounts.put(item.getProductId(), DiscountCalculator.round(itemDiscount));
+        ProductWiseCoupon productWiseCoupon = (ProductWiseCoupon) coupon;
+        Set<Long> applicableProductIds = productWiseCoupon.getApplicableProductIds();
+        
+        for (CartItemRequest item : cartItems) {
+            if (applicableProductIds.contains(item.getProductId())) {
+                int quantityForDiscount = item.getQuantity();
+                if (productWiseCoupon.getMaxQuantity() != null) {
+                    quantityForDiscount = Math.min(quantityForDiscount, productWiseCoupon.getMaxQuantity());
                 }
+                
+                BigDecimal productTotal = item.getUnitPrice()
+                    .multiply(BigDecimal.valueOf(quantityForDiscount));
+                
+                BigDecimal itemDiscount = BigDecimal.ZERO;
+                if (coupon.getDiscountType() == DiscountType.PERCENTAGE) {
+                    itemDiscount = DiscountCalculator.calculatePercentageDiscount(
+                        productTotal, coupon.getDiscountValue());
+                } else if (coupon.getDiscountType() == DiscountType.FIXED_AMOUNT) {
+                    itemDiscount = DiscountCalculator.calculateFixedDiscount(
+                        productTotal, coupon.getDiscountValue());
+                }
+                
+                productDiscounts.put(item.getProductId(), DiscountCalculator.round(itemDiscount));
             }
         }
         
@@ -147,10 +172,6 @@ public class ProductWiseStrategy implements CouponStrategy {
             breakdown.setDiscountPercentage(coupon.getDiscountValue());
         }
         
-        String message = applicable 
-            ? "Coupon applicable to eligible products" 
-            : "No applicable products found in cart or minimum quantity requirement not met";
-        
         return ApplicableCouponResponse.builder()
             .couponId(coupon.getId())
             .couponCode(coupon.getCode())
@@ -158,8 +179,8 @@ public class ProductWiseStrategy implements CouponStrategy {
             .couponType(coupon.getType())
             .totalDiscount(discount)
             .discountBreakdown(breakdown)
-            .isApplicable(applicable)
-            .applicabilityMessage(message)
+            .isApplicable(true)
+            .applicabilityMessage("Coupon applicable to eligible products")
             .build();
     }
     
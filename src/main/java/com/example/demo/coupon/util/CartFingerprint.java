@@ -0,0 +1,88 @@
+package com.example.demo.coupon.util;
+
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.PackedCart;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+public class CartFingerprint {
+    
+    private static final Comparator<CartItemRequest> CANONICAL_ORDER = Comparator
+        .comparing(CartItemRequest::getProductId)
+        .thenComparing(CartItemRequest::getUnitPrice)
+        .thenComparing(CartItemRequest::getQuantity);
+    
+    /**
+     * Return the cart lines in canonical order (product, price, quantity)
+     */
+    public static List<CartItemRequest> normalize(List<CartItemRequest> cartItems) {
+        List<CartItemRequest> sorted = new ArrayList<>(cartItems);
+        sorted.sort(CANONICAL_ORDER);
+        return sorted;
+    }
+    
+    /**
+     * Hash of a normalized cart. Product names are ignored since no strategy reads them.
+     */
+    public static String of(List<CartItemRequest> normalizedItems) {
+        StringBuilder canonical = new StringBuilder(normalizedItems.size() * 24);
+        for (CartItemRequest item : normalizedItems) {
+            canonical.append(item.getProductId()).append(':')
+                     .append(item.getQuantity()).append(':')
+                     .append(item.getUnitPrice().stripTrailingZeros().toPlainString()).append(';');
+        }
+        return sha256(canonical.toString());
+    }
+    
+    /**
+     * Same hash as {@link #of(List)} for a packed cart already sorted with {@link PackedCart#normalize()},
+     * built without materializing the lines, so binary and JSON requests share memoized evaluations
+     */
+    public static String of(PackedCart normalizedCart) {
+        StringBuilder canonical = new StringBuilder(normalizedCart.size() * 24);
+        for (int i = 0; i < normalizedCart.size(); i++) {
+            canonical.append(normalizedCart.productId(i)).append(':')
+                     .append(normalizedCart.quantity(i)).append(':');
+            appendPlainPrice(canonical, normalizedCart.unitPrice(i), normalizedCart.getPriceScale());
+            canonical.append(';');
+        }
+        return sha256(canonical.toString());
+    }
+    
+    /**
+     * Append minor units as BigDecimal.stripTrailingZeros().toPlainString() would print them
+     */
+    private static void appendPlainPrice(StringBuilder canonical, long minorUnits, int scale) {
+        while (scale > 0 && minorUnits % 10 == 0) {
+            minorUnits /= 10;
+            scale--;
+        }
+        if (scale == 0) {
+            canonical.append(minorUnits);
+            return;
+        }
+        String digits = Long.toString(minorUnits);
+        if (digits.length() <= scale) {
+            canonical.append("0.");
+            canonical.append("0".repeat(scale - digits.length())).append(digits);
+        } else {
+            canonical.append(digits, 0, digits.length() - scale).append('.')
+                     .append(digits, digits.length() - scale, digits.length());
+        }
+    }
+    
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
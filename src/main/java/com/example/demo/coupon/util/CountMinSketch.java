@@ -0,0 +1,67 @@
+package com.example.demo.coupon.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free Count-Min Sketch for long keys.
+ * Estimates never undercount; with width w and depth d they overcount by more than
+ * e/w of the total with probability at most e^-d.
+ */
+public class CountMinSketch {
+    
+    private final AtomicLongArray counters;
+    private final int width;
+    private final int depth;
+    
+    public CountMinSketch(int width, int depth) {
+        this.width = Math.max(16, width);
+        this.depth = Math.max(1, depth);
+        this.counters = new AtomicLongArray(this.width * this.depth);
+    }
+    
+    /**
+     * Add to the key's count and return its new estimate
+     */
+    public long add(long key, long count) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = ((h1 + row * h2) & Integer.MAX_VALUE) % width;
+            estimate = Math.min(estimate, counters.addAndGet(row * width + column, count));
+        }
+        return estimate;
+    }
+    
+    public long estimate(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = ((h1 + row * h2) & Integer.MAX_VALUE) % width;
+            estimate = Math.min(estimate, counters.get(row * width + column));
+        }
+        return estimate;
+    }
+    
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+    
+    /**
+     * murmur3 64-bit finalizer
+     */
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93c185ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.coupon.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes RFC 4180 CSV in UTF-8, quoting fields only where needed. Nulls become empty fields, and text
+ * that a spreadsheet would run as a formula is prefixed with a single quote. Numbers are written as is.
+ * Closing the writer flushes it but leaves the underlying stream open.
+ */
+public class CsvWriter implements Closeable {
+    
+    private final BufferedWriter writer;
+    
+    public CsvWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+    
+    public void writeRow(Object... fields) {
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (fields[i] instanceof Number) {
+                    writer.write(fields[i].toString());
+                } else if (fields[i] != null) {
+                    writer.write(escape(neutralize(fields[i].toString())));
+                }
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+    
+    private static String neutralize(String value) {
+        if (value.isEmpty()) {
+            return value;
+        }
+        return switch (value.charAt(0)) {
+            case '=', '+', '-', '@', '\t', '\r' -> "'" + value;
+            default -> value;
+        };
+    }
+    
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
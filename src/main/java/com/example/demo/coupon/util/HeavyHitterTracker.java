@@ -0,0 +1,167 @@
+package com.example.demo.coupon.util;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streaming top-K over long keys in fixed memory: a Count-Min Sketch counts every key and a
+ * Space-Saving table of {@code capacity} entries keeps the current leaders.
+ *
+ * <p>Recording is lock-free for keys already in the table. A key that overtakes the smallest entry
+ * replaces it under a tryLock; if another thread holds the lock the admission is skipped and retried
+ * on the key's next occurrence, so callers never block.
+ *
+ * <p>The smallest entry comes from a min-heap of count snapshots. Counts only grow, so a heap top
+ * whose snapshot still matches its count is the true minimum; a stale top is re-filed at its
+ * current count. Finding the minimum therefore costs O(log capacity) amortized rather than a scan,
+ * and the admission threshold is refreshed on every admission attempt, admitted or not.
+ */
+public class HeavyHitterTracker {
+    
+    private final CountMinSketch sketch;
+    private final int capacity;
+    private final Map<Long, Entry> entries;
+    private final ReentrantLock admissionLock = new ReentrantLock();
+    private final PriorityQueue<Snapshot> smallestFirst; // Guarded by admissionLock
+    private final LongAdder total = new LongAdder();
+    private volatile long admissionThreshold; // Smallest count in a full table, refreshed on each admission attempt
+    
+    public HeavyHitterTracker(int capacity, int sketchWidth, int sketchDepth) {
+        this.capacity = Math.max(1, capacity);
+        this.sketch = new CountMinSketch(sketchWidth, sketchDepth);
+        this.entries = new ConcurrentHashMap<>(this.capacity * 2);
+        this.smallestFirst = new PriorityQueue<>(this.capacity, Comparator.comparingLong(snapshot -> snapshot.count));
+    }
+    
+    public void record(long key) {
+        total.increment();
+        long estimate = sketch.add(key, 1);
+        
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.count.accumulateAndGet(estimate, Math::max);
+            entry.observed.increment();
+            return;
+        }
+        if (estimate > admissionThreshold && admissionLock.tryLock()) {
+            try {
+                admit(key, estimate);
+            } finally {
+                admissionLock.unlock();
+            }
+        }
+    }
+    
+    private void admit(long key, long estimate) {
+        if (entries.containsKey(key)) {
+            return;
+        }
+        if (entries.size() < capacity) {
+            insert(new Entry(key, estimate));
+            return;
+        }
+        
+        Snapshot smallest = smallest();
+        if (estimate > smallest.count) {
+            // Space-Saving replacement: the newcomer starts from its sketch estimate, which covers its uses before admission
+            smallestFirst.poll();
+            entries.remove(smallest.entry.key);
+            insert(new Entry(key, estimate));
+            smallest = smallest();
+        }
+        admissionThreshold = smallest.count;
+    }
+    
+    private void insert(Entry entry) {
+        entries.put(entry.key, entry);
+        smallestFirst.add(new Snapshot(entry, entry.count.get()));
+    }
+    
+    /**
+     * Heap top once its snapshot is current; stale tops are re-filed at their current count
+     */
+    private Snapshot smallest() {
+        while (true) {
+            Snapshot top = smallestFirst.peek();
+            long current = top.entry.count.get();
+            if (current == top.count) {
+                return top;
+            }
+            smallestFirst.poll();
+            smallestFirst.add(new Snapshot(top.entry, current));
+        }
+    }
+    
+    /**
+     * Current leaders by estimated count, highest first
+     */
+    public List<HeavyHitter> top(int limit) {
+        List<HeavyHitter> hitters = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            long count = entry.count.get();
+            hitters.add(new HeavyHitter(entry.key, count, Math.min(count, entry.observed.sum())));
+        }
+        hitters.sort(Comparator.comparingLong(HeavyHitter::getEstimatedCount).reversed());
+        return hitters.size() > limit ? new ArrayList<>(hitters.subList(0, limit)) : hitters;
+    }
+    
+    public long total() {
+        return total.sum();
+    }
+    
+    public void reset() {
+        admissionLock.lock();
+        try {
+            entries.clear();
+            smallestFirst.clear();
+            sketch.clear();
+            total.reset();
+            admissionThreshold = 0;
+        } finally {
+            admissionLock.unlock();
+        }
+    }
+    
+    /**
+     * A tracked key. The true count lies between guaranteedCount and estimatedCount.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class HeavyHitter {
+        private final long key;
+        private final long estimatedCount;
+        private final long guaranteedCount;
+    }
+    
+    private static final class Snapshot {
+        private final Entry entry;
+        private final long count;
+        
+        Snapshot(Entry entry, long count) {
+            this.entry = entry;
+            this.count = count;
+        }
+    }
+    
+    private static final class Entry {
+        private final long key;
+        private final AtomicLong count; // sketch estimate, never below the true count
+        private final LongAdder observed = new LongAdder(); // occurrences seen since admission, never above it
+        
+        Entry(long key, long count) {
+            this.key = key;
+            this.count = new AtomicLong(count);
+            this.observed.increment();
+        }
+    }
+}
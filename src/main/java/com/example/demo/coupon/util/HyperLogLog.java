@@ -0,0 +1,103 @@
+package com.example.demo.coupon.util;
+
+/**
+ * HyperLogLog distinct-count sketch for long keys, one byte per register.
+ * With 2^p registers the standard error is about 1.04 / sqrt(2^p); sketches of the same
+ * precision merge losslessly, so distinct counts over a range come from merging per-day sketches.
+ */
+public class HyperLogLog {
+    
+    private final byte[] registers;
+    private final int precision;
+    
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+    
+    private HyperLogLog(byte[] registers) {
+        this.precision = Integer.numberOfTrailingZeros(registers.length);
+        this.registers = registers;
+    }
+    
+    /**
+     * Restore a sketch from {@link #toBytes()}
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length < 1 << 4 || bytes.length > 1 << 18 || Integer.bitCount(bytes.length) != 1) {
+            throw new IllegalArgumentException("Not a HyperLogLog register array: " + bytes.length + " bytes");
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+    
+    public void add(long key) {
+        long hash = mix(key);
+        int index = (int) (hash >>> (64 - precision));
+        // Position of the first set bit after the index bits; the sentinel bounds it
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+    
+    /**
+     * Fold another sketch of the same precision into this one
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of different precision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+    
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting is more accurate for small cardinalities
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+    
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+    
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+    
+    /**
+     * murmur3 64-bit finalizer
+     */
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93c185ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.coupon.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one execution.
+ * Callers arriving while a computation is in flight wait for and share its result;
+ * the key is released as soon as the computation completes.
+ */
+public class SingleFlight<K, V> {
+    
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    
+    public V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException : e;
+            }
+        }
+        
+        executions.incrementAndGet();
+        try {
+            V value = computation.get();
+            future.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors too, or waiters would block forever on a future nobody completes
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+    
+    public long getExecutions() {
+        return executions.get();
+    }
+    
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -1,7 +1,7 @@
 package com.example.demo.coupon.validator;
 
 import com.example.demo.coupon.dto.CartItemRequest;
-import com.example.demo.coupon.exception.InvalidCouponException;
+import com.example.demo.coupon.dto.PackedCart;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -16,25 +16,68 @@ public class CartValidator {
      * Validate cart items
      */
     public void validateCartItems(List<CartItemRequest> cartItems) {
+        checkCartItems(cartItems).orThrow();
+    }
+    
+    /**
+     * Non-throwing variant of validateCartItems
+     */
+    public ValidationResult checkCartItems(List<CartItemRequest> cartItems) {
         if (cartItems == null || cartItems.isEmpty()) {
-            throw new InvalidCouponException("Cart items cannot be empty");
+            return ValidationResult.invalid(ValidationResult.Reason.CART_EMPTY, "Cart items cannot be empty");
         }
         
         for (CartItemRequest item : cartItems) {
             if (item.getProductId() == null) {
-                throw new InvalidCouponException("Product ID is required for all cart items");
+                return ValidationResult.invalid(ValidationResult.Reason.MISSING_PRODUCT_ID,
+                    "Product ID is required for all cart items");
             }
             
             if (item.getQuantity() == null || item.getQuantity() <= 0) {
-                throw new InvalidCouponException(
+                return ValidationResult.invalid(ValidationResult.Reason.INVALID_QUANTITY,
                     String.format("Quantity must be positive for product %d", item.getProductId()));
             }
             
             if (item.getUnitPrice() == null || item.getUnitPrice().compareTo(BigDecimal.ZERO) <= 0) {
-                throw new InvalidCouponException(
+                return ValidationResult.invalid(ValidationResult.Reason.INVALID_UNIT_PRICE,
                     String.format("Unit price must be positive for product %d", item.getProductId()));
             }
         }
+        
+        return ValidationResult.VALID;
+    }
+    
+    public void validatePackedCart(PackedCart cart) {
+        checkPackedCart(cart).orThrow();
+    }
+    
+    /**
+     * Same checks as checkCartItems on the primitive lines of a binary-encoded cart
+     */
+    public ValidationResult checkPackedCart(PackedCart cart) {
+        if (cart.size() == 0) {
+            return ValidationResult.invalid(ValidationResult.Reason.CART_EMPTY, "Cart items cannot be empty");
+        }
+        
+        for (int i = 0; i < cart.size(); i++) {
+            // The encoding has no absent value; 0 is what a missing product ID is encoded as
+            if (cart.productId(i) <= 0) {
+                return ValidationResult.invalid(ValidationResult.Reason.MISSING_PRODUCT_ID,
+                    "Product ID is required for all cart items");
+            }
+            
+            if (cart.quantity(i) <= 0) {
+                return ValidationResult.invalid(ValidationResult.Reason.INVALID_QUANTITY,
+                    String.format("Quantity must be positive for product %d", cart.productId(i)));
+            }
+            
+            if (cart.unitPrice(i) <= 0) {
+                return ValidationResult.invalid(ValidationResult.Reason.INVALID_UNIT_PRICE,
+                    String.format("Unit price must be positive for product %d", cart.productId(i)));
+            }
+        }
+        
+        return ValidationResult.VALID;
     }
     
     /**
@@ -20,51 +20,93 @@ public class CouponValidator {
      */
     public void validateCouponApplicable(Coupon coupon, Long userId, 
                                          Long userUsageCount) {
-        LocalDateTime now = LocalDateTime.now();
+        checkCouponApplicable(coupon, userId, userUsageCount, LocalDateTime.now()).orThrow();
+    }
+    
+    /**
+     * Non-throwing variant of validateCouponApplicable for evaluation loops
+     */
+    public ValidationResult checkCouponApplicable(Coupon coupon, Long userId, Long userUsageCount,
+                                                  LocalDateTime now) {
+        ValidationResult.Reason reason = redeemableReason(coupon, now);
+        
+        // Check per-user usage limit
+        if (reason == null && userId != null && coupon.getMaxUsagePerUser() != null && 
+            userUsageCount != null && userUsageCount >= coupon.getMaxUsagePerUser()) {
+            reason = ValidationResult.Reason.USER_LIMIT_REACHED;
+        }
         
+        return reason == null ? ValidationResult.VALID : ValidationResult.invalid(reason, describe(reason, coupon));
+    }
+    
+    /**
+     * Why the coupon cannot be redeemed at all (status, dates, global limit), or null if it can.
+     * No message is built; callers that need one ask {@link #describe} for it.
+     */
+    public ValidationResult.Reason redeemableReason(Coupon coupon, LocalDateTime now) {
         // Check if coupon is active
-        if (!coupon.getIsActive() || coupon.getIsActive() == null) {
-            throw new InvalidCouponException("Coupon is not active");
+        if (coupon.getIsActive() == null || !coupon.getIsActive()) {
+            return ValidationResult.Reason.INACTIVE;
         }
         
         // Check date range
         if (now.isBefore(coupon.getStartDate())) {
-            throw new InvalidCouponException("Coupon is not yet active. Valid from: " + coupon.getStartDate());
+            return ValidationResult.Reason.NOT_STARTED;
         }
         
         if (now.isAfter(coupon.getEndDate())) {
-            throw new InvalidCouponException("Coupon has expired. Valid until: " + coupon.getEndDate());
+            return ValidationResult.Reason.EXPIRED;
         }
         
         // Check global usage limit
         if (coupon.getMaxUsage() != null && coupon.getCurrentUsage() >= coupon.getMaxUsage()) {
-            throw new InvalidCouponException("Coupon usage limit exceeded");
+            return ValidationResult.Reason.USAGE_LIMIT_REACHED;
         }
         
-        // Check per-user usage limit
-        if (userId != null && coupon.getMaxUsagePerUser() != null && 
-            userUsageCount != null && userUsageCount >= coupon.getMaxUsagePerUser()) {
-            throw new InvalidCouponException("User has exceeded the usage limit for this coupon");
-        }
+        return null;
+    }
+    
+    /**
+     * Message for a reason returned by {@link #redeemableReason} or checkCouponApplicable
+     */
+    public String describe(ValidationResult.Reason reason, Coupon coupon) {
+        return switch (reason) {
+            case INACTIVE -> "Coupon is not active";
+            case NOT_STARTED -> "Coupon is not yet active. Valid from: " + coupon.getStartDate();
+            case EXPIRED -> "Coupon has expired. Valid until: " + coupon.getEndDate();
+            case USAGE_LIMIT_REACHED -> "Coupon usage limit exceeded";
+            case USER_LIMIT_REACHED -> "User has exceeded the usage limit for this coupon";
+            default -> throw new IllegalArgumentException("Not a coupon applicability reason: " + reason);
+        };
     }
     
     /**
      * Validate cart-wise coupon requirements
      */
     public void validateCartWiseCoupon(CartWiseCoupon coupon, BigDecimal cartTotal) {
+        checkCartWiseCoupon(coupon, cartTotal).orThrow();
+    }
+    
+    /**
+     * Non-throwing variant of validateCartWiseCoupon
+     */
+    public ValidationResult checkCartWiseCoupon(CartWiseCoupon coupon, BigDecimal cartTotal) {
         if (coupon.getMinCartAmount() == null) {
-            throw new InvalidCouponException("Minimum cart amount is required for cart-wise coupon");
+            return ValidationResult.invalid(ValidationResult.Reason.MIN_CART_AMOUNT_MISSING,
+                "Minimum cart amount is required for cart-wise coupon");
         }
         
         if (cartTotal == null || cartTotal.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new InvalidCouponException("Cart total must be greater than zero");
+            return ValidationResult.invalid(ValidationResult.Reason.CART_EMPTY, "Cart total must be greater than zero");
         }
         
         if (cartTotal.compareTo(coupon.getMinCartAmount()) < 0) {
-            throw new InvalidCouponException(
+            return ValidationResult.invalid(ValidationResult.Reason.BELOW_MIN_CART_AMOUNT,
                 String.format("Cart total (%.2f) is less than minimum required (%.2f)", 
                     cartTotal, coupon.getMinCartAmount()));
         }
+        
+        return ValidationResult.VALID;
     }
     
     /**
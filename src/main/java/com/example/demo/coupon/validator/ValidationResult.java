@@ -0,0 +1,56 @@
+package com.example.demo.coupon.validator;
+
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import com.example.demo.coupon.exception.InvalidCouponException;
+import lombok.Getter;
+
+/**
+ * Outcome of a non-throwing validation. Hot paths branch on {@link #isValid()};
+ * request boundaries call {@link #orThrow()} to turn a failure into the usual exception.
+ */
+@Getter
+public final class ValidationResult {
+    
+    public enum Reason {
+        CART_EMPTY,
+        MISSING_PRODUCT_ID,
+        INVALID_QUANTITY,
+        INVALID_UNIT_PRICE,
+        INACTIVE,
+        NOT_STARTED,
+        EXPIRED,
+        USAGE_LIMIT_REACHED,
+        USER_LIMIT_REACHED,
+        MIN_CART_AMOUNT_MISSING,
+        BELOW_MIN_CART_AMOUNT
+    }
+    
+    public static final ValidationResult VALID = new ValidationResult(null, null);
+    
+    private final Reason reason;   // null when valid
+    private final String message;
+    
+    private ValidationResult(Reason reason, String message) {
+        this.reason = reason;
+        this.message = message;
+    }
+    
+    public static ValidationResult invalid(Reason reason, String message) {
+        return new ValidationResult(reason, message);
+    }
+    
+    public boolean isValid() {
+        return reason == null;
+    }
+    
+    public void orThrow() {
+        if (reason == null) {
+            return;
+        }
+        switch (reason) {
+            case USAGE_LIMIT_REACHED -> throw new CouponUsageLimitExceededException(message, false);
+            case USER_LIMIT_REACHED -> throw new CouponUsageLimitExceededException(message, true);
+            default -> throw new InvalidCouponException(message);
+        }
+    }
+}
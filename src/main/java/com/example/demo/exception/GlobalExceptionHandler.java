@@ -1,17 +1,23 @@
 package com.example.demo.exception;
 
 import com.example.demo.coupon.exception.*;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.HashMap;
 import java.util.Map;
 
 @ControllerAdvice
+@Slf4j
 public class GlobalExceptionHandler {
     
     @ExceptionHandler(CouponNotFoundException.class)
@@ -22,6 +28,38 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
     
+    @ExceptionHandler(EvaluationSessionNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleEvaluationSessionNotFoundException(EvaluationSessionNotFoundException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Evaluation session not found");
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
+    
+    @ExceptionHandler(ReservationNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleReservationNotFoundException(ReservationNotFoundException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Reservation not found");
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
+    
+    @ExceptionHandler(ExportLimitExceededException.class)
+    public ResponseEntity<Map<String, String>> handleExportLimitExceededException(ExportLimitExceededException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Too many exports");
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+    
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidIdempotencyKeyException(InvalidIdempotencyKeyException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Invalid idempotency key");
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+    }
+    
     @ExceptionHandler(InvalidCouponException.class)
     public ResponseEntity<Map<String, String>> handleInvalidCouponException(InvalidCouponException ex) {
         Map<String, String> error = new HashMap<>();
@@ -46,12 +84,39 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
     
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<Map<String, String>> handleHttpMessageNotReadableException(HttpMessageNotReadableException ex) {
+        Map<String, String> error = new HashMap<>();
+        // The parser's message quotes the request body back, so it is only logged
+        log.warn("Unreadable request body: {}", ex.getMostSpecificCause().getMessage());
+        error.put("error", "Malformed request");
+        error.put("message", "Request body is missing or could not be read");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+    
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<Map<String, String>> handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Invalid parameter");
+        error.put("message", String.format("Invalid value '%s' for parameter '%s'", ex.getValue(), ex.getName()));
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+    
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException ex) {
+        return validationFailed(ex.getBindingResult());
+    }
+    
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, Object>> handleReactiveValidationExceptions(WebExchangeBindException ex) {
+        return validationFailed(ex.getBindingResult());
+    }
+    
+    private ResponseEntity<Map<String, Object>> validationFailed(BindingResult bindingResult) {
         Map<String, Object> errors = new HashMap<>();
         Map<String, String> fieldErrors = new HashMap<>();
         
-        ex.getBindingResult().getAllErrors().forEach((error) -> {
+        bindingResult.getAllErrors().forEach((error) -> {
             String fieldName = ((FieldError) error).getField();
             String errorMessage = error.getDefaultMessage();
             fieldErrors.put(fieldName, errorMessage);
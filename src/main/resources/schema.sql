@@ -19,6 +19,7 @@ CREATE TABLE IF NOT EXISTS coupons (
     end_date TIMESTAMP NOT NULL,
     max_usage INT,                      -- NULL means unlimited
     current_usage INT NOT NULL DEFAULT 0,
+    leased_usage INT NOT NULL DEFAULT 0,  -- quota leased to application nodes, not yet in current_usage
     max_usage_per_user INT,             -- NULL means unlimited per user
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
@@ -80,10 +81,74 @@ CREATE TABLE IF NOT EXISTS coupon_usages (
     cart_id VARCHAR(255),
     discount_amount DECIMAL(10, 2),
     used_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    quota_lease_id BIGINT,              -- quota lease the use was served from, if any
     UNIQUE KEY unique_usage (coupon_id, user_id, cart_id),
     FOREIGN KEY (coupon_id) REFERENCES coupons(id) ON DELETE CASCADE,
     INDEX idx_user_id (user_id),
     INDEX idx_cart_id (cart_id),
-    INDEX idx_used_at (used_at)
+    INDEX idx_used_at (used_at),
+    INDEX idx_quota_lease_id (quota_lease_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Blocks of global-limit quota leased by application nodes
+CREATE TABLE IF NOT EXISTS coupon_quota_leases (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    coupon_id BIGINT NOT NULL,
+    node_id VARCHAR(64) NOT NULL,
+    granted INT NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (coupon_id) REFERENCES coupons(id) ON DELETE CASCADE,
+    INDEX idx_lease_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Stored responses of redemptions made with an Idempotency-Key
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    request_fingerprint VARCHAR(255) NOT NULL,
+    response_body TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    INDEX idx_idempotency_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Redemptions per coupon per day, rolled up incrementally from coupon_usages
+CREATE TABLE IF NOT EXISTS coupon_usage_daily (
+    coupon_id BIGINT NOT NULL,
+    usage_date DATE NOT NULL,
+    redemptions BIGINT NOT NULL,
+    discount_total DECIMAL(14, 2) NOT NULL,
+    user_sketch VARBINARY(4096) NOT NULL,  -- HyperLogLog registers over the day's user ids
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (coupon_id, usage_date),
+    INDEX idx_usage_daily_date (usage_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- High-water marks of incremental rollups
+CREATE TABLE IF NOT EXISTS rollup_watermarks (
+    name VARCHAR(64) PRIMARY KEY,
+    last_id BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Archived coupon_usages rows, in gzip-compressed NDJSON chunks
+CREATE TABLE IF NOT EXISTS coupon_usage_archive (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    first_usage_id BIGINT NOT NULL,
+    last_usage_id BIGINT NOT NULL,
+    row_count INT NOT NULL,
+    oldest_used_at TIMESTAMP NOT NULL,
+    newest_used_at TIMESTAMP NOT NULL,
+    payload MEDIUMBLOB NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_archive_newest_used_at (newest_used_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Per-user usage counts of archived rows, added to the live rows by per-user limit checks
+CREATE TABLE IF NOT EXISTS coupon_usage_archived_counts (
+    coupon_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    usage_count BIGINT NOT NULL,
+    PRIMARY KEY (coupon_id, user_id),
+    INDEX idx_archived_counts_user (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
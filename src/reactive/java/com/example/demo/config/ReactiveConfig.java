@@ -0,0 +1,30 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Infrastructure for the reactive profile, where both stacks share the application:
+ * WebFlux and R2DBC serve evaluation and redemption on {@link ReactiveServer}, while the servlet
+ * stack and JPA keep serving every endpoint and the catalog.
+ */
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfig {
+    
+    /**
+     * The DataSource auto-configuration backs off once an R2DBC ConnectionFactory exists,
+     * so the JDBC pool used by JPA is declared here from the usual spring.datasource properties
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.config;
+
+import com.example.demo.coupon.controller.ReactiveCouponController;
+import com.example.demo.coupon.service.ReactiveCouponApplicationService;
+import com.example.demo.exception.GlobalExceptionHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.reactive.config.WebFluxConfigurationSupport;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+
+import java.util.Map;
+
+/**
+ * Netty server for the reactive endpoints, running next to the servlet server so both serving models
+ * answer the same paths from the same catalog, each on its own port. The endpoints live in a separate
+ * context with its own WebFlux infrastructure, which is handed the application's service, ObjectMapper
+ * and exception handler. It cannot be a child context: WebFlux refuses to start under one that has
+ * Spring MVC configured.
+ */
+@Component
+@Slf4j
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveServer implements SmartLifecycle {
+    
+    // Port the server is listening on, for clients that configured port 0
+    public static final String PORT_PROPERTY = "local.reactive.port";
+    
+    private final ReactiveCouponApplicationService couponApplicationService;
+    private final GlobalExceptionHandler globalExceptionHandler;
+    private final ObjectMapper objectMapper;
+    private final ConfigurableEnvironment environment;
+    
+    @Value("${coupon.reactive.port:8081}")
+    private int port;
+    
+    private AnnotationConfigApplicationContext webContext;
+    private WebServer webServer;
+    
+    @Override
+    public void start() {
+        webContext = new AnnotationConfigApplicationContext();
+        ConfigurableListableBeanFactory beanFactory = webContext.getBeanFactory();
+        beanFactory.registerSingleton("reactiveCouponApplicationService", couponApplicationService);
+        beanFactory.registerSingleton("globalExceptionHandler", globalExceptionHandler);
+        beanFactory.registerSingleton("objectMapper", objectMapper);
+        webContext.register(WebConfig.class, ReactiveCouponController.class);
+        webContext.refresh();
+        
+        webServer = new NettyReactiveWebServerFactory(port)
+            .getWebServer(WebHttpHandlerBuilder.applicationContext(webContext).build());
+        webServer.start();
+        environment.getPropertySources().addFirst(
+            new MapPropertySource("reactive.server.ports", Map.of(PORT_PROPERTY, webServer.getPort())));
+        log.info("Reactive endpoints served on port {}", webServer.getPort());
+    }
+    
+    @Override
+    public void stop() {
+        webServer.stop();
+        webContext.close();
+        webServer = null;
+        webContext = null;
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return webServer != null;
+    }
+    
+    /**
+     * WebFlux for the server's context. Controllers are the classes registered with it, which carry
+     * {@code @RequestMapping} but no stereotype so the servlet stack does not map them as well.
+     */
+    static class WebConfig extends WebFluxConfigurationSupport {
+        
+        private final ObjectMapper objectMapper;
+        
+        WebConfig(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+        
+        @Override
+        protected RequestMappingHandlerMapping createRequestMappingHandlerMapping() {
+            return new RequestMappingHandlerMapping() {
+                @Override
+                protected boolean isHandler(Class<?> beanType) {
+                    return AnnotatedElementUtils.hasAnnotation(beanType, RequestMapping.class);
+                }
+            };
+        }
+        
+        @Override
+        protected void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+            // The application's Jackson settings, as on the servlet endpoints
+            configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+            configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.coupon.controller;
+
+import com.example.demo.coupon.dto.ApplicableCouponResponse;
+import com.example.demo.coupon.dto.ApplicableCouponsResponse;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.CartResponse;
+import com.example.demo.coupon.dto.CouponView;
+import com.example.demo.coupon.service.ReactiveCouponApplicationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux variant of the evaluation and apply endpoints, served by {@link com.example.demo.config.ReactiveServer}
+ * on its own port next to {@link CouponController}. Paths and payloads are identical so the two
+ * serving models can be compared under the same load. Registered with the reactive server's context
+ * only, hence no stereotype annotation.
+ */
+@CrossOrigin(origins = "*")
+@RequestMapping("/api/coupons")
+@RequiredArgsConstructor
+@Tag(name = "Coupon Evaluation (reactive)", description = "Non-blocking evaluation and application of coupons")
+public class ReactiveCouponController {
+    
+    private final ReactiveCouponApplicationService couponApplicationService;
+    
+    @Operation(summary = "Get all applicable coupons for a cart")
+    @PostMapping("/applicable-coupons")
+    public Mono<ResponseEntity<ApplicableCouponsResponse>> getApplicableCoupons(
+            @Valid @RequestBody CartRequest cartRequest,
+            @Parameter(description = "Include a per-coupon evaluation trace") @RequestParam(defaultValue = "false") boolean explain,
+            @Parameter(description = "COMPACT returns only coupon id, code and discount") @RequestParam(defaultValue = "FULL") CouponView view) {
+        return couponApplicationService.getApplicableCoupons(cartRequest, explain, view)
+            .map(ResponseEntity::ok);
+    }
+    
+    @Operation(summary = "Get the applicable coupon with the highest discount for a cart")
+    @ApiResponse(responseCode = "204", description = "No coupon applies to the cart")
+    @PostMapping("/applicable-coupons/best")
+    public Mono<ResponseEntity<ApplicableCouponResponse>> getBestCoupon(@Valid @RequestBody CartRequest cartRequest) {
+        return couponApplicationService.getBestCoupon(cartRequest)
+            .map(ResponseEntity::ok)
+            .defaultIfEmpty(ResponseEntity.noContent().build());
+    }
+    
+    @Operation(summary = "Apply a coupon to a cart")
+    @PostMapping("/apply-coupon/{couponId}")
+    public Mono<ResponseEntity<CartResponse>> applyCoupon(
+            @Parameter(description = "Coupon ID") @PathVariable Long couponId,
+            @Valid @RequestBody CartRequest cartRequest) {
+        return couponApplicationService.applyCoupon(couponId, cartRequest)
+            .map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.coupon.repository;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Non-blocking access to coupon usage for the reactive endpoints. Reads and writes the same
+ * tables as the JPA repositories; redemptions increment the global counter with a conditional
+ * UPDATE instead of a read-modify-write of the entity.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveCouponUsageRepository {
+    
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    
+    public ReactiveCouponUsageRepository(DatabaseClient databaseClient, ConnectionFactory connectionFactory) {
+        this.databaseClient = databaseClient;
+        // Not a bean: a second transaction manager would make the JPA one ambiguous for @Transactional
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+    
+    public Mono<Boolean> existsById(Long couponId) {
+        return databaseClient.sql("SELECT COUNT(*) AS matches FROM coupons WHERE id = :couponId")
+            .bind("couponId", couponId)
+            .map(row -> row.get("matches", Long.class))
+            .one()
+            .map(matches -> matches > 0);
+    }
+    
+    public Mono<Long> countByCouponIdAndUserId(Long couponId, Long userId) {
+        return databaseClient.sql("SELECT (SELECT COUNT(*) FROM coupon_usages WHERE coupon_id = :couponId AND user_id = :userId) "
+                + "+ COALESCE((SELECT usage_count FROM coupon_usage_archived_counts "
+                + "WHERE coupon_id = :couponId AND user_id = :userId), 0) AS usage_count")
+            .bind("couponId", couponId)
+            .bind("userId", userId)
+            .map(row -> ((Number) row.get("usage_count")).longValue())
+            .one();
+    }
+    
+    /**
+     * Usage count per coupon for one user, archived uses included; coupons the user never used are absent
+     */
+    public Mono<Map<Long, Long>> countByCouponIdsAndUserId(Collection<Long> couponIds, Long userId) {
+        return databaseClient.sql("SELECT coupon_id, SUM(usage_count) AS usage_count FROM ("
+                + "SELECT coupon_id, COUNT(*) AS usage_count FROM coupon_usages "
+                + "WHERE user_id = :userId AND coupon_id IN (:couponIds) GROUP BY coupon_id "
+                + "UNION ALL SELECT coupon_id, usage_count FROM coupon_usage_archived_counts "
+                + "WHERE user_id = :userId AND coupon_id IN (:couponIds)) u GROUP BY coupon_id")
+            .bind("userId", userId)
+            .bind("couponIds", couponIds)
+            .map(row -> Map.entry(row.get("coupon_id", Long.class), ((Number) row.get("usage_count")).longValue()))
+            .all()
+            .collect(HashMap::new, (counts, entry) -> counts.put(entry.getKey(), entry.getValue()));
+    }
+    
+    /**
+     * Increment the global usage counter unless the coupon is already used up, quota leased to nodes included.
+     * Emits the new counter value, or completes empty if the limit was reached.
+     */
+    public Mono<Integer> incrementUsage(Long couponId, LocalDateTime now) {
+        return databaseClient.sql("UPDATE coupons SET current_usage = current_usage + 1, updated_at = :now "
+                + "WHERE id = :couponId AND (max_usage IS NULL OR current_usage + leased_usage < max_usage)")
+            .bind("now", now)
+            .bind("couponId", couponId)
+            .fetch()
+            .rowsUpdated()
+            .filter(updated -> updated > 0)
+            .flatMap(updated -> databaseClient.sql("SELECT current_usage FROM coupons WHERE id = :couponId")
+                .bind("couponId", couponId)
+                .map(row -> row.get("current_usage", Integer.class))
+                .one());
+    }
+    
+    public Mono<Void> insertUsage(Long couponId, Long userId, String cartId, BigDecimal discountAmount,
+                                  LocalDateTime usedAt) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("INSERT INTO coupon_usages "
+                + "(coupon_id, user_id, cart_id, discount_amount, used_at) "
+                + "VALUES (:couponId, :userId, :cartId, :discountAmount, :usedAt)")
+            .bind("couponId", couponId)
+            .bind("cartId", cartId)
+            .bind("discountAmount", discountAmount)
+            .bind("usedAt", usedAt);
+        spec = userId != null ? spec.bind("userId", userId) : spec.bindNull("userId", Long.class);
+        return spec.then();
+    }
+    
+    /**
+     * Run the publisher in one database transaction
+     */
+    public <T> Mono<T> inTransaction(Mono<T> work) {
+        return transactionalOperator.transactional(work);
+    }
+}
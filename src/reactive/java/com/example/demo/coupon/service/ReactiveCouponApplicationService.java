@@ -0,0 +1,203 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.cache.ApplicableCouponCache;
+import com.example.demo.coupon.cache.CouponCatalog;
+import com.example.demo.coupon.dto.*;
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.example.demo.coupon.exception.CouponNotFoundException;
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import com.example.demo.coupon.exception.InvalidCouponException;
+import com.example.demo.coupon.metrics.CouponMetrics;
+import com.example.demo.coupon.metrics.HeavyHitters;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.repository.ReactiveCouponUsageRepository;
+import com.example.demo.coupon.util.CartFingerprint;
+import com.example.demo.coupon.validator.CartValidator;
+import com.example.demo.coupon.validator.CouponValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of {@link CouponApplicationService} for the reactive profile.
+ * Evaluation and pricing are shared with the blocking path through {@link CouponEvaluator};
+ * usage lookups and redemptions go through R2DBC, and the only blocking work left -
+ * reloading the catalog snapshot - is moved off the event loop.
+ */
+@Service
+@Slf4j
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveCouponApplicationService {
+    
+    private final ReactiveCouponUsageRepository usageRepository;
+    private final CouponValidator couponValidator;
+    private final CartValidator cartValidator;
+    private final CouponCatalog couponCatalog;
+    private final ApplicableCouponCache applicableCouponCache;
+    private final CouponEvaluator couponEvaluator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CouponMetrics couponMetrics;
+    private final HeavyHitters heavyHitters;
+    
+    public Mono<ApplicableCouponsResponse> getApplicableCoupons(CartRequest cartRequest, boolean explain) {
+        return getApplicableCoupons(cartRequest, explain, CouponView.FULL);
+    }
+    
+    public Mono<ApplicableCouponsResponse> getApplicableCoupons(CartRequest cartRequest, boolean explain,
+                                                                CouponView view) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return findApplicableCoupons(cartRequest, explain, view)
+                .doOnSuccess(response -> couponMetrics.recordApplicable(System.nanoTime() - start, true))
+                .doOnError(e -> couponMetrics.recordApplicable(System.nanoTime() - start, false));
+        });
+    }
+    
+    /**
+     * The applicable coupon with the highest discount for the cart; empty if none applies
+     */
+    public Mono<ApplicableCouponResponse> getBestCoupon(CartRequest cartRequest) {
+        return getApplicableCoupons(cartRequest, false)
+            .flatMap(response -> Mono.justOrEmpty(CouponEvaluator.best(response)));
+    }
+    
+    public Mono<CartResponse> applyCoupon(Long couponId, CartRequest cartRequest) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return redeemCoupon(couponId, cartRequest)
+                .doOnSuccess(response -> couponMetrics.recordRedemption(System.nanoTime() - start, null))
+                .doOnError(e -> couponMetrics.recordRedemption(System.nanoTime() - start, e));
+        });
+    }
+    
+    private Mono<ApplicableCouponsResponse> findApplicableCoupons(CartRequest cartRequest, boolean explain,
+                                                                  CouponView view) {
+        log.info("Getting applicable coupons for cart with {} items", cartRequest.getCartItems().size());
+        
+        // Validate cart
+        cartValidator.validateCartItems(cartRequest.getCartItems());
+        
+        // Identical carts share the memoized evaluation with the blocking endpoints
+        List<CartItemRequest> cartItems = CartFingerprint.normalize(cartRequest.getCartItems());
+        String fingerprint = CartFingerprint.of(cartItems);
+        EvaluationProfile profile = explain ? new EvaluationProfile() : null;
+        
+        return currentSnapshot()
+            .map(snapshot -> {
+                if (explain) {
+                    return couponEvaluator.evaluate(snapshot, cartItems, profile, view);
+                }
+                CartEvaluation evaluation = applicableCouponCache.getIfPresent(snapshot.getVersion(), fingerprint, view);
+                if (evaluation == null) {
+                    evaluation = couponEvaluator.evaluate(snapshot, cartItems, view);
+                    applicableCouponCache.put(snapshot.getVersion(), fingerprint, view, evaluation);
+                }
+                return evaluation;
+            })
+            .flatMap(evaluation -> userUsageCounts(evaluation, cartRequest.getUserId())
+                .map(usageCounts -> couponEvaluator.applyUsageCounts(evaluation, usageCounts, profile)))
+            .doOnNext(response -> heavyHitters.recordEvaluation(cartItems, response.getApplicableCoupons()));
+    }
+    
+    private Mono<CartResponse> redeemCoupon(Long couponId, CartRequest cartRequest) {
+        log.info("Applying coupon {} to cart", couponId);
+        
+        // Validate cart
+        cartValidator.validateCartItems(cartRequest.getCartItems());
+        
+        Long userId = cartRequest.getUserId();
+        return findCoupon(couponId)
+            .flatMap(coupon -> userUsageCount(coupon, userId)
+                .map(userUsageCount -> {
+                    // The snapshot's global counter may lag behind; the conditional update below is authoritative
+                    couponValidator.validateCouponApplicable(coupon, userId, userUsageCount);
+                    return couponEvaluator.price(coupon, cartRequest.getCartItems());
+                }))
+            .flatMap(pricedCart -> recordRedemption(pricedCart, cartRequest));
+    }
+    
+    private Mono<CartResponse> recordRedemption(PricedCart pricedCart, CartRequest cartRequest) {
+        Coupon coupon = pricedCart.getCoupon();
+        String cartId = PricedCart.newCartId(cartRequest.getUserId());
+        LocalDateTime now = LocalDateTime.now();
+        
+        // The conditional update locks the coupon row, so the per-user count below cannot race another redemption
+        Mono<Integer> redemption = usageRepository.incrementUsage(coupon.getId(), now)
+            .switchIfEmpty(Mono.error(() -> new CouponUsageLimitExceededException("Coupon usage limit exceeded", false)))
+            .flatMap(currentUsage -> userUsageCount(coupon, cartRequest.getUserId())
+                .map(userUsageCount -> {
+                    couponValidator.checkCouponApplicable(coupon, cartRequest.getUserId(), userUsageCount, now)
+                        .orThrow();
+                    return currentUsage;
+                }))
+            .flatMap(currentUsage -> usageRepository.insertUsage(coupon.getId(), cartRequest.getUserId(), cartId,
+                    pricedCart.getDiscountApplied(), now)
+                .thenReturn(currentUsage));
+        
+        return usageRepository.inTransaction(redemption)
+            .map(currentUsage -> {
+                // Committed: listeners see no JDBC transaction and run immediately
+                eventPublisher.publishEvent(CouponChangedEvent.redeemed(coupon.getId(),
+                    coupon.getMaxUsage() != null && currentUsage >= coupon.getMaxUsage(),
+                    Collections.singletonList(cartRequest.getUserId())));
+                heavyHitters.recordRedemption(coupon.getId(), cartRequest.getCartItems());
+                
+                log.info("Coupon applied successfully. Discount: {}, Final Total: {}",
+                    pricedCart.getDiscountApplied(), pricedCart.getFinalTotal());
+                return pricedCart.toResponse(cartId);
+            });
+    }
+    
+    /**
+     * Resolve a coupon from the catalog snapshot, going to the database only to tell unknown
+     * coupons apart from inactive or expired ones
+     */
+    private Mono<Coupon> findCoupon(Long couponId) {
+        return currentSnapshot().flatMap(snapshot -> {
+            Coupon coupon = snapshot.find(couponId);
+            if (coupon != null) {
+                return Mono.just(coupon);
+            }
+            return usageRepository.existsById(couponId)
+                .flatMap(exists -> Mono.error(exists
+                    ? new InvalidCouponException("Coupon is not active or has expired")
+                    : new CouponNotFoundException(couponId)));
+        });
+    }
+    
+    /**
+     * The user's usage of the coupon, or zero when there is no per-user limit to check
+     */
+    private Mono<Long> userUsageCount(Coupon coupon, Long userId) {
+        if (userId == null || coupon.getMaxUsagePerUser() == null) {
+            return Mono.just(0L);
+        }
+        return usageRepository.countByCouponIdAndUserId(coupon.getId(), userId);
+    }
+    
+    private Mono<Map<Long, Long>> userUsageCounts(CartEvaluation evaluation, Long userId) {
+        if (userId == null || evaluation.getMaxUsagePerUser().isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return usageRepository.countByCouponIdsAndUserId(evaluation.getMaxUsagePerUser().keySet(), userId);
+    }
+    
+    private Mono<CouponCatalog.Snapshot> currentSnapshot() {
+        CouponCatalog.Snapshot snapshot = couponCatalog.currentIfFresh();
+        if (snapshot != null) {
+            return Mono.just(snapshot);
+        }
+        // Reloading runs JPA queries, which block
+        return Mono.fromCallable(couponCatalog::current).subscribeOn(Schedulers.boundedElastic());
+    }
+}
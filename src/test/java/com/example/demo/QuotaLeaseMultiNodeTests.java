@@ -0,0 +1,206 @@
+package com.example.demo;
+
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.CouponRequest;
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import com.example.demo.coupon.service.CouponApplicationService;
+import com.example.demo.coupon.service.CouponService;
+import com.example.demo.coupon.service.QuotaLeaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Several application nodes in one JVM, each its own Spring context, redeeming one capped
+ * coupon against a shared in-memory H2 database with quota leasing enabled.
+ */
+class QuotaLeaseMultiNodeTests {
+    
+    private static final int NODES = 3;
+    private static final int MAX_USAGE = 150;
+    private static final int BLOCK_SIZE = 20;
+    private static final int ATTEMPTS_PER_NODE = 80;
+    
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+    
+    @Test
+    void nodesShareTheGlobalLimitThroughLeasedBlocks() throws Exception {
+        startNodes("quota-nodes");
+        JdbcTemplate jdbc = nodes.get(0).getBean(JdbcTemplate.class);
+        Long couponId = createCoupon("QUOTA-NODES", MAX_USAGE);
+        
+        AtomicInteger redeemed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(NODES * 4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (ConfigurableApplicationContext node : nodes) {
+            CouponApplicationService service = node.getBean(CouponApplicationService.class);
+            for (int attempt = 0; attempt < ATTEMPTS_PER_NODE; attempt++) {
+                futures.add(clients.submit(() -> {
+                    try {
+                        service.applyCoupon(couponId, cart());
+                        redeemed.incrementAndGet();
+                    } catch (CouponUsageLimitExceededException e) {
+                        rejected.incrementAndGet();
+                    }
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        clients.shutdown();
+        
+        assertTrue(redeemed.get() <= MAX_USAGE, "redeemed " + redeemed.get() + " of " + MAX_USAGE);
+        assertEquals(NODES * ATTEMPTS_PER_NODE, redeemed.get() + rejected.get());
+        // One coupon-row update per block rather than per redemption
+        int leases = jdbc.queryForObject("SELECT COUNT(*) FROM coupon_quota_leases WHERE coupon_id = ?", Integer.class, couponId);
+        assertTrue(leases <= (MAX_USAGE + BLOCK_SIZE - 1) / BLOCK_SIZE, leases + " leases");
+        
+        // Expire every lease and let one node settle all of them
+        expireAndSettle(jdbc, nodes.get(0));
+        
+        Map<String, Object> counters = jdbc.queryForMap(
+            "SELECT current_usage, leased_usage FROM coupons WHERE id = ?", couponId);
+        int usageRows = jdbc.queryForObject("SELECT COUNT(*) FROM coupon_usages WHERE coupon_id = ?", Integer.class, couponId);
+        assertEquals(redeemed.get(), usageRows);
+        assertEquals(redeemed.get(), ((Number) counters.get("current_usage")).intValue());
+        assertEquals(0, ((Number) counters.get("leased_usage")).intValue());
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM coupon_quota_leases", Integer.class));
+        
+        // Settlement returned the unused quota, so exactly the rest of the limit can still be redeemed
+        CouponApplicationService service = nodes.get(1).getBean(CouponApplicationService.class);
+        int more = redeemUntilRejected(service, couponId);
+        assertEquals(MAX_USAGE - redeemed.get(), more);
+        expireAndSettle(jdbc, nodes.get(0));
+        assertEquals(MAX_USAGE, jdbc.queryForObject("SELECT current_usage FROM coupons WHERE id = ?", Integer.class, couponId));
+        assertEquals(MAX_USAGE, jdbc.queryForObject("SELECT COUNT(*) FROM coupon_usages WHERE coupon_id = ?",
+            Integer.class, couponId));
+    }
+    
+    @Test
+    void rolledBackUseIsTakenFromTheBlockButNotSettled() {
+        startNodes("quota-rollback");
+        JdbcTemplate jdbc = nodes.get(0).getBean(JdbcTemplate.class);
+        Long couponId = createCoupon("QUOTA-ROLLBACK", BLOCK_SIZE);
+        CouponApplicationService service = nodes.get(0).getBean(CouponApplicationService.class);
+        
+        service.applyCoupon(couponId, cart());
+        new TransactionTemplate(nodes.get(0).getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            service.applyCoupon(couponId, cart());
+            status.setRollbackOnly();
+        });
+        // The rolled-back use still counts as taken from the block, which runs out one use early
+        assertEquals(BLOCK_SIZE - 2, redeemUntilRejected(service, couponId));
+        
+        // Settlement counts usage rows, so the rolled-back use comes back
+        expireAndSettle(jdbc, nodes.get(0));
+        assertEquals(BLOCK_SIZE - 1, jdbc.queryForObject("SELECT current_usage FROM coupons WHERE id = ?",
+            Integer.class, couponId));
+        assertEquals(1, redeemUntilRejected(service, couponId));
+    }
+    
+    @Test
+    void nodeThatIsGrantedNothingRecallsQuotaIdlingOnAnotherNode() {
+        startNodes("quota-recall");
+        Long couponId = createCoupon("QUOTA-RECALL", BLOCK_SIZE);
+        CouponApplicationService first = nodes.get(0).getBean(CouponApplicationService.class);
+        CouponApplicationService second = nodes.get(1).getBean(CouponApplicationService.class);
+        
+        // The first node's block holds the whole limit
+        first.applyCoupon(couponId, cart());
+        assertThrows(CouponUsageLimitExceededException.class, () -> second.applyCoupon(couponId, cart()));
+        
+        // The second node recalls on its sweep; the owner drops the block on its own and, with no grace, settles it
+        nodes.get(1).getBean(QuotaLeaseManager.class).settleExpiredLeases();
+        nodes.get(0).getBean(QuotaLeaseManager.class).settleExpiredLeases();
+        
+        assertEquals(BLOCK_SIZE - 1, redeemUntilRejected(second, couponId));
+    }
+    
+    private void startNodes(String database) {
+        for (int i = 0; i < NODES; i++) {
+            // Command-line arguments, so they win over application.properties
+            nodes.add(new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                    "--spring.jpa.hibernate.ddl-auto=" + (i == 0 ? "update" : "none"),
+                    "--coupon.quota.enabled=true",
+                    "--coupon.quota.block-size=" + BLOCK_SIZE,
+                    "--coupon.quota.lease-ttl=PT10M",
+                    "--coupon.quota.settle-grace=PT0S",
+                    "--coupon.quota.sweep-interval=PT1H",
+                    "--coupon.quota.node-id=node-" + i));
+        }
+    }
+    
+    private Long createCoupon(String code, int maxUsage) {
+        return nodes.get(0).getBean(CouponService.class).createCoupon(CouponRequest.builder()
+            .code(code)
+            .name("Quota across nodes")
+            .type(CouponType.CART_WISE)
+            .discountType(DiscountType.PERCENTAGE)
+            .discountValue(BigDecimal.TEN)
+            .minCartAmount(BigDecimal.ONE)
+            .startDate(LocalDateTime.now().minusDays(1))
+            .endDate(LocalDateTime.now().plusDays(1))
+            .maxUsage(maxUsage)
+            .build()).getId();
+    }
+    
+    private static int redeemUntilRejected(CouponApplicationService service, Long couponId) {
+        int redeemed = 0;
+        while (true) {
+            try {
+                service.applyCoupon(couponId, cart());
+                redeemed++;
+            } catch (CouponUsageLimitExceededException e) {
+                return redeemed;
+            }
+        }
+    }
+    
+    private static void expireAndSettle(JdbcTemplate jdbc, ConfigurableApplicationContext node) {
+        jdbc.update("UPDATE coupon_quota_leases SET expires_at = ?", Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)));
+        node.getBean(QuotaLeaseManager.class).settleExpiredLeases();
+    }
+    
+    private static CartRequest cart() {
+        return CartRequest.builder()
+            .cartItems(List.of(CartItemRequest.builder()
+                .productId(1L)
+                .quantity(1)
+                .unitPrice(BigDecimal.valueOf(100))
+                .build()))
+            .build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.coupon.cache;
+
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.example.demo.coupon.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CouponCodeIndexTests {
+    
+    private CouponRepository couponRepository;
+    private CouponCodeIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        couponRepository = mock(CouponRepository.class);
+        index = new CouponCodeIndex(couponRepository);
+        ReflectionTestUtils.setField(index, "expectedCodes", 100);
+        ReflectionTestUtils.setField(index, "falsePositiveRate", 0.01);
+    }
+    
+    @Test
+    void resolvesCodesTheSameWayBeforeAndAfterLoading() {
+        when(couponRepository.findIdByNormalizedCode("SAVE10")).thenReturn(Optional.of(7L));
+        assertEquals(Optional.of(7L), index.resolve("  save10 "));
+        
+        when(couponRepository.findAllCodes()).thenReturn(List.of(view(7L, "Save10")));
+        index.load();
+        assertEquals(Optional.of(7L), index.resolve("  save10 "));
+        assertEquals(Optional.of(7L), index.resolve("SAVE10"));
+    }
+    
+    @Test
+    void unknownCodesAreRejectedWithoutTheDatabaseOnceLoaded() {
+        when(couponRepository.findAllCodes()).thenReturn(List.of(view(7L, "SAVE10")));
+        index.load();
+        
+        assertEquals(Optional.empty(), index.resolve("NOPE"));
+        assertEquals(Optional.empty(), index.resolve(" "));
+        verify(couponRepository, never()).findIdByNormalizedCode(anyString());
+    }
+    
+    @Test
+    void followsCodeChanges() {
+        when(couponRepository.findAllCodes()).thenReturn(List.of(view(7L, "SAVE10")));
+        index.load();
+        
+        index.onCouponChanged(new CouponChangedEvent(7L, CouponChangedEvent.ChangeType.UPDATED, "SAVE10", "SAVE15"));
+        index.onCouponChanged(new CouponChangedEvent(8L, CouponChangedEvent.ChangeType.CREATED, null, "new20"));
+        assertEquals(Optional.empty(), index.resolve("SAVE10"));
+        assertEquals(Optional.of(7L), index.resolve("save15"));
+        assertEquals(Optional.of(8L), index.resolve("NEW20"));
+        
+        index.onCouponChanged(new CouponChangedEvent(8L, CouponChangedEvent.ChangeType.DELETED, "NEW20", null));
+        assertEquals(Optional.empty(), index.resolve("NEW20"));
+    }
+    
+    private static CouponRepository.CouponCodeView view(Long id, String code) {
+        return new CouponRepository.CouponCodeView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+            
+            @Override
+            public String getCode() {
+                return code;
+            }
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.coupon.cache;
+
+import com.example.demo.coupon.dto.CouponResponse;
+import com.example.demo.coupon.event.CouponChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CouponResponseCacheTests {
+    
+    private CouponResponseCache cache;
+    private final AtomicInteger firstPageLoads = new AtomicInteger();
+    private final AtomicInteger secondPageLoads = new AtomicInteger();
+    
+    @BeforeEach
+    void setUp() {
+        cache = new CouponResponseCache(new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+        cache.init();
+    }
+    
+    @Test
+    void redemptionInvalidatesOnlyPagesShowingTheCoupon() {
+        loadPages();
+        loadPages();
+        assertEquals(1, firstPageLoads.get());
+        assertEquals(1, secondPageLoads.get());
+        
+        cache.onCouponChanged(CouponChangedEvent.redeemed(3L, false));
+        loadPages();
+        assertEquals(1, firstPageLoads.get());
+        assertEquals(2, secondPageLoads.get());
+        
+        cache.onCouponChanged(CouponChangedEvent.redeemed(1L, true));
+        loadPages();
+        assertEquals(2, firstPageLoads.get());
+        assertEquals(2, secondPageLoads.get());
+    }
+    
+    @Test
+    void definitionChangesInvalidateEveryPage() {
+        loadPages();
+        cache.onCouponChanged(new CouponChangedEvent(9L, CouponChangedEvent.ChangeType.CREATED, null, "NEW"));
+        loadPages();
+        assertEquals(2, firstPageLoads.get());
+        assertEquals(2, secondPageLoads.get());
+    }
+    
+    @Test
+    void pageReadBeforeAConcurrentRedemptionIsNotServedAfterIt() {
+        // The redemption commits while the page is being read
+        cache.getCouponPage(null, null, 0, 2, () -> {
+            cache.onCouponChanged(CouponChangedEvent.redeemed(1L, false));
+            return page(firstPageLoads, 1L, 2L);
+        });
+        loadPages();
+        assertEquals(2, firstPageLoads.get());
+    }
+    
+    private void loadPages() {
+        cache.getCouponPage(null, null, 0, 2, () -> page(firstPageLoads, 1L, 2L));
+        cache.getCouponPage(null, null, 1, 2, () -> page(secondPageLoads, 3L, 4L));
+    }
+    
+    private static Page<CouponResponse> page(AtomicInteger loads, Long... ids) {
+        loads.incrementAndGet();
+        return new PageImpl<>(Arrays.stream(ids)
+            .map(id -> CouponResponse.builder().id(id).code("C" + id).build())
+            .toList(), PageRequest.of(0, 2), 4);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.demo.coupon.cache;
+
+import com.example.demo.coupon.dto.CartResponse;
+import com.example.demo.coupon.dto.CouponRequest;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import com.example.demo.coupon.repository.IdempotencyRecordRepository;
+import com.example.demo.coupon.service.CouponService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two nodes, each with its own cache, racing on the same keys in the shared database
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyCacheRaceTests {
+    
+    @Autowired
+    private IdempotencyRecordRepository repository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private CouponService couponService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void onlyOneOfTwoNodesRacingOnAKeyCommitsItsRedemption() throws Exception {
+        IdempotencyCache nodeA = node();
+        IdempotencyCache nodeB = node();
+        Long couponId = coupon();
+        String key = "race-" + UUID.randomUUID();
+        CountDownLatch aRedeemed = new CountDownLatch(1);
+        CountDownLatch bCommitted = new CountDownLatch(1);
+        
+        // Node A redeems, then stalls before storing its record until node B has committed the same key
+        CompletableFuture<CartResponse> a = CompletableFuture.supplyAsync(() -> nodeA.execute(key, "fp", () -> {
+            CartResponse response = redeem(couponId, "cart-a");
+            aRedeemed.countDown();
+            await(bCommitted);
+            return response;
+        }));
+        assertTrue(aRedeemed.await(5, TimeUnit.SECONDS));
+        CartResponse b = nodeB.execute(key, "fp", () -> redeem(couponId, "cart-b"));
+        bCommitted.countDown();
+        
+        assertEquals("cart-b", b.getCartId());
+        assertEquals("cart-b", a.get(5, TimeUnit.SECONDS).getCartId());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupon_usages WHERE coupon_id = ?",
+            Integer.class, couponId));
+        assertEquals("cart-b", objectMapper.readValue(repository.findById(key).orElseThrow().getResponseBody(),
+            CartResponse.class).getCartId());
+    }
+    
+    @Test
+    void expiredKeyThatWasNotPurgedYetCanBeUsedAgain() {
+        Long couponId = coupon();
+        String key = "expired-" + UUID.randomUUID();
+        node().execute(key, "fp", () -> redeem(couponId, "cart-1"));
+        jdbcTemplate.update("UPDATE idempotency_keys SET expires_at = ? WHERE idempotency_key = ?",
+            Timestamp.valueOf(LocalDateTime.now().minusMinutes(1)), key);
+        
+        assertEquals("cart-2", node().execute(key, "fp", () -> redeem(couponId, "cart-2")).getCartId());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupon_usages WHERE coupon_id = ?",
+            Integer.class, couponId));
+    }
+    
+    private IdempotencyCache node() {
+        IdempotencyCache cache = new IdempotencyCache(repository, transactionManager, objectMapper, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofHours(1));
+        cache.init();
+        return cache;
+    }
+    
+    /**
+     * Stands in for the redemption: writes a usage row in the caller's transaction
+     */
+    private CartResponse redeem(Long couponId, String cartId) {
+        jdbcTemplate.update("INSERT INTO coupon_usages (coupon_id, user_id, cart_id, discount_amount, used_at) "
+            + "VALUES (?, NULL, ?, 10.00, ?)", couponId, cartId, Timestamp.valueOf(LocalDateTime.now()));
+        return CartResponse.builder().cartId(cartId).build();
+    }
+    
+    private Long coupon() {
+        return couponService.createCoupon(CouponRequest.builder()
+            .code("IDEMPOTENT-" + UUID.randomUUID())
+            .name("Idempotency")
+            .type(CouponType.CART_WISE)
+            .discountType(DiscountType.PERCENTAGE)
+            .discountValue(BigDecimal.TEN)
+            .minCartAmount(BigDecimal.ONE)
+            .startDate(LocalDateTime.now().minusDays(1))
+            .endDate(LocalDateTime.now().plusDays(1))
+            .build()).getId();
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.coupon.cache;
+
+import com.example.demo.coupon.dto.CartResponse;
+import com.example.demo.coupon.exception.InvalidIdempotencyKeyException;
+import com.example.demo.coupon.model.IdempotencyRecord;
+import com.example.demo.coupon.repository.IdempotencyRecordRepository;
+import com.example.demo.coupon.util.SingleFlight;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyCacheTests {
+    
+    private final IdempotencyRecordRepository repository = mock(IdempotencyRecordRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger redemptions = new AtomicInteger();
+    
+    private IdempotencyCache cache;
+    
+    @BeforeEach
+    void createCache() {
+        cache = new IdempotencyCache(repository, mock(PlatformTransactionManager.class), objectMapper, meterRegistry);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofHours(1));
+        cache.init();
+        when(repository.findById(any())).thenReturn(Optional.empty());
+    }
+    
+    @Test
+    void retryWithTheSameKeyReplaysTheFirstResponse() {
+        CartResponse first = cache.execute("key-1", "id:1:null:cart", () -> redeem("cart-1"));
+        CartResponse retried = cache.execute("key-1", "id:1:null:cart", () -> redeem("cart-2"));
+        
+        assertEquals("cart-1", first.getCartId());
+        assertEquals("cart-1", retried.getCartId());
+        assertEquals(1, redemptions.get());
+        assertEquals(1.0, replays());
+    }
+    
+    @Test
+    void keyReusedForADifferentRequestIsRejected() {
+        cache.execute("key-2", "id:1:null:cart", () -> redeem("cart-1"));
+        
+        assertThrows(InvalidIdempotencyKeyException.class,
+            () -> cache.execute("key-2", "id:2:null:cart", () -> redeem("cart-2")));
+        assertEquals(1, redemptions.get());
+        assertEquals(0.0, replays());
+    }
+    
+    @Test
+    void recordLoadedFromTheDatabaseKeepsItsOwnExpiry() throws Exception {
+        when(repository.findById("key-4")).thenReturn(
+            Optional.of(record("key-4", "id:1:null:cart", "stored-cart", LocalDateTime.now().plusNanos(200_000_000))));
+        
+        assertEquals("stored-cart", cache.execute("key-4", "id:1:null:cart", () -> redeem("cart-1")).getCartId());
+        Thread.sleep(300);
+        
+        // Expired in the cache with the record, not an hour after it was loaded; the purge has not run yet
+        assertEquals("cart-2", cache.execute("key-4", "id:1:null:cart", () -> redeem("cart-2")).getCartId());
+        assertEquals(1, redemptions.get());
+    }
+    
+    @Test
+    void retriesCoalescedWithTheRedemptionCountAsReplays() throws Exception {
+        CountDownLatch redeeming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<CartResponse> leader = CompletableFuture.supplyAsync(
+            () -> cache.execute("key-5", "id:1:null:cart", () -> {
+                redeeming.countDown();
+                await(release);
+                return redeem("cart-1");
+            }));
+        assertEquals(true, redeeming.await(5, TimeUnit.SECONDS));
+        CompletableFuture<CartResponse> follower = CompletableFuture.supplyAsync(
+            () -> cache.execute("key-5", "id:1:null:cart", () -> redeem("cart-2")));
+        
+        SingleFlight<?, ?> flights = (SingleFlight<?, ?>) ReflectionTestUtils.getField(cache, "flights");
+        while (flights.getCoalesced() == 0) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        
+        assertEquals("cart-1", leader.get(5, TimeUnit.SECONDS).getCartId());
+        assertEquals("cart-1", follower.get(5, TimeUnit.SECONDS).getCartId());
+        assertEquals(1, redemptions.get());
+        assertEquals(1.0, replays());
+    }
+    
+    private CartResponse redeem(String cartId) {
+        redemptions.incrementAndGet();
+        return CartResponse.builder()
+            .cartId(cartId)
+            .originalTotal(new BigDecimal("100.00"))
+            .discountApplied(new BigDecimal("10.00"))
+            .finalTotal(new BigDecimal("90.00"))
+            .build();
+    }
+    
+    private IdempotencyRecord record(String key, String fingerprint, String cartId, LocalDateTime expiresAt)
+            throws Exception {
+        return IdempotencyRecord.builder()
+            .idempotencyKey(key)
+            .requestFingerprint(fingerprint)
+            .responseBody(objectMapper.writeValueAsString(CartResponse.builder().cartId(cartId).build()))
+            .createdAt(LocalDateTime.now())
+            .expiresAt(expiresAt)
+            .build();
+    }
+    
+    private double replays() {
+        return meterRegistry.get("coupon.idempotency.replays").counter().count();
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
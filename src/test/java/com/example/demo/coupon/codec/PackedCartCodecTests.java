@@ -0,0 +1,89 @@
+package com.example.demo.coupon.codec;
+
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.PackedCart;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PackedCartCodecTests {
+    
+    @Test
+    void roundTripKeepsEveryLine() {
+        PackedCart cart = new PackedCart(Long.MAX_VALUE, 2,
+            new long[]{1, 300, 1L << 40}, new int[]{1, 127, Integer.MAX_VALUE}, new long[]{5, 128, Long.MAX_VALUE});
+        
+        PackedCart decoded = PackedCartCodec.decode(PackedCartCodec.encode(cart));
+        
+        assertEquals(Long.MAX_VALUE, decoded.getUserId());
+        assertEquals(2, decoded.getPriceScale());
+        assertEquals(3, decoded.size());
+        for (int i = 0; i < cart.size(); i++) {
+            assertEquals(cart.productId(i), decoded.productId(i));
+            assertEquals(cart.quantity(i), decoded.quantity(i));
+            assertEquals(cart.unitPrice(i), decoded.unitPrice(i));
+        }
+    }
+    
+    @Test
+    void encodingAJsonCartKeepsPricesAtTheGivenScale() {
+        CartRequest request = new CartRequest();
+        request.setCartItems(List.of(
+            CartItemRequest.builder().productId(7L).quantity(2).unitPrice(new BigDecimal("19.99")).build(),
+            CartItemRequest.builder().productId(8L).quantity(1).unitPrice(new BigDecimal("5")).build()));
+        
+        PackedCart decoded = PackedCartCodec.decode(PackedCartCodec.encode(request, 2));
+        
+        assertNull(decoded.getUserId());
+        assertEquals(List.of(new BigDecimal("19.99"), new BigDecimal("5.00")),
+            decoded.toCartItems().stream().map(CartItemRequest::getUnitPrice).toList());
+        assertThrows(ArithmeticException.class, () -> PackedCartCodec.encode(request, 1));
+    }
+    
+    @Test
+    void malformedInputIsRejected() {
+        byte[] valid = PackedCartCodec.encode(new PackedCart(42L, 2, new long[]{1}, new int[]{1}, new long[]{100}));
+        
+        assertRejected(new byte[0]);
+        assertRejected(new byte[]{2, 0, 2, 0});                            // unknown version
+        assertRejected(new byte[]{1, 0, 10, 0});                           // price scale above 9
+        assertRejected(new byte[]{1, 0, 2, 5, 1, 1, 1});                   // more lines than bytes
+        assertRejected(Arrays.copyOf(valid, valid.length - 1));            // truncated
+        assertRejected(Arrays.copyOf(valid, valid.length + 1));            // trailing byte
+        assertRejected(new byte[]{1, 0, 2, 1, 1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10, 1}); // quantity > int
+        byte[] endless = new byte[14];
+        endless[0] = 1;
+        endless[1] = 1;
+        Arrays.fill(endless, 2, endless.length, (byte) 0x80);
+        assertRejected(endless);                                           // varint never ends
+    }
+    
+    @Test
+    void negativeValuesCannotBeEncoded() {
+        PackedCart cart = new PackedCart(null, 2, new long[]{1}, new int[]{-1}, new long[]{100});
+        assertThrows(IllegalArgumentException.class, () -> PackedCartCodec.encode(cart));
+    }
+    
+    @Test
+    void normalizeSortsLikeTheJsonPath() {
+        PackedCart cart = new PackedCart(null, 0, new long[]{3, 1, 3, 2}, new int[]{1, 4, 2, 1}, new long[]{9, 5, 9, 7});
+        cart.normalize();
+        
+        assertArrayEquals(new long[]{1, 2, 3, 3}, new long[]{cart.productId(0), cart.productId(1), cart.productId(2),
+            cart.productId(3)});
+        assertEquals(1, cart.quantity(2));
+        assertEquals(2, cart.quantity(3));
+    }
+    
+    private static void assertRejected(byte[] bytes) {
+        assertThrows(IllegalArgumentException.class, () -> PackedCartCodec.decode(bytes), Arrays.toString(bytes));
+    }
+}
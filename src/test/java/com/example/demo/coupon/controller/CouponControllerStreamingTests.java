@@ -0,0 +1,114 @@
+package com.example.demo.coupon.controller;
+
+import com.example.demo.coupon.dto.ApplicableCouponResponse;
+import com.example.demo.coupon.dto.ApplicableCouponsSummary;
+import com.example.demo.coupon.service.ApplicableCouponStream;
+import com.example.demo.coupon.service.CouponApplicationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CouponControllerStreamingTests {
+    
+    private static final String STREAM = "/api/coupons/applicable-coupons/stream";
+    private static final String CART = "{\"cartItems\":[{\"productId\":760001,\"quantity\":1,\"unitPrice\":10.00}]}";
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @SpyBean
+    private CouponApplicationService couponApplicationService;
+    
+    @Test
+    void streamEndsWithATypedSummary() throws Exception {
+        List<JsonNode> lines = stream();
+        
+        JsonNode trailer = lines.get(lines.size() - 1);
+        assertEquals("summary", trailer.path("type").asText());
+        assertEquals(lines.size() - 1, trailer.path("applicableCount").asInt());
+        lines.subList(0, lines.size() - 1).forEach(line -> assertFalse(line.has("type")));
+    }
+    
+    @Test
+    void failureAfterTheFirstLineEndsTheBodyWithAnErrorLine() throws Exception {
+        ApplicableCouponStream failing = sink -> {
+            sink.accept(ApplicableCouponResponse.builder().couponId(1L).totalDiscount(BigDecimal.ONE).build());
+            throw new IllegalStateException("catalog row 42 is corrupt");
+        };
+        doReturn(failing).when(couponApplicationService).streamApplicableCoupons(any());
+        
+        List<JsonNode> lines = stream();
+        
+        assertEquals(2, lines.size());
+        assertEquals(1L, lines.get(0).path("couponId").asLong());
+        assertEquals("error", lines.get(1).path("type").asText());
+        assertFalse(lines.get(1).toString().contains("corrupt"), "internal detail leaked: " + lines.get(1));
+    }
+    
+    @Test
+    void statementsOfTheStreamedBodyAreCounted() throws Exception {
+        ApplicableCouponStream querying = sink -> {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupons", Long.class);
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupon_usages", Long.class);
+            return ApplicableCouponsSummary.builder().applicableCount(0).build();
+        };
+        doReturn(querying).when(couponApplicationService).streamApplicableCoupons(any());
+        double before = statementsTotal();
+        
+        stream();
+        
+        assertTrue(statementsTotal() - before >= 2, "statements on the async thread were not counted");
+    }
+    
+    private List<JsonNode> stream() throws Exception {
+        MvcResult started = mockMvc.perform(post(STREAM).contentType(MediaType.APPLICATION_JSON).content(CART))
+            .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString().split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+    
+    private double statementsTotal() {
+        DistributionSummary summary = meterRegistry.find("coupon.db.statements").tag("uri", STREAM).summary();
+        return summary == null ? 0 : summary.totalAmount();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.coupon.controller;
+
+import com.example.demo.coupon.dto.CouponExportRow;
+import com.example.demo.coupon.repository.ExportJdbcRepository;
+import com.example.demo.coupon.service.ExportService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ExportControllerTests {
+    
+    private static final String COUPONS = "/api/exports/coupons";
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ExportService exportService;
+    
+    @SpyBean
+    private ExportJdbcRepository exportJdbcRepository;
+    
+    @Test
+    void failedNdjsonExportEndsWithAnErrorLine() throws Exception {
+        failAfterOneCoupon();
+        
+        String[] lines = export("NDJSON").split("\n");
+        
+        assertEquals(2, lines.length);
+        assertEquals(1L, objectMapper.readTree(lines[0]).path("id").asLong());
+        JsonNode error = objectMapper.readTree(lines[1]);
+        assertEquals("error", error.path("type").asText());
+        assertFalse(error.toString().contains("corrupt"), "internal detail leaked: " + error);
+    }
+    
+    @Test
+    void failedCsvExportEndsWithAnErrorRow() throws Exception {
+        failAfterOneCoupon();
+        
+        String[] rows = export("CSV").split("\r\n");
+        
+        assertEquals(3, rows.length);
+        assertEquals("id", rows[0].split(",")[0]);
+        assertEquals("1", rows[1].split(",")[0]);
+        assertEquals("error", rows[2].split(",")[0]);
+    }
+    
+    @Test
+    void exportsBeyondTheSlotLimitAreRejectedBeforeStreaming() throws Exception {
+        exportService.acquireSlot();
+        exportService.acquireSlot();
+        try {
+            mockMvc.perform(get(COUPONS).param("format", "NDJSON")).andExpect(status().isServiceUnavailable());
+        } finally {
+            exportService.releaseSlot();
+            exportService.releaseSlot();
+        }
+        // The slot of a finished export is given back
+        export("NDJSON");
+        export("NDJSON");
+        export("NDJSON");
+    }
+    
+    @Test
+    void exportRequestsGetTheExportTimeout() throws Exception {
+        MvcResult started = mockMvc.perform(get(COUPONS).param("format", "NDJSON").param("couponId", "-1"))
+            .andReturn();
+        
+        assertEquals(Duration.ofMinutes(30).toMillis(), started.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+    }
+    
+    private void failAfterOneCoupon() {
+        doAnswer(invocation -> {
+            Consumer<CouponExportRow> consumer = invocation.getArgument(1);
+            consumer.accept(CouponExportRow.builder().id(1L).code("FIRST").build());
+            throw new IllegalStateException("coupon row 42 is corrupt");
+        }).when(exportJdbcRepository).streamCoupons(any(), any());
+    }
+    
+    private String export(String format) throws Exception {
+        MvcResult started = mockMvc.perform(get(COUPONS).param("format", format).param("couponId", "-1"))
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn()
+            .getResponse().getContentAsString();
+    }
+}
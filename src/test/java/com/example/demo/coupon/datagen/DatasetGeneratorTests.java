@@ -0,0 +1,80 @@
+package com.example.demo.coupon.datagen;
+
+import com.example.demo.DemoApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.ScheduledAnnotationBeanPostProcessor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The generator run the way the datagen profile runs it, into its own small H2 database
+ */
+class DatasetGeneratorTests {
+    
+    private static final int COUPONS = 300;
+    private static final int USAGES = 5_000;
+    
+    private static ConfigurableApplicationContext context;
+    private static JdbcTemplate jdbcTemplate;
+    
+    @BeforeAll
+    static void generate() {
+        // Command-line arguments, so they win over application-datagen.properties
+        context = new SpringApplicationBuilder(DemoApplication.class)
+            .profiles("test", "datagen")
+            .run("--spring.datasource.url=jdbc:h2:mem:datagen;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--coupon.datagen.coupons=" + COUPONS,
+                "--coupon.datagen.products=500",
+                "--coupon.datagen.users=200",
+                "--coupon.datagen.usages=" + USAGES,
+                "--coupon.datagen.max-product-set-size=20",
+                "--coupon.datagen.batch-size=100");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+    
+    @AfterAll
+    static void close() {
+        context.close();
+    }
+    
+    @Test
+    void noBackgroundJobsRunDuringTheLoad() {
+        assertTrue(context.getBeansOfType(ScheduledAnnotationBeanPostProcessor.class).isEmpty());
+    }
+    
+    @Test
+    void writesTheRequestedCouponsAndAHistoryWithinTheirLimits() {
+        assertEquals(COUPONS, count("SELECT COUNT(*) FROM coupons"));
+        long usages = count("SELECT COUNT(*) FROM coupon_usages");
+        assertTrue(usages > 0 && usages <= USAGES);
+        
+        assertEquals(0, count("SELECT COUNT(*) FROM coupons c WHERE c.current_usage <> "
+            + "(SELECT COUNT(*) FROM coupon_usages u WHERE u.coupon_id = c.id)"));
+        assertEquals(0, count("SELECT COUNT(*) FROM coupons WHERE max_usage IS NOT NULL AND current_usage > max_usage"));
+        assertEquals(0, count("SELECT COUNT(*) FROM (SELECT u.coupon_id, u.user_id FROM coupon_usages u "
+            + "JOIN coupons c ON c.id = u.coupon_id WHERE c.max_usage_per_user IS NOT NULL "
+            + "GROUP BY u.coupon_id, u.user_id, c.max_usage_per_user HAVING COUNT(*) > c.max_usage_per_user) over_limit"));
+        assertEquals(0, count("SELECT COUNT(*) FROM coupon_usages u JOIN coupons c ON c.id = u.coupon_id "
+            + "WHERE u.used_at < c.start_date OR u.used_at > c.end_date"));
+    }
+    
+    @Test
+    void productWiseAndBxgyCouponsGetProductSets() {
+        assertEquals(0, count("SELECT COUNT(*) FROM coupons c WHERE c.coupon_type = 'PRODUCT_WISE' "
+            + "AND NOT EXISTS (SELECT 1 FROM coupon_applicable_products p WHERE p.coupon_id = c.id)"));
+        assertEquals(0, count("SELECT COUNT(*) FROM coupons c WHERE c.coupon_type = 'BXGY' "
+            + "AND (NOT EXISTS (SELECT 1 FROM bxgy_buy_products p WHERE p.coupon_id = c.id) "
+            + "OR NOT EXISTS (SELECT 1 FROM bxgy_get_products p WHERE p.coupon_id = c.id))"));
+    }
+    
+    private static long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.coupon.metrics;
+
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CouponMetricsTests {
+    
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private CouponMetrics metrics;
+    
+    @BeforeEach
+    void setUp() {
+        metrics = new CouponMetrics(registry);
+        metrics.registerMeters();
+    }
+    
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    @Test
+    void redemptionIsASuccessOnlyOnceItsTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        metrics.timeRedemption(() -> "cart");
+        assertEquals(0, redemptions("success"));
+        
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(1, redemptions("success"));
+    }
+    
+    @Test
+    void redemptionRolledBackAfterReturningIsAnError() {
+        TransactionSynchronizationManager.initSynchronization();
+        metrics.timeRedemption(() -> "cart");
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        
+        assertEquals(0, redemptions("success"));
+        assertEquals(1, redemptions("error"));
+    }
+    
+    @Test
+    void failedRedemptionIsRecordedWithItsResultAtOnce() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertThrows(CouponUsageLimitExceededException.class, () -> metrics.timeRedemption(() -> {
+            throw new CouponUsageLimitExceededException("Coupon usage limit exceeded", true);
+        }));
+        
+        assertEquals(1, redemptions("user_limit"));
+        assertEquals(0, TransactionSynchronizationManager.getSynchronizations().size());
+    }
+    
+    @Test
+    void redemptionOutsideATransactionIsRecordedAtOnce() {
+        metrics.timeRedemption(() -> "cart");
+        assertEquals(1, redemptions("success"));
+    }
+    
+    @Test
+    void tagValuesDoNotDependOnTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            SimpleMeterRegistry turkish = new SimpleMeterRegistry();
+            new CouponMetrics(turkish).registerMeters();
+            assertNotNull(turkish.find("coupon.strategy.evaluation").tag("outcome", "applicable").timer());
+            assertNotNull(turkish.find("coupon.strategy.evaluation").tag("outcome", "not_applicable").timer());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+    
+    private double redemptions(String result) {
+        return registry.get("coupon.redemptions").tag("result", result).counter().count();
+    }
+    
+    private static void completeTransaction(int status) {
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
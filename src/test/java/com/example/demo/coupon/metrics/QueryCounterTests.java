@@ -0,0 +1,32 @@
+package com.example.demo.coupon.metrics;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryCounterTests {
+    
+    @Test
+    void countsJdbcTemplateStatementsOnTheCurrentThreadWhileOpen() {
+        QueryCounter queryCounter = new QueryCounter();
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:query-counter;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            (DataSource) queryCounter.postProcessAfterInitialization(h2, "dataSource"));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS counted (id INT)");
+        
+        queryCounter.start();
+        jdbcTemplate.update("INSERT INTO counted (id) VALUES (?)", 1);
+        jdbcTemplate.batchUpdate("INSERT INTO counted (id) VALUES (?)", List.of(new Object[]{2}, new Object[]{3}));
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM counted", Integer.class);
+        assertEquals(3, queryCounter.stop());
+        
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM counted", Integer.class);
+        assertEquals(0, queryCounter.stop());
+    }
+}
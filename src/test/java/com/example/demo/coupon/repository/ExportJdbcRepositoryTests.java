@@ -0,0 +1,113 @@
+package com.example.demo.coupon.repository;
+
+import com.example.demo.coupon.dto.CouponExportRow;
+import com.example.demo.coupon.dto.CouponRequest;
+import com.example.demo.coupon.dto.ExportFilter;
+import com.example.demo.coupon.model.enums.BxGyDiscountType;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import com.example.demo.coupon.service.CouponService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ExportJdbcRepositoryTests {
+    
+    @Autowired
+    private ExportJdbcRepository exportJdbcRepository;
+    
+    @Autowired
+    private CouponService couponService;
+    
+    @Test
+    void productRowsOfEachCouponAreFoldedIntoOneRow() {
+        Long productWise = couponService.createCoupon(coupon(CouponType.PRODUCT_WISE)
+            .applicableProductIds(Set.of(770_003L, 770_001L, 770_002L))
+            .build()).getId();
+        Long bxGy = couponService.createCoupon(coupon(CouponType.BXGY)
+            .discountValue(BigDecimal.valueOf(100))
+            .buyProductIds(Set.of(770_011L, 770_010L))
+            .getProductIds(Set.of(770_020L))
+            .buyQuantity(2)
+            .getQuantity(1)
+            .repetitionLimit(1)
+            .bxGyDiscountType(BxGyDiscountType.FREE)
+            .build()).getId();
+        Long cartWise = couponService.createCoupon(coupon(CouponType.CART_WISE)
+            .minCartAmount(BigDecimal.ONE)
+            .build()).getId();
+        
+        List<CouponExportRow> rows = new ArrayList<>();
+        exportJdbcRepository.streamCoupons(new ExportFilter(null, null, null, null), rows::add);
+        
+        // One row per coupon, in id order
+        for (int i = 1; i < rows.size(); i++) {
+            assertTrue(rows.get(i - 1).getId() < rows.get(i).getId(), "out of order or repeated at " + i);
+        }
+        Map<Long, CouponExportRow> byId = new HashMap<>();
+        rows.forEach(row -> byId.put(row.getId(), row));
+        
+        assertEquals(List.of(770_001L, 770_002L, 770_003L), sorted(byId.get(productWise).getApplicableProductIds()));
+        assertTrue(byId.get(productWise).getBuyProductIds().isEmpty());
+        assertTrue(byId.get(productWise).getGetProductIds().isEmpty());
+        
+        assertTrue(byId.get(bxGy).getApplicableProductIds().isEmpty());
+        assertEquals(List.of(770_010L, 770_011L), sorted(byId.get(bxGy).getBuyProductIds()));
+        assertEquals(List.of(770_020L), byId.get(bxGy).getGetProductIds());
+        assertEquals(2, byId.get(bxGy).getBuyQuantity());
+        
+        assertTrue(byId.get(cartWise).getApplicableProductIds().isEmpty());
+        assertTrue(byId.get(cartWise).getBuyProductIds().isEmpty());
+        assertTrue(byId.get(cartWise).getGetProductIds().isEmpty());
+    }
+    
+    @Test
+    void filteredCouponIsFoldedOnItsOwn() {
+        Long bxGy = couponService.createCoupon(coupon(CouponType.BXGY)
+            .discountValue(BigDecimal.valueOf(100))
+            .buyProductIds(Set.of(770_030L))
+            .getProductIds(Set.of(770_040L, 770_041L))
+            .buyQuantity(1)
+            .getQuantity(1)
+            .repetitionLimit(1)
+            .bxGyDiscountType(BxGyDiscountType.FREE)
+            .build()).getId();
+        
+        List<CouponExportRow> rows = new ArrayList<>();
+        exportJdbcRepository.streamCoupons(new ExportFilter(bxGy, null, null, null), rows::add);
+        
+        assertEquals(1, rows.size());
+        assertEquals(List.of(770_030L), rows.get(0).getBuyProductIds());
+        assertEquals(List.of(770_040L, 770_041L), sorted(rows.get(0).getGetProductIds()));
+    }
+    
+    private static CouponRequest.CouponRequestBuilder coupon(CouponType type) {
+        return CouponRequest.builder()
+            .code("EXPORT-" + UUID.randomUUID())
+            .name("Export")
+            .type(type)
+            .discountType(DiscountType.PERCENTAGE)
+            .discountValue(BigDecimal.TEN)
+            .startDate(LocalDateTime.now().minusDays(1))
+            .endDate(LocalDateTime.now().plusDays(1));
+    }
+    
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.cache.ApplicableCouponCache;
+import com.example.demo.coupon.cache.CouponCatalog;
+import com.example.demo.coupon.dto.ApplicableCouponsResponse;
+import com.example.demo.coupon.dto.BatchCartRequest;
+import com.example.demo.coupon.dto.BatchCartResult;
+import com.example.demo.coupon.dto.BatchEvaluationSummary;
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.CouponView;
+import com.example.demo.coupon.exception.InvalidCouponException;
+import com.example.demo.coupon.repository.CouponUsageRepository;
+import com.example.demo.coupon.validator.CartValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchEvaluationServiceTests {
+    
+    private static final long LIMITED_COUPON = 5L;
+    
+    private final CouponCatalog couponCatalog = mock(CouponCatalog.class);
+    private final CouponEvaluator couponEvaluator = mock(CouponEvaluator.class);
+    private final CouponUsageRepository couponUsageRepository = mock(CouponUsageRepository.class);
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    
+    // Usage counts each cart was answered with, by the cart's first product ID
+    private final Map<Long, Map<Long, Long>> appliedCounts = new ConcurrentHashMap<>();
+    
+    @BeforeEach
+    void setUp() {
+        CouponCatalog.Snapshot snapshot = mock(CouponCatalog.Snapshot.class);
+        when(snapshot.getVersion()).thenReturn(7L);
+        when(couponCatalog.current()).thenReturn(snapshot);
+        when(couponEvaluator.evaluate(any(), anyList(), any(CouponView.class))).thenAnswer(invocation -> {
+            List<CartItemRequest> items = invocation.getArgument(1);
+            return evaluation(items.get(0).getProductId());
+        });
+        when(couponEvaluator.applyUsageCounts(any(), anyMap(), any())).thenAnswer(invocation -> {
+            CartEvaluation evaluation = invocation.getArgument(0);
+            appliedCounts.put(evaluation.getCartTotal().longValue(), Map.copyOf(invocation.getArgument(1)));
+            return ApplicableCouponsResponse.builder().cartTotal(evaluation.getCartTotal()).build();
+        });
+        executor.setCorePoolSize(4);
+        executor.initialize();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+    
+    @Test
+    void chunksArriveInRequestOrderWithErrorsInPlace() {
+        List<CartRequest> carts = new ArrayList<>();
+        for (long product = 1; product <= 8; product++) {
+            carts.add(product == 4 ? CartRequest.builder().cartItems(List.of()).build() : cart(null, product));
+        }
+        List<List<BatchCartResult>> chunks = new ArrayList<>();
+        
+        BatchEvaluationSummary summary = service(3, 4, executor).evaluate(batch(carts), CouponView.FULL)
+            .writeTo(chunks::add);
+        
+        assertEquals(List.of(3, 3, 2), chunks.stream().map(List::size).toList());
+        List<BatchCartResult> results = chunks.stream().flatMap(List::stream).toList();
+        for (int i = 0; i < results.size(); i++) {
+            BatchCartResult result = results.get(i);
+            assertEquals(i, result.getIndex());
+            if (i == 3) {
+                assertEquals("Cart items cannot be empty", result.getError());
+                assertNull(result.getResult());
+            } else {
+                assertEquals(BigDecimal.valueOf(i + 1), result.getResult().getCartTotal());
+            }
+        }
+        assertEquals(7L, summary.getCatalogVersion());
+        assertEquals(8, summary.getCartCount());
+        assertEquals(1, summary.getFailedCount());
+    }
+    
+    @Test
+    void helpersEvaluateAlongsideTheCallingThread() throws Exception {
+        // Two carts only complete if two threads evaluate them at the same time
+        CyclicBarrier bothEvaluating = new CyclicBarrier(2);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        when(couponEvaluator.evaluate(any(), anyList(), any(CouponView.class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            bothEvaluating.await(5, TimeUnit.SECONDS);
+            List<CartItemRequest> items = invocation.getArgument(1);
+            return evaluation(items.get(0).getProductId());
+        });
+        
+        BatchEvaluationSummary summary = service(2, 2, executor)
+            .evaluate(batch(List.of(cart(null, 1), cart(null, 2))), CouponView.FULL).writeTo(chunk -> { });
+        
+        assertEquals(0, summary.getFailedCount());
+        assertEquals(2, threads.size());
+        assertTrue(threads.contains(Thread.currentThread().getName()));
+    }
+    
+    @Test
+    void callingThreadFinishesTheChunkWhenHelpersAreRejected() {
+        AsyncTaskExecutor rejecting = mock(AsyncTaskExecutor.class);
+        doThrow(new TaskRejectedException("saturated")).when(rejecting).execute(any(Runnable.class));
+        List<BatchCartResult> results = new ArrayList<>();
+        
+        BatchEvaluationSummary summary = service(10, 4, rejecting)
+            .evaluate(batch(List.of(cart(null, 1), cart(null, 2), cart(null, 3))), CouponView.FULL)
+            .writeTo(results::addAll);
+        
+        assertEquals(3, results.size());
+        assertEquals(0, summary.getFailedCount());
+        verify(rejecting, times(1)).execute(any(Runnable.class));
+    }
+    
+    @Test
+    void aCartThatThrowsGetsAnErrorLine() {
+        when(couponEvaluator.evaluate(any(), anyList(), any(CouponView.class))).thenAnswer(invocation -> {
+            List<CartItemRequest> items = invocation.getArgument(1);
+            if (items.get(0).getProductId() == 2) {
+                throw new IllegalStateException("broken coupon");
+            }
+            return evaluation(items.get(0).getProductId());
+        });
+        List<BatchCartResult> results = new ArrayList<>();
+        
+        BatchEvaluationSummary summary = service(10, 2, executor)
+            .evaluate(batch(List.of(cart(null, 1), cart(null, 2))), CouponView.FULL).writeTo(results::addAll);
+        
+        assertEquals("Evaluation failed", results.get(1).getError());
+        assertEquals(BigDecimal.ONE, results.get(0).getResult().getCartTotal());
+        assertEquals(1, summary.getFailedCount());
+    }
+    
+    @Test
+    void usageCountsAreLoadedOncePerChunkAndReusedByLaterChunks() {
+        List<CartRequest> carts = List.of(cart(1L, 1), cart(2L, 2), cart(1L, 3), cart(2L, 4), cart(3L, 5));
+        Map<Long, Long> storedCounts = Map.of(1L, 2L); // user 1 used the coupon twice, users 2 and 3 never
+        List<Collection<Long>> queriedUsers = new ArrayList<>();
+        doAnswer(invocation -> {
+            Collection<Long> userIds = invocation.getArgument(1);
+            queriedUsers.add(Set.copyOf(userIds));
+            return userIds.stream().filter(storedCounts::containsKey)
+                .map(userId -> usageCount(userId, storedCounts.get(userId))).toList();
+        }).when(couponUsageRepository).countByCouponIdsAndUserIds(anyCollection(), anyCollection());
+        
+        service(2, 1, executor).evaluate(batch(carts), CouponView.FULL).writeTo(chunk -> { });
+        
+        // Chunks {1, 2}, {1, 2} and {3}: the second chunk needs no query
+        assertEquals(List.of(Set.of(1L, 2L), Set.of(3L)), queriedUsers);
+        verify(couponUsageRepository, times(2)).countByCouponIdsAndUserIds(eq(Set.of(LIMITED_COUPON)), anyCollection());
+        assertEquals(Map.of(LIMITED_COUPON, 2L), appliedCounts.get(1L));
+        assertEquals(Map.of(LIMITED_COUPON, 0L), appliedCounts.get(2L));
+        assertEquals(Map.of(LIMITED_COUPON, 2L), appliedCounts.get(3L));
+        assertEquals(Map.of(LIMITED_COUPON, 0L), appliedCounts.get(5L));
+    }
+    
+    @Test
+    void oversizedBatchesAreRejectedBeforeAnythingIsWritten() {
+        BatchEvaluationService service = service(2, 1, executor);
+        ReflectionTestUtils.setField(service, "maxCarts", 2);
+        
+        assertThrows(InvalidCouponException.class, () -> service.evaluate(
+            batch(List.of(cart(null, 1), cart(null, 2), cart(null, 3))), CouponView.FULL));
+    }
+    
+    private BatchEvaluationService service(int chunkSize, int parallelism, AsyncTaskExecutor taskExecutor) {
+        BatchEvaluationService service = new BatchEvaluationService(couponCatalog, mock(ApplicableCouponCache.class),
+            couponEvaluator, couponUsageRepository, new CartValidator(), taskExecutor);
+        ReflectionTestUtils.setField(service, "maxCarts", 10_000);
+        ReflectionTestUtils.setField(service, "chunkSize", chunkSize);
+        ReflectionTestUtils.setField(service, "parallelism", parallelism);
+        return service;
+    }
+    
+    /**
+     * Cart total doubles as the product ID, so results can be traced back to their cart
+     */
+    private static CartEvaluation evaluation(long productId) {
+        return new CartEvaluation(List.of(), Map.of(LIMITED_COUPON, 3), BigDecimal.valueOf(productId));
+    }
+    
+    private static CartRequest cart(Long userId, long productId) {
+        return CartRequest.builder()
+            .userId(userId)
+            .cartItems(List.of(CartItemRequest.builder().productId(productId).quantity(1).unitPrice(BigDecimal.TEN).build()))
+            .build();
+    }
+    
+    private static BatchCartRequest batch(List<CartRequest> carts) {
+        return new BatchCartRequest(carts);
+    }
+    
+    private static CouponUsageRepository.UserCouponUsageCount usageCount(Long userId, Long count) {
+        return new CouponUsageRepository.UserCouponUsageCount() {
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+            
+            @Override
+            public Long getCouponId() {
+                return LIMITED_COUPON;
+            }
+            
+            @Override
+            public Long getUsageCount() {
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.BatchRedemptionItem;
+import com.example.demo.coupon.dto.BatchRedemptionRequest;
+import com.example.demo.coupon.dto.BatchRedemptionResponse;
+import com.example.demo.coupon.dto.BatchRedemptionResult;
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CouponRequest;
+import com.example.demo.coupon.dto.RedemptionStatus;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import com.example.demo.coupon.repository.CouponRepository;
+import com.example.demo.coupon.repository.CouponUsageJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BatchRedemptionServiceTests {
+    
+    // Fresh user ids per test, so usage recorded by other tests never counts against these orders
+    private static final AtomicLong NEXT_USER_ID = new AtomicLong(730_000L);
+    
+    @Autowired
+    private BatchRedemptionService batchRedemptionService;
+    
+    @Autowired
+    private CouponService couponService;
+    
+    @Autowired
+    private CouponRepository couponRepository;
+    
+    @Autowired
+    private CouponUsageJdbcRepository couponUsageJdbcRepository;
+    
+    @Test
+    void ordersEarlierInTheBatchCountTowardsTheUserLimit() {
+        Long couponId = coupon(2, null);
+        long alice = NEXT_USER_ID.incrementAndGet();
+        long bob = NEXT_USER_ID.incrementAndGet();
+        
+        BatchRedemptionResponse response = batchRedemptionService.redeem(batch(
+            order(couponId, alice),
+            order(couponId, bob),
+            order(couponId, alice),
+            order(couponId, alice)));
+        
+        assertEquals(List.of(RedemptionStatus.REDEEMED, RedemptionStatus.REDEEMED, RedemptionStatus.REDEEMED,
+            RedemptionStatus.USER_LIMIT_REACHED), statuses(response));
+        assertEquals(3, response.getRedeemedCount());
+        assertEquals(1, response.getRejectedCount());
+    }
+    
+    @Test
+    void usesCommittedByEarlierBatchesCountTowardsTheUserLimit() {
+        Long couponId = coupon(2, null);
+        long alice = NEXT_USER_ID.incrementAndGet();
+        batchRedemptionService.redeem(batch(order(couponId, alice)));
+        
+        BatchRedemptionResponse response = batchRedemptionService.redeem(batch(
+            order(couponId, alice),
+            order(couponId, alice)));
+        
+        assertEquals(List.of(RedemptionStatus.REDEEMED, RedemptionStatus.USER_LIMIT_REACHED), statuses(response));
+    }
+    
+    @Test
+    void userLimitIsCheckedBeforeTheGlobalLimitIsReserved() {
+        // The rejected order must not take the last global use from a later order
+        Long couponId = coupon(1, 2);
+        long alice = NEXT_USER_ID.incrementAndGet();
+        long bob = NEXT_USER_ID.incrementAndGet();
+        
+        BatchRedemptionResponse response = batchRedemptionService.redeem(batch(
+            order(couponId, alice),
+            order(couponId, alice),
+            order(couponId, bob)));
+        
+        assertEquals(List.of(RedemptionStatus.REDEEMED, RedemptionStatus.USER_LIMIT_REACHED, RedemptionStatus.REDEEMED),
+            statuses(response));
+    }
+    
+    @Test
+    void reservingADeletedCouponGrantsNothing() {
+        Long couponId = coupon(null, 5);
+        Coupon loaded = couponRepository.findById(couponId).orElseThrow();
+        couponService.deleteCoupon(couponId);
+        
+        assertNull(couponUsageJdbcRepository.reserveUsage(loaded, 2, LocalDateTime.now()));
+        assertEquals(0, couponUsageJdbcRepository.leaseQuota(couponId, 2));
+    }
+    
+    private Long coupon(Integer maxUsagePerUser, Integer maxUsage) {
+        return couponService.createCoupon(CouponRequest.builder()
+            .code("BATCH-" + UUID.randomUUID())
+            .name("Batch redemption")
+            .type(CouponType.CART_WISE)
+            .discountType(DiscountType.PERCENTAGE)
+            .discountValue(BigDecimal.TEN)
+            .minCartAmount(BigDecimal.ONE)
+            .startDate(LocalDateTime.now().minusDays(1))
+            .endDate(LocalDateTime.now().plusDays(1))
+            .maxUsage(maxUsage)
+            .maxUsagePerUser(maxUsagePerUser)
+            .build()).getId();
+    }
+    
+    private static BatchRedemptionRequest batch(BatchRedemptionItem... orders) {
+        return BatchRedemptionRequest.builder().redemptions(List.of(orders)).build();
+    }
+    
+    private static BatchRedemptionItem order(Long couponId, long userId) {
+        return BatchRedemptionItem.builder()
+            .couponId(couponId)
+            .userId(userId)
+            .cartItems(List.of(CartItemRequest.builder()
+                .productId(1L)
+                .quantity(1)
+                .unitPrice(BigDecimal.valueOf(100))
+                .build()))
+            .build();
+    }
+    
+    private static List<RedemptionStatus> statuses(BatchRedemptionResponse response) {
+        return response.getResults().stream().map(BatchRedemptionResult::getStatus).toList();
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.cache.ApplicableCouponCache;
+import com.example.demo.coupon.cache.CouponCatalog;
+import com.example.demo.coupon.dto.ApplicableCouponResponse;
+import com.example.demo.coupon.dto.ApplicableCouponsResponse;
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.CouponEvaluationTrace;
+import com.example.demo.coupon.dto.CouponRequest;
+import com.example.demo.coupon.dto.CouponView;
+import com.example.demo.coupon.dto.EvaluationExplanation;
+import com.example.demo.coupon.model.BxGyCoupon;
+import com.example.demo.coupon.model.enums.BxGyDiscountType;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import com.example.demo.coupon.util.CartFingerprint;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CouponApplicationServiceTests {
+    
+    // Fresh product and user ids per test, so only this test's product coupons can apply to its carts
+    private static final AtomicLong NEXT_ID = new AtomicLong(760_000L);
+    
+    @Autowired
+    private CouponApplicationService couponApplicationService;
+    
+    @Autowired
+    private CouponService couponService;
+    
+    @Autowired
+    private CouponCatalog couponCatalog;
+    
+    @Autowired
+    private ApplicableCouponCache applicableCouponCache;
+    
+    @Test
+    void explainRecordsTheOutcomeOfEveryEvaluatedCoupon() {
+        long product = NEXT_ID.incrementAndGet();
+        long otherProduct = NEXT_ID.incrementAndGet();
+        long userId = NEXT_ID.incrementAndGet();
+        Long applicable = productCoupon(product, null, LocalDateTime.now().minusDays(1), null);
+        Long notApplicable = productCoupon(product, 5, LocalDateTime.now().minusDays(1), null);
+        LocalDateTime later = LocalDateTime.now().plusDays(1).withNano(0);
+        Long notStarted = productCoupon(product, null, later, null);
+        Long usedUp = productCoupon(product, null, LocalDateTime.now().minusDays(1), 1);
+        Long broken = bxgyCoupon(product, otherProduct);
+        couponApplicationService.applyCoupon(usedUp, cart(userId, product, 1));
+        
+        // Malformed coupon data makes the strategy throw
+        ((BxGyCoupon) couponCatalog.current().find(broken)).setBuyQuantity(null);
+        
+        ApplicableCouponsResponse response = couponApplicationService.getApplicableCoupons(
+            cart(userId, product, 1), true);
+        Map<Long, CouponEvaluationTrace> traces = response.getExplanation().getCoupons().stream()
+            .collect(Collectors.toMap(CouponEvaluationTrace::getCouponId, Function.identity()));
+        
+        assertOutcome(traces.get(applicable), CouponEvaluationTrace.Outcome.APPLICABLE, null);
+        assertOutcome(traces.get(notApplicable), CouponEvaluationTrace.Outcome.NOT_APPLICABLE,
+            "No applicable products found in cart or minimum quantity requirement not met");
+        assertOutcome(traces.get(notStarted), CouponEvaluationTrace.Outcome.REJECTED_EARLY,
+            "Coupon is not yet active. Valid from: " + later);
+        assertOutcome(traces.get(usedUp), CouponEvaluationTrace.Outcome.USER_LIMIT,
+            "User has exceeded the usage limit for this coupon");
+        assertEquals(CouponEvaluationTrace.Outcome.ERROR, traces.get(broken).getOutcome());
+        assertNotNull(traces.get(broken).getReason());
+        assertEquals(CouponType.BXGY, traces.get(broken).getStrategy());
+        
+        Set<Long> returned = response.getApplicableCoupons().stream()
+            .map(ApplicableCouponResponse::getCouponId)
+            .collect(Collectors.toSet());
+        assertTrue(returned.contains(applicable));
+        assertFalse(returned.contains(usedUp));
+        assertFalse(returned.contains(notApplicable));
+    }
+    
+    @Test
+    void explainBypassesTheMemoAndDoesNotStoreItsResult() {
+        long product = NEXT_ID.incrementAndGet();
+        Long couponId = productCoupon(product, null, LocalDateTime.now().minusDays(1), null);
+        CartRequest cart = cart(null, product, 1);
+        CouponCatalog.Snapshot snapshot = couponCatalog.current();
+        String fingerprint = CartFingerprint.of(CartFingerprint.normalize(cart.getCartItems()));
+        
+        ApplicableCouponsResponse explained = couponApplicationService.getApplicableCoupons(cart, true);
+        assertNotNull(explained.getExplanation());
+        assertNull(applicableCouponCache.getIfPresent(snapshot.getVersion(), fingerprint));
+        
+        // A memoized evaluation that knows no coupons is served to regular requests, never to explain
+        applicableCouponCache.put(snapshot.getVersion(), fingerprint,
+            new CartEvaluation(List.of(), Map.of(), BigDecimal.valueOf(100)));
+        assertTrue(couponApplicationService.getApplicableCoupons(cart).getApplicableCoupons().isEmpty());
+        assertTrue(couponApplicationService.getApplicableCoupons(cart, true).getApplicableCoupons().stream()
+            .anyMatch(coupon -> coupon.getCouponId().equals(couponId)));
+    }
+    
+    @Test
+    void explainCountsTheCouponsPrunedByTheProductIndex() {
+        long product = NEXT_ID.incrementAndGet();
+        productCoupon(product, null, LocalDateTime.now().minusDays(1), null);
+        productCoupon(NEXT_ID.incrementAndGet(), null, LocalDateTime.now().minusDays(1), null);
+        CouponCatalog.Snapshot snapshot = couponCatalog.current();
+        int candidates = snapshot.candidatesFor(Set.of(product)).cardinality();
+        
+        EvaluationExplanation explanation = couponApplicationService.getApplicableCoupons(
+            cart(null, product, 1), true, CouponView.FULL).getExplanation();
+        
+        assertEquals(snapshot.getVersion(), explanation.getCatalogVersion());
+        assertEquals(snapshot.getCoupons().size(), explanation.getCatalogSize());
+        assertEquals(candidates, explanation.getCandidateCoupons());
+        assertEquals(snapshot.getCoupons().size() - candidates, explanation.getPrunedByIndex());
+        assertEquals(candidates, explanation.getCoupons().size());
+        assertTrue(explanation.getPrunedByIndex() > 0);
+    }
+    
+    @Test
+    void compactResponsesCarryOnlyIdCodeAndDiscount() {
+        long product = NEXT_ID.incrementAndGet();
+        Long couponId = productCoupon(product, null, LocalDateTime.now().minusDays(1), null);
+        CartRequest cart = cart(null, product, 2);
+        
+        ApplicableCouponResponse full = find(cart, CouponView.FULL, couponId);
+        ApplicableCouponResponse compact = find(cart, CouponView.COMPACT, couponId);
+        
+        assertEquals(ApplicableCouponResponse.builder()
+            .couponId(couponId)
+            .couponCode(full.getCouponCode())
+            .totalDiscount(full.getTotalDiscount())
+            .build(), compact);
+        assertNotNull(full.getDiscountBreakdown());
+    }
+    
+    @Test
+    void fullAndCompactEvaluationsAreMemoizedSeparately() {
+        long product = NEXT_ID.incrementAndGet();
+        Long couponId = productCoupon(product, null, LocalDateTime.now().minusDays(1), null);
+        CartRequest cart = cart(null, product, 1);
+        long version = couponCatalog.current().getVersion();
+        String fingerprint = CartFingerprint.of(CartFingerprint.normalize(cart.getCartItems()));
+        
+        couponApplicationService.getApplicableCoupons(cart, false, CouponView.COMPACT);
+        assertNull(applicableCouponCache.getIfPresent(version, fingerprint, CouponView.FULL));
+        CartEvaluation compact = applicableCouponCache.getIfPresent(version, fingerprint, CouponView.COMPACT);
+        assertNotNull(compact);
+        
+        // A full request after a compact one evaluates again instead of reusing the detail-less result
+        ApplicableCouponResponse full = find(cart, CouponView.FULL, couponId);
+        assertNotNull(full.getDiscountBreakdown());
+        assertNotNull(full.getApplicabilityMessage());
+        assertNotNull(applicableCouponCache.getIfPresent(version, fingerprint, CouponView.FULL));
+        assertSame(compact, applicableCouponCache.getIfPresent(version, fingerprint, CouponView.COMPACT));
+        assertNull(find(cart, CouponView.COMPACT, couponId).getDiscountBreakdown());
+    }
+    
+    private ApplicableCouponResponse find(CartRequest cart, CouponView view, Long couponId) {
+        return couponApplicationService.getApplicableCoupons(cart, false, view).getApplicableCoupons().stream()
+            .filter(coupon -> coupon.getCouponId().equals(couponId))
+            .findFirst()
+            .orElseThrow();
+    }
+    
+    private static void assertOutcome(CouponEvaluationTrace trace, CouponEvaluationTrace.Outcome outcome,
+                                      String reason) {
+        assertNotNull(trace);
+        assertEquals(outcome, trace.getOutcome());
+        assertEquals(reason, trace.getReason());
+    }
+    
+    private Long productCoupon(long productId, Integer minQuantity, LocalDateTime startDate, Integer maxUsagePerUser) {
+        return couponService.createCoupon(CouponRequest.builder()
+            .code("EXPLAIN-" + UUID.randomUUID())
+            .name("Explain")
+            .type(CouponType.PRODUCT_WISE)
+            .discountType(DiscountType.PERCENTAGE)
+            .discountValue(BigDecimal.TEN)
+            .applicableProductIds(Set.of(productId))
+            .minQuantity(minQuantity)
+            .startDate(startDate)
+            .endDate(LocalDateTime.now().plusDays(2))
+            .maxUsagePerUser(maxUsagePerUser)
+            .build()).getId();
+    }
+    
+    private Long bxgyCoupon(long buyProductId, long getProductId) {
+        return couponService.createCoupon(CouponRequest.builder()
+            .code("EXPLAIN-" + UUID.randomUUID())
+            .name("Explain")
+            .type(CouponType.BXGY)
+            .discountType(DiscountType.PERCENTAGE)
+            .discountValue(BigDecimal.valueOf(100))
+            .buyProductIds(Set.of(buyProductId))
+            .buyQuantity(1)
+            .getProductIds(Set.of(getProductId))
+            .getQuantity(1)
+            .repetitionLimit(1)
+            .bxGyDiscountType(BxGyDiscountType.FREE)
+            .startDate(LocalDateTime.now().minusDays(1))
+            .endDate(LocalDateTime.now().plusDays(2))
+            .build()).getId();
+    }
+    
+    private static CartRequest cart(Long userId, long productId, int quantity) {
+        return CartRequest.builder()
+            .userId(userId)
+            .cartItems(List.of(CartItemRequest.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .unitPrice(BigDecimal.valueOf(100))
+                .build()))
+            .build();
+    }
+}
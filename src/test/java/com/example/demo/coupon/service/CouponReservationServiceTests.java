@@ -0,0 +1,190 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.CartResponse;
+import com.example.demo.coupon.dto.CouponRequest;
+import com.example.demo.coupon.exception.CouponNotFoundException;
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import com.example.demo.coupon.exception.InvalidCouponException;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.metrics.QueryCounter;
+import com.example.demo.coupon.model.enums.DiscountType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CouponReservationServiceTests {
+    
+    // Fresh user ids per test, so usage recorded by other tests never counts against these carts
+    private static final AtomicLong NEXT_USER_ID = new AtomicLong(740_000L);
+    
+    @Autowired
+    private CouponReservationService reservationService;
+    
+    @Autowired
+    private CouponApplicationService couponApplicationService;
+    
+    @Autowired
+    private CouponService couponService;
+    
+    @Autowired
+    private CouponLeaseStore couponLeaseStore;
+    
+    @Autowired
+    private QuotaLeaseManager quotaLeaseManager;
+    
+    @Autowired
+    private QueryCounter queryCounter;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void heldReservationCountsUntilItIsCommitted() {
+        Long couponId = coupon(1, null);
+        String reservationId = reservationService.reserve(couponId, cart(null)).getReservationId();
+        
+        assertThrows(CouponUsageLimitExceededException.class, () -> reservationService.reserve(couponId, cart(null)));
+        
+        CartResponse committed = reservationService.commit(reservationId);
+        assertNotNull(committed.getCartId());
+        assertEquals(1, usageRows(couponId));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT current_usage FROM coupons WHERE id = ?", Integer.class, couponId));
+        assertEquals(0, couponLeaseStore.heldUses(couponId));
+        assertThrows(CouponUsageLimitExceededException.class, () -> reservationService.reserve(couponId, cart(null)));
+    }
+    
+    @Test
+    void releasedReservationGivesTheUseBack() {
+        Long couponId = coupon(1, null);
+        String reservationId = reservationService.reserve(couponId, cart(null)).getReservationId();
+        
+        reservationService.release(reservationId);
+        
+        assertEquals(0, couponLeaseStore.heldUses(couponId));
+        reservationService.commit(reservationService.reserve(couponId, cart(null)).getReservationId());
+        assertEquals(1, usageRows(couponId));
+    }
+    
+    @Test
+    void directRedemptionsCountAgainstNewReservations() {
+        Long couponId = coupon(2, 1);
+        long userId = NEXT_USER_ID.incrementAndGet();
+        couponApplicationService.applyCoupon(couponId, cart(userId));
+        
+        CouponUsageLimitExceededException userLimit = assertThrows(CouponUsageLimitExceededException.class,
+            () -> reservationService.reserve(couponId, cart(userId)));
+        assertTrue(userLimit.isPerUser());
+        
+        reservationService.reserve(couponId, cart(NEXT_USER_ID.incrementAndGet()));
+        CouponUsageLimitExceededException globalLimit = assertThrows(CouponUsageLimitExceededException.class,
+            () -> reservationService.reserve(couponId, cart(NEXT_USER_ID.incrementAndGet())));
+        assertFalse(globalLimit.isPerUser());
+    }
+    
+    @Test
+    void reservationsDoNotQueryTheDatabaseOnceUsageIsLoaded() {
+        Long couponId = coupon(10, 2);
+        reservationService.reserve(couponId, cart(NEXT_USER_ID.incrementAndGet()));
+        
+        queryCounter.start();
+        try {
+            reservationService.reserve(couponId, cart(NEXT_USER_ID.incrementAndGet()));
+        } finally {
+            assertEquals(0, queryCounter.stop());
+        }
+    }
+    
+    @Test
+    void quotaLeasedByTheDirectPathIsNotCountedAsUsed() {
+        ReflectionTestUtils.setField(quotaLeaseManager, "enabled", true);
+        try {
+            // The direct redemption leases the coupon's whole quota as this node's block
+            Long couponId = coupon(3, null);
+            couponApplicationService.applyCoupon(couponId, cart(null));
+            assertEquals(3, jdbcTemplate.queryForObject("SELECT leased_usage FROM coupons WHERE id = ?", Integer.class, couponId));
+            
+            reservationService.reserve(couponId, cart(null));
+            reservationService.reserve(couponId, cart(null));
+            assertThrows(CouponUsageLimitExceededException.class, () -> reservationService.reserve(couponId, cart(null)));
+        } finally {
+            ReflectionTestUtils.setField(quotaLeaseManager, "enabled", false);
+        }
+    }
+    
+    @Test
+    void commitIsRejectedWhenTheDirectPathTookTheLastUse() {
+        Long couponId = coupon(1, null);
+        String reservationId = reservationService.reserve(couponId, cart(null)).getReservationId();
+        couponApplicationService.applyCoupon(couponId, cart(null));
+        
+        assertThrows(CouponUsageLimitExceededException.class, () -> reservationService.commit(reservationId));
+        assertEquals(1, usageRows(couponId));
+        assertEquals(0, couponLeaseStore.heldUses(couponId));
+    }
+    
+    @Test
+    void commitRechecksTheCouponInTheDatabase() {
+        Long deactivated = coupon(5, null);
+        String first = reservationService.reserve(deactivated, cart(null)).getReservationId();
+        jdbcTemplate.update("UPDATE coupons SET is_active = FALSE WHERE id = ?", deactivated);
+        
+        assertThrows(InvalidCouponException.class, () -> reservationService.commit(first));
+        assertEquals(0, couponLeaseStore.heldUses(deactivated));
+        
+        Long deleted = coupon(5, null);
+        String second = reservationService.reserve(deleted, cart(null)).getReservationId();
+        couponService.deleteCoupon(deleted);
+        
+        assertThrows(CouponNotFoundException.class, () -> reservationService.commit(second));
+        assertEquals(0, couponLeaseStore.heldUses(deleted));
+    }
+    
+    private Long coupon(Integer maxUsage, Integer maxUsagePerUser) {
+        return couponService.createCoupon(CouponRequest.builder()
+            .code("RESERVE-" + UUID.randomUUID())
+            .name("Reservation")
+            .type(CouponType.CART_WISE)
+            .discountType(DiscountType.PERCENTAGE)
+            .discountValue(BigDecimal.TEN)
+            .minCartAmount(BigDecimal.ONE)
+            .startDate(LocalDateTime.now().minusDays(1))
+            .endDate(LocalDateTime.now().plusDays(1))
+            .maxUsage(maxUsage)
+            .maxUsagePerUser(maxUsagePerUser)
+            .build()).getId();
+    }
+    
+    private int usageRows(Long couponId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupon_usages WHERE coupon_id = ?", Integer.class, couponId);
+    }
+    
+    private static CartRequest cart(Long userId) {
+        return CartRequest.builder()
+            .userId(userId)
+            .cartItems(List.of(CartItemRequest.builder()
+                .productId(1L)
+                .quantity(1)
+                .unitPrice(BigDecimal.valueOf(100))
+                .build()))
+            .build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.ApplicableCouponResponse;
+import com.example.demo.coupon.dto.CartDeltaRequest;
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartLineChange;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.CouponRequest;
+import com.example.demo.coupon.dto.EvaluationSessionResponse;
+import com.example.demo.coupon.exception.EvaluationSessionNotFoundException;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EvaluationSessionServiceTests {
+    
+    // Fresh product ids per test, so coupons created by other tests never touch these carts
+    private static final AtomicLong NEXT_PRODUCT_ID = new AtomicLong(720_000L);
+    
+    @Autowired
+    private EvaluationSessionService sessionService;
+    
+    @Autowired
+    private CouponApplicationService couponApplicationService;
+    
+    @Autowired
+    private CouponService couponService;
+    
+    private long shirt;
+    private long socks;
+    private long hat;
+    private Long shirtCouponId;
+    private Long socksCouponId;
+    
+    @BeforeEach
+    void createCoupons() {
+        shirt = NEXT_PRODUCT_ID.incrementAndGet();
+        socks = NEXT_PRODUCT_ID.incrementAndGet();
+        hat = NEXT_PRODUCT_ID.incrementAndGet();
+        shirtCouponId = productCoupon(shirt, 10);
+        socksCouponId = productCoupon(socks, 20);
+    }
+    
+    @Test
+    void lineChangesReevaluateOnlyCouponsOnTheChangedProducts() {
+        EvaluationSessionResponse started = sessionService.startSession(cart(
+            line(shirt, 2, "50.00"),
+            line(hat, 1, "30.00")));
+        assertEquals(Map.of(shirtCouponId, new BigDecimal("10.00")), discounts(started));
+        
+        // Same cart total, so cart-wise coupons are left alone; only the shirt coupon is touched
+        EvaluationSessionResponse changed = sessionService.applyChanges(started.getSessionId(), delta(
+            new CartLineChange(shirt, null, 4, new BigDecimal("25.00"))));
+        assertEquals(1, changed.getReevaluatedCoupons());
+        assertEquals(Map.of(shirtCouponId, new BigDecimal("10.00")), discounts(changed));
+    }
+    
+    @Test
+    void incrementalResultsMatchAFullEvaluationOfTheSameCart() {
+        EvaluationSessionResponse session = sessionService.startSession(cart(line(shirt, 1, "40.00")));
+        
+        session = sessionService.applyChanges(session.getSessionId(), delta(
+            new CartLineChange(socks, "Socks", 3, new BigDecimal("5.00")),
+            new CartLineChange(shirt, null, 2, null)));
+        assertEquals(discounts(couponApplicationService.getApplicableCoupons(cart(
+                line(shirt, 2, "40.00"),
+                line(socks, 3, "5.00"))).getApplicableCoupons()),
+            discounts(session));
+        assertEquals(Set.of(shirtCouponId, socksCouponId), discounts(session).keySet());
+        
+        session = sessionService.applyChanges(session.getSessionId(), delta(new CartLineChange(socks, null, 0, null)));
+        assertEquals(Set.of(shirtCouponId), discounts(session).keySet());
+    }
+    
+    @Test
+    void couponsCreatedDuringASessionAreSeenOnTheNextChange() {
+        EvaluationSessionResponse session = sessionService.startSession(cart(line(hat, 1, "30.00")));
+        assertEquals(Map.of(), discounts(session));
+        
+        Long hatCouponId = productCoupon(hat, 50);
+        session = sessionService.applyChanges(session.getSessionId(), delta(new CartLineChange(hat, null, 2, null)));
+        assertEquals(Map.of(hatCouponId, new BigDecimal("30.00")), discounts(session));
+    }
+    
+    @Test
+    void unknownAndClosedSessionsAreRejected() {
+        EvaluationSessionResponse session = sessionService.startSession(cart(line(shirt, 1, "10.00")));
+        sessionService.closeSession(session.getSessionId());
+        
+        CartDeltaRequest delta = delta(new CartLineChange(shirt, null, 2, null));
+        assertThrows(EvaluationSessionNotFoundException.class,
+            () -> sessionService.applyChanges(session.getSessionId(), delta));
+        assertThrows(EvaluationSessionNotFoundException.class,
+            () -> sessionService.applyChanges("no-such-session", delta));
+    }
+    
+    private Long productCoupon(long productId, int percent) {
+        return couponService.createCoupon(CouponRequest.builder()
+            .code("SESSION-" + UUID.randomUUID())
+            .name("Session test coupon")
+            .type(CouponType.PRODUCT_WISE)
+            .discountType(DiscountType.PERCENTAGE)
+            .discountValue(BigDecimal.valueOf(percent))
+            .applicableProductIds(Set.of(productId))
+            .startDate(LocalDateTime.now().minusDays(1))
+            .endDate(LocalDateTime.now().plusDays(1))
+            .build()).getId();
+    }
+    
+    /**
+     * Discounts of this test's coupons; cart-wise coupons created by other tests are ignored
+     */
+    private Map<Long, BigDecimal> discounts(EvaluationSessionResponse response) {
+        return discounts(response.getEvaluation().getApplicableCoupons());
+    }
+    
+    private Map<Long, BigDecimal> discounts(List<ApplicableCouponResponse> coupons) {
+        return coupons.stream()
+            .filter(coupon -> coupon.getCouponType() == CouponType.PRODUCT_WISE)
+            .filter(coupon -> coupon.getCouponCode().startsWith("SESSION-"))
+            .collect(Collectors.toMap(ApplicableCouponResponse::getCouponId,
+                coupon -> coupon.getTotalDiscount().setScale(2)));
+    }
+    
+    private static CartRequest cart(CartItemRequest... lines) {
+        return CartRequest.builder().cartItems(List.of(lines)).build();
+    }
+    
+    private static CartItemRequest line(long productId, int quantity, String unitPrice) {
+        return CartItemRequest.builder()
+            .productId(productId)
+            .quantity(quantity)
+            .unitPrice(new BigDecimal(unitPrice))
+            .build();
+    }
+    
+    private static CartDeltaRequest delta(CartLineChange... changes) {
+        return CartDeltaRequest.builder().changes(List.of(changes)).build();
+    }
+}
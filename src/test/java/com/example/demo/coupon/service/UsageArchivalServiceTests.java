@@ -0,0 +1,156 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.CouponRequest;
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import com.example.demo.coupon.repository.CouponUsageRepository;
+import com.example.demo.coupon.repository.RollupWatermarkRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UsageArchivalServiceTests {
+    
+    // Fresh user ids per test, so usage recorded by other tests never counts against these carts
+    private static final AtomicLong NEXT_USER_ID = new AtomicLong(750_000L);
+    
+    @Autowired
+    private UsageArchivalService archivalService;
+    
+    @Autowired
+    private CouponApplicationService couponApplicationService;
+    
+    @Autowired
+    private CouponService couponService;
+    
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+    
+    @Autowired
+    private RollupWatermarkRepository watermarkRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeEach
+    void enableRetention() {
+        // Rows of other tests are recent and not all rolled up; start the age scan after them
+        watermarkRepository.createIfAbsent(UsageArchivalService.LOCK);
+        jdbcTemplate.update("UPDATE rollup_watermarks SET last_id = (SELECT COALESCE(MAX(id), 0) FROM coupon_usages) "
+            + "WHERE name = ?", UsageArchivalService.LOCK);
+        ReflectionTestUtils.setField(archivalService, "enabled", true);
+        ReflectionTestUtils.setField(archivalService, "rollupEnabled", false);
+    }
+    
+    @AfterEach
+    void restoreRetention() {
+        ReflectionTestUtils.setField(archivalService, "enabled", false);
+        ReflectionTestUtils.setField(archivalService, "rollupEnabled", true);
+    }
+    
+    @Test
+    void archivedUsesStillCountTowardsTheUserLimit() {
+        Long couponId = coupon(2);
+        long userId = NEXT_USER_ID.incrementAndGet();
+        insertUsage(couponId, userId, LocalDateTime.now().minusDays(400));
+        insertUsage(couponId, userId, LocalDateTime.now().minusDays(399));
+        
+        assertTrue(archivalService.archive() >= 2);
+        
+        assertEquals(0, usageRows(couponId));
+        assertEquals(2, couponUsageRepository.countByCouponIdAndUserId(couponId, userId));
+        CouponUsageLimitExceededException limit = assertThrows(CouponUsageLimitExceededException.class,
+            () -> couponApplicationService.applyCoupon(couponId, cart(userId)));
+        assertTrue(limit.isPerUser());
+        couponApplicationService.applyCoupon(couponId, cart(NEXT_USER_ID.incrementAndGet()));
+    }
+    
+    @Test
+    void ageScanStopsAtTheFirstRowThatIsTooRecent() {
+        Long couponId = coupon(null);
+        long aged = insertUsage(couponId, NEXT_USER_ID.incrementAndGet(), LocalDateTime.now().minusDays(400));
+        insertUsage(couponId, NEXT_USER_ID.incrementAndGet(), LocalDateTime.now().minusDays(1));
+        insertUsage(couponId, NEXT_USER_ID.incrementAndGet(), LocalDateTime.now().minusDays(400));
+        
+        archivalService.archive();
+        
+        assertEquals(2, usageRows(couponId));
+        assertEquals(aged, cursor());
+    }
+    
+    @Test
+    void usesOfEndedCouponsAreArchivedWithoutMovingTheCursor() {
+        Long couponId = coupon(null);
+        insertUsage(couponId, NEXT_USER_ID.incrementAndGet(), LocalDateTime.now().minusDays(45));
+        insertUsage(couponId, NEXT_USER_ID.incrementAndGet(), LocalDateTime.now().minusDays(44));
+        jdbcTemplate.update("UPDATE coupons SET end_date = ? WHERE id = ?",
+            Timestamp.valueOf(LocalDateTime.now().minusDays(40)), couponId);
+        long before = cursor();
+        
+        assertTrue(archivalService.archive() >= 2);
+        
+        assertEquals(0, usageRows(couponId));
+        assertEquals(before, cursor());
+    }
+    
+    private long insertUsage(Long couponId, long userId, LocalDateTime usedAt) {
+        jdbcTemplate.update("INSERT INTO coupon_usages (coupon_id, user_id, cart_id, discount_amount, used_at) "
+            + "VALUES (?, ?, ?, 10.00, ?)", couponId, userId, UUID.randomUUID().toString(), Timestamp.valueOf(usedAt));
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM coupon_usages WHERE coupon_id = ?", Long.class, couponId);
+    }
+    
+    private int usageRows(Long couponId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupon_usages WHERE coupon_id = ?", Integer.class, couponId);
+    }
+    
+    private long cursor() {
+        return jdbcTemplate.queryForObject("SELECT last_id FROM rollup_watermarks WHERE name = ?", Long.class,
+            UsageArchivalService.LOCK);
+    }
+    
+    private Long coupon(Integer maxUsagePerUser) {
+        return couponService.createCoupon(CouponRequest.builder()
+            .code("ARCHIVE-" + UUID.randomUUID())
+            .name("Archival")
+            .type(CouponType.CART_WISE)
+            .discountType(DiscountType.PERCENTAGE)
+            .discountValue(BigDecimal.TEN)
+            .minCartAmount(BigDecimal.ONE)
+            .startDate(LocalDateTime.now().minusYears(2))
+            .endDate(LocalDateTime.now().plusDays(1))
+            .maxUsagePerUser(maxUsagePerUser)
+            .build()).getId();
+    }
+    
+    private static CartRequest cart(Long userId) {
+        return CartRequest.builder()
+            .userId(userId)
+            .cartItems(List.of(CartItemRequest.builder()
+                .productId(1L)
+                .quantity(1)
+                .unitPrice(BigDecimal.valueOf(100))
+                .build()))
+            .build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.coupon.service;
+
+import com.example.demo.coupon.dto.CouponRequest;
+import com.example.demo.coupon.dto.UsageRollupResponse;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UsageRollupServiceTests {
+    
+    @Autowired
+    private UsageRollupService rollupService;
+    
+    @Autowired
+    private CouponService couponService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeEach
+    void settleImmediately() {
+        // Rows other tests just recorded would otherwise hold the watermark back for the settle lag
+        ReflectionTestUtils.setField(rollupService, "settleLag", Duration.ZERO);
+    }
+    
+    @AfterEach
+    void restoreSettleLag() {
+        ReflectionTestUtils.setField(rollupService, "settleLag", Duration.ofSeconds(30));
+    }
+    
+    @Test
+    void reconcileCountsRowsThatCommittedBelowTheWatermark() {
+        Long couponId = coupon();
+        LocalDateTime usedAt = LocalDateTime.now().minusMinutes(5);
+        jdbcTemplate.update("INSERT INTO coupon_usages (coupon_id, user_id, cart_id, discount_amount, used_at) "
+            + "VALUES (?, 1, 'on-time', 10.00, ?)", couponId, Timestamp.valueOf(usedAt));
+        rollupService.rollUp();
+        
+        // A transaction that outlived the settle lag: its row lands below the watermark after the batch ran
+        jdbcTemplate.update("INSERT INTO coupon_usages (id, coupon_id, user_id, cart_id, discount_amount, used_at) "
+            + "VALUES (?, ?, 2, 'late', 5.00, ?)", -couponId, couponId, Timestamp.valueOf(usedAt));
+        rollupService.rollUp();
+        assertEquals(1, report(couponId, usedAt.toLocalDate()).getRedemptions());
+        
+        assertTrue(rollupService.reconcile() >= 1);
+        
+        UsageRollupResponse reconciled = report(couponId, usedAt.toLocalDate());
+        assertEquals(2, reconciled.getRedemptions());
+        assertEquals(0, new BigDecimal("15.00").compareTo(reconciled.getDiscountTotal()));
+        assertEquals(2, reconciled.getDistinctUsers());
+    }
+    
+    private UsageRollupResponse report(Long couponId, LocalDate day) {
+        return rollupService.query(couponId, day, day);
+    }
+    
+    private Long coupon() {
+        return couponService.createCoupon(CouponRequest.builder()
+            .code("ROLLUP-" + UUID.randomUUID())
+            .name("Rollup")
+            .type(CouponType.CART_WISE)
+            .discountType(DiscountType.PERCENTAGE)
+            .discountValue(BigDecimal.TEN)
+            .minCartAmount(BigDecimal.ONE)
+            .startDate(LocalDateTime.now().minusDays(1))
+            .endDate(LocalDateTime.now().plusDays(1))
+            .build()).getId();
+    }
+}
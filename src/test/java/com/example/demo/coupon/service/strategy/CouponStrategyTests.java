@@ -0,0 +1,153 @@
+package com.example.demo.coupon.service.strategy;
+
+import com.example.demo.coupon.dto.ApplicableCouponResponse;
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.DiscountBreakdown;
+import com.example.demo.coupon.model.BxGyCoupon;
+import com.example.demo.coupon.model.CartWiseCoupon;
+import com.example.demo.coupon.model.Coupon;
+import com.example.demo.coupon.model.ProductWiseCoupon;
+import com.example.demo.coupon.model.enums.BxGyDiscountType;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * getApplicabilityInfo is built from applicableDiscount and describeApplicable; the expected responses
+ * are the ones the strategies returned when they computed everything in getApplicabilityInfo.
+ */
+class CouponStrategyTests {
+    
+    private final CartWiseStrategy cartWiseStrategy = new CartWiseStrategy();
+    private final ProductWiseStrategy productWiseStrategy = new ProductWiseStrategy();
+    private final BxGyStrategy bxGyStrategy = new BxGyStrategy();
+    
+    @Test
+    void cartWiseResponsesAreUnchanged() {
+        CartWiseCoupon coupon = new CartWiseCoupon();
+        describe(coupon, 1L, CouponType.CART_WISE, DiscountType.PERCENTAGE, BigDecimal.TEN);
+        coupon.setMinCartAmount(new BigDecimal("100.00"));
+        
+        assertResponse(cartWiseStrategy, coupon, List.of(item(1L, 1, "250.00")), ApplicableCouponResponse.builder()
+            .totalDiscount(new BigDecimal("25.00"))
+            .discountBreakdown(DiscountBreakdown.builder()
+                .cartTotal(new BigDecimal("250.00"))
+                .discountPercentage(BigDecimal.TEN)
+                .discountAmount(new BigDecimal("25.00"))
+                .build())
+            .isApplicable(true)
+            .applicabilityMessage("Coupon applicable"));
+        assertResponse(cartWiseStrategy, coupon, List.of(item(1L, 1, "50.00")), ApplicableCouponResponse.builder()
+            .totalDiscount(BigDecimal.ZERO)
+            .discountBreakdown(DiscountBreakdown.builder()
+                .cartTotal(new BigDecimal("50.00"))
+                .discountPercentage(BigDecimal.TEN)
+                .discountAmount(BigDecimal.ZERO)
+                .build())
+            .isApplicable(false)
+            .applicabilityMessage(String.format("Cart total (%.2f) is less than minimum required (%.2f)",
+                new BigDecimal("50.00"), new BigDecimal("100.00"))));
+    }
+    
+    @Test
+    void productWiseResponsesAreUnchanged() {
+        ProductWiseCoupon coupon = new ProductWiseCoupon();
+        describe(coupon, 2L, CouponType.PRODUCT_WISE, DiscountType.PERCENTAGE, BigDecimal.valueOf(20));
+        coupon.setApplicableProductIds(Set.of(1L, 2L));
+        coupon.setMaxQuantity(2);
+        
+        assertResponse(productWiseStrategy, coupon, List.of(item(1L, 3, "50.00"), item(3L, 1, "30.00")),
+            ApplicableCouponResponse.builder()
+                .totalDiscount(new BigDecimal("20.00"))
+                .discountBreakdown(DiscountBreakdown.builder()
+                    .cartTotal(new BigDecimal("180.00"))
+                    .discountPercentage(BigDecimal.valueOf(20))
+                    .discountAmount(new BigDecimal("20.00"))
+                    .productDiscounts(Map.of(1L, new BigDecimal("20.00")))
+                    .build())
+                .isApplicable(true)
+                .applicabilityMessage("Coupon applicable to eligible products"));
+        assertResponse(productWiseStrategy, coupon, List.of(item(3L, 1, "30.00")), ApplicableCouponResponse.builder()
+            .totalDiscount(BigDecimal.ZERO)
+            .discountBreakdown(DiscountBreakdown.builder()
+                .cartTotal(new BigDecimal("30.00"))
+                .discountPercentage(BigDecimal.valueOf(20))
+                .discountAmount(BigDecimal.ZERO)
+                .productDiscounts(Map.of())
+                .build())
+            .isApplicable(false)
+            .applicabilityMessage("No applicable products found in cart or minimum quantity requirement not met"));
+    }
+    
+    @Test
+    void bxgyResponsesAreUnchanged() {
+        BxGyCoupon coupon = new BxGyCoupon();
+        describe(coupon, 3L, CouponType.BXGY, DiscountType.PERCENTAGE, BigDecimal.valueOf(100));
+        coupon.setBuyProductIds(Set.of(1L));
+        coupon.setBuyQuantity(2);
+        coupon.setGetProductIds(Set.of(2L));
+        coupon.setGetQuantity(1);
+        coupon.setRepetitionLimit(3);
+        coupon.setBxGyDiscountType(BxGyDiscountType.FREE);
+        
+        assertResponse(bxGyStrategy, coupon, List.of(item(1L, 4, "10.00"), item(2L, 1, "15.00")),
+            ApplicableCouponResponse.builder()
+                .totalDiscount(new BigDecimal("15.00"))
+                .discountBreakdown(DiscountBreakdown.builder()
+                    .cartTotal(new BigDecimal("55.00"))
+                    .discountAmount(new BigDecimal("15.00"))
+                    .buyQuantity(2)
+                    .getQuantity(1)
+                    .applications(1)
+                    .build())
+                .isApplicable(true)
+                .applicabilityMessage("Coupon applicable: 1 application(s)"));
+        assertResponse(bxGyStrategy, coupon, List.of(item(1L, 1, "10.00"), item(2L, 1, "15.00")),
+            ApplicableCouponResponse.builder()
+                .totalDiscount(BigDecimal.ZERO)
+                .isApplicable(false)
+                .applicabilityMessage("Not applicable: Need 2 buy products (have 1) and 1 get products (have 1)"));
+    }
+    
+    private static void assertResponse(CouponStrategy strategy, Coupon coupon, List<CartItemRequest> cartItems,
+                                       ApplicableCouponResponse.ApplicableCouponResponseBuilder expected) {
+        BigDecimal cartTotal = cartItems.stream()
+            .map(item -> item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        
+        assertEquals(expected
+            .couponId(coupon.getId())
+            .couponCode(coupon.getCode())
+            .couponName(coupon.getName())
+            .couponType(coupon.getType())
+            .build(), strategy.getApplicabilityInfo(coupon, cartItems, cartTotal));
+        assertEquals(strategy.isApplicable(coupon, cartItems, cartTotal)
+            ? strategy.calculateDiscount(coupon, cartItems, cartTotal) : null,
+            strategy.applicableDiscount(coupon, cartItems, cartTotal));
+    }
+    
+    private static void describe(Coupon coupon, Long id, CouponType type, DiscountType discountType,
+                                 BigDecimal discountValue) {
+        coupon.setId(id);
+        coupon.setCode("STRATEGY-" + id);
+        coupon.setName("Strategy " + id);
+        coupon.setType(type);
+        coupon.setDiscountType(discountType);
+        coupon.setDiscountValue(discountValue);
+    }
+    
+    private static CartItemRequest item(Long productId, int quantity, String unitPrice) {
+        return CartItemRequest.builder()
+            .productId(productId)
+            .quantity(quantity)
+            .unitPrice(new BigDecimal(unitPrice))
+            .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.coupon.util;
+
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.PackedCart;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CartFingerprintTests {
+    
+    @Test
+    void lineOrderProductNamesAndPriceScaleDoNotChangeTheFingerprint() {
+        String fingerprint = fingerprint(List.of(
+            item(1L, "Shirt", 2, "10.50"),
+            item(2L, "Socks", 1, "3")));
+        
+        assertEquals(fingerprint, fingerprint(List.of(
+            item(2L, null, 1, "3.00"),
+            item(1L, "T-shirt", 2, "10.5"))));
+    }
+    
+    @Test
+    void quantityPriceAndProductChangesDo() {
+        String fingerprint = fingerprint(List.of(item(1L, null, 2, "10.50")));
+        
+        assertNotEquals(fingerprint, fingerprint(List.of(item(1L, null, 3, "10.50"))));
+        assertNotEquals(fingerprint, fingerprint(List.of(item(1L, null, 2, "10.51"))));
+        assertNotEquals(fingerprint, fingerprint(List.of(item(3L, null, 2, "10.50"))));
+        assertNotEquals(fingerprint, fingerprint(List.of(item(1L, null, 1, "10.50"), item(1L, null, 1, "10.50"))));
+    }
+    
+    @Test
+    void packedCartHashesLikeTheEquivalentJsonCart() {
+        PackedCart packed = new PackedCart(42L, 2,
+            new long[] {7L, 3L, 3L}, new int[] {1, 4, 2}, new long[] {1999L, 500L, 1000L});
+        packed.normalize();
+        
+        assertEquals(fingerprint(List.of(
+                item(3L, null, 4, "5"),
+                item(7L, null, 1, "19.99"),
+                item(3L, null, 2, "10.00"))),
+            CartFingerprint.of(packed));
+    }
+    
+    @Test
+    void packedPricesBelowOneMinorUnitPrintLikeBigDecimal() {
+        PackedCart packed = new PackedCart(null, 4, new long[] {1L}, new int[] {1}, new long[] {5L});
+        
+        assertEquals(fingerprint(List.of(item(1L, null, 1, "0.0005"))), CartFingerprint.of(packed));
+    }
+    
+    private static String fingerprint(List<CartItemRequest> items) {
+        return CartFingerprint.of(CartFingerprint.normalize(items));
+    }
+    
+    private static CartItemRequest item(Long productId, String name, int quantity, String unitPrice) {
+        return new CartItemRequest(productId, name, quantity, new BigDecimal(unitPrice));
+    }
+}
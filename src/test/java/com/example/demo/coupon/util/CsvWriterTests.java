@@ -0,0 +1,42 @@
+package com.example.demo.coupon.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvWriterTests {
+    
+    @Test
+    void plainFieldsAreWrittenAsIsAndNullsAreEmpty() throws Exception {
+        assertEquals("1,SUMMER10,,10.00\r\n", csv(1L, "SUMMER10", null, new BigDecimal("10.00")));
+    }
+    
+    @Test
+    void fieldsWithSeparatorsQuotesOrLineBreaksAreQuoted() throws Exception {
+        assertEquals("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\r\n", csv("a,b", "say \"hi\"", "two\nlines"));
+    }
+    
+    @Test
+    void textThatWouldRunAsAFormulaIsNeutralized() throws Exception {
+        assertEquals("\"'=HYPERLINK(\"\"x\"\")\",'+1,'-1,'@SUM(A1),'\tcmd\r\n",
+            csv("=HYPERLINK(\"x\")", "+1", "-1", "@SUM(A1)", "\tcmd"));
+        assertEquals("\"'=1,2\",a=b\r\n", csv("=1,2", "a=b"));
+    }
+    
+    @Test
+    void numbersAreNotNeutralized() throws Exception {
+        assertEquals("-5,-1.50\r\n", csv(-5L, new BigDecimal("-1.50")));
+    }
+    
+    private static String csv(Object... fields) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvWriter writer = new CsvWriter(out)) {
+            writer.writeRow(fields);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
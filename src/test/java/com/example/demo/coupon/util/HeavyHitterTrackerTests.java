@@ -0,0 +1,88 @@
+package com.example.demo.coupon.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHitterTrackerTests {
+    
+    @Test
+    void findsTheLeadersOfASkewedStream() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(50, 4096, 4);
+        Map<Long, Long> trueCounts = new HashMap<>();
+        Random random = new Random(7);
+        // Zipf-like: key k drawn with probability proportional to 1/k over 100k keys
+        double[] cumulative = new double[100_000];
+        double sum = 0;
+        for (int k = 0; k < cumulative.length; k++) {
+            sum += 1.0 / (k + 1);
+            cumulative[k] = sum;
+        }
+        for (int i = 0; i < 500_000; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            long key = index >= 0 ? index : -index - 1;
+            tracker.record(key);
+            trueCounts.merge(key, 1L, Long::sum);
+        }
+        
+        List<HeavyHitterTracker.HeavyHitter> top = tracker.top(10);
+        assertEquals(Set.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L),
+            top.stream().map(HeavyHitterTracker.HeavyHitter::getKey).collect(Collectors.toSet()));
+        for (HeavyHitterTracker.HeavyHitter hitter : tracker.top(50)) {
+            long trueCount = trueCounts.get(hitter.getKey());
+            assertTrue(hitter.getGuaranteedCount() <= trueCount && trueCount <= hitter.getEstimatedCount(),
+                "key " + hitter.getKey() + ": " + trueCount + " outside [" + hitter.getGuaranteedCount()
+                    + ", " + hitter.getEstimatedCount() + "]");
+        }
+        assertEquals(500_000, tracker.total());
+    }
+    
+    @Test
+    void keyThatTurnsHotDisplacesTheSmallestEntry() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(3, 1024, 4);
+        record(tracker, 1, 100);
+        record(tracker, 2, 50);
+        record(tracker, 3, 10);
+        // Entries keep growing after admission; the threshold must follow them
+        record(tracker, 3, 40);
+        record(tracker, 4, 30);
+        assertEquals(Set.of(1L, 2L, 3L), keys(tracker));
+        
+        record(tracker, 4, 30);
+        assertEquals(Set.of(1L, 2L, 4L), keys(tracker));
+        assertEquals(List.of(1L, 4L, 2L), tracker.top(3).stream().map(HeavyHitterTracker.HeavyHitter::getKey).toList());
+    }
+    
+    @Test
+    void resetForgetsEverything() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(2, 1024, 4);
+        record(tracker, 1, 10);
+        record(tracker, 2, 10);
+        tracker.reset();
+        record(tracker, 3, 1);
+        
+        assertEquals(Set.of(3L), keys(tracker));
+        assertEquals(1, tracker.total());
+    }
+    
+    private static void record(HeavyHitterTracker tracker, long key, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(key);
+        }
+    }
+    
+    private static Set<Long> keys(HeavyHitterTracker tracker) {
+        return tracker.top(Integer.MAX_VALUE).stream()
+            .map(HeavyHitterTracker.HeavyHitter::getKey)
+            .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.coupon.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTests {
+    
+    private static final int PRECISION = 12;
+    
+    @Test
+    void estimatesStayWithinThreeStandardErrors() {
+        double tolerance = 3 * 1.04 / Math.sqrt(1 << PRECISION);
+        for (int distinct : new int[]{1_000, 10_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog(PRECISION);
+            for (long key = 0; key < distinct; key++) {
+                sketch.add(key);
+                sketch.add(key); // Repeats do not count
+            }
+            double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+            assertTrue(error < tolerance, distinct + " keys estimated as " + sketch.estimate());
+        }
+    }
+    
+    @Test
+    void smallCardinalitiesAreNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        assertEquals(0, sketch.estimate());
+        for (long key = 1; key <= 20; key++) {
+            sketch.add(key * 7919);
+        }
+        assertEquals(20, sketch.estimate());
+    }
+    
+    @Test
+    void mergeCountsTheUnion() {
+        HyperLogLog monday = new HyperLogLog(PRECISION);
+        HyperLogLog tuesday = new HyperLogLog(PRECISION);
+        HyperLogLog both = new HyperLogLog(PRECISION);
+        for (long key = 0; key < 30_000; key++) {
+            monday.add(key);
+            both.add(key);
+        }
+        for (long key = 20_000; key < 50_000; key++) {
+            tuesday.add(key);
+            both.add(key);
+        }
+        
+        monday.merge(tuesday);
+        
+        assertArrayEquals(both.toBytes(), monday.toBytes());
+        assertThrows(IllegalArgumentException.class, () -> monday.merge(new HyperLogLog(PRECISION + 1)));
+    }
+    
+    @Test
+    void serializedSketchRestoresUnchanged() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (long key = 0; key < 5_000; key++) {
+            sketch.add(key);
+        }
+        
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+        
+        assertArrayEquals(sketch.toBytes(), restored.toBytes());
+        assertEquals(sketch.estimate(), restored.estimate());
+        // Restored at the same precision, so it still merges with sketches built directly
+        restored.merge(new HyperLogLog(PRECISION));
+    }
+    
+    @Test
+    void registerArraysOfTheWrongSizeAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[8]));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[1000]));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[1 << 19]));
+        assertEquals(0, HyperLogLog.fromBytes(new byte[1 << 18]).estimate());
+    }
+}
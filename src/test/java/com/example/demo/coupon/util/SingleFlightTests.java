@@ -0,0 +1,120 @@
+package com.example.demo.coupon.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTests {
+    
+    private static final int CALLERS = 8;
+    
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+    
+    @AfterEach
+    void stopCallers() {
+        callers.shutdownNow();
+    }
+    
+    @Test
+    void concurrentCallsForOneKeyShareOneExecution() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        List<Future<Integer>> results = callWhileLeaderBlocks(singleFlight, () -> {
+            executions.incrementAndGet();
+            return 42;
+        });
+        
+        for (Future<Integer> result : results) {
+            assertEquals(42, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1, singleFlight.getExecutions());
+        assertEquals(CALLERS - 1, singleFlight.getCoalesced());
+    }
+    
+    @Test
+    void keyIsReleasedOnceTheComputationCompletes() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        assertEquals(1, singleFlight.execute("cart", () -> 1));
+        assertEquals(2, singleFlight.execute("cart", () -> 2));
+        assertEquals(2, singleFlight.getExecutions());
+    }
+    
+    @Test
+    void runtimeExceptionsReachEveryWaiter() throws Exception {
+        IllegalStateException failure = new IllegalStateException("evaluation failed");
+        List<Future<Integer>> results = callWhileLeaderBlocks(new SingleFlight<>(), () -> {
+            throw failure;
+        });
+        
+        for (Future<Integer> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+    }
+    
+    @Test
+    void errorsReachEveryWaiterInsteadOfLeavingThemBlocked() throws Exception {
+        StackOverflowError failure = new StackOverflowError();
+        List<Future<Integer>> results = callWhileLeaderBlocks(new SingleFlight<>(), () -> {
+            throw failure;
+        });
+        
+        for (Future<Integer> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+    }
+    
+    /**
+     * Start CALLERS calls for one key; the leader's computation waits until all others have joined
+     */
+    private List<Future<Integer>> callWhileLeaderBlocks(SingleFlight<String, Integer> singleFlight,
+                                                        Supplier<Integer> computation) throws InterruptedException {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        results.add(callers.submit(() -> singleFlight.execute("cart", () -> {
+            leaderStarted.countDown();
+            await(release);
+            return computation.get();
+        })));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(callers.submit(() -> singleFlight.execute("cart", () -> {
+                throw new AssertionError("follower executed the computation");
+            })));
+        }
+        // Followers register as coalesced before they block on the shared future
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.getCoalesced() < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        return results;
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
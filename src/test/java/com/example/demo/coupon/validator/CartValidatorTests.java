@@ -0,0 +1,27 @@
+package com.example.demo.coupon.validator;
+
+import com.example.demo.coupon.dto.PackedCart;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CartValidatorTests {
+    
+    private final CartValidator validator = new CartValidator();
+    
+    @Test
+    void packedCartsAreHeldToTheJsonRules() {
+        assertTrue(validator.checkPackedCart(line(1, 1, 100)).isValid());
+        
+        assertEquals(ValidationResult.Reason.MISSING_PRODUCT_ID, validator.checkPackedCart(line(0, 1, 100)).getReason());
+        assertEquals(ValidationResult.Reason.INVALID_QUANTITY, validator.checkPackedCart(line(1, 0, 100)).getReason());
+        assertEquals(ValidationResult.Reason.INVALID_UNIT_PRICE, validator.checkPackedCart(line(1, 1, 0)).getReason());
+        assertEquals(ValidationResult.Reason.CART_EMPTY,
+            validator.checkPackedCart(new PackedCart(null, 2, new long[0], new int[0], new long[0])).getReason());
+    }
+    
+    private static PackedCart line(long productId, int quantity, long unitPrice) {
+        return new PackedCart(null, 2, new long[]{productId}, new int[]{quantity}, new long[]{unitPrice});
+    }
+}
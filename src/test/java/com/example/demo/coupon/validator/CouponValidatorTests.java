@@ -0,0 +1,74 @@
+package com.example.demo.coupon.validator;
+
+import com.example.demo.coupon.exception.CouponUsageLimitExceededException;
+import com.example.demo.coupon.model.CartWiseCoupon;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CouponValidatorTests {
+    
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0);
+    
+    private final CouponValidator validator = new CouponValidator();
+    
+    @Test
+    void redeemableReasonReportsStatusDatesAndGlobalLimit() {
+        CartWiseCoupon coupon = coupon();
+        assertNull(validator.redeemableReason(coupon, NOW));
+        
+        coupon.setStartDate(NOW.plusDays(1));
+        assertEquals(ValidationResult.Reason.NOT_STARTED, validator.redeemableReason(coupon, NOW));
+        
+        coupon = coupon();
+        coupon.setEndDate(NOW.minusDays(1));
+        assertEquals(ValidationResult.Reason.EXPIRED, validator.redeemableReason(coupon, NOW));
+        
+        coupon = coupon();
+        coupon.setMaxUsage(5);
+        coupon.setCurrentUsage(5);
+        assertEquals(ValidationResult.Reason.USAGE_LIMIT_REACHED, validator.redeemableReason(coupon, NOW));
+        
+        coupon = coupon();
+        coupon.setIsActive(false);
+        assertEquals(ValidationResult.Reason.INACTIVE, validator.redeemableReason(coupon, NOW));
+    }
+    
+    @Test
+    void checkCouponApplicableDescribesTheReason() {
+        CartWiseCoupon coupon = coupon();
+        coupon.setStartDate(NOW.plusDays(1));
+        ValidationResult result = validator.checkCouponApplicable(coupon, null, null, NOW);
+        assertEquals(ValidationResult.Reason.NOT_STARTED, result.getReason());
+        assertEquals(validator.describe(ValidationResult.Reason.NOT_STARTED, coupon), result.getMessage());
+        assertTrue(result.getMessage().contains(NOW.plusDays(1).toString()));
+    }
+    
+    @Test
+    void perUserLimitOnlyAppliesToRedeemableCoupons() {
+        CartWiseCoupon coupon = coupon();
+        coupon.setMaxUsagePerUser(2);
+        ValidationResult result = validator.checkCouponApplicable(coupon, 7L, 2L, NOW);
+        assertEquals(ValidationResult.Reason.USER_LIMIT_REACHED, result.getReason());
+        CouponUsageLimitExceededException e = assertThrows(CouponUsageLimitExceededException.class, result::orThrow);
+        assertEquals("User has exceeded the usage limit for this coupon", e.getMessage());
+        
+        coupon.setIsActive(false);
+        assertEquals(ValidationResult.Reason.INACTIVE, validator.checkCouponApplicable(coupon, 7L, 2L, NOW).getReason());
+        assertTrue(validator.checkCouponApplicable(coupon(), 7L, 2L, NOW).isValid());
+    }
+    
+    private static CartWiseCoupon coupon() {
+        CartWiseCoupon coupon = new CartWiseCoupon();
+        coupon.setIsActive(true);
+        coupon.setStartDate(NOW.minusDays(1));
+        coupon.setEndDate(NOW.plusDays(1));
+        coupon.setCurrentUsage(0);
+        return coupon;
+    }
+}
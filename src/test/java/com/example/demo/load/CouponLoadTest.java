@@ -0,0 +1,314 @@
+package com.example.demo.load;
+
+import com.example.demo.coupon.dto.CartItemRequest;
+import com.example.demo.coupon.dto.CartRequest;
+import com.example.demo.coupon.dto.CouponRequest;
+import com.example.demo.coupon.dto.CouponResponse;
+import com.example.demo.coupon.model.enums.BxGyDiscountType;
+import com.example.demo.coupon.model.enums.CouponType;
+import com.example.demo.coupon.model.enums.DiscountType;
+import com.example.demo.coupon.service.CouponService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * In-process load harness. Boots the application on a random port against in-memory H2, seeds a
+ * synthetic catalog and drives the evaluation and redemption endpoints from concurrent clients.
+ *
+ * <p>Excluded from the default build; run with {@code mvn -Pload-test test}. Sizing is controlled by
+ * system properties, e.g. {@code -Dload.coupons=5000 -Dload.clients=64 -Dload.duration=PT60S}.
+ * Add {@code -Dspring.threads.virtual.enabled=true} to serve on virtual threads and compare;
+ * {@link ReactiveCouponLoadTest} drives the reactive variant with the same workload.
+ */
+@Tag("load")
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+    }
+)
+@ActiveProfiles("test")
+class CouponLoadTest {
+    
+    private static final int COUPONS = Integer.getInteger("load.coupons", 1000);
+    private static final int PRODUCTS = Integer.getInteger("load.products", 5000);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 32);
+    private static final int USERS = Integer.getInteger("load.users", 10000);
+    private static final int CART_SIZE = Integer.getInteger("load.cartSize", 10);
+    private static final int DISTINCT_CARTS = Integer.getInteger("load.distinctCarts", 2000);
+    private static final double APPLY_RATIO = Double.parseDouble(System.getProperty("load.applyRatio", "0.2"));
+    private static final Duration WARMUP = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT20S"));
+    private static final long SEED = Long.getLong("load.seed", 42L);
+    
+    @LocalServerPort
+    private int port;
+    
+    @Autowired
+    private CouponService couponService;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .executor(Executors.newFixedThreadPool(4))
+        .build();
+    
+    @Test
+    void evaluateAndRedeemUnderLoad() throws Exception {
+        Random random = new Random(SEED);
+        List<Long> couponIds = seedCatalog(random);
+        List<byte[]> carts = generateCarts(random);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        
+        System.out.printf("%nLoad test: %d coupons, %d products, %d clients, %d distinct carts of %d lines, %s%n",
+            COUPONS, PRODUCTS, CLIENTS, DISTINCT_CARTS, CART_SIZE, servingMode());
+        
+        runPhase("warmup", WARMUP, couponIds, carts);
+        statistics.clear();
+        PhaseResult result = runPhase("measured", DURATION, couponIds, carts);
+        long statements = statistics.getPrepareStatementCount();
+        
+        result.print(statements);
+        
+        assertEquals(0, result.serverErrors.sum(), "Server errors under load");
+        assertEquals(0, result.transportErrors.sum(), "Transport errors under load");
+        assertTrue(result.evaluate.count() > 0, "No evaluations completed");
+    }
+    
+    /**
+     * Port the load is sent to
+     */
+    protected int port() {
+        return port;
+    }
+    
+    protected String servingMode() {
+        return virtualThreads ? "virtual threads" : "platform threads";
+    }
+    
+    private List<Long> seedCatalog(Random random) {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now().plusYears(1);
+        List<Long> ids = new ArrayList<>(COUPONS);
+        
+        for (int i = 0; i < COUPONS; i++) {
+            CouponRequest.CouponRequestBuilder builder = CouponRequest.builder()
+                .code("LOAD" + i)
+                .name("Load coupon " + i)
+                .isActive(true)
+                .startDate(start)
+                .endDate(end)
+                .maxUsage(random.nextInt(4) == 0 ? 50 + random.nextInt(500) : null)
+                .maxUsagePerUser(random.nextInt(3) == 0 ? 1 + random.nextInt(3) : null);
+            
+            switch (i % 3) {
+                case 0 -> builder.type(CouponType.CART_WISE)
+                    .discountType(DiscountType.PERCENTAGE)
+                    .discountValue(BigDecimal.valueOf(5 + random.nextInt(20)))
+                    .minCartAmount(BigDecimal.valueOf(50 + random.nextInt(500)))
+                    .maxDiscountAmount(BigDecimal.valueOf(100));
+                case 1 -> builder.type(CouponType.PRODUCT_WISE)
+                    .discountType(DiscountType.PERCENTAGE)
+                    .discountValue(BigDecimal.valueOf(5 + random.nextInt(30)))
+                    .applicableProductIds(randomProducts(random, 1 + random.nextInt(50)));
+                default -> builder.type(CouponType.BXGY)
+                    .discountType(DiscountType.PERCENTAGE)
+                    .discountValue(BigDecimal.valueOf(100))
+                    .buyProductIds(randomProducts(random, 1 + random.nextInt(10)))
+                    .getProductIds(randomProducts(random, 1 + random.nextInt(10)))
+                    .buyQuantity(1 + random.nextInt(3))
+                    .getQuantity(1)
+                    .repetitionLimit(1 + random.nextInt(3))
+                    .bxGyDiscountType(BxGyDiscountType.FREE);
+            }
+            
+            CouponResponse created = couponService.createCoupon(builder.build());
+            ids.add(created.getId());
+        }
+        return ids;
+    }
+    
+    private List<byte[]> generateCarts(Random random) throws Exception {
+        List<byte[]> carts = new ArrayList<>(DISTINCT_CARTS);
+        for (int i = 0; i < DISTINCT_CARTS; i++) {
+            List<CartItemRequest> items = new ArrayList<>(CART_SIZE);
+            for (Long productId : randomProducts(random, CART_SIZE)) {
+                items.add(CartItemRequest.builder()
+                    .productId(productId)
+                    .productName("Product " + productId)
+                    .quantity(1 + random.nextInt(4))
+                    .unitPrice(BigDecimal.valueOf(100 + random.nextInt(10_000), 2))
+                    .build());
+            }
+            carts.add(objectMapper.writeValueAsBytes(CartRequest.builder()
+                .cartItems(items)
+                .userId((long) (1 + random.nextInt(USERS)))
+                .build()));
+        }
+        return carts;
+    }
+    
+    private Set<Long> randomProducts(Random random, int count) {
+        Set<Long> products = new HashSet<>();
+        while (products.size() < Math.min(count, PRODUCTS)) {
+            products.add((long) (1 + random.nextInt(PRODUCTS)));
+        }
+        return products;
+    }
+    
+    private PhaseResult runPhase(String name, Duration duration, List<Long> couponIds, List<byte[]> carts)
+            throws InterruptedException {
+        PhaseResult result = new PhaseResult(name);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(result::sampleResources, 0, 50, TimeUnit.MILLISECONDS);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long deadline = System.nanoTime() + duration.toNanos();
+        result.startNanos = System.nanoTime();
+        
+        for (int c = 0; c < CLIENTS; c++) {
+            long clientSeed = SEED + c;
+            clients.submit(() -> {
+                Random random = new Random(clientSeed);
+                while (System.nanoTime() < deadline) {
+                    byte[] cart = carts.get(random.nextInt(carts.size()));
+                    if (random.nextDouble() < APPLY_RATIO) {
+                        Long couponId = couponIds.get(random.nextInt(couponIds.size()));
+                        send("/api/coupons/apply-coupon/" + couponId, cart, result.apply, result);
+                    } else {
+                        send("/api/coupons/applicable-coupons", cart, result.evaluate, result);
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+        result.elapsedNanos = System.nanoTime() - result.startNanos;
+        sampler.shutdownNow();
+        return result;
+    }
+    
+    private void send(String path, byte[] body, LatencyRecorder recorder, PhaseResult result) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port() + path))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            recorder.record(System.nanoTime() - start);
+            result.statusCounts.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+            if (response.statusCode() >= 500) {
+                result.serverErrors.increment();
+            }
+        } catch (Exception e) {
+            result.transportErrors.increment();
+        }
+    }
+    
+    private static class PhaseResult {
+        private final String name;
+        private final LatencyRecorder evaluate = new LatencyRecorder("applicable-coupons");
+        private final LatencyRecorder apply = new LatencyRecorder("apply-coupon");
+        private final Map<Integer, LongAdder> statusCounts = new ConcurrentSkipListMap<>();
+        private final LongAdder serverErrors = new LongAdder();
+        private final LongAdder transportErrors = new LongAdder();
+        private long startNanos;
+        private long elapsedNanos;
+        private volatile long peakHeapBytes;
+        private volatile int peakPlatformThreads;
+        
+        PhaseResult(String name) {
+            this.name = name;
+        }
+        
+        // Client and server share the JVM, so these include the client threads and buffers
+        void sampleResources() {
+            peakHeapBytes = Math.max(peakHeapBytes, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+            peakPlatformThreads = Math.max(peakPlatformThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+        }
+        
+        void print(long statements) {
+            double seconds = elapsedNanos / 1e9;
+            long requests = evaluate.count() + apply.count();
+            System.out.printf("Phase %s: %d requests in %.1fs, %.1f req/s, %.2f DB statements/request%n",
+                name, requests, seconds, requests / seconds, requests == 0 ? 0.0 : (double) statements / requests);
+            evaluate.print(seconds);
+            apply.print(seconds);
+            System.out.printf("  status codes: %s, transport errors: %d%n", statusCounts, transportErrors.sum());
+            System.out.printf("  peak heap used: %.1f MB, peak platform threads: %d%n",
+                peakHeapBytes / (1024.0 * 1024.0), peakPlatformThreads);
+        }
+    }
+    
+    private static class LatencyRecorder {
+        private final String name;
+        private final ConcurrentLinkedQueue<Long> samples = new ConcurrentLinkedQueue<>();
+        private final AtomicLong count = new AtomicLong();
+        
+        LatencyRecorder(String name) {
+            this.name = name;
+        }
+        
+        void record(long nanos) {
+            samples.add(nanos);
+            count.incrementAndGet();
+        }
+        
+        long count() {
+            return count.get();
+        }
+        
+        void print(double seconds) {
+            long[] sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+            if (sorted.length == 0) {
+                System.out.printf("  %-20s no samples%n", name);
+                return;
+            }
+            System.out.printf("  %-20s %8d requests %9.1f req/s  p50 %7.2fms  p95 %7.2fms  p99 %7.2fms  max %7.2fms%n",
+                name, sorted.length, sorted.length / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6);
+        }
+        
+        private static double percentile(long[] sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
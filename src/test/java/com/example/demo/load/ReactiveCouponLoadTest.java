@@ -0,0 +1,36 @@
+package com.example.demo.load;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * The load harness against the reactive profile: same catalog, carts and request mix,
+ * served by WebFlux on Netty with R2DBC for usage lookups and redemptions.
+ * Needs the reactive build: {@code mvn -Preactive,load-test test -Dtest=ReactiveCouponLoadTest}.
+ */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "coupon.reactive.port=0",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+    }
+)
+@ActiveProfiles({"test", "reactive"})
+class ReactiveCouponLoadTest extends CouponLoadTest {
+    
+    @Value("${local.reactive.port}")
+    private int reactivePort;
+    
+    @Override
+    protected int port() {
+        return reactivePort;
+    }
+    
+    @Override
+    protected String servingMode() {
+        return "reactive (WebFlux + R2DBC, DB statements count JPA only)";
+    }
+}